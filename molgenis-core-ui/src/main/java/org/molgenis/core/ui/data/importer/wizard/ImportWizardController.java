@@ -1,8 +1,10 @@
 package org.molgenis.core.ui.data.importer.wizard;
 
+import static java.util.Objects.requireNonNull;
 import static org.apache.commons.io.FilenameUtils.getBaseName;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 import static org.molgenis.core.ui.data.importer.wizard.ImportWizardController.URI; // NOSONAR
+import static org.molgenis.data.importer.ImportRunMetadata.IMPORT_RUN;
 import static org.springframework.http.MediaType.TEXT_PLAIN;
 
 import java.io.File;
@@ -12,8 +14,6 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
@@ -32,6 +32,7 @@ import org.molgenis.data.importer.ImportRunService;
 import org.molgenis.data.importer.ImportService;
 import org.molgenis.data.importer.ImportServiceFactory;
 import org.molgenis.data.importer.MetadataAction;
+import org.molgenis.jobs.JobExecutionQueue;
 import org.molgenis.security.core.utils.SecurityUtils;
 import org.molgenis.validation.UriValidator;
 import org.molgenis.web.PluginController;
@@ -64,36 +65,11 @@ public class ImportWizardController extends AbstractWizardController {
   private FileStore fileStore;
   private FileRepositoryCollectionFactory fileRepositoryCollectionFactory;
   private ImportRunService importRunService;
-  private ExecutorService asyncImportJobs;
+  private final JobExecutionQueue jobExecutionQueue;
   private DataService dataService;
   private static final Logger LOG = LoggerFactory.getLogger(ImportWizardController.class);
 
   @Autowired
-  public ImportWizardController(
-      UploadWizardPage uploadWizardPage,
-      OptionsWizardPage optionsWizardPage,
-      PackageWizardPage packageWizardPage,
-      ValidationResultWizardPage validationResultWizardPage,
-      ImportResultsWizardPage importResultsWizardPage,
-      DataService dataService,
-      ImportServiceFactory importServiceFactory,
-      FileStore fileStore,
-      FileRepositoryCollectionFactory fileRepositoryCollectionFactory,
-      ImportRunService importRunService) {
-    this(
-        uploadWizardPage,
-        optionsWizardPage,
-        packageWizardPage,
-        validationResultWizardPage,
-        importResultsWizardPage,
-        dataService,
-        importServiceFactory,
-        fileStore,
-        fileRepositoryCollectionFactory,
-        importRunService,
-        Executors.newSingleThreadExecutor());
-  }
-
   public ImportWizardController(
       UploadWizardPage uploadWizardPage,
       OptionsWizardPage optionsWizardPage,
@@ -105,7 +81,7 @@ public class ImportWizardController extends AbstractWizardController {
       FileStore fileStore,
       FileRepositoryCollectionFactory fileRepositoryCollectionFactory,
       ImportRunService importRunService,
-      ExecutorService executorService) {
+      JobExecutionQueue jobExecutionQueue) {
     super(URI, "importWizard");
     if (uploadWizardPage == null) throw new IllegalArgumentException("UploadWizardPage is null");
     if (optionsWizardPage == null) throw new IllegalArgumentException("OptionsWizardPage is null");
@@ -123,7 +99,7 @@ public class ImportWizardController extends AbstractWizardController {
     this.fileStore = fileStore;
     this.fileRepositoryCollectionFactory = fileRepositoryCollectionFactory;
     this.importRunService = importRunService;
-    this.asyncImportJobs = executorService;
+    this.jobExecutionQueue = requireNonNull(jobExecutionQueue);
   }
 
   @Override
@@ -271,7 +247,8 @@ public class ImportWizardController extends AbstractWizardController {
     importRun =
         importRunService.addImportRun(
             SecurityUtils.getCurrentUsername(), Boolean.TRUE.equals(notify));
-    asyncImportJobs.execute(
+    jobExecutionQueue.submit(
+        IMPORT_RUN,
         new ImportJob(
             importService,
             SecurityContextHolder.getContext(),
@@ -319,11 +296,6 @@ public class ImportWizardController extends AbstractWizardController {
     return databaseAction;
   }
 
-  /** Added for testability */
-  void setExecutorService(ExecutorService executorService) {
-    this.asyncImportJobs = executorService;
-  }
-
   public static String getUriPath(ImportRun importRun) {
     return ServletUriComponentsBuilder.fromCurrentRequestUri()
         .encode()
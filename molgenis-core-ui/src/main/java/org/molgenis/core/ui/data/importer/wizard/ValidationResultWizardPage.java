@@ -1,8 +1,8 @@
 package org.molgenis.core.ui.data.importer.wizard;
 
+import static org.molgenis.data.importer.ImportRunMetadata.IMPORT_RUN;
+
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.servlet.http.HttpServletRequest;
 import org.molgenis.core.ui.wizard.AbstractWizardPage;
 import org.molgenis.core.ui.wizard.Wizard;
@@ -16,6 +16,7 @@ import org.molgenis.data.importer.ImportService;
 import org.molgenis.data.importer.ImportServiceFactory;
 import org.molgenis.data.importer.MetadataAction;
 import org.molgenis.data.security.user.UserService;
+import org.molgenis.jobs.JobExecutionQueue;
 import org.molgenis.security.core.utils.SecurityUtils;
 import org.molgenis.security.user.UserAccountService;
 import org.slf4j.Logger;
@@ -30,14 +31,14 @@ public class ValidationResultWizardPage extends AbstractWizardPage {
   private static final long serialVersionUID = 1L;
   private static final Logger LOG = LoggerFactory.getLogger(ValidationResultWizardPage.class);
 
-  private final transient ExecutorService asyncImportJobs = Executors.newCachedThreadPool();
-
   @Autowired private transient ImportServiceFactory importServiceFactory;
 
   @Autowired private transient FileRepositoryCollectionFactory fileRepositoryCollectionFactory;
 
   @Autowired private transient ImportRunService importRunService;
 
+  @Autowired private transient JobExecutionQueue jobExecutionQueue;
+
   @Autowired transient UserAccountService userAccountService;
 
   @Autowired transient UserService userService;
@@ -76,7 +77,8 @@ public class ValidationResultWizardPage extends AbstractWizardPage {
               importRunService.addImportRun(SecurityUtils.getCurrentUsername(), false);
           ((ImportWizard) wizard).setImportRunId(importRun.getId());
 
-          asyncImportJobs.execute(
+          jobExecutionQueue.submit(
+              IMPORT_RUN,
               new ImportJob(
                   importService,
                   SecurityContextHolder.getContext(),
@@ -12,13 +12,13 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Collections;
-import java.util.concurrent.ExecutorService;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
 import org.molgenis.data.file.FileRepositoryCollectionFactory;
 import org.molgenis.data.file.FileStore;
 import org.molgenis.data.importer.ImportRunService;
 import org.molgenis.data.importer.ImportServiceFactory;
+import org.molgenis.jobs.JobExecutionQueue;
 import org.molgenis.security.user.UserAccountService;
 import org.molgenis.test.AbstractMockitoTest;
 import org.springframework.mock.web.MockMultipartFile;
@@ -43,7 +43,7 @@ public class ImportWizardControllerMockMVCTest extends AbstractMockitoTest {
   @Mock private FileStore fileStore;
   @Mock private FileRepositoryCollectionFactory fileRepositoryCollectionFactory;
   @Mock private ImportRunService importRunService;
-  @Mock private ExecutorService executorService;
+  @Mock private JobExecutionQueue jobExecutionQueue;
   @Mock private org.molgenis.data.meta.MetaDataService metaDataService;
   @Mock private File file;
 
@@ -63,7 +63,7 @@ public class ImportWizardControllerMockMVCTest extends AbstractMockitoTest {
             fileStore,
             fileRepositoryCollectionFactory,
             importRunService,
-            executorService);
+            jobExecutionQueue);
     mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
   }
 
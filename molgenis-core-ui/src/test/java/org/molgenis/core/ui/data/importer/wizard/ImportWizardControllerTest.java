@@ -7,6 +7,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.importer.ImportRunMetadata.IMPORT_RUN;
 import static org.springframework.http.MediaType.TEXT_PLAIN;
 import static org.testng.Assert.assertEquals;
 
@@ -14,7 +15,6 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Iterator;
-import java.util.concurrent.ExecutorService;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import org.apache.commons.fileupload.disk.DiskFileItem;
@@ -31,6 +31,7 @@ import org.molgenis.data.importer.ImportService;
 import org.molgenis.data.importer.ImportServiceFactory;
 import org.molgenis.data.importer.MetadataAction;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.jobs.JobExecutionQueue;
 import org.molgenis.test.AbstractMockitoTestNGSpringContextTests;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -62,7 +63,7 @@ public class ImportWizardControllerTest extends AbstractMockitoTestNGSpringConte
   @Mock private FileStore fileStore;
   @Mock private FileRepositoryCollectionFactory fileRepositoryCollectionFactory;
   @Mock private ImportRunService importRunService;
-  @Mock private ExecutorService executorService;
+  @Mock private JobExecutionQueue jobExecutionQueue;
 
   private ImportWizardController importWizardController;
 
@@ -82,8 +83,8 @@ public class ImportWizardControllerTest extends AbstractMockitoTestNGSpringConte
             importServiceFactory,
             fileStore,
             fileRepositoryCollectionFactory,
-            importRunService);
-    importWizardController.setExecutorService(executorService);
+            importRunService,
+            jobExecutionQueue);
   }
 
   @DataProvider(name = "testImportFileProvider")
@@ -149,7 +150,7 @@ public class ImportWizardControllerTest extends AbstractMockitoTestNGSpringConte
 
     verify(fileStore).store(any(), eq(filename));
     ArgumentCaptor<ImportJob> importJobArgumentCaptor = ArgumentCaptor.forClass(ImportJob.class);
-    verify(executorService).execute(importJobArgumentCaptor.capture());
+    verify(jobExecutionQueue).submit(eq(IMPORT_RUN), importJobArgumentCaptor.capture());
     assertEquals(
         importJobArgumentCaptor.getValue(),
         new ImportJob(
@@ -199,7 +200,7 @@ public class ImportWizardControllerTest extends AbstractMockitoTestNGSpringConte
                 "Invalid action:[UNKNOWNACTION] valid values: [ADD, ADD_UPDATE_EXISTING, UPDATE, ADD_IGNORE_EXISTING]"));
 
     verify(fileStore).store(any(), eq(filename));
-    verifyZeroInteractions(executorService);
+    verifyZeroInteractions(jobExecutionQueue);
   }
 
   @Test
@@ -236,7 +237,7 @@ public class ImportWizardControllerTest extends AbstractMockitoTestNGSpringConte
             .body("Invalid action:[UNKNOWNACTION] valid values: [ADD, UPDATE, UPSERT, IGNORE]"));
 
     verify(fileStore).store(any(), eq(filename));
-    verifyZeroInteractions(executorService);
+    verifyZeroInteractions(jobExecutionQueue);
   }
 
   private MultipartFile createMultipartFile(String filename) throws IOException {
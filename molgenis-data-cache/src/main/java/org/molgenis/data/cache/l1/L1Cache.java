@@ -6,7 +6,6 @@ import static org.slf4j.LoggerFactory.getLogger;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.guava.CaffeinatedGuava;
 import com.google.common.cache.Cache;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.molgenis.data.Entity;
@@ -44,7 +43,7 @@ public class L1Cache implements TransactionListener {
   }
 
   private CombinedEntityCache createCache() {
-    Cache<EntityKey, CacheHit<Map<String, Object>>> cache =
+    Cache<EntityKey, CacheHit<Object[]>> cache =
         CaffeinatedGuava.build(Caffeine.newBuilder().maximumSize(MAX_CACHE_SIZE).recordStats());
     return new CombinedEntityCache(entityHydration, cache);
   }
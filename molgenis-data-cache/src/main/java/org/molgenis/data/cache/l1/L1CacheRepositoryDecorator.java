@@ -140,6 +140,16 @@ public class L1CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
     delegate().update(entities);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    evictBiDiReferencedEntityTypes();
+    if (cacheable) {
+      String entityId = getEntityType().getId();
+      entities.forEach(entity -> l1Cache.put(entityId, entity));
+    }
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public void delete(Entity entity) {
     evictBiDiReferencedEntities(entity);
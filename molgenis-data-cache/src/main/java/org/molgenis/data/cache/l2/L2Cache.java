@@ -1,80 +1,127 @@
 package org.molgenis.data.cache.l2;
 
 import static com.google.common.collect.Maps.newConcurrentMap;
-import static com.google.common.collect.Streams.stream;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.empty;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static org.molgenis.data.cache.utils.CachePolicyRegistry.DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES;
+import static org.molgenis.data.cache.utils.SizeEstimator.weigh;
+import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.guava.CaffeinatedGuava;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Cache;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import javax.annotation.Nonnull;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityKey;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
+import org.molgenis.data.cache.utils.CachePolicy;
+import org.molgenis.data.cache.utils.CachePolicyRegistry;
 import org.molgenis.data.cache.utils.EntityHydration;
+import org.molgenis.data.cache.utils.SharedCacheIndex;
 import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionListener;
 import org.molgenis.data.transaction.TransactionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-/** In-memory cache of entities read from cacheable repositories. */
+/**
+ * In-memory cache of entities read from cacheable repositories.
+ *
+ * <p>Entity types with a configured {@link CachePolicy} and meta entity types have a dedicated
+ * cache, all other entity types share a single cache bounded by the remainder of the budget. The
+ * keys and metrics of the shared cache are kept per entity type by a {@link SharedCacheIndex}.
+ *
+ * <p>The cache is invalidated before other listeners, which might read through the cache.
+ */
 @Service
-public class L2Cache implements TransactionListener {
+@Order(HIGHEST_PRECEDENCE)
+public class L2Cache implements TransactionListener, CacheInvalidationListener {
   private static final Logger LOG = LoggerFactory.getLogger(L2Cache.class);
-  private static final int MAX_CACHE_SIZE_PER_ENTITY = 1000;
-  /** maps entity id to the loading cache with Object key and Optional dehydrated entity value */
-  private final ConcurrentMap<String, LoadingCache<Object, Optional<Map<String, Object>>>> caches;
+  /** maps entity type id to the dedicated cache with Optional dehydrated entity values */
+  private final ConcurrentMap<String, Cache<EntityKey, Optional<Object[]>>> caches;
+  /** cache of the entity types without dedicated cache */
+  private final Cache<EntityKey, Optional<Object[]>> sharedCache;
+
+  private final SharedCacheIndex<EntityKey, Optional<Object[]>> sharedCacheIndex;
 
   private final EntityHydration entityHydration;
   private final TransactionInformation transactionInformation;
   private final MeterRegistry meterRegistry;
+  private final CachePolicyRegistry cachePolicyRegistry;
 
+  /**
+   * @param budget maximum estimated size in bytes of the dehydrated entities in all caches
+   * @param policies cache policies per entity type, see {@link
+   *     CachePolicyRegistry#parsePolicies(String)}
+   */
   public L2Cache(
       TransactionManager transactionManager,
       EntityHydration entityHydration,
       TransactionInformation transactionInformation,
-      MeterRegistry meterRegistry) {
+      MeterRegistry meterRegistry,
+      @Value("${cache.l2.budget:268435456}") long budget,
+      @Value("${cache.l2.policies:}") String policies) {
     this.entityHydration = requireNonNull(entityHydration);
     this.transactionInformation = requireNonNull(transactionInformation);
     this.meterRegistry = requireNonNull(meterRegistry);
+    this.cachePolicyRegistry =
+        new CachePolicyRegistry(budget, CachePolicyRegistry.parsePolicies(policies));
     caches = newConcurrentMap();
+    sharedCacheIndex = new SharedCacheIndex<>(meterRegistry, "l2", EntityKey::getEntityTypeId);
+    sharedCache = createSharedEntityCache(cachePolicyRegistry.getSharedPolicy());
     requireNonNull(transactionManager).addTransactionListener(this);
   }
 
   @Override
   public void afterCommitTransaction(String transactionId) {
+    invalidate(CacheInvalidation.create(transactionInformation));
+  }
+
+  @Override
+  public void invalidate(CacheInvalidation cacheInvalidation) {
     // TODO: trace logging
-    transactionInformation.getEntirelyDirtyRepositories().forEach(caches::remove);
-    transactionInformation.getDirtyEntities().forEach(this::evict);
+    if (cacheInvalidation.isAll()) {
+      caches.values().forEach(Cache::invalidateAll);
+      sharedCache.invalidateAll();
+    } else {
+      cacheInvalidation.getEntirelyDirtyRepositories().forEach(this::evictAll);
+      cacheInvalidation.getDirtyEntities().forEach(this::evict);
+    }
   }
 
-  private void evict(EntityKey entityKey) {
-    LoadingCache<Object, Optional<Map<String, Object>>> cache =
-        caches.get(entityKey.getEntityTypeId());
+  private void evictAll(String entityTypeId) {
+    Cache<EntityKey, Optional<Object[]>> cache = caches.get(entityTypeId);
     if (cache != null) {
-      cache.invalidate(entityKey.getId());
+      cache.invalidateAll();
+    } else {
+      sharedCache.invalidateAll(sharedCacheIndex.getKeys(entityTypeId));
     }
   }
 
+  private void evict(EntityKey entityKey) {
+    Cache<EntityKey, Optional<Object[]>> cache = caches.get(entityKey.getEntityTypeId());
+    (cache != null ? cache : sharedCache).invalidate(entityKey);
+  }
+
   /**
    * Retrieves an entity from the cache or the underlying repository.
    *
@@ -85,38 +132,100 @@ public class L2Cache implements TransactionListener {
    *     an error when loading the entity
    */
   public Entity get(Repository<Entity> repository, Object id) {
-    LoadingCache<Object, Optional<Map<String, Object>>> cache = getEntityCache(repository);
     EntityType entityType = repository.getEntityType();
-    return cache.getUnchecked(id).map(e -> entityHydration.hydrate(e, entityType)).orElse(null);
+    Cache<EntityKey, Optional<Object[]>> cache = getEntityCache(entityType);
+    EntityKey entityKey = EntityKey.create(entityType, id);
+    boolean[] loaded = {false};
+    Optional<Object[]> dehydratedEntity;
+    try {
+      dehydratedEntity =
+          cache.get(
+              entityKey,
+              () -> {
+                Optional<Object[]> loadedEntity =
+                    Optional.ofNullable(repository.findOneById(id)).map(entityHydration::dehydrate);
+                loaded[0] = true;
+                if (cache == sharedCache) {
+                  sharedCacheIndex.add(entityKey);
+                }
+                return loadedEntity;
+              });
+    } catch (ExecutionException exception) {
+      throw new MolgenisDataException(exception.getCause());
+    }
+    if (cache == sharedCache) {
+      if (loaded[0]) {
+        sharedCacheIndex.recordMisses(entityType.getId(), 1);
+      } else {
+        sharedCacheIndex.recordHits(entityType.getId(), 1);
+      }
+    }
+    return dehydratedEntity.map(e -> entityHydration.hydrate(e, entityType)).orElse(null);
   }
 
   /**
-   * Retrieves a list of entities from the cache. If the cache doesn't yet exist, will create the
-   * cache.
+   * Retrieves a list of entities from the cache, loading the entities that are not cached from the
+   * underlying repository.
    *
-   * @param repository the underlying repository, used to create the cache loader or to retrieve the
-   *     existing cache
+   * @param repository the underlying repository
    * @param ids {@link Iterable} of the ids of the entities to retrieve
    * @return List containing the retrieved entities, missing values are excluded
-   * @throws RuntimeException if the cache failed to load the entities
    */
   public List<Entity> getBatch(Repository<Entity> repository, Iterable<Object> ids) {
-    try {
-      return getEntityCache(repository)
-          .getAll(ids)
-          .values()
-          .stream()
-          .filter(Optional::isPresent)
-          .map(Optional::get)
-          .map(e -> entityHydration.hydrate(e, repository.getEntityType()))
-          .collect(Collectors.toList());
-    } catch (ExecutionException exception) {
-      // rethrow unchecked
-      if (exception.getCause() instanceof RuntimeException) {
-        throw (RuntimeException) exception.getCause();
-      }
-      throw new MolgenisDataException(exception);
+    EntityType entityType = repository.getEntityType();
+    Cache<EntityKey, Optional<Object[]>> cache = getEntityCache(entityType);
+
+    Map<EntityKey, Optional<Object[]>> dehydratedEntities = new LinkedHashMap<>();
+    ids.forEach(id -> dehydratedEntities.put(EntityKey.create(entityType, id), null));
+    Map<EntityKey, Optional<Object[]>> cachedEntities =
+        cache.getAllPresent(dehydratedEntities.keySet());
+    dehydratedEntities.putAll(cachedEntities);
+
+    List<Object> missingIds =
+        dehydratedEntities
+            .entrySet()
+            .stream()
+            .filter(entry -> entry.getValue() == null)
+            .map(entry -> entry.getKey().getId())
+            .collect(toList());
+    if (cache == sharedCache) {
+      sharedCacheIndex.recordHits(entityType.getId(), cachedEntities.size());
+      sharedCacheIndex.recordMisses(entityType.getId(), missingIds.size());
+    }
+    if (!missingIds.isEmpty()) {
+      Map<EntityKey, Optional<Object[]>> loadedEntities = loadAll(repository, missingIds);
+      cache.putAll(loadedEntities);
+      dehydratedEntities.putAll(loadedEntities);
     }
+
+    return dehydratedEntities
+        .values()
+        .stream()
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .map(e -> entityHydration.hydrate(e, entityType))
+        .collect(toList());
+  }
+
+  /**
+   * Loads multiple entities from the repository.
+   *
+   * @return Map mapping entity key to loaded entity, or to empty optional if the entity was not
+   *     present in the repository
+   */
+  private Map<EntityKey, Optional<Object[]>> loadAll(
+      Repository<Entity> repository, List<Object> ids) {
+    EntityType entityType = repository.getEntityType();
+    Map<EntityKey, Optional<Object[]>> result =
+        repository
+            .findAll(ids.stream())
+            .collect(
+                toMap(EntityKey::create, entity -> Optional.of(entityHydration.dehydrate(entity))));
+    for (Object id : ids) {
+      // cache the absence of these entities in the backend as empty values
+      result.putIfAbsent(EntityKey.create(entityType, id), empty());
+    }
+    return result;
   }
 
   /** Logs cumulative cache statistics for all known caches. */
@@ -125,92 +234,80 @@ public class L2Cache implements TransactionListener {
     // TODO: do we want to log diff with last log instead?
     if (LOG.isDebugEnabled()) {
       LOG.debug("Cache stats:");
-      for (Map.Entry<String, LoadingCache<Object, Optional<Map<String, Object>>>> cacheEntry :
-          caches.entrySet()) {
-        LOG.debug("{}:{}", cacheEntry.getKey(), cacheEntry.getValue().stats());
+      LOG.debug("shared:{} {}", sharedCache.stats(), cachePolicyRegistry.getSharedPolicy());
+      for (Map.Entry<String, Cache<EntityKey, Optional<Object[]>>> cacheEntry : caches.entrySet()) {
+        String entityTypeId = cacheEntry.getKey();
+        LOG.debug(
+            "{}:{} {}",
+            entityTypeId,
+            cacheEntry.getValue().stats(),
+            cachePolicyRegistry.getPolicy(entityTypeId));
       }
     }
   }
 
   /**
-   * Gets the existing entity cache for a {@link Repository} or creates a new one if no cache exists
-   * yet.
-   *
-   * @param repository the Repository used to create a new cache if none found, otherwise only the
-   *     id of the repository is used to look up the existing cache
-   * @return the LoadingCache for the repository
+   * Gets the cache of an entity type, creating its dedicated cache if it has one and it does not
+   * exist yet.
    */
-  @SuppressWarnings("squid:S2201") // ignore return values
-  private LoadingCache<Object, Optional<Map<String, Object>>> getEntityCache(
-      Repository<Entity> repository) {
-    String id = repository.getEntityType().getId();
-    if (!caches.containsKey(id)) {
-      caches.putIfAbsent(id, createEntityCache(repository));
+  private Cache<EntityKey, Optional<Object[]>> getEntityCache(EntityType entityType) {
+    String entityTypeId = entityType.getId();
+    Cache<EntityKey, Optional<Object[]>> cache = caches.get(entityTypeId);
+    if (cache != null) {
+      return cache;
     }
-    return caches.get(id);
+    if (MetaDataService.isMetaEntityType(entityType)) {
+      return caches.computeIfAbsent(entityTypeId, id -> createMetaEntityCache("l2." + id));
+    }
+    CachePolicy cachePolicy = cachePolicyRegistry.getPolicy(entityTypeId);
+    if (cachePolicy != null) {
+      return caches.computeIfAbsent(entityTypeId, id -> createEntityCache(cachePolicy, "l2." + id));
+    }
+    return sharedCache;
   }
 
-  /**
-   * Creates a new Entity cache
-   *
-   * @param repository the {@link Repository} to load the entities from
-   * @return newly created LoadingCache
-   */
-  private LoadingCache<Object, Optional<Map<String, Object>>> createEntityCache(
-      Repository<Entity> repository) {
-    Caffeine<Object, Object> cacheBuilder =
-        Caffeine.newBuilder().recordStats().expireAfterAccess(10, MINUTES);
-    if (!MetaDataService.isMetaEntityType(repository.getEntityType())) {
-      cacheBuilder.maximumSize(MAX_CACHE_SIZE_PER_ENTITY);
-    }
-    LoadingCache<Object, Optional<Map<String, Object>>> cache =
-        CaffeinatedGuava.build(cacheBuilder, createCacheLoader(repository));
-    GuavaCacheMetrics.monitor(meterRegistry, cache, "l2." + repository.getEntityType().getId());
+  /** Creates a cache for a meta entity type, which is always fully cached. */
+  private Cache<EntityKey, Optional<Object[]>> createMetaEntityCache(String name) {
+    Cache<EntityKey, Optional<Object[]>> cache =
+        CaffeinatedGuava.build(
+            Caffeine.newBuilder()
+                .recordStats()
+                .expireAfterAccess(DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES, MINUTES));
+    GuavaCacheMetrics.monitor(meterRegistry, cache, name);
+    return cache;
+  }
+
+  /** Creates the cache shared by the entity types without dedicated cache. */
+  private Cache<EntityKey, Optional<Object[]>> createSharedEntityCache(CachePolicy cachePolicy) {
+    Cache<EntityKey, Optional<Object[]>> cache =
+        CaffeinatedGuava.build(createEntityCacheBuilder(cachePolicy).writer(sharedCacheIndex));
+    GuavaCacheMetrics.monitor(meterRegistry, cache, "l2");
     return cache;
   }
 
   /**
-   * Creates a CacheLoader that loads entities from the repository and dehydrates them.
+   * Creates a new Entity cache bounded by the estimated size of the dehydrated entities.
    *
-   * @param repository the Repository to load the entities from
-   * @return the {@link CacheLoader}
+   * @param cachePolicy policy that bounds the cache
+   * @param name name of the cache in the metrics
+   * @return newly created Cache
    */
-  private CacheLoader<Object, Optional<Map<String, Object>>> createCacheLoader(
-      final Repository<Entity> repository) {
-    return new CacheLoader<Object, Optional<Map<String, Object>>>() {
-      /**
-       * Loads a single entity from the repository.
-       *
-       * @param id ID value of the entity to retrieve
-       * @return dehydrated entity or empty if the entity was not present in the repository
-       */
-      @Override
-      public Optional<Map<String, Object>> load(@Nonnull Object id) {
-        return Optional.ofNullable(repository.findOneById(id)).map(entityHydration::dehydrate);
-      }
-
-      /**
-       * Loads multiple entities from the repository.
-       *
-       * @param ids Iterable of String representations of the ID values
-       * @return Map mapping id to loaded entity, or to empty optional if the entity was not present
-       *     in the repository
-       */
-      @Override
-      public Map<Object, Optional<Map<String, Object>>> loadAll(Iterable<?> ids) {
-        Stream<Object> typedIds = stream(ids).map(id -> id);
-        Map<Object, Optional<Map<String, Object>>> result =
-            repository.findAll(typedIds).collect(toMap(Entity::getIdValue, this::dehydrateEntity));
-        for (Object key : ids) {
-          // cache the absence of these entities in the backend as empty values
-          result.putIfAbsent(key, empty());
-        }
-        return result;
-      }
+  private Cache<EntityKey, Optional<Object[]>> createEntityCache(
+      CachePolicy cachePolicy, String name) {
+    Cache<EntityKey, Optional<Object[]>> cache =
+        CaffeinatedGuava.build(createEntityCacheBuilder(cachePolicy));
+    GuavaCacheMetrics.monitor(meterRegistry, cache, name);
+    return cache;
+  }
 
-      private Optional<Map<String, Object>> dehydrateEntity(Entity entity) {
-        return Optional.of(entityHydration.dehydrate(entity));
-      }
-    };
+  private static Caffeine<EntityKey, Optional<Object[]>> createEntityCacheBuilder(
+      CachePolicy cachePolicy) {
+    return Caffeine.newBuilder()
+        .recordStats()
+        .expireAfterAccess(cachePolicy.getExpireAfterAccessMinutes(), MINUTES)
+        .maximumWeight(cachePolicy.getMaximumWeight())
+        .weigher(
+            (EntityKey entityKey, Optional<Object[]> dehydratedEntity) ->
+                weigh(entityKey.getId()) + weigh(dehydratedEntity));
   }
 }
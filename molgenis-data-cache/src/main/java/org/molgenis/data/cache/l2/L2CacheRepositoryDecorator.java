@@ -103,6 +103,11 @@ public class L2CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
     return findOneById(id);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   /**
    * Retrieves a batch of Entity IDs.
    *
@@ -4,116 +4,209 @@ import static com.google.common.collect.Maps.newConcurrentMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.cache.utils.SizeEstimator.weigh;
 import static org.slf4j.LoggerFactory.getLogger;
+import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.guava.CaffeinatedGuava;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Cache;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
-import javax.annotation.Nonnull;
+import java.util.concurrent.ExecutionException;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
+import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.cache.utils.CachePolicy;
+import org.molgenis.data.cache.utils.CachePolicyRegistry;
+import org.molgenis.data.cache.utils.SharedCacheIndex;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionListener;
 import org.molgenis.data.transaction.TransactionManager;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-/** In-memory Query cache containing Queries and resulting ids from cacheable repositories */
+/**
+ * In-memory Query cache containing Queries and resulting ids from cacheable repositories.
+ *
+ * <p>Entity types with a configured {@link CachePolicy} have a dedicated cache, all other entity
+ * types share a single cache bounded by the remainder of the budget. The keys and metrics of the
+ * shared cache are kept per entity type by a {@link SharedCacheIndex}.
+ *
+ * <p>The cache is invalidated before other listeners, which might read through the cache.
+ */
 @Service
-public class L3Cache implements TransactionListener {
+@Order(HIGHEST_PRECEDENCE)
+public class L3Cache implements TransactionListener, CacheInvalidationListener {
   private static final Logger LOG = getLogger(L3Cache.class);
-  private static final int MAX_CACHE_SIZE_PER_QUERY = 1000;
 
-  /** maps entity name to the loading cache with Query key and List of Identifiers */
-  private final ConcurrentMap<String, LoadingCache<Query<Entity>, List<Object>>> caches =
+  /** maps entity type id to the dedicated cache with Query key and List of Identifiers */
+  private final ConcurrentMap<String, Cache<QueryCacheKey, List<Object>>> caches =
       newConcurrentMap();
+  /** cache of the entity types without dedicated cache */
+  private final Cache<QueryCacheKey, List<Object>> sharedCache;
+
+  private final SharedCacheIndex<QueryCacheKey, List<Object>> sharedCacheIndex;
 
   private final TransactionInformation transactionInformation;
 
   private final MeterRegistry meterRegistry;
 
+  private final CachePolicyRegistry cachePolicyRegistry;
+
+  /**
+   * @param budget maximum estimated size in bytes of the queries and identifiers in all caches
+   * @param policies cache policies per entity type, see {@link
+   *     CachePolicyRegistry#parsePolicies(String)}
+   */
   public L3Cache(
       TransactionManager transactionManager,
       TransactionInformation transactionInformation,
-      MeterRegistry meterRegistry) {
+      MeterRegistry meterRegistry,
+      @Value("${cache.l3.budget:67108864}") long budget,
+      @Value("${cache.l3.policies:}") String policies) {
     this.transactionInformation = requireNonNull(transactionInformation);
     this.meterRegistry = requireNonNull(meterRegistry);
+    this.cachePolicyRegistry =
+        new CachePolicyRegistry(budget, CachePolicyRegistry.parsePolicies(policies));
+    this.sharedCacheIndex =
+        new SharedCacheIndex<>(meterRegistry, "l3", QueryCacheKey::getEntityTypeId);
+    this.sharedCache = createSharedQueryCache(cachePolicyRegistry.getSharedPolicy());
     requireNonNull(transactionManager).addTransactionListener(this);
   }
 
   @Override
   public void afterCommitTransaction(String transactionId) {
-    transactionInformation.getDirtyRepositories().forEach(caches::remove);
+    invalidate(CacheInvalidation.create(transactionInformation));
+  }
+
+  @Override
+  public void invalidate(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isAll()) {
+      caches.values().forEach(Cache::invalidateAll);
+      sharedCache.invalidateAll();
+    } else {
+      cacheInvalidation.getDirtyRepositories().forEach(this::evictAll);
+    }
+  }
+
+  private void evictAll(String entityTypeId) {
+    Cache<QueryCacheKey, List<Object>> cache = caches.get(entityTypeId);
+    if (cache != null) {
+      cache.invalidateAll();
+    } else {
+      sharedCache.invalidateAll(sharedCacheIndex.getKeys(entityTypeId));
+    }
   }
 
+  /**
+   * Retrieves the identifiers of the entities that match a query from the cache or the underlying
+   * repository.
+   *
+   * @throws com.google.common.util.concurrent.UncheckedExecutionException if the repository throws
+   *     an error when loading the identifiers
+   */
   public List<Object> get(Repository<Entity> repository, Query<Entity> query) {
     // Set fetch to null because we are only caching identifiers
-    LoadingCache<Query<Entity>, List<Object>> cache = getQueryCache(repository);
     Query<Entity> fetchlessQuery = new QueryImpl<>(query);
     fetchlessQuery.setFetch(null);
-    return cache.getUnchecked(fetchlessQuery);
+    String entityTypeId = repository.getEntityType().getId();
+    Cache<QueryCacheKey, List<Object>> cache = getQueryCache(entityTypeId);
+    QueryCacheKey queryCacheKey = QueryCacheKey.create(entityTypeId, fetchlessQuery);
+    boolean[] loaded = {false};
+    List<Object> ids;
+    try {
+      ids =
+          cache.get(
+              queryCacheKey,
+              () -> {
+                List<Object> loadedIds = load(repository, fetchlessQuery);
+                loaded[0] = true;
+                if (cache == sharedCache) {
+                  sharedCacheIndex.add(queryCacheKey);
+                }
+                return loadedIds;
+              });
+    } catch (ExecutionException exception) {
+      throw new MolgenisDataException(exception.getCause());
+    }
+    if (cache == sharedCache) {
+      if (loaded[0]) {
+        sharedCacheIndex.recordMisses(entityTypeId, 1);
+      } else {
+        sharedCacheIndex.recordHits(entityTypeId, 1);
+      }
+    }
+    return ids;
   }
 
-  @SuppressWarnings("squid:S2201") // ignore return values
-  private LoadingCache<Query<Entity>, List<Object>> getQueryCache(Repository<Entity> repository) {
-    String id = repository.getEntityType().getId();
-    if (!caches.containsKey(id)) {
-      caches.putIfAbsent(id, createQueryCache(repository));
+  /** Gets the dedicated cache of an entity type or the shared cache if it has none. */
+  private Cache<QueryCacheKey, List<Object>> getQueryCache(String entityTypeId) {
+    Cache<QueryCacheKey, List<Object>> cache = caches.get(entityTypeId);
+    if (cache != null) {
+      return cache;
+    }
+    CachePolicy cachePolicy = cachePolicyRegistry.getPolicy(entityTypeId);
+    if (cachePolicy != null) {
+      return caches.computeIfAbsent(entityTypeId, id -> createQueryCache(cachePolicy, "l3." + id));
     }
-    return caches.get(id);
+    return sharedCache;
   }
 
-  private LoadingCache<Query<Entity>, List<Object>> createQueryCache(
-      Repository<Entity> repository) {
-    LOG.trace("Creating Query cache for repository {}", repository.getName());
-    LoadingCache<Query<Entity>, List<Object>> cache =
-        CaffeinatedGuava.build(
-            Caffeine.newBuilder()
-                .recordStats()
-                .maximumSize(MAX_CACHE_SIZE_PER_QUERY)
-                .expireAfterAccess(10, MINUTES),
-            createCacheLoader(repository));
-    GuavaCacheMetrics.monitor(meterRegistry, cache, "l3." + repository.getEntityType().getId());
+  /** Creates the cache shared by the entity types without dedicated cache. */
+  private Cache<QueryCacheKey, List<Object>> createSharedQueryCache(CachePolicy cachePolicy) {
+    LOG.trace("Creating shared Query cache");
+    Cache<QueryCacheKey, List<Object>> cache =
+        CaffeinatedGuava.build(createQueryCacheBuilder(cachePolicy).writer(sharedCacheIndex));
+    GuavaCacheMetrics.monitor(meterRegistry, cache, "l3");
     return cache;
   }
 
+  private Cache<QueryCacheKey, List<Object>> createQueryCache(
+      CachePolicy cachePolicy, String name) {
+    LOG.trace("Creating Query cache {}", name);
+    Cache<QueryCacheKey, List<Object>> cache =
+        CaffeinatedGuava.build(createQueryCacheBuilder(cachePolicy));
+    GuavaCacheMetrics.monitor(meterRegistry, cache, name);
+    return cache;
+  }
+
+  private static Caffeine<QueryCacheKey, List<Object>> createQueryCacheBuilder(
+      CachePolicy cachePolicy) {
+    return Caffeine.newBuilder()
+        .recordStats()
+        .maximumWeight(cachePolicy.getMaximumWeight())
+        .weigher(
+            (QueryCacheKey queryCacheKey, List<Object> ids) ->
+                weigh(queryCacheKey.getQuery()) + weigh(ids))
+        .expireAfterAccess(cachePolicy.getExpireAfterAccessMinutes(), MINUTES);
+  }
+
   /**
-   * Create a cacheloader that loads entity ids from the repository and stores them together with
-   * their query
+   * Loads {@link Entity} identifiers for a {@link Query}
    *
-   * @return the {@link CacheLoader}
+   * @param query query without fetch
+   * @return {@link List} of identifier {@link Object}s
    */
-  private CacheLoader<Query<Entity>, List<Object>> createCacheLoader(
-      final Repository<Entity> repository) {
-    String repositoryName = repository.getName();
+  private List<Object> load(Repository<Entity> repository, Query<Entity> query) {
+    LOG.trace("Loading identifiers from repository {} for query {}", repository.getName(), query);
     Fetch idAttributeFetch =
         new Fetch().field(repository.getEntityType().getIdAttribute().getName());
-    return new CacheLoader<Query<Entity>, List<Object>>() {
-      /**
-       * Loads {@link Entity} identifiers for a {@link Query}
-       *
-       * @param query the cache key to load
-       * @return {@link List} of identifier {@link Object}s
-       */
-      @Override
-      public List<Object> load(@Nonnull Query<Entity> query) {
-        LOG.trace("Loading identifiers from repository {} for query {}", repositoryName, query);
-        return repository
-            .findAll(new QueryImpl<>(query).fetch(idAttributeFetch))
-            .map(Entity::getIdValue)
-            .collect(toList());
-      }
-    };
+    return repository
+        .findAll(new QueryImpl<>(query).fetch(idAttributeFetch))
+        .map(Entity::getIdValue)
+        .collect(toList());
   }
 
   /** Logs cumulative cache statistics for all known caches. */
@@ -122,9 +215,14 @@ public class L3Cache implements TransactionListener {
     // TODO: do we want to log diff with last log instead?
     if (LOG.isDebugEnabled()) {
       LOG.debug("Cache stats:");
-      for (Map.Entry<String, LoadingCache<Query<Entity>, List<Object>>> cacheEntry :
-          caches.entrySet()) {
-        LOG.debug("{}:{}", cacheEntry.getKey(), cacheEntry.getValue().stats());
+      LOG.debug("shared:{} {}", sharedCache.stats(), cachePolicyRegistry.getSharedPolicy());
+      for (Map.Entry<String, Cache<QueryCacheKey, List<Object>>> cacheEntry : caches.entrySet()) {
+        String entityTypeId = cacheEntry.getKey();
+        LOG.debug(
+            "{}:{} {}",
+            entityTypeId,
+            cacheEntry.getValue().stats(),
+            cachePolicyRegistry.getPolicy(entityTypeId));
       }
     }
   }
@@ -0,0 +1,25 @@
+package org.molgenis.data.cache.utils;
+
+import com.google.auto.value.AutoValue;
+
+/** Eviction policy of the cache of a single entity type. */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class CachePolicy {
+  /** @return maximum estimated size in bytes of all cached values of the entity type */
+  public abstract long getMaximumWeight();
+
+  /** @return number of minutes after which a value that is not accessed is evicted */
+  public abstract long getExpireAfterAccessMinutes();
+
+  public static CachePolicy create(long maximumWeight, long expireAfterAccessMinutes) {
+    if (maximumWeight < 0) {
+      throw new IllegalArgumentException("maximumWeight must be zero or positive");
+    }
+    if (expireAfterAccessMinutes <= 0) {
+      throw new IllegalArgumentException("expireAfterAccessMinutes must be positive");
+    }
+    return new AutoValue_CachePolicy(maximumWeight, expireAfterAccessMinutes);
+  }
+}
@@ -0,0 +1,81 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Divides a global memory budget between the caches of entity types.
+ *
+ * <p>Entity types with a configured policy get a dedicated cache of which the maximum weight is
+ * reserved up front. All other entity types share a single cache that is bounded by the remainder
+ * of the budget, so that the number of entity types does not affect how much each of them can
+ * cache.
+ */
+public class CachePolicyRegistry {
+  public static final long DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES = 10;
+
+  private final Map<String, CachePolicy> configuredPolicies;
+  private final CachePolicy sharedPolicy;
+
+  /**
+   * @param budget maximum estimated size in bytes of all caches together
+   * @param configuredPolicies maps entity type id to cache policy
+   * @throws IllegalArgumentException if the configured policies exceed the budget
+   */
+  public CachePolicyRegistry(long budget, Map<String, CachePolicy> configuredPolicies) {
+    this.configuredPolicies = ImmutableMap.copyOf(configuredPolicies);
+    long reservedWeight =
+        configuredPolicies.values().stream().mapToLong(CachePolicy::getMaximumWeight).sum();
+    if (reservedWeight > budget) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cache policies reserve %d bytes which exceeds the budget of %d bytes",
+              reservedWeight, budget));
+    }
+    this.sharedPolicy =
+        CachePolicy.create(budget - reservedWeight, DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES);
+  }
+
+  /** Returns the configured cache policy of an entity type or null if it has none. */
+  @Nullable
+  @CheckForNull
+  public CachePolicy getPolicy(String entityTypeId) {
+    return configuredPolicies.get(entityTypeId);
+  }
+
+  /** Returns the policy of the cache shared by entity types without configured policy. */
+  public CachePolicy getSharedPolicy() {
+    return sharedPolicy;
+  }
+
+  /**
+   * Parses cache policies, e.g. <code>myEntityType:67108864:60,myOtherEntityType:0</code> to
+   * reserve 64 MiB for the cache of 'myEntityType' evicting values that were not accessed for an
+   * hour and to disable caching for 'myOtherEntityType'.
+   *
+   * @param value comma-separated list of entity type id, maximum weight in bytes and optionally
+   *     expire after access in minutes separated by colons
+   * @return map of entity type id to cache policy
+   */
+  public static Map<String, CachePolicy> parsePolicies(String value) {
+    ImmutableMap.Builder<String, CachePolicy> builder = ImmutableMap.builder();
+    for (String policyValue : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+      List<String> tokens = Splitter.on(':').trimResults().splitToList(policyValue);
+      if (tokens.size() < 2 || tokens.size() > 3) {
+        throw new IllegalArgumentException(String.format("Invalid cache policy '%s'", policyValue));
+      }
+      long expireAfterAccessMinutes =
+          tokens.size() == 3 ? Long.parseLong(tokens.get(2)) : DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES;
+      builder.put(
+          requireNonNull(tokens.get(0)),
+          CachePolicy.create(Long.parseLong(tokens.get(1)), expireAfterAccessMinutes));
+    }
+    return builder.build();
+  }
+}
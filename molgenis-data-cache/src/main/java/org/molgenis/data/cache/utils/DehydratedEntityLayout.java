@@ -0,0 +1,76 @@
+package org.molgenis.data.cache.utils;
+
+import static com.google.common.collect.Streams.stream;
+import static java.util.Objects.requireNonNull;
+
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * Describes the position of the attribute values in a dehydrated entity of an entity type. Only the
+ * atomic attributes without expression are stored, in the order of {@link
+ * EntityType#getAtomicAttributes()}.
+ */
+class DehydratedEntityLayout {
+  private final String[] attributeNames;
+  private final AttributeType[] attributeTypes;
+
+  private DehydratedEntityLayout(String[] attributeNames, AttributeType[] attributeTypes) {
+    this.attributeNames = requireNonNull(attributeNames);
+    this.attributeTypes = requireNonNull(attributeTypes);
+  }
+
+  static DehydratedEntityLayout create(EntityType entityType) {
+    Attribute[] attributes =
+        stream(entityType.getAtomicAttributes())
+            .filter(attribute -> !attribute.hasExpression())
+            .toArray(Attribute[]::new);
+    String[] attributeNames = new String[attributes.length];
+    AttributeType[] attributeTypes = new AttributeType[attributes.length];
+    for (int i = 0; i < attributes.length; i++) {
+      attributeNames[i] = attributes[i].getName();
+      attributeTypes[i] = attributes[i].getDataType();
+    }
+    return new DehydratedEntityLayout(attributeNames, attributeTypes);
+  }
+
+  /** @return number of attribute values in a dehydrated entity */
+  int size() {
+    return attributeNames.length;
+  }
+
+  /** @return index of the attribute value in a dehydrated entity or -1 if it is not stored */
+  int indexOf(Attribute attribute) {
+    for (int i = 0; i < attributeNames.length; i++) {
+      if (matches(i, attribute)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** @return whether this layout describes the current attributes of the entity type */
+  boolean matches(EntityType entityType) {
+    int index = 0;
+    for (Attribute attribute : entityType.getAtomicAttributes()) {
+      if (!attribute.hasExpression()) {
+        if (!matches(index, attribute)) {
+          return false;
+        }
+        index++;
+      }
+    }
+    return index == attributeNames.length;
+  }
+
+  /**
+   * @return whether the attribute value at the given index in a dehydrated entity is the value of
+   *     the given attribute
+   */
+  boolean matches(int index, Attribute attribute) {
+    return index < attributeNames.length
+        && attributeNames[index].equals(attribute.getName())
+        && attributeTypes[index] == attribute.getDataType();
+  }
+}
@@ -1,14 +1,17 @@
 package org.molgenis.data.cache.utils;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.meta.AttributeType;
@@ -21,14 +24,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-/** Hydrates and dehydrates entities. */
+/**
+ * Hydrates and dehydrates entities. A dehydrated entity is an array with the values of the atomic
+ * attributes without expression of the entity, positioned as described by the {@link
+ * DehydratedEntityLayout} of the entity type stored in the first element of the array.
+ */
 @Component
 public class EntityHydration {
   private static final Logger LOG = LoggerFactory.getLogger(EntityHydration.class);
   private final EntityManager entityManager;
+  /** maps entity type id to the layout of dehydrated entities of the entity type */
+  private final ConcurrentMap<String, DehydratedEntityLayout> layouts;
 
   public EntityHydration(EntityManager entityManager) {
     this.entityManager = requireNonNull(entityManager);
+    this.layouts = new ConcurrentHashMap<>();
   }
 
   /**
@@ -36,65 +46,90 @@ public class EntityHydration {
    * attributes present with an expression
    *
    * @param entityType metadata of the entity to rehydrate
-   * @param dehydratedEntity map with key value pairs representing this entity
+   * @param dehydratedEntity array with the layout and values representing this entity
    * @return hydrated entity
    */
-  @SuppressWarnings("unchecked")
-  public Entity hydrate(Map<String, Object> dehydratedEntity, EntityType entityType) {
+  public Entity hydrate(Object[] dehydratedEntity, EntityType entityType) {
     LOG.trace("Hydrating entity: {} for entity {}", dehydratedEntity, entityType.getId());
 
+    DehydratedEntityLayout layout = (DehydratedEntityLayout) dehydratedEntity[0];
     Entity hydratedEntity = entityManager.create(entityType, NO_POPULATE);
 
+    int index = 0;
     for (Attribute attribute : entityType.getAtomicAttributes()) {
       // Only hydrate the attribute if it is NOT computed.
       // Computed attributes will be calculated based on the metadata
       if (attribute.getExpression() == null) {
-        String name = attribute.getName();
-        Object value = dehydratedEntity.get(name);
+        Object value = getValue(dehydratedEntity, layout, index, attribute);
         if (value != null) {
           if (isMultipleReferenceType(attribute)) {
             // We can do this cast because during dehydration, mrefs and categorical mrefs are
-            // stored as a List of Object
-            value = entityManager.getReferences(attribute.getRefEntity(), (List<Object>) value);
+            // stored as an array of ids
+            value = entityManager.getReferences(attribute.getRefEntity(), asList((Object[]) value));
           } else if (isSingleReferenceType(attribute)) {
             value = entityManager.getReference(attribute.getRefEntity(), value);
           }
         }
-        hydratedEntity.set(name, value);
+        hydratedEntity.set(attribute.getName(), value);
+        index++;
       }
     }
 
     return hydratedEntity;
   }
 
+  @Nullable
+  @CheckForNull
+  private static Object getValue(
+      Object[] dehydratedEntity, DehydratedEntityLayout layout, int index, Attribute attribute) {
+    if (layout.matches(index, attribute)) {
+      return dehydratedEntity[index + 1];
+    }
+    // entity type metadata changed after the entity was dehydrated
+    int layoutIndex = layout.indexOf(attribute);
+    return layoutIndex != -1 ? dehydratedEntity[layoutIndex + 1] : null;
+  }
+
   /**
-   * Creates a Map containing the values required to rebuild this entity. For references to other
+   * Creates an array containing the values required to rebuild this entity. For references to other
    * entities only stores the ids.
    *
    * @param entity the {@link Entity} to dehydrate
-   * @return Map representation of the entity
+   * @return array representation of the entity
    */
-  public Map<String, Object> dehydrate(Entity entity) {
+  public Object[] dehydrate(Entity entity) {
     LOG.trace("Dehydrating entity {}", entity);
-    Map<String, Object> dehydratedEntity = newHashMap();
     EntityType entityType = entity.getEntityType();
+    DehydratedEntityLayout layout = getLayout(entityType);
 
-    entityType
-        .getAtomicAttributes()
-        .forEach(
-            attribute -> {
-              // Only dehydrate if the attribute is NOT computed
-              if (!attribute.hasExpression()) {
-                String name = attribute.getName();
-                AttributeType type = attribute.getDataType();
-
-                dehydratedEntity.put(name, getValueBasedOnType(entity, name, type));
-              }
-            });
-
+    Object[] dehydratedEntity = new Object[layout.size() + 1];
+    dehydratedEntity[0] = layout;
+    int index = 1;
+    for (Attribute attribute : entityType.getAtomicAttributes()) {
+      // Only dehydrate if the attribute is NOT computed
+      if (!attribute.hasExpression()) {
+        String name = attribute.getName();
+        AttributeType type = attribute.getDataType();
+        dehydratedEntity[index++] = getValueBasedOnType(entity, name, type);
+      }
+    }
     return dehydratedEntity;
   }
 
+  /**
+   * Returns the cached layout of dehydrated entities of an entity type, replacing it if the entity
+   * type metadata has changed.
+   */
+  private DehydratedEntityLayout getLayout(EntityType entityType) {
+    String entityTypeId = entityType.getId();
+    DehydratedEntityLayout layout = layouts.get(entityTypeId);
+    if (layout == null || !layout.matches(entityType)) {
+      layout = DehydratedEntityLayout.create(entityType);
+      layouts.put(entityTypeId, layout);
+    }
+    return layout;
+  }
+
   private static Object getValueBasedOnType(Entity entity, String name, AttributeType type) {
     Object value;
     switch (type) {
@@ -114,7 +149,7 @@ public class EntityHydration {
                 mrefEntity -> {
                   if (mrefEntity != null) mrefIdentifiers.add(mrefEntity.getIdValue());
                 });
-        value = mrefIdentifiers;
+        value = mrefIdentifiers.toArray();
         break;
       case DATE:
         value = entity.getLocalDate(name);
@@ -0,0 +1,115 @@
+package org.molgenis.data.cache.utils;
+
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static java.util.Objects.requireNonNull;
+
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps track of the keys and statistics per entity type of a cache that is shared between entity
+ * types, so that all values of an entity type can be evicted without scanning the whole cache and
+ * that the gets, evictions and size of each entity type are available as metrics of a cache named
+ * '[cache name].[entity type id]'.
+ *
+ * <p>Keys are added when the cache writes a value, which does not include values computed by the
+ * cache, see {@link #add(Object)}, and removed when the cache removes a value.
+ *
+ * @param <K> cache key type
+ * @param <V> cache value type
+ */
+public class SharedCacheIndex<K, V> implements CacheWriter<K, V> {
+  private final MeterRegistry meterRegistry;
+  private final String cacheName;
+  private final Function<K, String> entityTypeIdFunction;
+
+  private final ConcurrentMap<String, EntityTypeEntries<K>> entityTypeEntries = newConcurrentMap();
+
+  /**
+   * @param cacheName name of the shared cache in the metrics
+   * @param entityTypeIdFunction returns the entity type id of a cache key
+   */
+  public SharedCacheIndex(
+      MeterRegistry meterRegistry, String cacheName, Function<K, String> entityTypeIdFunction) {
+    this.meterRegistry = requireNonNull(meterRegistry);
+    this.cacheName = requireNonNull(cacheName);
+    this.entityTypeIdFunction = requireNonNull(entityTypeIdFunction);
+  }
+
+  /** Adds the key of a value that the cache computed, must be called by the computation. */
+  public void add(K key) {
+    getEntries(entityTypeIdFunction.apply(key)).keys.add(key);
+  }
+
+  /** Returns the keys in the cache of the given entity type */
+  public List<K> getKeys(String entityTypeId) {
+    EntityTypeEntries<K> entries = entityTypeEntries.get(entityTypeId);
+    return entries != null ? ImmutableList.copyOf(entries.keys) : ImmutableList.of();
+  }
+
+  public void recordHits(String entityTypeId, int count) {
+    getEntries(entityTypeId).hitCount.add(count);
+  }
+
+  public void recordMisses(String entityTypeId, int count) {
+    getEntries(entityTypeId).missCount.add(count);
+  }
+
+  @Override
+  public void write(@Nonnull K key, @Nonnull V value) {
+    add(key);
+  }
+
+  @Override
+  public void delete(@Nonnull K key, V value, @Nonnull RemovalCause cause) {
+    EntityTypeEntries<K> entries = getEntries(entityTypeIdFunction.apply(key));
+    entries.keys.remove(key);
+    if (cause.wasEvicted()) {
+      entries.evictionCount.increment();
+    }
+  }
+
+  private EntityTypeEntries<K> getEntries(String entityTypeId) {
+    return entityTypeEntries.computeIfAbsent(entityTypeId, this::createEntries);
+  }
+
+  private EntityTypeEntries<K> createEntries(String entityTypeId) {
+    EntityTypeEntries<K> entries = new EntityTypeEntries<>();
+    String name = cacheName + '.' + entityTypeId;
+    Gauge.builder("cache.size", entries.keys, Set::size)
+        .tag("cache", name)
+        .description("The number of entries in this cache")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.gets", entries.hitCount, LongAdder::sum)
+        .tags("cache", name, "result", "hit")
+        .description("The number of times cache lookup methods have returned a cached value")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.gets", entries.missCount, LongAdder::sum)
+        .tags("cache", name, "result", "miss")
+        .description("The number of times cache lookup methods have returned an uncached value")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.evictions", entries.evictionCount, LongAdder::sum)
+        .tag("cache", name)
+        .description("The number of entries evicted from the cache because of size or expiry")
+        .register(meterRegistry);
+    return entries;
+  }
+
+  private static class EntityTypeEntries<K> {
+    private final Set<K> keys = ConcurrentHashMap.newKeySet();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+  }
+}
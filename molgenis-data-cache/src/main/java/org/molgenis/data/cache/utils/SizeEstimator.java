@@ -0,0 +1,99 @@
+package org.molgenis.data.cache.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.Sort;
+
+/**
+ * Estimates the retained heap size of cached values consisting of dehydrated entities, entity
+ * identifiers and queries. The estimates assume a 64-bit JVM with compressed references and are
+ * meant to weigh cache entries against each other, not to measure memory exactly. They only walk
+ * the structure of the value, so that weighing a cache entry stays cheap.
+ */
+public class SizeEstimator {
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int MAP_ENTRY = 32;
+  private static final int SORT_ORDER = 40;
+  private static final int OTHER = 32;
+
+  private SizeEstimator() {}
+
+  /** Returns the estimated size in bytes of a cached value. */
+  public static long estimateSize(@Nullable Object value) {
+    if (value == null || value instanceof DehydratedEntityLayout) {
+      // layouts are shared by all dehydrated entities of an entity type
+      return 0;
+    } else if (value instanceof String) {
+      return OBJECT_HEADER + 24L + 2L * ((String) value).length();
+    } else if (value instanceof Number || value instanceof Boolean) {
+      return value instanceof Long || value instanceof Double ? 24 : OBJECT_HEADER;
+    } else if (value instanceof LocalDate || value instanceof Instant) {
+      return 24;
+    } else if (value instanceof Optional) {
+      return OBJECT_HEADER + estimateSize(((Optional<?>) value).orElse(null));
+    } else if (value instanceof Map) {
+      long size = 64;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size +=
+            MAP_ENTRY + REFERENCE + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+      }
+      return size;
+    } else if (value instanceof Collection) {
+      long size = OBJECT_HEADER + 16;
+      for (Object element : (Collection<?>) value) {
+        size += REFERENCE + estimateSize(element);
+      }
+      return size;
+    } else if (value instanceof Object[]) {
+      long size = OBJECT_HEADER;
+      for (Object element : (Object[]) value) {
+        size += REFERENCE + estimateSize(element);
+      }
+      return size;
+    } else if (value instanceof Query) {
+      return estimateQuerySize((Query<?>) value);
+    } else {
+      return OTHER;
+    }
+  }
+
+  private static long estimateQuerySize(Query<?> query) {
+    long size = OBJECT_HEADER + 32L + estimateRulesSize(query.getRules());
+    Sort sort = query.getSort();
+    if (sort != null) {
+      for (Sort.Order order : sort) {
+        size += SORT_ORDER + estimateSize(order.getAttr());
+      }
+    }
+    return size;
+  }
+
+  private static long estimateRulesSize(@Nullable List<QueryRule> rules) {
+    long size = OBJECT_HEADER + 16;
+    if (rules != null) {
+      for (QueryRule rule : rules) {
+        size +=
+            REFERENCE
+                + OBJECT_HEADER
+                + 16
+                + estimateSize(rule.getField())
+                + estimateSize(rule.getValue())
+                + estimateRulesSize(rule.getNestedRules());
+      }
+    }
+    return size;
+  }
+
+  /** Returns the estimated size of a cached value as cache weight. */
+  public static int weigh(@Nullable Object value) {
+    return (int) Math.min(estimateSize(value), Integer.MAX_VALUE);
+  }
+}
@@ -38,6 +38,7 @@ import org.molgenis.data.cache.utils.EntityHydration;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.EntityWithComputedAttributes;
+import org.molgenis.data.transaction.CacheInvalidation;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.data.util.EntityUtils;
@@ -66,8 +67,11 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
   @Captor private ArgumentCaptor<Stream<Object>> idStreamCaptor;
 
   private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  @Mock private Repository<Entity> refRepository;
   private List<Entity> testEntities;
+  private List<Entity> refEntities;
   private EntityType emd;
+  private EntityType refEntityType;
 
   public L2CacheTest() {
     super(Strictness.WARN);
@@ -75,13 +79,15 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
 
   @BeforeClass
   public void beforeClass() {
-    EntityType refEntityType = entityTestHarness.createDynamicRefEntityType();
+    refEntityType = entityTestHarness.createDynamicRefEntityType();
     emd = entityTestHarness.createDynamicTestEntityType(refEntityType);
-    List<Entity> refEntities = entityTestHarness.createTestRefEntities(refEntityType, 2);
+    refEntities = entityTestHarness.createTestRefEntities(refEntityType, 2);
     testEntities = entityTestHarness.createTestEntities(emd, 4, refEntities).collect(toList());
 
     when(entityManager.create(emd, NO_POPULATE))
         .thenAnswer(invocation -> new EntityWithComputedAttributes(new DynamicEntity(emd)));
+    when(entityManager.create(refEntityType, NO_POPULATE))
+        .thenAnswer(invocation -> new DynamicEntity(refEntityType));
     when(entityManager.getReference(any(EntityType.class), eq("0"))).thenReturn(refEntities.get(0));
     when(entityManager.getReference(any(EntityType.class), eq("1"))).thenReturn(refEntities.get(1));
     when(entityManager.getReferences(any(EntityType.class), eq(newArrayList("0"))))
@@ -96,7 +102,13 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
     when(repository.getName()).thenReturn(emd.getId());
 
     l2Cache =
-        new L2Cache(transactionManager, entityHydration, transactionInformation, meterRegistry);
+        new L2Cache(
+            transactionManager,
+            entityHydration,
+            transactionInformation,
+            meterRegistry,
+            1000000,
+            "");
   }
 
   @Test
@@ -129,6 +141,44 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
     verify(repository, times(2)).findOneById("2");
   }
 
+  @Test
+  public void testAfterCommitTransactionKeepsEntitiesOfCleanRepository() {
+    when(refRepository.getEntityType()).thenReturn(refEntityType);
+    Entity entity2 = testEntities.get(2);
+    Entity refEntity0 = refEntities.get(0);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    when(refRepository.findOneById("0")).thenReturn(refEntity0);
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    assertTrue(EntityUtils.equals(l2Cache.get(refRepository, "0"), refEntity0));
+
+    when(transactionInformation.getEntirelyDirtyRepositories()).thenReturn(singleton(emd.getId()));
+    l2Cache.afterCommitTransaction("transactionID");
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    assertTrue(EntityUtils.equals(l2Cache.get(refRepository, "0"), refEntity0));
+    verify(repository, times(2)).findOneById("2");
+    verify(refRepository, times(1)).findOneById("0");
+  }
+
+  @Test
+  public void testInvalidateRemovesEntityForDirtyEntity() {
+    Entity entity2 = testEntities.get(2);
+    when(repository.findOneById("2")).thenReturn(entity2);
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    verify(repository, times(1)).findOneById("2");
+
+    // invalidation published by another instance
+    l2Cache.invalidate(
+        CacheInvalidation.create(
+            emptySet(), singleton(emd.getId()), singleton(EntityKey.create(entity2))));
+
+    assertTrue(EntityUtils.equals(l2Cache.get(repository, "2"), entity2));
+    verify(repository, times(2)).findOneById("2");
+  }
+
   @Test
   public void testAfterCommitTransactionRemovesEntityForDirtyEntity() {
     Entity entity2 = testEntities.get(2);
@@ -182,6 +232,40 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
     verify(repository, times(1)).findOneById("2");
   }
 
+  @Test
+  public void testGetMetricsPerEntityType() {
+    MeterRegistry entityTypeMeterRegistry = new SimpleMeterRegistry();
+    l2Cache =
+        new L2Cache(
+            transactionManager,
+            entityHydration,
+            transactionInformation,
+            entityTypeMeterRegistry,
+            1000000,
+            "");
+    when(repository.findOneById("2")).thenReturn(testEntities.get(2));
+    l2Cache.get(repository, "2");
+    l2Cache.get(repository, "2");
+
+    String cacheName = "l2." + emd.getId();
+    assertEquals(
+        entityTypeMeterRegistry
+            .get("cache.gets")
+            .tags("cache", cacheName, "result", "hit")
+            .functionCounter()
+            .count(),
+        1.0);
+    assertEquals(
+        entityTypeMeterRegistry
+            .get("cache.gets")
+            .tags("cache", cacheName, "result", "miss")
+            .functionCounter()
+            .count(),
+        1.0);
+    assertEquals(
+        entityTypeMeterRegistry.get("cache.size").tag("cache", cacheName).gauge().value(), 1.0);
+  }
+
   @Test(expectedExceptions = UncheckedExecutionException.class)
   public void testGetStringIdLoaderThrowsException() {
     when(repository.findOneById("2"))
@@ -190,7 +274,7 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
   }
 
   @SuppressWarnings("unchecked")
-  @Test(expectedExceptions = UncheckedExecutionException.class)
+  @Test(expectedExceptions = MolgenisDataException.class)
   public void testGetBatchIdLoaderThrowsException() {
     when(repository.findAll(any(Stream.class)))
         .thenThrow(new MolgenisDataException("Table is missing for entity TestEntity"));
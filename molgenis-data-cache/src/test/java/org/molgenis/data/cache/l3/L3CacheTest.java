@@ -33,6 +33,7 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidation;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionManager;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -97,7 +98,7 @@ public class L3CacheTest extends AbstractMolgenisSpringTest {
     when(decoratedRepository.getName()).thenReturn(repositoryName);
     when(decoratedRepository.getEntityType()).thenReturn(entityType);
 
-    l3Cache = new L3Cache(transactionManager, transactionInformation, meterRegistry);
+    l3Cache = new L3Cache(transactionManager, transactionInformation, meterRegistry, 1000000, "");
   }
 
   @Test
@@ -196,4 +197,22 @@ public class L3CacheTest extends AbstractMolgenisSpringTest {
     verify(decoratedRepository, atLeast(0)).getEntityType();
     verifyNoMoreInteractions(decoratedRepository);
   }
+
+  @Test
+  public void testInvalidateAll() {
+    Fetch idAttributeFetch = new Fetch().field(entityType.getIdAttribute().getName());
+    Query<Entity> fetchLessQuery = new QueryImpl<>().eq(COUNTRY, "NL").fetch(idAttributeFetch);
+
+    when(decoratedRepository.findAll(fetchLessQuery))
+        .thenReturn(Stream.of(entity1, entity2))
+        .thenReturn(Stream.of(entity3, entity2));
+
+    Query<Entity> query = new QueryImpl<>().eq(COUNTRY, "NL");
+    assertEquals(l3Cache.get(decoratedRepository, query), Arrays.asList(1, 2));
+
+    l3Cache.invalidate(CacheInvalidation.createAll());
+
+    assertEquals(l3Cache.get(decoratedRepository, query), Arrays.asList(3, 2));
+    verify(decoratedRepository, times(2)).findAll(fetchLessQuery);
+  }
 }
@@ -0,0 +1,61 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.molgenis.data.cache.utils.CachePolicyRegistry.DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+public class CachePolicyRegistryTest {
+  @Test
+  public void testGetPolicy() {
+    CachePolicy cachePolicy = CachePolicy.create(600, 60);
+    CachePolicyRegistry cachePolicyRegistry =
+        new CachePolicyRegistry(1000, singletonMap("entityType", cachePolicy));
+    assertEquals(cachePolicyRegistry.getPolicy("entityType"), cachePolicy);
+  }
+
+  @Test
+  public void testGetPolicyUnknownEntityType() {
+    CachePolicyRegistry cachePolicyRegistry = new CachePolicyRegistry(1000, emptyMap());
+    assertNull(cachePolicyRegistry.getPolicy("entityType"));
+  }
+
+  @Test
+  public void testGetSharedPolicy() {
+    CachePolicyRegistry cachePolicyRegistry =
+        new CachePolicyRegistry(1000, singletonMap("entityType", CachePolicy.create(600, 60)));
+    assertEquals(
+        cachePolicyRegistry.getSharedPolicy(),
+        CachePolicy.create(400, DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testCachePolicyRegistryBudgetExceeded() {
+    new CachePolicyRegistry(100, singletonMap("entityType", CachePolicy.create(101, 10)));
+  }
+
+  @Test
+  public void testParsePolicies() {
+    assertEquals(
+        CachePolicyRegistry.parsePolicies("entityType0:1024:60, entityType1:0"),
+        ImmutableMap.of(
+            "entityType0",
+            CachePolicy.create(1024, 60),
+            "entityType1",
+            CachePolicy.create(0, DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES)));
+  }
+
+  @Test
+  public void testParsePoliciesEmpty() {
+    assertEquals(CachePolicyRegistry.parsePolicies(""), emptyMap());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testParsePoliciesInvalid() {
+    CachePolicyRegistry.parsePolicies("entityType");
+  }
+}
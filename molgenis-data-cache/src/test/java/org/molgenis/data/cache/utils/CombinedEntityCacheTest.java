@@ -5,7 +5,6 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertSame;
 
 import com.google.common.cache.Cache;
-import java.util.Map;
 import java.util.Optional;
 import org.mockito.Mock;
 import org.molgenis.data.Entity;
@@ -18,10 +17,10 @@ import org.testng.annotations.Test;
 public class CombinedEntityCacheTest extends AbstractMockitoTest {
   private CombinedEntityCache entityCache;
   @Mock private EntityHydration entityHydration;
-  @Mock private Cache<EntityKey, CacheHit<Map<String, Object>>> cache;
+  @Mock private Cache<EntityKey, CacheHit<Object[]>> cache;
   @Mock EntityType entityType;
   @Mock Entity entity;
-  @Mock Map<String, Object> dehydratedEntity;
+  private final Object[] dehydratedEntity = new Object[0];
 
   @BeforeMethod
   public void beforeMethod() {
@@ -2,8 +2,8 @@ package org.molgenis.data.cache.utils;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.copyOfRange;
 import static java.util.Collections.singleton;
-import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static java.util.stream.Collectors.toList;
 import static org.mockito.ArgumentMatchers.eq;
@@ -30,11 +30,13 @@ import static org.molgenis.data.EntityTestHarness.ATTR_XREF;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.mockito.ArgumentCaptor;
@@ -62,7 +64,7 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
 
   private EntityType entityType;
   private Entity hydratedEntity;
-  private Map<String, Object> dehydratedEntity;
+  private Object[] dehydratedEntity;
   private EntityHydration entityHydration;
 
   @Captor private ArgumentCaptor<EntityType> entityTypeArgumentCaptor;
@@ -88,25 +90,45 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
     Instant dateTime = Instant.parse("1985-08-12T06:12:13Z");
 
     // create dehydrated entity
-    dehydratedEntity = newHashMap();
-    dehydratedEntity.put(ATTR_ID, "0");
-    dehydratedEntity.put(ATTR_STRING, "string1");
-    dehydratedEntity.put(ATTR_BOOL, true);
-    dehydratedEntity.put(ATTR_CATEGORICAL, "0");
-    dehydratedEntity.put(ATTR_CATEGORICAL_MREF, singletonList("0"));
-    dehydratedEntity.put(ATTR_DATE, date);
-    dehydratedEntity.put(ATTR_DATETIME, dateTime);
-    dehydratedEntity.put(ATTR_EMAIL, "this.is@mail.address");
-    dehydratedEntity.put(ATTR_DECIMAL, 0.123);
-    dehydratedEntity.put(ATTR_HTML, null);
-    dehydratedEntity.put(ATTR_HYPERLINK, "http://www.molgenis.org");
-    dehydratedEntity.put(ATTR_LONG, 0L);
-    dehydratedEntity.put(ATTR_INT, 10);
-    dehydratedEntity.put(ATTR_SCRIPT, "/bin/blaat/script.sh");
-    dehydratedEntity.put(ATTR_XREF, "0");
-    dehydratedEntity.put(ATTR_MREF, singletonList("0"));
-    dehydratedEntity.put(ATTR_COMPOUND_CHILD_INT, 10);
-    dehydratedEntity.put(ATTR_ENUM, "option1");
+    Map<String, Object> dehydratedValues = newHashMap();
+    dehydratedValues.put(ATTR_ID, "0");
+    dehydratedValues.put(ATTR_STRING, "string1");
+    dehydratedValues.put(ATTR_BOOL, true);
+    dehydratedValues.put(ATTR_CATEGORICAL, "0");
+    dehydratedValues.put(ATTR_CATEGORICAL_MREF, new Object[] {"0"});
+    dehydratedValues.put(ATTR_DATE, date);
+    dehydratedValues.put(ATTR_DATETIME, dateTime);
+    dehydratedValues.put(ATTR_EMAIL, "this.is@mail.address");
+    dehydratedValues.put(ATTR_DECIMAL, 0.123);
+    dehydratedValues.put(ATTR_HTML, null);
+    dehydratedValues.put(ATTR_HYPERLINK, "http://www.molgenis.org");
+    dehydratedValues.put(ATTR_LONG, 0L);
+    dehydratedValues.put(ATTR_INT, 10);
+    dehydratedValues.put(ATTR_SCRIPT, "/bin/blaat/script.sh");
+    dehydratedValues.put(ATTR_XREF, "0");
+    dehydratedValues.put(ATTR_MREF, new Object[] {"0"});
+    dehydratedValues.put(ATTR_COMPOUND_CHILD_INT, 10);
+    dehydratedValues.put(ATTR_ENUM, "option1");
+    dehydratedEntity = toDehydratedEntity(entityType, dehydratedValues);
+  }
+
+  private static Object[] toDehydratedEntity(EntityType entityType, Map<String, Object> values) {
+    List<Object> dehydratedEntity = newArrayList();
+    dehydratedEntity.add(DehydratedEntityLayout.create(entityType));
+    for (Attribute attribute : entityType.getAtomicAttributes()) {
+      if (!attribute.hasExpression()) {
+        dehydratedEntity.add(values.get(attribute.getName()));
+      }
+    }
+    return dehydratedEntity.toArray();
+  }
+
+  private static void assertDehydratedEntityEquals(Object[] actual, Object[] expected) {
+    assertTrue(actual[0] instanceof DehydratedEntityLayout);
+    assertTrue(
+        Arrays.deepEquals(
+            copyOfRange(actual, 1, actual.length), copyOfRange(expected, 1, expected.length)),
+        Arrays.deepToString(actual));
   }
 
   @BeforeMethod
@@ -135,10 +157,32 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
             .allMatch(emd -> emd.getId().equals("TypeTestRefDynamic")));
   }
 
+  @Test
+  public void hydrateMetadataChanged() {
+    Object[] dehydratedEntity =
+        toDehydratedEntity(entityType, singletonMap(ATTR_STRING, "string1"));
+    Attribute attribute = entityType.getAttribute(ATTR_STRING);
+    entityType.removeAttribute(attribute);
+    try {
+      entityType.addAttribute(attribute);
+      Entity actualHydratedEntity = entityHydration.hydrate(dehydratedEntity, entityType);
+      assertEquals(actualHydratedEntity.getString(ATTR_STRING), "string1");
+    } finally {
+      entityType.removeAttribute(attribute);
+      entityType.addAttribute(attribute);
+    }
+  }
+
   @Test
   public void dehydrateTest() {
-    Map<String, Object> actualDehydratedEntity = entityHydration.dehydrate(hydratedEntity);
-    assertEquals(actualDehydratedEntity, dehydratedEntity);
+    Object[] actualDehydratedEntity = entityHydration.dehydrate(hydratedEntity);
+    assertDehydratedEntityEquals(actualDehydratedEntity, dehydratedEntity);
+  }
+
+  @Test
+  public void dehydrateSharesLayout() {
+    assertSame(
+        entityHydration.dehydrate(hydratedEntity)[0], entityHydration.dehydrate(hydratedEntity)[0]);
   }
 
   @Test
@@ -153,14 +197,15 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
     when(oneToManyEntity1.getIdValue()).thenReturn(oneToManyEntity1IdValue);
     when(entity.getEntities(attrName)).thenReturn(newArrayList(oneToManyEntity0, oneToManyEntity1));
     EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityType");
     Attribute oneToManyAttr = mock(Attribute.class);
     when(oneToManyAttr.getName()).thenReturn(attrName);
     when(oneToManyAttr.getDataType()).thenReturn(ONE_TO_MANY);
     when(entityType.getAtomicAttributes()).thenReturn(singleton(oneToManyAttr));
     when(entity.getEntityType()).thenReturn(entityType);
-    assertEquals(
+    assertDehydratedEntityEquals(
         entityHydration.dehydrate(entity),
-        singletonMap(attrName, newArrayList(oneToManyEntity0IdValue, oneToManyEntity1IdValue)));
+        new Object[] {null, new Object[] {oneToManyEntity0IdValue, oneToManyEntity1IdValue}});
   }
 
   @Test
@@ -172,11 +217,13 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
     when(manyToOneEntity.getIdValue()).thenReturn(manyToOneEntityIdValue);
     when(entity.getEntity(attrName)).thenReturn(manyToOneEntity);
     EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityType");
     Attribute xrefAttr = mock(Attribute.class);
     when(xrefAttr.getName()).thenReturn(attrName);
     when(xrefAttr.getDataType()).thenReturn(XREF);
     when(entityType.getAtomicAttributes()).thenReturn(singleton(xrefAttr));
     when(entity.getEntityType()).thenReturn(entityType);
-    assertEquals(entityHydration.dehydrate(entity), singletonMap(attrName, manyToOneEntityIdValue));
+    assertDehydratedEntityEquals(
+        entityHydration.dehydrate(entity), new Object[] {null, manyToOneEntityIdValue});
   }
 }
@@ -0,0 +1,102 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.guava.CaffeinatedGuava;
+import com.google.common.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.ExecutionException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SharedCacheIndexTest {
+  private MeterRegistry meterRegistry;
+  private SharedCacheIndex<String, String> sharedCacheIndex;
+  private Cache<String, String> cache;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
+    sharedCacheIndex = new SharedCacheIndex<>(meterRegistry, "cache", key -> key.split("/")[0]);
+    cache = CaffeinatedGuava.build(Caffeine.newBuilder().writer(sharedCacheIndex));
+  }
+
+  @Test
+  public void testGetKeysPut() {
+    cache.put("entityType/0", "value");
+    cache.put("otherEntityType/0", "value");
+    assertEquals(sharedCacheIndex.getKeys("entityType"), singletonList("entityType/0"));
+  }
+
+  @Test
+  public void testGetKeysComputed() throws ExecutionException {
+    cache.get(
+        "entityType/0",
+        () -> {
+          sharedCacheIndex.add("entityType/0");
+          return "value";
+        });
+    assertEquals(sharedCacheIndex.getKeys("entityType"), singletonList("entityType/0"));
+  }
+
+  @Test
+  public void testGetKeysInvalidated() {
+    cache.put("entityType/0", "value");
+    cache.put("entityType/1", "value");
+    cache.invalidate("entityType/0");
+    assertEquals(sharedCacheIndex.getKeys("entityType"), singletonList("entityType/1"));
+  }
+
+  @Test
+  public void testGetKeysUnknownEntityType() {
+    assertEquals(sharedCacheIndex.getKeys("entityType").size(), 0);
+  }
+
+  @Test
+  public void testMetrics() {
+    cache.put("entityType/0", "value");
+    cache.put("entityType/1", "value");
+    cache.put("otherEntityType/0", "value");
+    sharedCacheIndex.recordHits("entityType", 3);
+    sharedCacheIndex.recordMisses("entityType", 2);
+
+    assertEquals(
+        meterRegistry.get("cache.size").tag("cache", "cache.entityType").gauge().value(), 2.0);
+    assertEquals(
+        meterRegistry
+            .get("cache.gets")
+            .tags("cache", "cache.entityType", "result", "hit")
+            .functionCounter()
+            .count(),
+        3.0);
+    assertEquals(
+        meterRegistry
+            .get("cache.gets")
+            .tags("cache", "cache.entityType", "result", "miss")
+            .functionCounter()
+            .count(),
+        2.0);
+  }
+
+  @Test
+  public void testMetricsEvicted() {
+    Cache<String, String> boundedCache =
+        CaffeinatedGuava.build(
+            Caffeine.newBuilder().executor(Runnable::run).maximumSize(1).writer(sharedCacheIndex));
+    boundedCache.put("entityType/0", "value");
+    boundedCache.put("entityType/1", "value");
+    boundedCache.cleanUp();
+
+    assertEquals(
+        meterRegistry
+            .get("cache.evictions")
+            .tag("cache", "cache.entityType")
+            .functionCounter()
+            .count(),
+        1.0);
+    assertEquals(sharedCacheIndex.getKeys("entityType").size(), 1);
+  }
+}
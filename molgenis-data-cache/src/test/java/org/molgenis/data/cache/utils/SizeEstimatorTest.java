@@ -0,0 +1,42 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import org.molgenis.data.support.QueryImpl;
+import org.testng.annotations.Test;
+
+public class SizeEstimatorTest {
+  @Test
+  public void testEstimateSizeNull() {
+    assertEquals(SizeEstimator.estimateSize(null), 0);
+  }
+
+  @Test
+  public void testEstimateSizeString() {
+    assertTrue(SizeEstimator.estimateSize("abcdef") > SizeEstimator.estimateSize("abc"));
+  }
+
+  @Test
+  public void testEstimateSizeDehydratedEntity() {
+    long valueSize = SizeEstimator.estimateSize(singletonList("id"));
+    assertTrue(
+        SizeEstimator.estimateSize(Optional.of(singletonMap("attr", singletonList("id"))))
+            > valueSize);
+  }
+
+  @Test
+  public void testWeighArray() {
+    assertTrue(SizeEstimator.weigh(new Object[] {1, "a"}) > SizeEstimator.weigh(new Object[0]));
+  }
+
+  @Test
+  public void testEstimateSizeQuery() {
+    assertTrue(
+        SizeEstimator.estimateSize(new QueryImpl<>().eq("attr", "value").and().eq("attr", "x"))
+            > SizeEstimator.estimateSize(new QueryImpl<>().eq("attr", "value")));
+  }
+}
@@ -1,29 +1,37 @@
 package org.molgenis.data.elasticsearch;
 
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 import static org.molgenis.data.util.EntityTypeUtils.createFetchForReindexing;
 
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Streams;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.lucene.search.Explanation;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
 import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.elasticsearch.client.ClientFacade;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
-import org.molgenis.data.elasticsearch.client.model.SearchHits;
 import org.molgenis.data.elasticsearch.generator.ContentGenerators;
 import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
+import org.molgenis.data.elasticsearch.generator.model.DocumentAction.Operation;
 import org.molgenis.data.elasticsearch.generator.model.Index;
 import org.molgenis.data.elasticsearch.generator.model.IndexSettings;
 import org.molgenis.data.elasticsearch.generator.model.Mapping;
@@ -47,6 +55,9 @@ public class ElasticsearchService implements SearchService, IndexService {
   private final ContentGenerators contentGenerators;
   private final DataService dataService;
 
+  /** Indexes that are being rebuilt by alias name */
+  private final ConcurrentMap<String, IndexRebuild> indexRebuilds = new ConcurrentHashMap<>();
+
   public ElasticsearchService(
       ClientFacade clientFacade, ContentGenerators contentGenerators, DataService dataService) {
     this.clientFacade = requireNonNull(clientFacade);
@@ -56,10 +67,15 @@ public class ElasticsearchService implements SearchService, IndexService {
 
   @Override
   public void createIndex(EntityType entityType) {
-    Index index = contentGenerators.createIndex(entityType);
+    Index alias = contentGenerators.createIndex(entityType);
+    Index index = contentGenerators.createVersionedIndex(entityType);
+    createIndex(entityType, index, alias);
+  }
+
+  private void createIndex(EntityType entityType, Index index, @Nullable Index alias) {
     IndexSettings indexSettings = IndexSettings.create();
     Mapping mapping = contentGenerators.createMapping(entityType);
-    clientFacade.createIndex(index, indexSettings, Stream.of(mapping));
+    clientFacade.createIndex(index, alias, indexSettings, Stream.of(mapping));
   }
 
   @Override
@@ -70,23 +86,102 @@ public class ElasticsearchService implements SearchService, IndexService {
 
   @Override
   public void deleteIndex(EntityType entityType) {
-    Index index = contentGenerators.createIndex(entityType);
-    clientFacade.deleteIndex(index);
+    Index alias = contentGenerators.createIndex(entityType);
+    List<Index> indexes = clientFacade.getAliasedIndexes(alias);
+    if (!indexes.isEmpty()) {
+      clientFacade.deleteIndexes(indexes);
+    } else {
+      // index created before indexes were versioned, the index name equals the alias name
+      clientFacade.deleteIndex(alias);
+    }
   }
 
+  /**
+   * Rebuilds the index in a new versioned index while searches are served from the current index.
+   * Index writes that arrive during the rebuild are sent to both indexes and the entities they
+   * changed are reindexed once the new index is loaded, so that they are not overwritten by
+   * documents that were loaded before the change. Then the entity type alias is moved to the new
+   * index and the old index is deleted in one atomic request.
+   */
   @Override
   public void rebuildIndex(Repository<? extends Entity> repository) {
     EntityType entityType = repository.getEntityType();
+    Index alias = contentGenerators.createIndex(entityType);
+    Index index = contentGenerators.createVersionedIndex(entityType);
+
+    createIndex(entityType, index, null);
+    IndexRebuild indexRebuild = new IndexRebuild(index);
+    indexRebuilds.put(alias.getName(), indexRebuild);
+    try {
+      Fetch fetch = createFetchForReindexing(entityType);
+      repository.forEachBatched(fetch, entities -> index(index, entities.stream()), BATCH_SIZE);
+      reindexChangedEntities(repository, fetch, indexRebuild);
+      clientFacade.refreshIndex(index);
+      clientFacade.replaceIndexes(alias, getReplacedIndexes(alias), index);
+    } catch (RuntimeException e) {
+      clientFacade.deleteIndex(index);
+      throw e;
+    } finally {
+      indexRebuilds.remove(alias.getName(), indexRebuild);
+    }
+  }
+
+  private List<Index> getReplacedIndexes(Index alias) {
+    List<Index> aliasedIndexes = clientFacade.getAliasedIndexes(alias);
+    if (aliasedIndexes.isEmpty() && clientFacade.indexesExist(alias)) {
+      // index created before indexes were versioned, an alias cannot have the name of an index
+      return singletonList(alias);
+    }
+    return aliasedIndexes;
+  }
 
-    if (hasIndex(entityType)) {
-      deleteIndex(entityType);
+  /** Indexes the current state of the entities that were changed during the index rebuild */
+  private void reindexChangedEntities(
+      Repository<? extends Entity> repository, Fetch fetch, IndexRebuild indexRebuild) {
+    Index index = indexRebuild.getIndex();
+    Iterators.partition(indexRebuild.getChangedEntityIds().iterator(), BATCH_SIZE)
+        .forEachRemaining(
+            entityIds -> {
+              Set<Object> deletedEntityIds = new HashSet<>(entityIds);
+              List<? extends Entity> entities =
+                  repository
+                      .findAll(entityIds.stream(), fetch)
+                      .peek(entity -> deletedEntityIds.remove(entity.getIdValue()))
+                      .collect(toList());
+              index(index, entities.stream());
+              clientFacade.processDocumentActions(
+                  deletedEntityIds
+                      .stream()
+                      .map(entityId -> toDocumentAction(index, entityId, Operation.DELETE)));
+            });
+  }
+
+  /**
+   * Returns the index that is being built for the given alias and registers the entity as changed
+   * during its rebuild, or returns null if the index is not being rebuilt.
+   */
+  @Nullable
+  @CheckForNull
+  private Index getRebuiltIndex(Index alias, Object entityId) {
+    IndexRebuild indexRebuild = indexRebuilds.get(alias.getName());
+    if (indexRebuild == null) {
+      return null;
     }
+    indexRebuild.addChangedEntityId(entityId);
+    return indexRebuild.getIndex();
+  }
 
-    createIndex(entityType);
-    repository.forEachBatched(
-        createFetchForReindexing(entityType),
-        entities -> index(entityType, entities.stream()),
-        BATCH_SIZE);
+  /**
+   * Returns the document actions on the given alias and, while the index is rebuilt, on the index
+   * that is being built.
+   */
+  private Stream<DocumentAction> toDocumentActions(
+      Index alias, Object entityId, Document document, Operation operation) {
+    DocumentAction documentAction = DocumentAction.create(alias, document, operation);
+    Index rebuiltIndex = getRebuiltIndex(alias, entityId);
+    return rebuiltIndex == null
+        ? Stream.of(documentAction)
+        : Stream.of(documentAction, DocumentAction.create(rebuiltIndex, document, operation));
   }
 
   @Override
@@ -114,31 +209,29 @@ public class ElasticsearchService implements SearchService, IndexService {
     return search(entityType, q, from, q.getPageSize());
   }
 
+  /**
+   * Searches the index using a single from/size request if the requested window fits in one batch.
+   * Otherwise pages through the index with a search_after cursor so that large result sets are
+   * retrieved lazily in batches instead of being collected in memory.
+   *
+   * <p>Queries do not carry a search_after cursor, so a deep page still retrieves and discards
+   * every hit before the offset: the cost of offset pagination remains linear in the offset, only
+   * the memory use is bounded by the batch size.
+   */
   private Stream<Object> search(EntityType entityType, Query<Entity> q, int offset, int pageSize) {
     QueryBuilder query = contentGenerators.createQuery(q, entityType);
     Sort sort = q.getSort() != null ? contentGenerators.createSorts(q.getSort(), entityType) : null;
     Index index = contentGenerators.createIndex(entityType);
-    Stream<SearchHit> searchHits = Stream.empty();
 
-    boolean done = false;
-    int currentOffset;
-    int i = 0;
-    while (!done) {
-      int batchSize = pageSize < MAX_BATCH_SIZE && pageSize != 0 ? pageSize : MAX_BATCH_SIZE;
-      currentOffset = offset + (i * MAX_BATCH_SIZE);
-
-      SearchHits currentSearchHits =
-          clientFacade.search(query, currentOffset, batchSize, sort, index);
-      searchHits = Streams.concat(searchHits, currentSearchHits.getHits().stream());
-
-      if (currentSearchHits.getHits().size() < MAX_BATCH_SIZE) {
-        done = true;
+    Stream<SearchHit> searchHits;
+    if (pageSize != 0 && offset + pageSize <= MAX_BATCH_SIZE) {
+      searchHits = clientFacade.search(query, offset, pageSize, sort, index).getHits().stream();
+    } else {
+      searchHits = clientFacade.searchAfter(query, MAX_BATCH_SIZE, sort, index).skip(offset);
+      if (pageSize != 0) {
+        searchHits = searchHits.limit(pageSize);
       }
-
-      if (pageSize != 0) pageSize -= MAX_BATCH_SIZE;
-      i++;
     }
-
     return toEntityIds(entityType, searchHits.map(SearchHit::getId));
   }
 
@@ -200,11 +293,28 @@ public class ElasticsearchService implements SearchService, IndexService {
     Index index = contentGenerators.createIndex(entityType);
     Document document = contentGenerators.createDocument(entity);
     clientFacade.index(index, document);
+
+    Index rebuiltIndex = getRebuiltIndex(index, entity.getIdValue());
+    if (rebuiltIndex != null) {
+      clientFacade.index(rebuiltIndex, document);
+    }
   }
 
   @Override
   public long index(EntityType entityType, Stream<? extends Entity> entities) {
     Index index = contentGenerators.createIndex(entityType);
+    AtomicLong count = new AtomicLong(0L);
+    clientFacade.processDocumentActions(
+        entities.flatMap(
+            entity -> {
+              count.incrementAndGet();
+              Document document = contentGenerators.createDocument(entity);
+              return toDocumentActions(index, entity.getIdValue(), document, Operation.INDEX);
+            }));
+    return count.get();
+  }
+
+  private long index(Index index, Stream<? extends Entity> entities) {
     Stream<DocumentAction> documentActionStream =
         entities.map(entity -> this.toDocumentAction(index, entity));
 
@@ -220,7 +330,12 @@ public class ElasticsearchService implements SearchService, IndexService {
 
   private DocumentAction toDocumentAction(Index index, Entity entity) {
     Document document = contentGenerators.createDocument(entity);
-    return DocumentAction.create(index, document, DocumentAction.Operation.INDEX);
+    return DocumentAction.create(index, document, Operation.INDEX);
+  }
+
+  private DocumentAction toDocumentAction(Index index, Object entityId, Operation operation) {
+    Document document = contentGenerators.createDocument(entityId);
+    return DocumentAction.create(index, document, operation);
   }
 
   @Override
@@ -233,11 +348,22 @@ public class ElasticsearchService implements SearchService, IndexService {
     Index index = contentGenerators.createIndex(entityType);
     Document document = contentGenerators.createDocument(entityId);
     clientFacade.deleteById(index, document);
+
+    Index rebuiltIndex = getRebuiltIndex(index, entityId);
+    if (rebuiltIndex != null) {
+      clientFacade.deleteById(rebuiltIndex, document);
+    }
   }
 
   @Override
   public void deleteAll(EntityType entityType, Stream<Object> entityIds) {
-    entityIds.forEach(entityId -> deleteById(entityType, entityId));
+    Index index = contentGenerators.createIndex(entityType);
+    Stream<DocumentAction> documentActionStream =
+        entityIds.flatMap(
+            entityId ->
+                toDocumentActions(
+                    index, entityId, contentGenerators.createDocument(entityId), Operation.DELETE));
+    clientFacade.processDocumentActions(documentActionStream);
   }
 
   @Override
@@ -246,4 +372,26 @@ public class ElasticsearchService implements SearchService, IndexService {
     Iterators.partition(entityIds.iterator(), BATCH_SIZE)
         .forEachRemaining(batchEntityIds -> deleteAll(entityType, batchEntityIds.stream()));
   }
+
+  /** Index that is being rebuilt and the ids of the entities that changed during the rebuild */
+  private static class IndexRebuild {
+    private final Index index;
+    private final Set<Object> changedEntityIds = ConcurrentHashMap.newKeySet();
+
+    IndexRebuild(Index index) {
+      this.index = requireNonNull(index);
+    }
+
+    Index getIndex() {
+      return index;
+    }
+
+    void addChangedEntityId(Object entityId) {
+      changedEntityIds.add(entityId);
+    }
+
+    Set<Object> getChangedEntityIds() {
+      return changedEntityIds;
+    }
+  }
 }
@@ -10,19 +10,29 @@ import static org.elasticsearch.action.DocWriteRequest.OpType.INDEX;
 import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
 import static org.molgenis.util.stream.MapCollectors.toLinkedMap;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.lucene.search.Explanation;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.ResourceNotFoundException;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequestBuilder;
@@ -44,11 +54,15 @@ import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.action.support.replication.ReplicationResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Requests;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.MolgenisQueryException;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
@@ -89,12 +103,21 @@ public class ClientFacade implements Closeable {
   }
 
   public void createIndex(Index index, IndexSettings indexSettings, Stream<Mapping> mappingStream) {
+    createIndex(index, null, indexSettings, mappingStream);
+  }
+
+  /** Creates an index and, if an alias is given, atomically adds the alias to the created index. */
+  public void createIndex(
+      Index index,
+      @Nullable @CheckForNull Index alias,
+      IndexSettings indexSettings,
+      Stream<Mapping> mappingStream) {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Creating index '{}' ...", index.getName());
     }
 
     CreateIndexRequestBuilder createIndexRequest =
-        createIndexRequest(index, indexSettings, mappingStream);
+        createIndexRequest(index, alias, indexSettings, mappingStream);
 
     CreateIndexResponse createIndexResponse;
     try {
@@ -124,7 +147,10 @@ public class ClientFacade implements Closeable {
   }
 
   private CreateIndexRequestBuilder createIndexRequest(
-      Index index, IndexSettings indexSettings, Stream<Mapping> mappingStream) {
+      Index index,
+      @Nullable @CheckForNull Index alias,
+      IndexSettings indexSettings,
+      Stream<Mapping> mappingStream) {
     XContentBuilder settings = settingsBuilder.createSettings(indexSettings);
     Map<String, XContentBuilder> mappings =
         mappingStream.collect(toLinkedMap(Mapping::getType, mappingSourceBuilder::createMapping));
@@ -133,6 +159,9 @@ public class ClientFacade implements Closeable {
         client.admin().indices().prepareCreate(index.getName());
     createIndexRequest.setSettings(settings);
     mappings.forEach(createIndexRequest::addMapping);
+    if (alias != null) {
+      createIndexRequest.addAlias(new Alias(alias.getName()));
+    }
     return createIndexRequest;
   }
 
@@ -169,7 +198,7 @@ public class ClientFacade implements Closeable {
     deleteIndexes(singletonList(index));
   }
 
-  private void deleteIndexes(List<Index> indexes) {
+  public void deleteIndexes(List<Index> indexes) {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Deleting index(es) '{}' ...", toString(indexes));
     }
@@ -201,6 +230,10 @@ public class ClientFacade implements Closeable {
     refreshIndexes(singletonList(Index.create("_all")));
   }
 
+  public void refreshIndex(Index index) {
+    refreshIndexes(singletonList(index));
+  }
+
   private void refreshIndexes(List<Index> indexes) {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Refreshing index(es) '{}' ...", toString(indexes));
@@ -235,6 +268,78 @@ public class ClientFacade implements Closeable {
     }
   }
 
+  /** Returns the indexes that the given alias refers to, or an empty list if none exist. */
+  public List<Index> getAliasedIndexes(Index alias) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Retrieving indexes for alias '{}' ...", alias.getName());
+    }
+
+    GetAliasesRequestBuilder getAliasesRequest =
+        client.admin().indices().prepareGetAliases(alias.getName());
+
+    GetAliasesResponse getAliasesResponse;
+    try {
+      getAliasesResponse = getAliasesRequest.get();
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(format("Error retrieving indexes for alias '%s'.", alias.getName()));
+    }
+
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases = getAliasesResponse.getAliases();
+    List<Index> indexes =
+        Streams.stream(aliases.keysIt())
+            .filter(indexName -> !aliases.get(indexName).isEmpty())
+            .map(Index::create)
+            .collect(toList());
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Retrieved indexes '{}' for alias '{}'.", toString(indexes), alias.getName());
+    }
+    return indexes;
+  }
+
+  /**
+   * Atomically adds the alias to the given index and deletes the indexes that it replaces, so that
+   * requests on the alias are served by either the old or the new index and never by none of them.
+   * The replaced indexes can include an index with the same name as the alias.
+   */
+  public void replaceIndexes(Index alias, List<Index> replacedIndexes, Index index) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Replacing index(es) '{}' of alias '{}' with index '{}' ...",
+          toString(replacedIndexes),
+          alias.getName(),
+          index.getName());
+    }
+
+    IndicesAliasesRequestBuilder indicesAliasesRequest = client.admin().indices().prepareAliases();
+    indicesAliasesRequest.addAlias(index.getName(), alias.getName());
+    replacedIndexes.forEach(
+        replacedIndex -> indicesAliasesRequest.removeIndex(replacedIndex.getName()));
+
+    IndicesAliasesResponse indicesAliasesResponse;
+    try {
+      indicesAliasesResponse = indicesAliasesRequest.get();
+    } catch (ResourceNotFoundException e) {
+      LOG.debug("", e);
+      throw new UnknownIndexException(toString(replacedIndexes));
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(format("Error replacing indexes of alias '%s'.", alias.getName()));
+    }
+
+    if (!indicesAliasesResponse.isAcknowledged()) {
+      throw new IndexException(format("Error replacing indexes of alias '%s'.", alias.getName()));
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Replaced index(es) '{}' of alias '{}' with index '{}'.",
+          toString(replacedIndexes),
+          alias.getName(),
+          index.getName());
+    }
+  }
+
   public long getCount(Index index) {
     return getCount(singletonList(index));
   }
@@ -341,7 +446,92 @@ public class ClientFacade implements Closeable {
 
     SearchRequestBuilder searchRequest =
         createSearchRequest(query, from, size, sort, null, indexes);
+    SearchResponse searchResponse = executeSearchRequest(searchRequest, query, indexes);
 
+    if (LOG.isDebugEnabled()) {
+      if (sort != null) {
+        LOG.debug(
+            "Searched {} docs in index(es) '{}' with query '{}' sorted by '{}' in {}ms.",
+            searchResponse.getHits().getTotalHits(),
+            toString(indexes),
+            query,
+            sort,
+            searchResponse.getTookInMillis());
+      } else {
+        LOG.debug(
+            "Searched {} docs in index(es) '{}' with query '{}' in {}ms.",
+            searchResponse.getHits().getTotalHits(),
+            toString(indexes),
+            query,
+            searchResponse.getTookInMillis());
+      }
+    }
+    return createSearchResponse(searchResponse);
+  }
+
+  /**
+   * Returns a lazily evaluated stream of search hits that retrieves the hits in batches using the
+   * search_after parameter. Hits are sorted by score if no sort is given. The document uid is used
+   * as tiebreaker so that each hit is returned exactly once, regardless of the depth of the hit in
+   * the result set. The first batch is retrieved eagerly so that request errors are thrown by this
+   * method.
+   */
+  public Stream<SearchHit> searchAfter(QueryBuilder query, int batchSize, Sort sort, Index index) {
+    if (batchSize > MAX_BATCH_SIZE) {
+      throw new MolgenisQueryException(
+          String.format(
+              "Batch size of %s exceeds the maximum batch size of %s for search queries",
+              batchSize, MAX_BATCH_SIZE));
+    }
+
+    Iterator<List<SearchHit>> batchIterator =
+        new SearchAfterIterator(query, batchSize, sort, singletonList(index));
+    batchIterator.hasNext(); // retrieve first batch
+    return Streams.stream(batchIterator).flatMap(List::stream);
+  }
+
+  private SearchResponse searchAfterBatch(
+      QueryBuilder query,
+      int size,
+      Sort sort,
+      @Nullable @CheckForNull Object[] searchAfter,
+      List<Index> indexes) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Searching {} docs after '{}' in index(es) '{}' with query '{}' sorted by '{}' ...",
+          size,
+          searchAfter != null ? Arrays.toString(searchAfter) : null,
+          toString(indexes),
+          query,
+          sort);
+    }
+
+    SearchRequestBuilder searchRequest =
+        createSearchRequest(query, null, size, sort, null, indexes);
+    if (sort == null) {
+      // keep relevance order, the uid only breaks ties
+      searchRequest.addSort(SortBuilders.scoreSort());
+    }
+    searchRequest.addSort(SortBuilders.fieldSort(UidFieldMapper.NAME));
+    if (searchAfter != null) {
+      searchRequest.searchAfter(searchAfter);
+    }
+    SearchResponse searchResponse = executeSearchRequest(searchRequest, query, indexes);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Searched {} docs after '{}' in index(es) '{}' with query '{}' in {}ms.",
+          searchResponse.getHits().getHits().length,
+          searchAfter != null ? Arrays.toString(searchAfter) : null,
+          toString(indexes),
+          query,
+          searchResponse.getTookInMillis());
+    }
+    return searchResponse;
+  }
+
+  private SearchResponse executeSearchRequest(
+      SearchRequestBuilder searchRequest, QueryBuilder query, List<Index> indexes) {
     SearchResponse searchResponse;
     try {
       searchResponse = searchRequest.get();
@@ -372,25 +562,44 @@ public class ClientFacade implements Closeable {
               toString(indexes), query));
     }
 
-    if (LOG.isDebugEnabled()) {
-      if (sort != null) {
-        LOG.debug(
-            "Searched {} docs in index(es) '{}' with query '{}' sorted by '{}' in {}ms.",
-            searchResponse.getHits().getTotalHits(),
-            toString(indexes),
-            query,
-            sort,
-            searchResponse.getTookInMillis());
-      } else {
-        LOG.debug(
-            "Searched {} docs in index(es) '{}' with query '{}' in {}ms.",
-            searchResponse.getHits().getTotalHits(),
-            toString(indexes),
-            query,
-            searchResponse.getTookInMillis());
+    return searchResponse;
+  }
+
+  /** Iterates over batches of search hits, using the sort values of the last hit as cursor. */
+  private class SearchAfterIterator extends AbstractIterator<List<SearchHit>> {
+    private final QueryBuilder query;
+    private final int batchSize;
+    private final Sort sort;
+    private final List<Index> indexes;
+    private Object[] searchAfter;
+    private boolean done;
+
+    SearchAfterIterator(QueryBuilder query, int batchSize, Sort sort, List<Index> indexes) {
+      this.query = query;
+      this.batchSize = batchSize;
+      this.sort = sort;
+      this.indexes = indexes;
+    }
+
+    @Override
+    protected List<SearchHit> computeNext() {
+      if (done) {
+        return endOfData();
+      }
+
+      org.elasticsearch.search.SearchHit[] hits =
+          searchAfterBatch(query, batchSize, sort, searchAfter, indexes).getHits().getHits();
+      if (hits.length < batchSize) {
+        done = true;
+      }
+      if (hits.length == 0) {
+        return endOfData();
       }
+      searchAfter = hits[hits.length - 1].getSortValues();
+      return stream(hits)
+          .map(hit -> SearchHit.create(hit.getId(), hit.getIndex()))
+          .collect(toList());
     }
-    return createSearchResponse(searchResponse);
   }
 
   private SearchRequestBuilder createSearchRequest(
@@ -545,7 +754,7 @@ public class ClientFacade implements Closeable {
         client
             .prepareIndex()
             .setIndex(indexName)
-            .setType(indexName)
+            .setType(index.getType())
             .setId(documentId)
             .setSource(source);
 
@@ -588,7 +797,7 @@ public class ClientFacade implements Closeable {
     String indexName = index.getName();
     String documentId = document.getId();
     DeleteRequestBuilder deleteRequest =
-        client.prepareDelete().setIndex(indexName).setType(indexName).setId(documentId);
+        client.prepareDelete().setIndex(indexName).setType(index.getType()).setId(documentId);
 
     DeleteResponse deleteResponse;
     try {
@@ -630,6 +839,7 @@ public class ClientFacade implements Closeable {
 
   private DocWriteRequest toDocWriteRequest(DocumentAction documentAction) {
     String indexName = documentAction.getIndex().getName();
+    String typeName = documentAction.getIndex().getType();
     String documentId = documentAction.getDocument().getId();
 
     DocWriteRequest docWriteRequest;
@@ -642,13 +852,13 @@ public class ClientFacade implements Closeable {
         }
         docWriteRequest =
             Requests.indexRequest(indexName)
-                .type(indexName)
+                .type(typeName)
                 .id(documentId)
                 .source(source)
                 .opType(INDEX);
         break;
       case DELETE:
-        docWriteRequest = Requests.deleteRequest(indexName).type(indexName).id(documentId);
+        docWriteRequest = Requests.deleteRequest(indexName).type(typeName).id(documentId);
         break;
       default:
         throw new UnexpectedEnumException(documentAction.getOperation());
@@ -2,6 +2,7 @@ package org.molgenis.data.elasticsearch.generator;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.UUID;
 import org.molgenis.data.elasticsearch.generator.model.Index;
 import org.molgenis.data.meta.model.EntityType;
 import org.springframework.stereotype.Component;
@@ -9,6 +10,8 @@ import org.springframework.stereotype.Component;
 /** Generates Elasticsearch index metadata from entity types. */
 @Component
 class IndexGenerator {
+  private static final char VERSION_SEPARATOR = '_';
+
   private final DocumentIdGenerator documentIdGenerator;
 
   IndexGenerator(DocumentIdGenerator documentIdGenerator) {
@@ -19,4 +22,15 @@ class IndexGenerator {
     String indexName = documentIdGenerator.generateId(entityType);
     return Index.create(indexName);
   }
+
+  /**
+   * Creates a new uniquely named index for the given entity type. The index created by {@link
+   * #createIndex(EntityType)} is used as alias for the versioned index that is currently in use,
+   * its name is used as document type in all versioned indexes. A random UUID version keeps the
+   * names of indexes created at the same time, e.g. on different MOLGENIS instances, unique.
+   */
+  Index createVersionedIndex(EntityType entityType) {
+    String indexName = documentIdGenerator.generateId(entityType);
+    return Index.create(indexName + VERSION_SEPARATOR + UUID.randomUUID(), indexName);
+  }
 }
@@ -8,7 +8,14 @@ import com.google.auto.value.AutoValue;
 public abstract class Index {
   public abstract String getName();
 
+  /** Returns the document type, which equals the index name unless the index is versioned. */
+  public abstract String getType();
+
   public static Index create(String name) {
-    return new AutoValue_Index(name);
+    return create(name, name);
+  }
+
+  public static Index create(String name, String type) {
+    return new AutoValue_Index(name, type);
   }
 }
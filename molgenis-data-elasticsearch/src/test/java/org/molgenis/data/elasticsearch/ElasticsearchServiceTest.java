@@ -1,24 +1,49 @@
 package org.molgenis.data.elasticsearch;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
+import static org.molgenis.data.elasticsearch.generator.model.DocumentAction.Operation.DELETE;
+import static org.molgenis.data.elasticsearch.generator.model.DocumentAction.Operation.INDEX;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
 
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Repository;
 import org.molgenis.data.elasticsearch.client.ClientFacade;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
 import org.molgenis.data.elasticsearch.client.model.SearchHits;
 import org.molgenis.data.elasticsearch.generator.ContentGenerators;
+import org.molgenis.data.elasticsearch.generator.model.Document;
+import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.elasticsearch.generator.model.IndexSettings;
+import org.molgenis.data.elasticsearch.generator.model.Mapping;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.test.AbstractMockitoTest;
@@ -47,27 +72,21 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
 
   @Test
   @SuppressWarnings("unchecked")
-  public void testBatchingSearchPageSizeZero() {
+  public void testSearchPageSizeZero() {
     QueryImpl<Entity> query = mock(QueryImpl.class);
     when(query.getPageSize()).thenReturn(0);
     when(query.getOffset()).thenReturn(0);
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getDataType()).thenReturn(STRING);
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
-
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[5000]));
+    when(clientFacade.searchAfter(any(), eq(MAX_BATCH_SIZE), any(), any()))
+        .thenReturn(Stream.of(SearchHit.create("id0", "index"), SearchHit.create("id1", "index")));
 
-    when(clientFacade.search(any(), eq(0), eq(10000), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(10000), anyInt(), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(20000), anyInt(), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
-
-    elasticsearchService.search(entityType, query);
+    assertEquals(
+        elasticsearchService.search(entityType, query).collect(toList()), asList("id0", "id1"));
 
-    verify(clientFacade, times(1)).search(any(), eq(0), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(10000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(20000), eq(MAX_BATCH_SIZE), any(), any());
+    verify(clientFacade).searchAfter(any(), eq(MAX_BATCH_SIZE), any(), any());
     verifyNoMoreInteractions(clientFacade);
   }
 
@@ -91,26 +110,207 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
 
   @Test
   @SuppressWarnings("unchecked")
-  public void testBatchingSearchPageSizeLargerThanMax() {
+  public void testSearchPageBeyondMaxBatchSize() {
     QueryImpl<Entity> query = mock(QueryImpl.class);
-    when(query.getPageSize()).thenReturn(10001);
-    when(query.getOffset()).thenReturn(5000);
+    when(query.getPageSize()).thenReturn(2);
+    when(query.getOffset()).thenReturn(9999);
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getDataType()).thenReturn(STRING);
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
+    Stream<SearchHit> searchHits =
+        IntStream.range(0, 10003).mapToObj(i -> SearchHit.create("id" + i, "index"));
+    when(clientFacade.searchAfter(any(), eq(MAX_BATCH_SIZE), any(), any())).thenReturn(searchHits);
 
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[1]));
+    assertEquals(
+        elasticsearchService.search(entityType, query).collect(toList()),
+        asList("id9999", "id10000"));
 
-    when(clientFacade.search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any()))
-        .thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(15000), eq(1), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
+    verify(clientFacade).searchAfter(any(), eq(MAX_BATCH_SIZE), any(), any());
+    verifyNoMoreInteractions(clientFacade);
+  }
 
-    elasticsearchService.search(entityType, query);
+  @Test
+  public void testCreateIndex() {
+    Index alias = Index.create("alias");
+    Index index = Index.create("alias_1", "alias");
+    Mapping mapping = mock(Mapping.class);
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(contentGenerators.createVersionedIndex(entityType)).thenReturn(index);
+    when(contentGenerators.createMapping(entityType)).thenReturn(mapping);
+
+    elasticsearchService.createIndex(entityType);
+
+    verify(clientFacade).createIndex(eq(index), eq(alias), eq(IndexSettings.create()), any());
+  }
+
+  @Test
+  public void testDeleteIndex() {
+    Index alias = Index.create("alias");
+    List<Index> indexes = singletonList(Index.create("alias_1"));
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(indexes);
+
+    elasticsearchService.deleteIndex(entityType);
+
+    verify(clientFacade).deleteIndexes(indexes);
+  }
+
+  @Test
+  public void testDeleteIndexUnversioned() {
+    Index alias = Index.create("alias");
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(emptyList());
+
+    elasticsearchService.deleteIndex(entityType);
+
+    verify(clientFacade).deleteIndex(alias);
+  }
+
+  @Test
+  public void testRebuildIndex() {
+    @SuppressWarnings("unchecked")
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Index alias = Index.create("alias");
+    Index oldIndex = Index.create("alias_1");
+    Index index = Index.create("alias_2", "alias");
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(contentGenerators.createVersionedIndex(entityType)).thenReturn(index);
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(singletonList(oldIndex));
+
+    elasticsearchService.rebuildIndex(repository);
+
+    InOrder inOrder = inOrder(clientFacade, repository);
+    inOrder.verify(clientFacade).createIndex(eq(index), isNull(), any(), any());
+    inOrder.verify(repository).forEachBatched(any(), any(), eq(1000));
+    inOrder.verify(clientFacade).refreshIndex(index);
+    inOrder.verify(clientFacade).replaceIndexes(alias, singletonList(oldIndex), index);
+    verify(clientFacade, never()).deleteIndexes(any());
+  }
+
+  @Test
+  public void testRebuildIndexUnversioned() {
+    @SuppressWarnings("unchecked")
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Index alias = Index.create("alias");
+    Index index = Index.create("alias_2", "alias");
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(contentGenerators.createVersionedIndex(entityType)).thenReturn(index);
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(emptyList());
+    when(clientFacade.indexesExist(alias)).thenReturn(true);
+
+    elasticsearchService.rebuildIndex(repository);
+
+    InOrder inOrder = inOrder(clientFacade);
+    inOrder.verify(clientFacade).refreshIndex(index);
+    inOrder.verify(clientFacade).replaceIndexes(alias, singletonList(alias), index);
+    verify(clientFacade, never()).deleteIndex(alias);
+    verify(clientFacade, never()).deleteIndexes(any());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testRebuildIndexWritesDuringRebuild() {
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Index alias = Index.create("alias");
+    Index oldIndex = Index.create("alias_1");
+    Index index = Index.create("alias_2", "alias");
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(contentGenerators.createVersionedIndex(entityType)).thenReturn(index);
+    when(clientFacade.getAliasedIndexes(alias)).thenReturn(singletonList(oldIndex));
+
+    Entity updatedEntity = when(mock(Entity.class).getIdValue()).thenReturn("id0").getMock();
+    Document updatedDocument = Document.create("id0", null);
+    when(contentGenerators.createDocument(updatedEntity)).thenReturn(updatedDocument);
+    Document deletedDocument = Document.create("id1", null);
+    when(contentGenerators.createDocument("id1")).thenReturn(deletedDocument);
+    doAnswer(
+            invocation -> {
+              elasticsearchService.index(entityType, updatedEntity);
+              elasticsearchService.deleteById(entityType, "id1");
+              return null;
+            })
+        .when(repository)
+        .forEachBatched(any(), any(), eq(1000));
+    when(repository.findAll(any(Stream.class), any()))
+        .thenAnswer(invocation -> Stream.of(updatedEntity));
+
+    elasticsearchService.rebuildIndex(repository);
+
+    verify(clientFacade).index(alias, updatedDocument);
+    verify(clientFacade).index(index, updatedDocument);
+    verify(clientFacade).deleteById(alias, deletedDocument);
+    verify(clientFacade).deleteById(index, deletedDocument);
+
+    ArgumentCaptor<Stream<DocumentAction>> captor = ArgumentCaptor.forClass(Stream.class);
+    InOrder inOrder = inOrder(clientFacade);
+    inOrder.verify(clientFacade, times(2)).processDocumentActions(captor.capture());
+    inOrder.verify(clientFacade).replaceIndexes(alias, singletonList(oldIndex), index);
+    assertEquals(
+        captor.getAllValues().get(0).collect(toList()),
+        singletonList(DocumentAction.create(index, updatedDocument, INDEX)));
+    assertEquals(
+        captor.getAllValues().get(1).collect(toList()),
+        singletonList(DocumentAction.create(index, deletedDocument, DELETE)));
+  }
+
+  @Test
+  public void testIndexNotRebuilding() {
+    Index index = Index.create("index");
+    Entity entity = mock(Entity.class);
+    Document document = Document.create("id0", null);
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    when(contentGenerators.createDocument(entity)).thenReturn(document);
+
+    elasticsearchService.index(entityType, entity);
 
-    verify(clientFacade, times(1)).search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(15000), eq(1), any(), any());
+    verify(clientFacade).index(index, document);
     verifyNoMoreInteractions(clientFacade);
   }
+
+  @Test
+  public void testRebuildIndexFailure() {
+    @SuppressWarnings("unchecked")
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    Index alias = Index.create("alias");
+    Index index = Index.create("alias_2", "alias");
+    when(contentGenerators.createIndex(entityType)).thenReturn(alias);
+    when(contentGenerators.createVersionedIndex(entityType)).thenReturn(index);
+    MolgenisDataException exception = new MolgenisDataException("error");
+    doThrow(exception).when(repository).forEachBatched(any(), any(), eq(1000));
+
+    try {
+      elasticsearchService.rebuildIndex(repository);
+      fail("expected exception");
+    } catch (MolgenisDataException e) {
+      assertEquals(e, exception);
+    }
+    verify(clientFacade).deleteIndex(index);
+    verify(clientFacade, never()).replaceIndexes(any(), any(), any());
+  }
+
+  @Test
+  public void testDeleteAll() {
+    Index index = Index.create("index");
+    Document document0 = Document.create("id0", null);
+    Document document1 = Document.create("id1", null);
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    when(contentGenerators.createDocument("id0")).thenReturn(document0);
+    when(contentGenerators.createDocument("id1")).thenReturn(document1);
+
+    elasticsearchService.deleteAll(entityType, Stream.of("id0", "id1"));
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Stream<DocumentAction>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(clientFacade).processDocumentActions(captor.capture());
+    assertEquals(
+        captor.getValue().collect(toList()),
+        asList(
+            DocumentAction.create(index, document0, DELETE),
+            DocumentAction.create(index, document1, DELETE)));
+  }
 }
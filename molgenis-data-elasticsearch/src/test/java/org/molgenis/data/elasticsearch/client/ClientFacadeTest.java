@@ -4,24 +4,36 @@ import static ch.qos.logback.classic.Level.DEBUG;
 import static ch.qos.logback.classic.Level.ERROR;
 import static ch.qos.logback.classic.Level.TRACE;
 import static ch.qos.logback.classic.Level.WARN;
+import static java.util.Arrays.asList;
+import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.elasticsearch.search.DocValueFormat.RAW;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import java.util.stream.Stream;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequestBuilder;
@@ -44,13 +56,17 @@ import org.elasticsearch.client.AdminClient;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.mockito.Mock;
+import org.molgenis.data.MolgenisQueryException;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
 import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.elasticsearch.generator.model.FieldMapping;
@@ -89,6 +105,10 @@ public class ClientFacadeTest {
 
   @Mock private DeleteIndexResponse deleteIndexResponse;
 
+  @Mock private IndicesAliasesRequestBuilder indicesAliasesRequestBuilder;
+
+  @Mock private IndicesAliasesResponse indicesAliasesResponse;
+
   @Mock private RefreshRequestBuilder refreshRequestBuilder;
 
   @Mock private RefreshResponse refreshResponse;
@@ -172,6 +192,8 @@ public class ClientFacadeTest {
         indicesExistsRequestBuilder,
         deleteIndexRequestBuilder,
         deleteIndexResponse,
+        indicesAliasesRequestBuilder,
+        indicesAliasesResponse,
         refreshRequestBuilder,
         refreshResponse,
         searchRequestBuilder,
@@ -306,6 +328,50 @@ public class ClientFacadeTest {
     clientFacade.deleteIndex(index);
   }
 
+  @Test
+  public void testReplaceIndexes() {
+    Index alias = Index.create("alias");
+    Index oldIndex = Index.create("oldIndex");
+    Index index = Index.create("index");
+
+    when(indicesAdminClient.prepareAliases()).thenReturn(indicesAliasesRequestBuilder);
+    when(indicesAliasesRequestBuilder.get()).thenReturn(indicesAliasesResponse);
+    when(indicesAliasesResponse.isAcknowledged()).thenReturn(true);
+
+    clientFacade.replaceIndexes(alias, singletonList(oldIndex), index);
+
+    verify(indicesAliasesRequestBuilder).addAlias("index", "alias");
+    verify(indicesAliasesRequestBuilder).removeIndex("oldIndex");
+  }
+
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp = "Error replacing indexes of alias 'alias'\\.")
+  public void testReplaceIndexesThrowsException() {
+    Index alias = Index.create("alias");
+    Index index = Index.create("index");
+
+    when(indicesAdminClient.prepareAliases()).thenReturn(indicesAliasesRequestBuilder);
+    when(indicesAliasesRequestBuilder.get()).thenThrow(new ElasticsearchException("exception"));
+
+    clientFacade.replaceIndexes(alias, emptyList(), index);
+  }
+
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp = "Error replacing indexes of alias 'alias'\\.")
+  public void testReplaceIndexesNotAcknowledged() {
+    Index alias = Index.create("alias");
+    Index oldIndex = Index.create("oldIndex");
+    Index index = Index.create("index");
+
+    when(indicesAdminClient.prepareAliases()).thenReturn(indicesAliasesRequestBuilder);
+    when(indicesAliasesRequestBuilder.get()).thenReturn(indicesAliasesResponse);
+    when(indicesAliasesResponse.isAcknowledged()).thenReturn(false);
+
+    clientFacade.replaceIndexes(alias, singletonList(oldIndex), index);
+  }
+
   @Test(
       expectedExceptions = IndexException.class,
       expectedExceptionsMessageRegExp = "Error refreshing index\\(es\\) '_all'\\.")
@@ -390,6 +456,64 @@ public class ClientFacadeTest {
     clientFacade.getCount(index);
   }
 
+  @Test
+  public void testSearchAfter() {
+    Index index = Index.create("index");
+
+    SearchResponse secondSearchResponse = mock(SearchResponse.class);
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenReturn(searchResponse, secondSearchResponse);
+    when(searchResponse.getHits()).thenReturn(createSearchHits("id0", "id1"));
+    when(secondSearchResponse.getHits()).thenReturn(createSearchHits("id2"));
+
+    List<String> ids =
+        clientFacade
+            .searchAfter(queryBuilder, 2, null, index)
+            .map(SearchHit::getId)
+            .collect(toList());
+    assertEquals(ids, asList("id0", "id1", "id2"));
+    verify(searchRequestBuilder, times(2)).addSort(SortBuilders.scoreSort());
+    verify(searchRequestBuilder, times(2)).addSort(SortBuilders.fieldSort("_uid"));
+    verify(searchRequestBuilder).searchAfter(new Object[] {"type#id1"});
+  }
+
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp =
+          "Error searching docs in index\\(es\\) 'index' with query 'a == b'\\.")
+  public void testSearchAfterThrowsException() {
+    Index index = Index.create("index");
+
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenThrow(new ElasticsearchException("Exception"));
+    when(queryBuilder.toString()).thenReturn("a == b");
+
+    clientFacade.searchAfter(queryBuilder, 100, null, index);
+  }
+
+  @Test(
+      expectedExceptions = MolgenisQueryException.class,
+      expectedExceptionsMessageRegExp =
+          "Batch size of 10001 exceeds the maximum batch size of 10000 for search queries")
+  public void testSearchAfterBatchSizeTooLarge() {
+    clientFacade.searchAfter(queryBuilder, 10001, null, Index.create("index"));
+  }
+
+  private org.elasticsearch.search.SearchHits createSearchHits(String... ids) {
+    org.elasticsearch.search.SearchHit[] hits =
+        stream(ids)
+            .map(
+                id -> {
+                  org.elasticsearch.search.SearchHit hit =
+                      new org.elasticsearch.search.SearchHit(0, id, new Text("type"), emptyMap());
+                  hit.shard(new SearchShardTarget("node", index, 0));
+                  hit.sortValues(new Object[] {"type#" + id}, new DocValueFormat[] {RAW});
+                  return hit;
+                })
+            .toArray(org.elasticsearch.search.SearchHit[]::new);
+    return new org.elasticsearch.search.SearchHits(hits, ids.length, 0f);
+  }
+
   @Test(
       expectedExceptions = IndexException.class,
       expectedExceptionsMessageRegExp =
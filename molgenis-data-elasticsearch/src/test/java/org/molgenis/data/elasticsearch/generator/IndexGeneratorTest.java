@@ -0,0 +1,47 @@
+package org.molgenis.data.elasticsearch.generator;
+
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.mockito.Mock;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class IndexGeneratorTest extends AbstractMockitoTest {
+  @Mock private DocumentIdGenerator documentIdGenerator;
+  @Mock private EntityType entityType;
+  private IndexGenerator indexGenerator;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    indexGenerator = new IndexGenerator(documentIdGenerator);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testIndexGenerator() {
+    new IndexGenerator(null);
+  }
+
+  @Test
+  public void testCreateIndex() {
+    when(documentIdGenerator.generateId(entityType)).thenReturn("entity");
+    assertEquals(indexGenerator.createIndex(entityType), Index.create("entity"));
+  }
+
+  @Test
+  public void testCreateVersionedIndex() {
+    when(documentIdGenerator.generateId(entityType)).thenReturn("entity");
+
+    Index index = indexGenerator.createVersionedIndex(entityType);
+    Index otherIndex = indexGenerator.createVersionedIndex(entityType);
+
+    assertTrue(index.getName().startsWith("entity_"));
+    assertEquals(index.getType(), "entity");
+    assertNotEquals(index.getName(), otherIndex.getName());
+  }
+}
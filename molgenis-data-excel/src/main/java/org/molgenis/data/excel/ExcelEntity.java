@@ -6,6 +6,7 @@ import java.util.Map;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.molgenis.data.Entity;
+import org.molgenis.data.file.processor.AbstractCellProcessor;
 import org.molgenis.data.file.processor.CellProcessor;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
@@ -18,6 +19,7 @@ import org.molgenis.data.support.DynamicEntity;
 public class ExcelEntity extends DynamicEntity {
   private static final long serialVersionUID = 8928375571009145452L;
   private final transient Row row;
+  private final transient List<String> rowValues;
   private final Map<String, Integer> colNamesMap;
   private final List<CellProcessor> cellProcessors;
 
@@ -34,6 +36,29 @@ public class ExcelEntity extends DynamicEntity {
     if (colNamesMap == null) throw new IllegalArgumentException("column names map is null");
 
     this.row = row;
+    this.rowValues = null;
+    this.colNamesMap = colNamesMap;
+    this.cellProcessors = cellProcessors;
+  }
+
+  /**
+   * Creates an entity for a row of which the cell values were already converted to String, e.g.
+   * while streaming a sheet.
+   *
+   * @param rowValues unprocessed cell values indexed by column
+   */
+  public ExcelEntity(
+      List<String> rowValues,
+      Map<String, Integer> colNamesMap,
+      List<CellProcessor> cellProcessors,
+      EntityType entityType) {
+    super(entityType);
+
+    if (rowValues == null) throw new IllegalArgumentException("row values is null");
+    if (colNamesMap == null) throw new IllegalArgumentException("column names map is null");
+
+    this.row = null;
+    this.rowValues = rowValues;
     this.colNamesMap = colNamesMap;
     this.cellProcessors = cellProcessors;
   }
@@ -55,12 +80,7 @@ public class ExcelEntity extends DynamicEntity {
     } else {
       Integer col = colNamesMap.get(attributeName);
       if (col != null) {
-        Cell cell = row.getCell(col);
-        if (cell != null) {
-          value = ExcelUtils.toValue(cell, cellProcessors);
-        } else {
-          value = null;
-        }
+        value = getCellValue(col);
       } else {
         value = null;
       }
@@ -70,6 +90,21 @@ public class ExcelEntity extends DynamicEntity {
     return value;
   }
 
+  private String getCellValue(int col) {
+    String value;
+    if (row != null) {
+      Cell cell = row.getCell(col);
+      value = cell != null ? ExcelUtils.toValue(cell, cellProcessors) : null;
+    } else {
+      String cellValue = col < rowValues.size() ? rowValues.get(col) : null;
+      value =
+          cellValue != null
+              ? AbstractCellProcessor.processCell(cellValue, false, cellProcessors)
+              : null;
+    }
+    return value;
+  }
+
   @Override
   public void set(String attributeName, Object value) {
     if (cachedValueMap == null) {
@@ -5,6 +5,7 @@ import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.meta.AttributeType.STRING;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -13,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
@@ -21,6 +23,7 @@ import org.apache.poi.ss.util.CellReference;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.RepositoryCapability;
+import org.molgenis.data.excel.XlsxSheet.XlsxRowIterator;
 import org.molgenis.data.file.processor.AbstractCellProcessor;
 import org.molgenis.data.file.processor.CellProcessor;
 import org.molgenis.data.meta.model.AttributeFactory;
@@ -38,7 +41,8 @@ import org.molgenis.data.support.AbstractRepository;
  * <p>The url of this Repository is defined as excel://${filename}/${sheetname}
  */
 public class ExcelRepository extends AbstractRepository {
-  private final Sheet sheet;
+  @Nullable private final Sheet sheet;
+  @Nullable private final XlsxSheet xlsxSheet;
   private final EntityTypeFactory entityTypeFactory;
   private final AttributeFactory attrMetaFactory;
 
@@ -69,26 +73,40 @@ public class ExcelRepository extends AbstractRepository {
           format(
               "Sheet [%s] contains merged regions which is not supported", sheet.getSheetName()));
     }
+    this.xlsxSheet = null;
+    this.entityTypeFactory = requireNonNull(entityTypeFactory);
+    this.attrMetaFactory = requireNonNull(attrMetaFactory);
+    this.cellProcessors = cellProcessors;
+  }
+
+  /**
+   * Creates a repository that streams the rows of a XLSX sheet. Merged regions are detected once
+   * the end of the sheet is reached. Iterators that are not read until the end keep the sheet data
+   * open until the repository is closed.
+   */
+  ExcelRepository(
+      XlsxSheet xlsxSheet,
+      EntityTypeFactory entityTypeFactory,
+      AttributeFactory attrMetaFactory,
+      List<CellProcessor> cellProcessors) {
+    this.sheet = null;
+    this.xlsxSheet = requireNonNull(xlsxSheet);
     this.entityTypeFactory = requireNonNull(entityTypeFactory);
     this.attrMetaFactory = requireNonNull(attrMetaFactory);
     this.cellProcessors = cellProcessors;
   }
 
   public int getNrRows() {
-    return sheet.getLastRowNum() + 1; // getLastRowNum is 0-based
+    if (sheet != null) {
+      return sheet.getLastRowNum() + 1; // getLastRowNum is 0-based
+    } else {
+      return xlsxSheet.getNrRows();
+    }
   }
 
   @Override
   public Iterator<Entity> iterator() {
-    final Iterator<Row> it = sheet.iterator();
-    if (!it.hasNext()) return Collections.<Entity>emptyList().iterator();
-
-    // create column header index once and reuse
-    Row headerRow = it.next();
-    if (colNamesMap == null) {
-      colNamesMap = toColNamesMap(headerRow);
-    }
-
+    final Iterator<ExcelEntity> it = sheet != null ? iterator(sheet) : iterator(xlsxSheet);
     if (!it.hasNext()) return Collections.<Entity>emptyList().iterator();
 
     return new Iterator<Entity>() {
@@ -119,8 +137,7 @@ public class ExcelRepository extends AbstractRepository {
       private void getAndUpdateNext() {
         // iterator skips empty lines.
         if (it.hasNext() && next == null) {
-          ExcelEntity entity =
-              new ExcelEntity(it.next(), colNamesMap, cellProcessors, getEntityType());
+          ExcelEntity entity = it.next();
 
           // check if there is any column containing a value
           for (String name : entity.getAttributeNames()) {
@@ -138,6 +155,39 @@ public class ExcelRepository extends AbstractRepository {
     };
   }
 
+  private Iterator<ExcelEntity> iterator(Sheet sheet) {
+    final Iterator<Row> it = sheet.iterator();
+    if (!it.hasNext()) return Collections.emptyIterator();
+
+    // create column header index once and reuse
+    Row headerRow = it.next();
+    if (colNamesMap == null) {
+      colNamesMap = toColNamesMap(headerRow);
+    }
+
+    return Iterators.transform(
+        it, row -> new ExcelEntity(row, colNamesMap, cellProcessors, getEntityType()));
+  }
+
+  private Iterator<ExcelEntity> iterator(XlsxSheet xlsxSheet) {
+    XlsxRowIterator it = xlsxSheet.iterator();
+    if (!it.hasNext()) return Collections.emptyIterator();
+
+    // create column header index once and reuse
+    List<String> headerRow = it.next();
+    if (colNamesMap == null) {
+      try {
+        colNamesMap = toColNamesMap(headerRow);
+      } catch (RuntimeException e) {
+        it.close();
+        throw e;
+      }
+    }
+
+    return Iterators.transform(
+        it, rowValues -> new ExcelEntity(rowValues, colNamesMap, cellProcessors, getEntityType()));
+  }
+
   public void addCellProcessor(CellProcessor cellProcessor) {
     if (cellProcessors == null) cellProcessors = new ArrayList<>();
     cellProcessors.add(cellProcessor);
@@ -145,15 +195,11 @@ public class ExcelRepository extends AbstractRepository {
 
   public EntityType getEntityType() {
     if (entityType == null) {
-      String sheetName = sheet.getSheetName();
+      String sheetName = getSheetName();
       EntityType newEntityType = entityTypeFactory.create(sheetName).setLabel(sheetName);
 
       if (colNamesMap == null) {
-        Iterator<Row> it = sheet.iterator();
-        if (it.hasNext()) {
-          // First row contains the headers
-          colNamesMap = toColNamesMap(it.next());
-        }
+        colNamesMap = readColNamesMap();
       }
 
       if (colNamesMap != null) {
@@ -167,6 +213,22 @@ public class ExcelRepository extends AbstractRepository {
     return entityType;
   }
 
+  private String getSheetName() {
+    return sheet != null ? sheet.getSheetName() : xlsxSheet.getSheetName();
+  }
+
+  private Map<String, Integer> readColNamesMap() {
+    // First row contains the headers
+    if (sheet != null) {
+      Iterator<Row> it = sheet.iterator();
+      return it.hasNext() ? toColNamesMap(it.next()) : null;
+    } else {
+      try (XlsxRowIterator it = xlsxSheet.iterator()) {
+        return it.hasNext() ? toColNamesMap(it.next()) : null;
+      }
+    }
+  }
+
   private Map<String, Integer> toColNamesMap(Row headerRow) {
     if (headerRow == null) return null;
 
@@ -195,6 +257,33 @@ public class ExcelRepository extends AbstractRepository {
     return columnIdx;
   }
 
+  private Map<String, Integer> toColNamesMap(List<String> headerRow) {
+    Map<String, Integer> columnIdx = new LinkedHashMap<>();
+    for (int i = 0; i < headerRow.size(); i++) {
+      String value = headerRow.get(i);
+      String header =
+          value != null ? AbstractCellProcessor.processCell(value, true, cellProcessors) : null;
+      if (header != null) {
+        if (columnIdx.containsKey(header)) {
+          throw new MolgenisDataException(
+              format(
+                  "Duplicate column header '%s' in sheet '%s' not allowed",
+                  header, xlsxSheet.getSheetName()));
+        }
+        columnIdx.put(header, i);
+      }
+    }
+    return columnIdx;
+  }
+
+  /** Closes the sheet data that is still open for iterators that did not read all rows */
+  @Override
+  public void close() {
+    if (xlsxSheet != null) {
+      xlsxSheet.close();
+    }
+  }
+
   @Override
   public Set<RepositoryCapability> getCapabilities() {
     return Collections.emptySet();
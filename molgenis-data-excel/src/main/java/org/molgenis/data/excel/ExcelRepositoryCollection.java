@@ -1,14 +1,19 @@
 package org.molgenis.data.excel;
 
+import static java.util.Objects.requireNonNull;
+import static org.apache.commons.io.FilenameUtils.getExtension;
+
 import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
@@ -30,12 +35,16 @@ import org.springframework.beans.factory.annotation.Autowired;
  *
  * <p>A sheet is exposed as a {@link org.molgenis.data.Repository} with the sheetname as the
  * Repository name
+ *
+ * <p>XLSX files are streamed from file row by row, other files are read into memory.
  */
 public class ExcelRepositoryCollection extends FileRepositoryCollection {
   private static final String REPOSITORY_COLLECTION_NAME = "EXCEL";
 
   private final String fileName;
-  private final Workbook workbook;
+  @Nullable private final File file;
+  @Nullable private Workbook workbook;
+  @Nullable private XlsxWorkbook xlsxWorkbook;
 
   private EntityTypeFactory entityTypeFactory;
   private AttributeFactory attributeFactory;
@@ -46,16 +55,50 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
 
   public ExcelRepositoryCollection(File file, CellProcessor... cellProcessors)
       throws IOException, MolgenisInvalidFormatException {
-    this(file.getName(), new FileInputStream(file), cellProcessors);
+    super(ExcelFileExtensions.getExcel(), cellProcessors);
+    this.fileName = file.getName();
+    this.file = file;
+    if (isXlsxFile(fileName)) {
+      xlsxWorkbook = new XlsxWorkbook(file);
+    } else {
+      workbook = createWorkbook(file);
+    }
   }
 
   public ExcelRepositoryCollection(String name, InputStream in, CellProcessor... cellProcessors)
       throws IOException {
     super(ExcelFileExtensions.getExcel(), cellProcessors);
     this.fileName = name;
+    this.file = null;
     workbook = WorkbookFactory.create(in);
   }
 
+  private static boolean isXlsxFile(String fileName) {
+    return ExcelFileExtensions.XLSX.toString().equalsIgnoreCase(getExtension(fileName));
+  }
+
+  private static Workbook createWorkbook(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return WorkbookFactory.create(in);
+    }
+  }
+
+  /**
+   * Returns the in-memory workbook, a streamed XLSX workbook is read into memory on first use. From
+   * then on all sheets are read from the in-memory workbook.
+   */
+  private Workbook getWorkbook() {
+    if (workbook == null) {
+      try {
+        workbook = createWorkbook(requireNonNull(file));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      xlsxWorkbook = null;
+    }
+    return workbook;
+  }
+
   @Override
   public void init() throws IOException {
     // no operation
@@ -75,6 +118,14 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
 
   @Override
   public Repository<Entity> getRepository(String name) {
+    if (xlsxWorkbook != null) {
+      XlsxSheet xlsxSheet = xlsxWorkbook.getSheet(name);
+      if (xlsxSheet == null) {
+        return null;
+      }
+      return new ExcelRepository(xlsxSheet, entityTypeFactory, attributeFactory, cellProcessors);
+    }
+
     Sheet poiSheet = workbook.getSheet(name);
     if (poiSheet == null) {
       return null;
@@ -84,14 +135,20 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
   }
 
   public int getNumberOfSheets() {
-    return workbook.getNumberOfSheets();
+    return xlsxWorkbook != null ? xlsxWorkbook.getNumberOfSheets() : workbook.getNumberOfSheets();
   }
 
   public String getSheetName(int i) {
-    return workbook.getSheetName(i);
+    return xlsxWorkbook != null ? xlsxWorkbook.getSheetNames().get(i) : workbook.getSheetName(i);
   }
 
   public ExcelRepository getSheet(int i) {
+    if (xlsxWorkbook != null) {
+      XlsxSheet xlsxSheet = xlsxWorkbook.getSheet(getSheetName(i));
+      return new ExcelRepository(
+          requireNonNull(xlsxSheet), entityTypeFactory, attributeFactory, cellProcessors);
+    }
+
     Sheet poiSheet = workbook.getSheetAt(i);
     if (poiSheet == null) {
       return null;
@@ -103,7 +160,7 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
 
   public ExcelSheetWriter createWritable(
       String entityTypeId, List<Attribute> attributes, AttributeWriteMode attributeWriteMode) {
-    Sheet sheet = workbook.createSheet(entityTypeId);
+    Sheet sheet = getWorkbook().createSheet(entityTypeId);
     return new ExcelSheetWriter(sheet, attributes, attributeWriteMode, cellProcessors);
   }
 
@@ -120,7 +177,7 @@ public class ExcelRepositoryCollection extends FileRepositoryCollection {
   }
 
   public void save(OutputStream out) throws IOException {
-    workbook.write(out);
+    getWorkbook().write(out);
   }
 
   @Override
@@ -1,5 +1,7 @@
 package org.molgenis.data.excel;
 
+import static java.lang.String.format;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,6 +50,12 @@ public class ExcelSheetWriter extends AbstractWritable {
       throw new MolgenisDataException(
           "The attribute names are not defined, call writeAttributeNames first");
 
+    int maxRows = sheet.getWorkbook().getSpreadsheetVersion().getMaxRows();
+    if (row >= maxRows) {
+      throw new MolgenisDataException(
+          format("Number of rows exceeds the maximum of %d rows per sheet", maxRows));
+    }
+
     int i = 0;
     Row poiRow = sheet.createRow(row++);
     for (Attribute attribute : cachedAttributes) {
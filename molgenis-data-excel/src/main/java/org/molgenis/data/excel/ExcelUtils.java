@@ -54,13 +54,7 @@ public class ExcelUtils {
             LocaleUtil.resetUserTimeZone();
           }
         } else {
-          // excel stores integer values as double values
-          // read an integer if the double value equals the
-          // integer value
-          double x = cell.getNumericCellValue();
-          if (x == Math.rint(x) && !Double.isNaN(x) && !Double.isInfinite(x))
-            value = String.valueOf((long) x);
-          else value = String.valueOf(x);
+          value = toNumericValue(cell.getNumericCellValue());
         }
         break;
       case BOOLEAN:
@@ -83,27 +77,7 @@ public class ExcelUtils {
             value = String.valueOf(cellValue.getBooleanValue());
             break;
           case NUMERIC:
-            if (DateUtil.isCellDateFormatted(cell)) {
-              try {
-                // Excel dates are LocalDateTime, stored without timezone.
-                // Interpret them as UTC to prevent ambiguous DST overlaps which happen in other
-                // timezones.
-                LocaleUtil.setUserTimeZone(LocaleUtil.TIMEZONE_UTC);
-                Date javaDate = DateUtil.getJavaDate(cellValue.getNumberValue(), false);
-                value = formatUTCDateAsLocalDateTime(javaDate);
-
-              } finally {
-                LocaleUtil.resetUserTimeZone();
-              }
-            } else {
-              // excel stores integer values as double values
-              // read an integer if the double value equals the
-              // integer value
-              double x = cellValue.getNumberValue();
-              if (x == Math.rint(x) && !Double.isNaN(x) && !Double.isInfinite(x))
-                value = String.valueOf((long) x);
-              else value = String.valueOf(x);
-            }
+            value = toValue(cellValue.getNumberValue(), DateUtil.isCellDateFormatted(cell), false);
             break;
           case STRING:
             value = cellValue.getStringValue();
@@ -123,6 +97,44 @@ public class ExcelUtils {
     return AbstractCellProcessor.processCell(value, false, cellProcessors);
   }
 
+  /**
+   * Gets a numeric cell value as String using the same rules as {@link #toValue(Cell)}, used for
+   * cell values that are not read with the POI usermodel.
+   *
+   * @param value numeric cell value
+   * @param dateFormatted whether the cell has a date format
+   * @param use1904windowing whether the workbook uses the 1904 date system
+   */
+  static String toValue(double value, boolean dateFormatted, boolean use1904windowing) {
+    String stringValue;
+    if (dateFormatted) {
+      try {
+        // Excel dates are LocalDateTime, stored without timezone.
+        // Interpret them as UTC to prevent ambiguous DST overlaps which happen in other
+        // timezones.
+        LocaleUtil.setUserTimeZone(LocaleUtil.TIMEZONE_UTC);
+        Date javaDate = DateUtil.getJavaDate(value, use1904windowing);
+        stringValue = formatUTCDateAsLocalDateTime(javaDate);
+      } finally {
+        LocaleUtil.resetUserTimeZone();
+      }
+    } else {
+      stringValue = toNumericValue(value);
+    }
+    return stringValue;
+  }
+
+  private static String toNumericValue(double x) {
+    // excel stores integer values as double values
+    // read an integer if the double value equals the
+    // integer value
+    if (x == Math.rint(x) && !Double.isNaN(x) && !Double.isInfinite(x)) {
+      return String.valueOf((long) x);
+    } else {
+      return String.valueOf(x);
+    }
+  }
+
   public static void renameSheet(String newSheetname, File file, int index) {
     try (FileInputStream fis = new FileInputStream(file);
         Workbook workbook = WorkbookFactory.create(fis)) {
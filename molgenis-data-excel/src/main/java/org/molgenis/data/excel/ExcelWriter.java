@@ -13,7 +13,7 @@ import java.util.stream.Collectors;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.WritableFactory;
 import org.molgenis.data.file.processor.CellProcessor;
@@ -21,8 +21,15 @@ import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.support.AbstractWritable.AttributeWriteMode;
 
-/** Creates new Excel sheets */
+/**
+ * Creates new Excel sheets
+ *
+ * <p>.xlsx files are written using a streaming workbook that keeps a window of rows in memory and
+ * flushes the other rows to compressed temporary files.
+ */
 public class ExcelWriter implements WritableFactory {
+  private static final int XLSX_ROWS_IN_MEMORY = 1000;
+
   private final Workbook workbook;
   private final OutputStream os;
   private final AttributeFactory attrMetaFactory;
@@ -41,7 +48,13 @@ public class ExcelWriter implements WritableFactory {
     this.os = requireNonNull(os);
     this.attrMetaFactory = requireNonNull(attrMetaFactory);
     this.workbook =
-        requireNonNull(format) == FileFormat.XLS ? new HSSFWorkbook() : new XSSFWorkbook();
+        requireNonNull(format) == FileFormat.XLS ? new HSSFWorkbook() : createXlsxWorkbook();
+  }
+
+  private static SXSSFWorkbook createXlsxWorkbook() {
+    SXSSFWorkbook sxssfWorkbook = new SXSSFWorkbook(XLSX_ROWS_IN_MEMORY);
+    sxssfWorkbook.setCompressTempFiles(true);
+    return sxssfWorkbook;
   }
 
   public ExcelWriter(File file, AttributeFactory attrMetaFactory) throws FileNotFoundException {
@@ -71,6 +84,11 @@ public class ExcelWriter implements WritableFactory {
       workbook.write(os);
     } catch (IOException e) {
       throw new MolgenisDataException("Exception writing to excel file", e);
+    } finally {
+      if (workbook instanceof SXSSFWorkbook) {
+        // delete temporary files
+        ((SXSSFWorkbook) workbook).dispose();
+      }
     }
     os.close();
   }
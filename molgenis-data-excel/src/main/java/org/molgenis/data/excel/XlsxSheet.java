@@ -0,0 +1,274 @@
+package org.molgenis.data.excel;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.StaxHelper;
+import org.molgenis.data.MolgenisDataException;
+
+/**
+ * Sheet of a {@link XlsxWorkbook} of which the rows are parsed from file while iterating, so that
+ * only the current row is kept in memory.
+ *
+ * <p>Rows are returned as cell values indexed by column. Cell values are converted to String using
+ * the rules of {@link ExcelUtils}. Formulas are not evaluated, the value cached in the file is used
+ * instead.
+ */
+class XlsxSheet {
+  private final XlsxWorkbook workbook;
+  private final String sheetName;
+  /** iterators of which the sheet data is not closed yet */
+  private final Set<XlsxRowIterator> openIterators;
+
+  XlsxSheet(XlsxWorkbook workbook, String sheetName) {
+    this.workbook = requireNonNull(workbook);
+    this.sheetName = requireNonNull(sheetName);
+    this.openIterators = new HashSet<>();
+  }
+
+  String getSheetName() {
+    return sheetName;
+  }
+
+  /** Returns the number of rows up to and including the last row that exists in the sheet */
+  int getNrRows() {
+    try (XlsxRowIterator it = iterator()) {
+      while (it.hasNext()) {
+        it.next();
+      }
+      return it.rowIndex + 1;
+    }
+  }
+
+  /**
+   * Returns an iterator over the rows of this sheet, skipping rows that do not exist in the sheet.
+   * The sheet data is closed once all rows are read, the iterator is closed or this sheet is
+   * closed.
+   */
+  XlsxRowIterator iterator() {
+    OPCPackage opcPackage;
+    try {
+      opcPackage = workbook.openPackage();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      InputStream sheetData = workbook.getSheetData(opcPackage, sheetName);
+      XMLStreamReader reader = StaxHelper.newXMLInputFactory().createXMLStreamReader(sheetData);
+      XlsxRowIterator rowIterator = new XlsxRowIterator(opcPackage, sheetData, reader);
+      openIterators.add(rowIterator);
+      return rowIterator;
+    } catch (IOException e) {
+      opcPackage.revert();
+      throw new UncheckedIOException(e);
+    } catch (XMLStreamException | RuntimeException e) {
+      opcPackage.revert();
+      throw toMolgenisDataException(e);
+    }
+  }
+
+  /** Closes the sheet data of iterators that did not read all rows and were not closed */
+  void close() {
+    new ArrayList<>(openIterators).forEach(XlsxRowIterator::close);
+  }
+
+  private MolgenisDataException toMolgenisDataException(Exception e) {
+    return e instanceof MolgenisDataException
+        ? (MolgenisDataException) e
+        : new MolgenisDataException(format("Error reading sheet [%s]", sheetName), e);
+  }
+
+  class XlsxRowIterator implements Iterator<List<String>>, Closeable {
+    private final OPCPackage opcPackage;
+    private final InputStream sheetData;
+    private final XMLStreamReader reader;
+
+    /** zero-based index of the last row read */
+    private int rowIndex = -1;
+
+    private List<String> next;
+    private boolean closed;
+
+    private XlsxRowIterator(OPCPackage opcPackage, InputStream sheetData, XMLStreamReader reader) {
+      this.opcPackage = opcPackage;
+      this.sheetData = sheetData;
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null && !closed) {
+        try {
+          next = readRow();
+        } catch (XMLStreamException | RuntimeException e) {
+          close();
+          throw toMolgenisDataException(e);
+        }
+        if (next == null) {
+          close();
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public List<String> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      List<String> row = next;
+      next = null;
+      return row;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        try {
+          reader.close();
+          sheetData.close();
+        } catch (XMLStreamException | IOException e) {
+          throw new MolgenisDataException(e);
+        } finally {
+          opcPackage.revert();
+          openIterators.remove(this);
+        }
+      }
+    }
+
+    /** Reads the next row or returns null if the end of the sheet is reached */
+    @Nullable
+    private List<String> readRow() throws XMLStreamException {
+      while (reader.hasNext()) {
+        if (reader.next() == START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "row":
+              String rowReference = reader.getAttributeValue(null, "r");
+              rowIndex = rowReference != null ? Integer.parseInt(rowReference) - 1 : rowIndex + 1;
+              return readCells();
+            case "mergeCell":
+              throw new MolgenisDataException(
+                  format("Sheet [%s] contains merged regions which is not supported", sheetName));
+            default:
+              break;
+          }
+        }
+      }
+      return null;
+    }
+
+    private List<String> readCells() throws XMLStreamException {
+      List<String> values = new ArrayList<>();
+      int columnIndex = -1;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == START_ELEMENT && "c".equals(reader.getLocalName())) {
+          String cellReference = reader.getAttributeValue(null, "r");
+          columnIndex =
+              cellReference != null ? new CellReference(cellReference).getCol() : columnIndex + 1;
+          String value = readCellValue();
+          while (values.size() < columnIndex) {
+            values.add(null);
+          }
+          values.add(value);
+        } else if (event == END_ELEMENT && "row".equals(reader.getLocalName())) {
+          break;
+        }
+      }
+      return values;
+    }
+
+    @Nullable
+    private String readCellValue() throws XMLStreamException {
+      String type = reader.getAttributeValue(null, "t");
+      String styleIndex = reader.getAttributeValue(null, "s");
+
+      String value = null;
+      StringBuilder inlineString = null;
+      boolean phoneticRun = false;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "v":
+              value = reader.getElementText();
+              break;
+            case "is":
+              inlineString = new StringBuilder();
+              break;
+            case "rPh":
+              phoneticRun = true;
+              break;
+            case "t":
+              if (inlineString != null && !phoneticRun) {
+                inlineString.append(reader.getElementText());
+              }
+              break;
+            default:
+              break;
+          }
+        } else if (event == END_ELEMENT) {
+          String localName = reader.getLocalName();
+          if ("rPh".equals(localName)) {
+            phoneticRun = false;
+          } else if ("c".equals(localName)) {
+            break;
+          }
+        }
+      }
+
+      return toValue(
+          type,
+          styleIndex != null ? Integer.parseInt(styleIndex) : 0,
+          value,
+          inlineString != null ? inlineString.toString() : null);
+    }
+
+    @Nullable
+    private String toValue(
+        @Nullable String type, int styleIndex, @Nullable String value, @Nullable String inline) {
+      switch (type != null ? type : "n") {
+        case "s":
+          return value != null ? workbook.getSharedString(Integer.parseInt(value)) : null;
+        case "inlineStr":
+          return inline;
+        case "str":
+        case "d":
+          return value;
+        case "b":
+          return value != null ? String.valueOf("1".equals(value) || "true".equals(value)) : null;
+        case "e":
+          throw new MolgenisDataException("unsupported cell type: ERROR");
+        case "n":
+          if (value == null || value.isEmpty()) {
+            return null;
+          }
+          double numericValue = Double.parseDouble(value);
+          return ExcelUtils.toValue(
+              numericValue,
+              workbook.isDateFormatted(styleIndex, numericValue),
+              workbook.isDate1904());
+        default:
+          throw new MolgenisDataException("unsupported cell type: " + type);
+      }
+    }
+  }
+}
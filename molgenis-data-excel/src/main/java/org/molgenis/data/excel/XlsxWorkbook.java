@@ -0,0 +1,144 @@
+package org.molgenis.data.excel;
+
+import static java.util.Objects.requireNonNull;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.StaxHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.molgenis.data.MolgenisDataException;
+import org.xml.sax.SAXException;
+
+/**
+ * XLSX workbook that streams the rows of its sheets from file instead of building the POI usermodel
+ * of the whole workbook in memory.
+ *
+ * <p>Only the shared strings table and the cell styles are kept in memory. The sheet data is parsed
+ * each time a sheet is iterated.
+ */
+class XlsxWorkbook {
+  private static final String RELATIONSHIPS_NAMESPACE =
+      "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+  private final File file;
+  /** sheet name to sheet relationship id, in workbook order */
+  private final Map<String, String> sheetRelationshipIds;
+
+  private final boolean date1904;
+  private final SharedStrings sharedStrings;
+  @Nullable private final StylesTable stylesTable;
+
+  XlsxWorkbook(File file) throws IOException {
+    this.file = requireNonNull(file);
+
+    OPCPackage opcPackage = openPackage();
+    try {
+      XSSFReader xssfReader = new XSSFReader(opcPackage);
+      this.sharedStrings = new ReadOnlySharedStringsTable(opcPackage, false);
+      this.stylesTable = xssfReader.getStylesTable();
+
+      this.sheetRelationshipIds = new LinkedHashMap<>();
+      try (InputStream workbookData = xssfReader.getWorkbookData()) {
+        this.date1904 = readWorkbook(workbookData, sheetRelationshipIds);
+      }
+    } catch (OpenXML4JException | SAXException | XMLStreamException e) {
+      throw new MolgenisDataException(e);
+    } finally {
+      opcPackage.revert();
+    }
+  }
+
+  /** Reads the sheets from the workbook part and returns whether the 1904 date system is used */
+  private static boolean readWorkbook(InputStream workbookData, Map<String, String> sheets)
+      throws XMLStreamException {
+    boolean date1904 = false;
+    XMLStreamReader reader = StaxHelper.newXMLInputFactory().createXMLStreamReader(workbookData);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "workbookPr":
+              String date1904Value = reader.getAttributeValue(null, "date1904");
+              date1904 = "1".equals(date1904Value) || "true".equals(date1904Value);
+              break;
+            case "sheet":
+              sheets.put(
+                  reader.getAttributeValue(null, "name"),
+                  reader.getAttributeValue(RELATIONSHIPS_NAMESPACE, "id"));
+              break;
+            default:
+              break;
+          }
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return date1904;
+  }
+
+  List<String> getSheetNames() {
+    return new ArrayList<>(sheetRelationshipIds.keySet());
+  }
+
+  int getNumberOfSheets() {
+    return sheetRelationshipIds.size();
+  }
+
+  @Nullable
+  XlsxSheet getSheet(String sheetName) {
+    return sheetRelationshipIds.containsKey(sheetName) ? new XlsxSheet(this, sheetName) : null;
+  }
+
+  /** Opens the sheet data, the returned package must be closed using {@link OPCPackage#revert()} */
+  OPCPackage openPackage() throws IOException {
+    try {
+      return OPCPackage.open(file, PackageAccess.READ);
+    } catch (InvalidFormatException e) {
+      throw new MolgenisDataException(e);
+    }
+  }
+
+  InputStream getSheetData(OPCPackage opcPackage, String sheetName) throws IOException {
+    try {
+      return new XSSFReader(opcPackage).getSheet(sheetRelationshipIds.get(sheetName));
+    } catch (OpenXML4JException e) {
+      throw new MolgenisDataException(e);
+    }
+  }
+
+  String getSharedString(int index) {
+    return sharedStrings.getItemAt(index).getString();
+  }
+
+  boolean isDate1904() {
+    return date1904;
+  }
+
+  boolean isDateFormatted(int styleIndex, double value) {
+    if (stylesTable == null || !DateUtil.isValidExcelDate(value)) {
+      return false;
+    }
+    XSSFCellStyle cellStyle = stylesTable.getStyleAt(styleIndex);
+    return cellStyle != null
+        && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+  }
+}
@@ -1,9 +1,13 @@
 package org.molgenis.data.excel;
 
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.singletonList;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 import com.google.common.collect.Lists;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -13,6 +17,7 @@ import org.molgenis.data.MolgenisInvalidFormatException;
 import org.molgenis.data.Repository;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.util.ResourceUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -61,4 +66,24 @@ public class ExcelRepositorySourceTest extends AbstractMolgenisSpringTest {
     assertNotNull(blad2);
     assertEquals(blad2.getName(), "Blad2");
   }
+
+  @Test
+  public void getRepositoryXlsx() throws IOException, MolgenisInvalidFormatException {
+    File file = ResourceUtils.getFile(getClass(), "/test.xlsx");
+    ExcelRepositoryCollection xlsxRepositoryCollection = new ExcelRepositoryCollection(file);
+    xlsxRepositoryCollection.setEntityTypeFactory(entityTypeFactory);
+    xlsxRepositoryCollection.setAttributeFactory(attrMetaFactory);
+
+    assertEquals(
+        newArrayList(xlsxRepositoryCollection.getEntityTypeIds()), singletonList("attributes"));
+    Repository<Entity> repository = xlsxRepositoryCollection.getRepository("attributes");
+    assertEquals(repository.getName(), "attributes");
+    List<Entity> entities = newArrayList(repository);
+    assertEquals(entities.size(), 2);
+    assertEquals(entities.get(0).get("name"), "id");
+    assertEquals(entities.get(0).get("entity"), "city");
+    assertEquals(entities.get(0).get("idAttribute"), "true");
+    assertEquals(entities.get(1).get("name"), "name");
+    assertNull(entities.get(1).get("idAttribute"));
+  }
 }
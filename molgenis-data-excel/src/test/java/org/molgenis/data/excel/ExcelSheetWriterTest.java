@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.file.processor.CellProcessor;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
@@ -85,4 +86,26 @@ public class ExcelSheetWriterTest extends AbstractMolgenisSpringTest {
 
     excelWriter.close();
   }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp =
+          "Number of rows exceeds the maximum of 65536 rows per sheet")
+  public void writeTooManyRows() {
+    Entity entity =
+        new DynamicEntity(mock(EntityType.class)) {
+          @Override
+          protected void validateValueType(String attrName, Object value) {
+            // noop
+          }
+        };
+    entity.set("col1", "val1");
+    entity.set("col2", "val2");
+
+    // header row + 65535 rows fill the .xls sheet
+    for (int i = 0; i < 65535; i++) {
+      excelSheetWriter.add(entity);
+    }
+    excelSheetWriter.add(entity);
+  }
 }
@@ -0,0 +1,129 @@
+package org.molgenis.data.excel;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.excel.XlsxSheet.XlsxRowIterator;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class XlsxSheetTest {
+  private File file;
+  private XlsxWorkbook xlsxWorkbook;
+
+  @BeforeClass
+  public void setUpBeforeClass() throws IOException {
+    file = Files.createTempFile("workbook", ".xlsx").toFile();
+    try (XSSFWorkbook workbook = new XSSFWorkbook();
+        OutputStream outputStream = new FileOutputStream(file)) {
+      CellStyle dateStyle = workbook.createCellStyle();
+      dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("d/m/yy"));
+
+      Sheet sheet = workbook.createSheet("values");
+      Row headerRow = sheet.createRow(0);
+      headerRow.createCell(0).setCellValue("string");
+      headerRow.createCell(1).setCellValue("int");
+      headerRow.createCell(2).setCellValue("double");
+      headerRow.createCell(3).setCellValue("date");
+      headerRow.createCell(4).setCellValue("bool");
+      headerRow.createCell(5).setCellValue("formula");
+
+      Row row = sheet.createRow(2);
+      row.createCell(0).setCellValue("str");
+      row.createCell(1).setCellValue(3);
+      row.createCell(2).setCellValue(1.5);
+      Cell dateCell = row.createCell(3);
+      dateCell.setCellValue(43466); // 2019-01-01
+      dateCell.setCellStyle(dateStyle);
+      row.createCell(4).setCellValue(true);
+      row.createCell(5).setCellFormula("B3*C3");
+
+      Row sparseRow = sheet.createRow(3);
+      sparseRow.createCell(2).setCellValue("c");
+      workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+      Sheet mergedSheet = workbook.createSheet("merged");
+      mergedSheet.createRow(0).createCell(0).setCellValue("header");
+      mergedSheet.createRow(1).createCell(0).setCellValue("value");
+      mergedSheet.addMergedRegion(new CellRangeAddress(1, 2, 0, 0));
+
+      workbook.write(outputStream);
+    }
+    xlsxWorkbook = new XlsxWorkbook(file);
+  }
+
+  @AfterClass
+  public void tearDownAfterClass() throws IOException {
+    Files.delete(file.toPath());
+  }
+
+  @Test
+  public void testGetSheetNames() {
+    assertEquals(xlsxWorkbook.getSheetNames(), asList("values", "merged"));
+  }
+
+  @Test
+  public void testGetSheetUnknown() {
+    assertNull(xlsxWorkbook.getSheet("unknown"));
+  }
+
+  @Test
+  public void testIterator() {
+    try (XlsxRowIterator it = getSheet("values").iterator()) {
+      assertEquals(it.next(), asList("string", "int", "double", "date", "bool", "formula"));
+      assertEquals(it.next(), asList("str", "3", "1.5", "2019-01-01T00:00", "true", "4.5"));
+      assertEquals(it.next(), asList(null, null, "c"));
+      assertFalse(it.hasNext());
+    }
+  }
+
+  @Test
+  public void testCloseClosesOpenIterators() {
+    XlsxSheet sheet = getSheet("values");
+    XlsxRowIterator it = sheet.iterator();
+    assertEquals(it.next(), asList("string", "int", "double", "date", "bool", "formula"));
+    sheet.close();
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void testGetNrRows() {
+    assertEquals(getSheet("values").getNrRows(), 4);
+  }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp =
+          "Sheet \\[merged\\] contains merged regions which is not supported")
+  public void testIteratorMergedRegions() {
+    try (XlsxRowIterator it = getSheet("merged").iterator()) {
+      assertEquals(it.next(), singletonList("header"));
+      assertEquals(it.next(), singletonList("value"));
+      it.hasNext();
+    }
+  }
+
+  private XlsxSheet getSheet(String sheetName) {
+    XlsxSheet sheet = xlsxWorkbook.getSheet(sheetName);
+    if (sheet == null) {
+      throw new IllegalArgumentException(sheetName);
+    }
+    return sheet;
+  }
+}
@@ -4,6 +4,7 @@ import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.BulkLoadContextHolder.runInBulkLoadMode;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ID;
 import static org.molgenis.util.stream.MapCollectors.toLinkedMap;
@@ -26,6 +27,7 @@ import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.util.UnexpectedEnumException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,14 +36,18 @@ public class DataPersisterImpl implements DataPersister {
   private final MetaDataService metaDataService;
   private final DataService dataService;
   private final EntityTypeDependencyResolver entityTypeDependencyResolver;
+  private final boolean bulkLoad;
 
+  /** @param bulkLoad whether added entities are persisted in bulk load mode */
   DataPersisterImpl(
       MetaDataService metaDataService,
       DataService dataService,
-      EntityTypeDependencyResolver entityTypeDependencyResolver) {
+      EntityTypeDependencyResolver entityTypeDependencyResolver,
+      @Value("${import.bulk.load:false}") boolean bulkLoad) {
     this.metaDataService = requireNonNull(metaDataService);
     this.dataService = requireNonNull(dataService);
     this.entityTypeDependencyResolver = requireNonNull(entityTypeDependencyResolver);
+    this.bulkLoad = bulkLoad;
   }
 
   @Transactional
@@ -183,7 +189,11 @@ public class DataPersisterImpl implements DataPersister {
 
   private void addEntitiesFirstPass(EntityType entityType, Stream<Entity> entities) {
     String entityTypeId = entityType.getId();
-    dataService.add(entityTypeId, entities);
+    if (bulkLoad) {
+      runInBulkLoadMode(() -> dataService.add(entityTypeId, entities));
+    } else {
+      dataService.add(entityTypeId, entities);
+    }
   }
 
   private void updateEntitiesFirstPass(EntityType entityType, Stream<Entity> entities) {
@@ -13,11 +13,15 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.BulkLoadContextHolder.isBulkLoadMode;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 import org.mockito.InOrder;
 import org.mockito.Mock;
@@ -59,7 +63,7 @@ public class DataPersisterImplTest extends AbstractMockitoTest {
   public void setUpBeforeMethod() {
     dataService = mock(DataService.class);
     dataPersisterImpl =
-        new DataPersisterImpl(metaDataService, dataService, entityTypeDependencyResolver);
+        new DataPersisterImpl(metaDataService, dataService, entityTypeDependencyResolver, false);
 
     String entityTypeId0 = "entityTypeId0";
     entityType0 = mock(EntityType.class);
@@ -118,7 +122,7 @@ public class DataPersisterImplTest extends AbstractMockitoTest {
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testGenericDataPersisterImpl() {
-    new DataPersisterImpl(null, null, null);
+    new DataPersisterImpl(null, null, null, false);
   }
 
   @SuppressWarnings("unchecked")
@@ -140,6 +144,25 @@ public class DataPersisterImplTest extends AbstractMockitoTest {
   }
 
   @SuppressWarnings("unchecked")
+  @Test
+  public void testPersistMetaNoneDataAddBulkLoad() {
+    dataPersisterImpl =
+        new DataPersisterImpl(metaDataService, dataService, entityTypeDependencyResolver, true);
+    List<Boolean> bulkLoadModes = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              bulkLoadModes.add(isBulkLoadMode());
+              return null;
+            })
+        .when(dataService)
+        .add(anyString(), any(Stream.class));
+
+    dataPersisterImpl.persist(dataProvider, MetadataMode.NONE, DataMode.ADD);
+
+    assertEquals(bulkLoadModes, asList(true, true));
+    assertFalse(isBulkLoadMode());
+  }
+
   @Test(
       expectedExceptions = MolgenisDataException.class,
       expectedExceptionsMessageRegExp =
@@ -3,6 +3,7 @@ package org.molgenis.data.index;
 import static java.util.Objects.requireNonNull;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
@@ -82,6 +83,13 @@ public class IndexActionRepositoryDecorator extends AbstractRepositoryDecorator<
     delegate().update(entities);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    indexActionRegisterService.register(getEntityType(), null);
+    registerRefEntityIndexActions();
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public void delete(Stream<Entity> entities) {
     indexActionRegisterService.register(getEntityType(), null);
@@ -3,6 +3,10 @@ package org.molgenis.data.index;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.index.job.IndexJobExecutionMetadata.INDEX_JOB_EXECUTION;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import javax.annotation.PostConstruct;
 import org.molgenis.data.DataService;
 import org.molgenis.data.index.job.IndexJobExecution;
@@ -22,11 +26,13 @@ import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.jobs.Job;
 import org.molgenis.jobs.JobExecutor;
 import org.molgenis.jobs.JobFactory;
+import org.molgenis.jobs.JobPriority;
 import org.molgenis.jobs.model.JobExecutionMetaData;
 import org.molgenis.jobs.model.JobPackage;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 
 // TODO: These imported classes should be in separate config and this is the IndexJobConfig
 @Import({
@@ -44,6 +50,8 @@ import org.springframework.context.annotation.Import;
 })
 @Configuration
 public class IndexConfig {
+  private static final int INDEX_THREAD_POOL_SIZE = 4;
+
   private final IndexActionRegisterService indexActionRegisterService;
   private final TransactionManager transactionManager;
   private final DataService dataService;
@@ -89,7 +97,21 @@ public class IndexConfig {
 
   @Bean
   public IndexJobService indexJobService() {
-    return new IndexJobService(dataService, indexService, entityTypeFactory);
+    return new IndexJobService(
+        dataService, indexService, entityTypeFactory, indexJobServiceExecutorService());
+  }
+
+  /**
+   * Bounded pool on which the index actions of different entity types are performed in parallel.
+   * Not an autowire candidate, so that other components are still wired with the ExecutorService
+   * for jobs.
+   */
+  @Bean(destroyMethod = "shutdown", autowireCandidate = false)
+  public ExecutorService indexJobServiceExecutorService() {
+    ThreadFactory threadFactory =
+        new ThreadFactoryBuilder().setNameFormat("molgenis-index-%d").setDaemon(true).build();
+    return new DelegatingSecurityContextExecutorService(
+        Executors.newFixedThreadPool(INDEX_THREAD_POOL_SIZE, threadFactory));
   }
 
   @Bean
@@ -100,6 +122,18 @@ public class IndexConfig {
         return progress ->
             indexJobService().executeJob(progress, jobExecution.getIndexActionJobID());
       }
+
+      /** other jobs and requests wait for index jobs */
+      @Override
+      public JobPriority getPriority() {
+        return JobPriority.HIGH;
+      }
+
+      /** index jobs are performed one at a time in order of submission */
+      @Override
+      public int getMaxConcurrentJobs() {
+        return 1;
+      }
     };
   }
 }
@@ -24,13 +24,13 @@ import org.molgenis.data.util.GenericDependencyResolver;
  * Models the dependencies between {@link EntityType}s for the purpose of indexing. These
  * dependencies depend on the indexing depth of the entity types.
  */
-class IndexDependencyModel {
+public class IndexDependencyModel {
   private final Map<String, EntityType> entityTypes;
   private final GenericDependencyResolver genericDependencyResolver =
       new GenericDependencyResolver();
 
   /** The fetch to use when retrieving the {@link EntityType}s fed to this DependencyModel. */
-  static final Fetch ENTITY_TYPE_FETCH =
+  public static final Fetch ENTITY_TYPE_FETCH =
       new Fetch()
           .field(ID)
           .field(IS_ABSTRACT)
@@ -43,7 +43,7 @@ class IndexDependencyModel {
    *
    * @param entityTypes the EntityTypes for which the DependencyModel is created
    */
-  IndexDependencyModel(List<EntityType> entityTypes) {
+  public IndexDependencyModel(List<EntityType> entityTypes) {
     this.entityTypes = uniqueIndex(entityTypes, EntityType::getId);
   }
 
@@ -102,7 +102,7 @@ class IndexDependencyModel {
         .anyMatch(entityTypeId::equals);
   }
 
-  Stream<String> getEntityTypesDependentOn(String entityTypeId) {
+  public Stream<String> getEntityTypesDependentOn(String entityTypeId) {
     return genericDependencyResolver
         .getAllDependants(
             entityTypeId,
@@ -12,6 +12,7 @@ import static org.molgenis.data.RepositoryCapability.QUERYABLE;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -141,6 +142,11 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
     return tryTwice(() -> searchService.aggregate(getEntityType(), aggregateQuery));
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   /**
    * Executes an action on an index that may be unstable.
    *
@@ -15,8 +15,6 @@ import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
@@ -34,8 +32,6 @@ public class IndexJobSchedulerImpl implements IndexJobScheduler {
 
   private final DataService dataService;
   private final IndexJobExecutionFactory indexJobExecutionFactory;
-  // the executor for the index jobs.
-  private ExecutorService executorService = Executors.newSingleThreadExecutor();
   private final JobExecutor jobExecutor;
   private final IndexStatus indexStatus = new IndexStatus();
 
@@ -67,7 +63,7 @@ public class IndexJobSchedulerImpl implements IndexJobScheduler {
       IndexJobExecution indexJobExecution = indexJobExecutionFactory.create();
       indexJobExecution.setIndexActionJobID(transactionId);
       jobExecutor
-          .submit(indexJobExecution, executorService)
+          .submit(indexJobExecution)
           .whenComplete((a, b) -> indexStatus.removeActionCounts(numberOfActionsPerEntity));
     } else {
       LOG.debug("No index job found for id [{}].", transactionId);
@@ -1,28 +1,46 @@
 package org.molgenis.data.index.job;
 
+import static com.google.common.collect.Lists.partition;
 import static java.text.MessageFormat.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
+import static org.molgenis.data.index.IndexDependencyModel.ENTITY_TYPE_FETCH;
 import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
 import static org.molgenis.data.index.meta.IndexActionMetadata.ACTION_ORDER;
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION_GROUP_ATTR;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.molgenis.data.util.EntityUtils.getTypedValue;
 
 import io.micrometer.core.annotation.Timed;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
-import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
 import org.molgenis.data.Sort;
+import org.molgenis.data.index.IndexDependencyModel;
 import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.meta.IndexAction;
 import org.molgenis.data.index.meta.IndexActionGroup;
 import org.molgenis.data.index.meta.IndexActionMetadata;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
 import org.molgenis.data.support.QueryImpl;
@@ -34,15 +52,26 @@ import org.slf4j.LoggerFactory;
 public class IndexJobService {
   private static final Logger LOG = LoggerFactory.getLogger(IndexJobService.class);
 
+  private static final int BATCH_SIZE = 1000;
+
   private final DataService dataService;
   private final IndexService indexService;
   private final EntityTypeFactory entityTypeFactory;
+  private final ExecutorService executorService;
 
+  /**
+   * @param executorService executor on which the IndexActions of different entity types are
+   *     performed in parallel
+   */
   public IndexJobService(
-      DataService dataService, IndexService indexService, EntityTypeFactory entityTypeFactory) {
+      DataService dataService,
+      IndexService indexService,
+      EntityTypeFactory entityTypeFactory,
+      ExecutorService executorService) {
     this.dataService = requireNonNull(dataService);
     this.indexService = requireNonNull(indexService);
     this.entityTypeFactory = requireNonNull(entityTypeFactory);
+    this.executorService = requireNonNull(executorService);
   }
 
   @Timed(
@@ -65,7 +94,9 @@ public class IndexJobService {
   }
 
   /**
-   * Performs the IndexActions.
+   * Performs the IndexActions. IndexActions of the same entity type are performed in order, entity
+   * types are indexed in parallel unless there is an index dependency between them. The index is
+   * refreshed once after all IndexActions were performed.
    *
    * @param progress {@link Progress} instance to log progress information to
    */
@@ -75,16 +106,17 @@ public class IndexJobService {
             .findAll(INDEX_ACTION, createQueryGetAllIndexActions(transactionId), IndexAction.class)
             .collect(toList());
     try {
-      boolean success = true;
-      int count = 0;
-      for (IndexAction indexAction : indexActions) {
-        success &= performAction(progress, count++, indexAction);
-      }
+      AtomicInteger count = new AtomicInteger();
+      Map<String, List<IndexAction>> entityTypeIndexActions =
+          indexActions
+              .stream()
+              .collect(groupingBy(IndexAction::getEntityTypeId, LinkedHashMap::new, toList()));
+      boolean success = performEntityTypesIndexActions(progress, count, entityTypeIndexActions);
       if (success) {
-        progress.progress(count, "Executed all index actions, cleaning up the actions...");
+        progress.progress(count.get(), "Executed all index actions, cleaning up the actions...");
         dataService.delete(INDEX_ACTION, indexActions.stream());
         dataService.deleteById(INDEX_ACTION_GROUP, transactionId);
-        progress.progress(count, "Cleaned up the actions.");
+        progress.progress(count.get(), "Cleaned up the actions.");
       }
     } catch (Exception ex) {
       LOG.error("Error performing index actions", ex);
@@ -97,42 +129,196 @@ public class IndexJobService {
   }
 
   /**
-   * Performs a single IndexAction
+   * Performs the IndexActions of each entity type on the executor. The IndexActions of an entity
+   * type are performed after those of preceding entity types that it depends on or that depend on
+   * it.
+   *
+   * @param entityTypeIndexActions IndexActions grouped by entity type in action order
+   * @return boolean indicating success or failure
+   */
+  private boolean performEntityTypesIndexActions(
+      Progress progress,
+      AtomicInteger count,
+      Map<String, List<IndexAction>> entityTypeIndexActions) {
+    Map<String, Set<String>> dependentEntityTypeIds =
+        getDependentEntityTypeIds(entityTypeIndexActions.keySet());
+
+    Map<String, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+    entityTypeIndexActions.forEach(
+        (entityTypeId, indexActions) -> {
+          CompletableFuture<?>[] dependencies =
+              futures
+                  .entrySet()
+                  .stream()
+                  .filter(
+                      entry ->
+                          dependentEntityTypeIds.get(entry.getKey()).contains(entityTypeId)
+                              || dependentEntityTypeIds.get(entityTypeId).contains(entry.getKey()))
+                  .map(Map.Entry::getValue)
+                  .toArray(CompletableFuture[]::new);
+          futures.put(
+              entityTypeId,
+              CompletableFuture.allOf(dependencies)
+                  .thenApplyAsync(
+                      aVoid -> performEntityTypeIndexActions(progress, count, indexActions),
+                      executorService));
+        });
+
+    boolean success = true;
+    for (CompletableFuture<Boolean> future : futures.values()) {
+      try {
+        success &= future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    return success;
+  }
+
+  /**
+   * Returns for each of the given entity types the entity types whose index depends on it.
+   *
+   * @param entityTypeIds ids of the entity types to index
+   * @return map of entity type id to the ids of the entity types that depend on it
+   */
+  private Map<String, Set<String>> getDependentEntityTypeIds(Collection<String> entityTypeIds) {
+    Map<String, Set<String>> dependentEntityTypeIds = new HashMap<>();
+    if (entityTypeIds.size() > 1) {
+      Query<EntityType> query = new QueryImpl<EntityType>().fetch(ENTITY_TYPE_FETCH);
+      List<EntityType> entityTypes =
+          dataService.findAll(ENTITY_TYPE_META_DATA, query, EntityType.class).collect(toList());
+      IndexDependencyModel dependencyModel = new IndexDependencyModel(entityTypes);
+      entityTypes
+          .stream()
+          .map(EntityType::getId)
+          .filter(entityTypeIds::contains)
+          .forEach(
+              entityTypeId ->
+                  dependentEntityTypeIds.put(
+                      entityTypeId,
+                      dependencyModel.getEntityTypesDependentOn(entityTypeId).collect(toSet())));
+    }
+    // deleted entity types are not part of the dependency model
+    entityTypeIds.forEach(
+        entityTypeId -> dependentEntityTypeIds.putIfAbsent(entityTypeId, emptySet()));
+    return dependentEntityTypeIds;
+  }
+
+  /**
+   * Performs the IndexActions of one entity type in order. IndexActions for single entities are
+   * performed in batches at the position of the first of them.
+   *
+   * @param indexActions IndexActions of one entity type sorted by action order
+   * @return boolean indicating success or failure
+   */
+  private boolean performEntityTypeIndexActions(
+      Progress progress, AtomicInteger count, List<IndexAction> indexActions) {
+    boolean success = true;
+    List<IndexAction> entityIndexActions =
+        indexActions
+            .stream()
+            .filter(indexAction -> indexAction.getEntityId() != null)
+            .collect(toList());
+    for (IndexAction indexAction : indexActions) {
+      if (indexAction.getEntityId() == null) {
+        success &= performAction(progress, count, indexAction);
+      } else if (!entityIndexActions.isEmpty()) {
+        for (List<IndexAction> batch : partition(entityIndexActions, BATCH_SIZE)) {
+          success &= performBatchAction(progress, count, batch);
+        }
+        entityIndexActions = emptyList();
+      }
+    }
+    return success;
+  }
+
+  /**
+   * Reports the number of performed IndexActions. The IndexActions of different entity types report
+   * from multiple threads, the count is read while holding the lock so that the reported progress
+   * never decreases.
+   */
+  private static void progress(Progress progress, AtomicInteger count, String message) {
+    synchronized (progress) {
+      progress.progress(count.get(), message);
+    }
+  }
+
+  /**
+   * Performs a batch of IndexActions for single entities of the same entity type. The entities are
+   * retrieved in one request and indexed in bulk, entities that no longer exist are deleted from
+   * the index.
+   *
+   * @param progress {@link Progress} to report progress to
+   * @param count the number of performed IndexActions, incremented when the batch is performed
+   * @param indexActions IndexActions for single entities of the same entity type
+   * @return boolean indicating success or failure
+   */
+  private boolean performBatchAction(
+      Progress progress, AtomicInteger count, List<IndexAction> indexActions) {
+    String entityTypeId = indexActions.get(0).getEntityTypeId();
+    updateIndexActionStatus(indexActions, IndexActionMetadata.IndexStatus.STARTED);
+    try {
+      if (dataService.hasEntityType(entityTypeId)) {
+        EntityType entityType = dataService.getEntityType(entityTypeId);
+        progress(
+            progress,
+            count,
+            format("Indexing {0} entities of {1}", indexActions.size(), entityType.getId()));
+        rebuildIndexEntities(entityType, indexActions);
+      } else {
+        EntityType entityType = getEntityType(indexActions.get(0));
+        if (indexService.hasIndex(entityType)) {
+          progress(progress, count, format("Dropping entityType with id: {0}", entityType.getId()));
+          indexService.deleteIndex(entityType);
+        } else {
+          progress(
+              progress,
+              count,
+              format("Skip index {0} entities of {1}", indexActions.size(), entityType.getId()));
+        }
+      }
+      updateIndexActionStatus(indexActions, IndexActionMetadata.IndexStatus.FINISHED);
+      return true;
+    } catch (Exception ex) {
+      LOG.error("Index job failed", ex);
+      updateIndexActionStatus(indexActions, IndexActionMetadata.IndexStatus.FAILED);
+      return false;
+    } finally {
+      count.addAndGet(indexActions.size());
+    }
+  }
+
+  /**
+   * Performs a single IndexAction for an entire entity type
    *
    * @param progress {@link Progress} to report progress to
-   * @param progressCount the progress count for this IndexAction
+   * @param count the number of performed IndexActions, incremented when this IndexAction is
+   *     performed
    * @param indexAction Entity of type IndexActionMetaData
    * @return boolean indicating success or failure
    */
-  private boolean performAction(Progress progress, int progressCount, IndexAction indexAction) {
+  private boolean performAction(Progress progress, AtomicInteger count, IndexAction indexAction) {
     requireNonNull(indexAction);
     String entityTypeId = indexAction.getEntityTypeId();
     updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.STARTED);
     try {
       if (dataService.hasEntityType(entityTypeId)) {
         EntityType entityType = dataService.getEntityType(entityTypeId);
-        if (indexAction.getEntityId() != null) {
-          progress.progress(
-              progressCount,
-              format("Indexing {0}.{1}", entityType.getId(), indexAction.getEntityId()));
-          rebuildIndexOneEntity(entityTypeId, indexAction.getEntityId());
-        } else {
-          progress.progress(progressCount, format("Indexing {0}", entityType.getId()));
-          final Repository<Entity> repository = dataService.getRepository(entityType.getId());
-          indexService.rebuildIndex(repository);
-        }
+        progress(progress, count, format("Indexing {0}", entityType.getId()));
+        final Repository<Entity> repository = dataService.getRepository(entityType.getId());
+        indexService.rebuildIndex(repository);
       } else {
         EntityType entityType = getEntityType(indexAction);
         if (indexService.hasIndex(entityType)) {
-          progress.progress(
-              progressCount, format("Dropping entityType with id: {0}", entityType.getId()));
+          progress(progress, count, format("Dropping entityType with id: {0}", entityType.getId()));
           indexService.deleteIndex(entityType);
         } else {
           // Index Job is finished, here we concluded that we don't have enough info to continue the
           // index job
-          progress.progress(
-              progressCount,
-              format("Skip index entity {0}.{1}", entityType.getId(), indexAction.getEntityId()));
+          progress(progress, count, format("Skip index entity {0}", entityType.getId()));
         }
       }
       updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.FINISHED);
@@ -141,9 +327,23 @@ public class IndexJobService {
       LOG.error("Index job failed", ex);
       updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.FAILED);
       return false;
+    } finally {
+      count.incrementAndGet();
     }
   }
 
+  /**
+   * Updates the {@link IndexStatus} of IndexActions and stores the changes.
+   *
+   * @param indexActions the IndexActions of which the status is updated
+   * @param status the new {@link IndexStatus}
+   */
+  private void updateIndexActionStatus(
+      List<IndexAction> indexActions, IndexActionMetadata.IndexStatus status) {
+    indexActions.forEach(indexAction -> indexAction.setIndexStatus(status));
+    dataService.update(INDEX_ACTION, indexActions.stream());
+  }
+
   /**
    * Updates the {@link IndexStatus} of a IndexAction and stores the change.
    *
@@ -157,39 +357,41 @@ public class IndexJobService {
   }
 
   /**
-   * Indexes one single entity instance.
+   * Indexes the entity instances referred to by IndexActions of the given entity type. Entities are
+   * retrieved in bulk and indexed in bulk, entities that do not exist anymore are deleted from the
+   * index.
    *
-   * @param entityTypeId the id of the entity's repository
-   * @param untypedEntityId the identifier of the entity to update
+   * @param entityType the entity type of the entities
+   * @param indexActions IndexActions for single entities of the entity type
    */
-  private void rebuildIndexOneEntity(String entityTypeId, String untypedEntityId) {
-    LOG.trace("Indexing [{}].[{}]... ", entityTypeId, untypedEntityId);
-
-    // convert entity id string to typed entity id
-    EntityType entityType = dataService.getEntityType(entityTypeId);
-    if (null != entityType) {
-      Object entityId = getTypedValue(untypedEntityId, entityType.getIdAttribute());
-      String entityFullName = entityType.getId();
-
-      Entity actualEntity = dataService.findOneById(entityFullName, entityId);
-
-      if (null == actualEntity) {
-        // Delete
-        LOG.debug("Index delete [{}].[{}].", entityFullName, entityId);
-        indexService.deleteById(entityType, entityId);
-        return;
-      }
+  private void rebuildIndexEntities(EntityType entityType, List<IndexAction> indexActions) {
+    String entityTypeId = entityType.getId();
+    LOG.trace("Indexing [{}] {} entities ... ", entityTypeId, indexActions.size());
+
+    Attribute idAttribute = entityType.getIdAttribute();
+    List<Object> entityIds =
+        indexActions
+            .stream()
+            .map(indexAction -> getTypedValue(indexAction.getEntityId(), idAttribute))
+            .distinct()
+            .collect(toList());
+
+    List<Entity> entities = dataService.findAll(entityTypeId, entityIds.stream()).collect(toList());
 
-      boolean indexEntityExists = indexService.hasIndex(entityType);
-      if (!indexEntityExists) {
+    Set<Object> deletedEntityIds = new LinkedHashSet<>(entityIds);
+    entities.forEach(entity -> deletedEntityIds.remove(entity.getIdValue()));
+    if (!deletedEntityIds.isEmpty()) {
+      LOG.debug("Index delete [{}] {} entities.", entityTypeId, deletedEntityIds.size());
+      indexService.deleteAll(entityType, deletedEntityIds.stream());
+    }
+
+    if (!entities.isEmpty()) {
+      if (!indexService.hasIndex(entityType)) {
         LOG.debug("Create mapping of repository [{}] because it was not exist yet", entityTypeId);
         indexService.createIndex(entityType);
       }
-
-      LOG.debug("Index [{}].[{}].", entityTypeId, entityId);
-      indexService.index(actualEntity.getEntityType(), actualEntity);
-    } else {
-      throw new MolgenisDataException("Unknown EntityType for entityTypeId: " + entityTypeId);
+      LOG.debug("Index [{}] {} entities.", entityTypeId, entities.size());
+      indexService.index(entityType, entities.stream());
     }
   }
 
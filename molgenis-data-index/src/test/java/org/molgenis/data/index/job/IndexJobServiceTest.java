@@ -1,13 +1,19 @@
 package org.molgenis.data.index.job;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.empty;
 import static java.util.stream.Stream.of;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -19,13 +25,16 @@ import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
 import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.FAILED;
 import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.FINISHED;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.testng.Assert.assertEquals;
-import static org.testng.Assert.assertSame;
 
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.AbstractMolgenisSpringTest;
@@ -34,6 +43,7 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.EntityTestHarness;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
+import org.molgenis.data.Repository;
 import org.molgenis.data.TestHarnessConfig;
 import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.config.IndexTestConfig;
@@ -43,6 +53,7 @@ import org.molgenis.data.index.meta.IndexActionGroup;
 import org.molgenis.data.index.meta.IndexActionGroupFactory;
 import org.molgenis.data.index.meta.IndexActionMetadata;
 import org.molgenis.data.meta.MetaDataService;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
 import org.molgenis.jobs.Progress;
@@ -56,8 +67,10 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 @ContextConfiguration(classes = {IndexJobServiceTest.Config.class})
+@SuppressWarnings("unchecked")
 public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
   @Captor private ArgumentCaptor<Stream<Entity>> streamCaptor;
+  @Captor private ArgumentCaptor<Stream<Object>> idStreamCaptor;
 
   @Autowired private Progress progress;
   @Autowired private Authentication authentication;
@@ -83,7 +96,9 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
   @BeforeMethod
   public void beforeMethod() {
     config.resetMocks();
-    indexJobService = new IndexJobService(dataService, indexService, entityTypeFactory);
+    indexJobService =
+        new IndexJobService(
+            dataService, indexService, entityTypeFactory, newDirectExecutorService());
     indexActionGroup = indexActionGroupFactory.create(transactionId).setCount(0);
     when(dataService.findOneById(INDEX_ACTION_GROUP, transactionId, IndexActionGroup.class))
         .thenReturn(indexActionGroup);
@@ -93,7 +108,6 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     toIndexEntity = harness.createTestRefEntities(testEntityType, 1).get(0);
     when(dataService.hasEntityType("TypeTestRefDynamic")).thenReturn(true);
     when(dataService.getEntityType("TypeTestRefDynamic")).thenReturn(testEntityType);
-    when(dataService.findOneById("TypeTestRefDynamic", "entityId")).thenReturn(toIndexEntity);
     when(dataService.hasEntityType("entityType")).thenReturn(true);
     when(dataService.getEntityType("entityType")).thenReturn(testEntityType);
   }
@@ -134,7 +148,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
 
   @Test
   public void rebuildIndexDeleteSingleEntityTest() {
-    when(dataService.findOneById("TypeTestRefDynamic", "entityId")).thenReturn(null);
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class))).thenReturn(empty());
 
     IndexAction indexAction =
         indexActionFactory
@@ -147,53 +161,102 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     mockGetAllIndexActions(of(indexAction));
     indexActionGroup.setCount(1);
 
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
-
     indexJobService.executeJob(progress, transactionId);
     assertEquals(indexAction.getIndexStatus(), FINISHED);
 
-    verify(indexService).deleteById(testEntityType, "entityId");
+    verify(indexService).deleteAll(eq(testEntityType), idStreamCaptor.capture());
+    assertEquals(idStreamCaptor.getValue().collect(toList()), singletonList("entityId"));
+    verify(indexService, never()).index(any(EntityType.class), any(Stream.class));
 
     // verify progress messages
     verify(progress).status("Start indexing for transaction id: [aabbcc]");
     verify(progress).setProgressMax(1);
-    verify(progress).progress(0, "Indexing TypeTestRefDynamic.entityId");
+    verify(progress).progress(0, "Indexing 1 entities of TypeTestRefDynamic");
     verify(progress).progress(1, "Executed all index actions, cleaning up the actions...");
     verify(progress).status("Refresh index start");
     verify(progress).status("Refresh index done");
     verify(progress).status("Finished indexing for transaction id: [aabbcc]");
     verify(indexService).refreshIndex();
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verify(dataService, times(2)).update(eq(INDEX_ACTION), any(Stream.class));
   }
 
   @Test
   public void rebuildIndexCreateSingleEntityTest() {
+    String entityId = toIndexEntity.getIdValue().toString();
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class)))
+        .thenReturn(of(toIndexEntity));
+
     IndexAction indexAction =
         indexActionFactory
             .create()
             .setIndexActionGroup(indexActionGroup)
             .setEntityTypeId("entityType")
-            .setEntityId("entityId")
+            .setEntityId(entityId)
             .setActionOrder(0)
             .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
     mockGetAllIndexActions(of(indexAction));
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
     indexActionGroup.setCount(1);
 
     indexJobService.executeJob(progress, transactionId);
     assertEquals(indexAction.getIndexStatus(), FINISHED);
 
-    verify(this.indexService).index(testEntityType, toIndexEntity);
+    verify(indexService).createIndex(testEntityType);
+    verify(indexService).index(eq(testEntityType), streamCaptor.capture());
+    assertEquals(streamCaptor.getValue().collect(toList()), singletonList(toIndexEntity));
+    verify(indexService, never()).deleteAll(any(EntityType.class), any(Stream.class));
 
     verify(progress).status("Start indexing for transaction id: [aabbcc]");
     verify(progress).setProgressMax(1);
-    verify(progress).progress(0, "Indexing TypeTestRefDynamic.entityId");
+    verify(progress).progress(0, "Indexing 1 entities of TypeTestRefDynamic");
     verify(progress).progress(1, "Executed all index actions, cleaning up the actions...");
     verify(progress).status("Refresh index start");
     verify(progress).status("Refresh index done");
     verify(progress).status("Finished indexing for transaction id: [aabbcc]");
 
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verify(dataService, times(2)).update(eq(INDEX_ACTION), any(Stream.class));
+  }
+
+  @Test
+  public void rebuildIndexMultipleEntitiesTest() {
+    String entityId = toIndexEntity.getIdValue().toString();
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class)))
+        .thenReturn(of(toIndexEntity));
+    when(indexService.hasIndex(testEntityType)).thenReturn(true);
+
+    IndexAction indexAction1 =
+        indexActionFactory
+            .create()
+            .setIndexActionGroup(indexActionGroup)
+            .setEntityTypeId("entityType")
+            .setEntityId(entityId)
+            .setActionOrder(0)
+            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
+    IndexAction indexAction2 =
+        indexActionFactory
+            .create()
+            .setIndexActionGroup(indexActionGroup)
+            .setEntityTypeId("entityType")
+            .setEntityId("deletedEntityId")
+            .setActionOrder(1)
+            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
+    mockGetAllIndexActions(of(indexAction1, indexAction2));
+    indexActionGroup.setCount(2);
+
+    indexJobService.executeJob(progress, transactionId);
+    assertEquals(indexAction1.getIndexStatus(), FINISHED);
+    assertEquals(indexAction2.getIndexStatus(), FINISHED);
+
+    verify(dataService).findAll(eq("TypeTestRefDynamic"), idStreamCaptor.capture());
+    assertEquals(idStreamCaptor.getValue().collect(toList()), asList(entityId, "deletedEntityId"));
+    verify(indexService, never()).createIndex(testEntityType);
+    verify(indexService).index(eq(testEntityType), streamCaptor.capture());
+    assertEquals(streamCaptor.getValue().collect(toList()), singletonList(toIndexEntity));
+    verify(indexService).deleteAll(eq(testEntityType), idStreamCaptor.capture());
+    assertEquals(idStreamCaptor.getValue().collect(toList()), singletonList("deletedEntityId"));
+
+    verify(progress).progress(0, "Indexing 2 entities of TypeTestRefDynamic");
+    verify(progress).progress(2, "Executed all index actions, cleaning up the actions...");
+    verify(dataService, times(2)).update(eq(INDEX_ACTION), any(Stream.class));
   }
 
   @Test
@@ -311,7 +374,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
   }
 
   @Test
-  public void indexSingleEntityindexServiceThrowsExceptionOnSecondEntityId() {
+  public void indexEntitiesIndexServiceThrowsException() {
     IndexAction indexAction1 =
         indexActionFactory
             .create()
@@ -330,41 +393,94 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
             .setActionOrder(1)
             .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
 
-    IndexAction indexAction3 =
+    mockGetAllIndexActions(of(indexAction1, indexAction2));
+    indexActionGroup.setCount(2);
+
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class))).thenReturn(empty());
+    MolgenisDataException mde = new MolgenisDataException("Random unrecoverable exception");
+    doThrow(mde).when(indexService).deleteAll(eq(testEntityType), any(Stream.class));
+
+    indexJobService.executeJob(progress, transactionId);
+
+    verify(indexService).refreshIndex();
+
+    // Make sure the action status got updated and that the actionJob didn't get deleted
+    assertEquals(indexAction1.getIndexStatus(), FAILED);
+    assertEquals(indexAction2.getIndexStatus(), FAILED);
+    verify(dataService, times(2)).update(eq(INDEX_ACTION), any(Stream.class));
+    verify(dataService, never()).deleteById(INDEX_ACTION_GROUP, transactionId);
+  }
+
+  @Test
+  public void indexDependentEntityTypesInOrder() throws InterruptedException {
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getId()).thenReturn("refEntityType");
+    when(refEntityType.getIndexingDepth()).thenReturn(1);
+    when(refEntityType.getOwnAtomicAttributes()).thenReturn(emptyList());
+    Attribute refAttribute = mock(Attribute.class);
+    when(refAttribute.hasRefEntity()).thenReturn(true);
+    when(refAttribute.getRefEntity()).thenReturn(refEntityType);
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityType");
+    when(entityType.getIndexingDepth()).thenReturn(1);
+    when(entityType.getOwnAtomicAttributes()).thenReturn(singletonList(refAttribute));
+    when(dataService.findAll(eq(ENTITY_TYPE_META_DATA), any(Query.class), eq(EntityType.class)))
+        .thenReturn(of(refEntityType, entityType));
+
+    when(dataService.hasEntityType("refEntityType")).thenReturn(true);
+    when(dataService.getEntityType("refEntityType")).thenReturn(refEntityType);
+    when(dataService.getEntityType("entityType")).thenReturn(entityType);
+    Repository<Entity> refRepository = mock(Repository.class);
+    Repository<Entity> repository = mock(Repository.class);
+    when(dataService.getRepository("refEntityType")).thenReturn(refRepository);
+    when(dataService.getRepository("entityType")).thenReturn(repository);
+    doAnswer(
+            invocation -> {
+              Thread.sleep(100);
+              return null;
+            })
+        .when(indexService)
+        .rebuildIndex(refRepository);
+
+    IndexAction refIndexAction =
+        indexActionFactory
+            .create()
+            .setIndexActionGroup(indexActionGroup)
+            .setEntityTypeId("refEntityType")
+            .setActionOrder(0)
+            .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
+    IndexAction indexAction =
         indexActionFactory
             .create()
             .setIndexActionGroup(indexActionGroup)
             .setEntityTypeId("entityType")
-            .setEntityId("entityId3")
-            .setActionOrder(2)
+            .setActionOrder(1)
             .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
+    mockGetAllIndexActions(of(refIndexAction, indexAction));
+    indexActionGroup.setCount(2);
 
-    mockGetAllIndexActions(of(indexAction1, indexAction2, indexAction3));
-    indexActionGroup.setCount(3);
-
-    MolgenisDataException mde = new MolgenisDataException("Random unrecoverable exception");
-    doThrow(mde).when(indexService).deleteById(testEntityType, "entityId2");
-
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
-
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
     try {
-      indexJobService.executeJob(progress, transactionId);
-    } catch (Exception expected) {
-      assertSame(expected, mde);
+      new IndexJobService(dataService, indexService, entityTypeFactory, executorService)
+          .executeJob(progress, transactionId);
+    } finally {
+      executorService.shutdown();
+      executorService.awaitTermination(1, SECONDS);
     }
 
-    verify(indexService).deleteById(testEntityType, "entityId1");
-    verify(indexService).deleteById(testEntityType, "entityId2");
-    verify(indexService).deleteById(testEntityType, "entityId3");
-
-    verify(indexService).refreshIndex();
-
-    // Make sure the action status got updated and that the actionJob didn't get deleted
-    assertEquals(indexAction1.getIndexStatus(), FINISHED);
-    assertEquals(indexAction2.getIndexStatus(), FAILED);
-    verify(dataService, atLeast(1)).update(INDEX_ACTION, indexAction1);
-    verify(dataService, atLeast(1)).update(INDEX_ACTION, indexAction2);
-    verify(dataService, never()).delete(INDEX_ACTION_GROUP, indexActionGroup);
+    InOrder inOrder = inOrder(indexService);
+    inOrder.verify(indexService).rebuildIndex(refRepository);
+    inOrder.verify(indexService).rebuildIndex(repository);
+    inOrder.verify(indexService).refreshIndex();
+    InOrder progressInOrder = inOrder(progress);
+    progressInOrder.verify(progress).progress(0, "Indexing refEntityType");
+    progressInOrder.verify(progress).progress(1, "Indexing entityType");
+    progressInOrder
+        .verify(progress)
+        .progress(2, "Executed all index actions, cleaning up the actions...");
+    assertEquals(refIndexAction.getIndexStatus(), FINISHED);
+    assertEquals(indexAction.getIndexStatus(), FINISHED);
+    verify(dataService).deleteById(INDEX_ACTION_GROUP, transactionId);
   }
 
   @Configuration
@@ -6,8 +6,10 @@ import org.molgenis.data.RepositoryCollection;
 import org.molgenis.data.RepositoryCollectionDecorator;
 import org.molgenis.data.RepositoryCollectionDecoratorFactory;
 import org.molgenis.data.RepositoryDecoratorFactory;
+import org.molgenis.data.decorator.DecoratedRepositoryCache;
 import org.molgenis.data.index.IndexActionRegisterService;
 import org.molgenis.data.index.IndexActionRepositoryCollectionDecorator;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -15,19 +17,29 @@ public class RepositoryCollectionDecoratorFactoryImpl
     implements RepositoryCollectionDecoratorFactory {
   private final RepositoryDecoratorFactory repositoryDecoratorFactory;
   private final IndexActionRegisterService indexActionRegisterService;
+  private final DecoratedRepositoryCache decoratedRepositoryCache;
+  private final MetadataSnapshotRegistry metadataSnapshotRegistry;
 
   public RepositoryCollectionDecoratorFactoryImpl(
       RepositoryDecoratorFactory repositoryDecoratorFactory,
-      IndexActionRegisterService indexActionRegisterService) {
+      IndexActionRegisterService indexActionRegisterService,
+      DecoratedRepositoryCache decoratedRepositoryCache,
+      MetadataSnapshotRegistry metadataSnapshotRegistry) {
     this.repositoryDecoratorFactory = requireNonNull(repositoryDecoratorFactory);
     this.indexActionRegisterService = requireNonNull(indexActionRegisterService);
+    this.decoratedRepositoryCache = requireNonNull(decoratedRepositoryCache);
+    this.metadataSnapshotRegistry = requireNonNull(metadataSnapshotRegistry);
   }
 
   @Override
   public RepositoryCollection createDecoratedRepositoryCollection(
       RepositoryCollection repositoryCollection) {
     RepositoryCollection repoCollectionDecorator =
-        new RepositoryCollectionDecorator(repositoryCollection, repositoryDecoratorFactory);
+        new RepositoryCollectionDecorator(
+            repositoryCollection,
+            repositoryDecoratorFactory,
+            decoratedRepositoryCache,
+            metadataSnapshotRegistry);
     repoCollectionDecorator =
         new IndexActionRepositoryCollectionDecorator(
             repoCollectionDecorator, indexActionRegisterService);
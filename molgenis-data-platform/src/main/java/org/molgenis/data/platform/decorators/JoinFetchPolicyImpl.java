@@ -0,0 +1,45 @@
+package org.molgenis.data.platform.decorators;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
+import static org.molgenis.data.util.EntityTypeUtils.isSystemEntity;
+
+import org.molgenis.data.JoinFetchPolicy;
+import org.molgenis.data.decorator.DynamicRepositoryDecoratorRegistry;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Allows join fetching of entity types for which none of the repository decorators created by
+ * {@link MolgenisRepositoryDecoratorFactory} changes the data that is read: entity types that the
+ * current user is allowed to read, that are not row-level secured, that have no computed attributes
+ * and that have neither system nor dynamic decorators.
+ */
+@Component
+public class JoinFetchPolicyImpl implements JoinFetchPolicy {
+  private final UserPermissionEvaluator userPermissionEvaluator;
+  private final MutableAclClassService mutableAclClassService;
+  private final DynamicRepositoryDecoratorRegistry dynamicRepositoryDecoratorRegistry;
+
+  JoinFetchPolicyImpl(
+      UserPermissionEvaluator userPermissionEvaluator,
+      MutableAclClassService mutableAclClassService,
+      DynamicRepositoryDecoratorRegistry dynamicRepositoryDecoratorRegistry) {
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.mutableAclClassService = requireNonNull(mutableAclClassService);
+    this.dynamicRepositoryDecoratorRegistry = requireNonNull(dynamicRepositoryDecoratorRegistry);
+  }
+
+  @Override
+  public boolean isJoinFetchAllowed(EntityType entityType) {
+    return !isSystemEntity(entityType)
+        && !entityType.hasAttributeWithExpression()
+        && userPermissionEvaluator.hasPermission(new EntityTypeIdentity(entityType), READ_DATA)
+        && !mutableAclClassService.hasAclClass(EntityIdentityUtils.toType(entityType))
+        && !dynamicRepositoryDecoratorRegistry.hasDecorators(entityType.getId());
+  }
+}
@@ -0,0 +1,77 @@
+package org.molgenis.data.platform.decorators;
+
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.mockito.Mock;
+import org.molgenis.data.decorator.DynamicRepositoryDecoratorRegistry;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JoinFetchPolicyImplTest extends AbstractMockitoTest {
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private MutableAclClassService mutableAclClassService;
+  @Mock private DynamicRepositoryDecoratorRegistry dynamicRepositoryDecoratorRegistry;
+  @Mock private EntityType entityType;
+  private JoinFetchPolicyImpl joinFetchPolicyImpl;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    joinFetchPolicyImpl =
+        new JoinFetchPolicyImpl(
+            userPermissionEvaluator, mutableAclClassService, dynamicRepositoryDecoratorRegistry);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testJoinFetchPolicyImpl() {
+    new JoinFetchPolicyImpl(null, null, null);
+  }
+
+  @Test
+  public void testIsJoinFetchAllowed() {
+    setUpEntityType(true, false);
+    assertTrue(joinFetchPolicyImpl.isJoinFetchAllowed(entityType));
+  }
+
+  @Test
+  public void testIsJoinFetchAllowedComputedAttributes() {
+    when(entityType.hasAttributeWithExpression()).thenReturn(true);
+    assertFalse(joinFetchPolicyImpl.isJoinFetchAllowed(entityType));
+  }
+
+  @Test
+  public void testIsJoinFetchAllowedNoReadPermission() {
+    when(entityType.getId()).thenReturn("entityTypeId");
+    assertFalse(joinFetchPolicyImpl.isJoinFetchAllowed(entityType));
+  }
+
+  @Test
+  public void testIsJoinFetchAllowedRowLevelSecured() {
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("entityTypeId"), READ_DATA))
+        .thenReturn(true);
+    when(mutableAclClassService.hasAclClass("entity-entityTypeId")).thenReturn(true);
+    assertFalse(joinFetchPolicyImpl.isJoinFetchAllowed(entityType));
+  }
+
+  @Test
+  public void testIsJoinFetchAllowedDynamicDecorators() {
+    setUpEntityType(true, true);
+    assertFalse(joinFetchPolicyImpl.isJoinFetchAllowed(entityType));
+  }
+
+  private void setUpEntityType(boolean readPermission, boolean dynamicDecorators) {
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("entityTypeId"), READ_DATA))
+        .thenReturn(readPermission);
+    when(dynamicRepositoryDecoratorRegistry.hasDecorators("entityTypeId"))
+        .thenReturn(dynamicDecorators);
+  }
+}
@@ -0,0 +1,169 @@
+package org.molgenis.data.platform.decorators;
+
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.EntityManager;
+import org.molgenis.data.Repository;
+import org.molgenis.data.RowLevelSecurityQueryService;
+import org.molgenis.data.SystemRepositoryDecoratorRegistry;
+import org.molgenis.data.cache.l1.L1Cache;
+import org.molgenis.data.cache.l2.L2Cache;
+import org.molgenis.data.cache.l3.L3Cache;
+import org.molgenis.data.decorator.DynamicRepositoryDecoratorRegistry;
+import org.molgenis.data.index.IndexActionRegisterService;
+import org.molgenis.data.index.IndexedRepositoryDecoratorFactory;
+import org.molgenis.data.index.SearchService;
+import org.molgenis.data.index.job.IndexJobScheduler;
+import org.molgenis.data.listeners.EntityListenersService;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.aggregation.AggregateAnonymizer;
+import org.molgenis.data.security.owned.RowLevelSecurityRepositoryDecoratorFactory;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.validation.DefaultValueReferenceValidator;
+import org.molgenis.data.validation.EntityAttributesValidator;
+import org.molgenis.data.validation.QueryValidator;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.Permission;
+import org.molgenis.security.core.PermissionRegistry;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.settings.AppSettings;
+import org.molgenis.test.AbstractMockitoTestNGSpringContextTests;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@ContextConfiguration(classes = MolgenisRepositoryDecoratorFactoryTest.Config.class)
+public class MolgenisRepositoryDecoratorFactoryTest
+    extends AbstractMockitoTestNGSpringContextTests {
+  @Autowired private IndexedRepositoryDecoratorFactory indexedRepositoryDecoratorFactory;
+
+  @Autowired
+  private RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityRepositoryDecoratorFactory;
+
+  @Mock private EntityManager entityManager;
+  @Mock private EntityAttributesValidator entityAttributesValidator;
+  @Mock private AggregateAnonymizer aggregateAnonymizer;
+  @Mock private AppSettings appSettings;
+  @Mock private DataService dataService;
+  @Mock private SystemRepositoryDecoratorRegistry systemRepositoryDecoratorRegistry;
+  @Mock private DynamicRepositoryDecoratorRegistry dynamicRepositoryDecoratorRegistry;
+  @Mock private IndexActionRegisterService indexActionRegisterService;
+  @Mock private L1Cache l1Cache;
+  @Mock private L2Cache l2Cache;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private L3Cache l3Cache;
+  @Mock private PlatformTransactionManager transactionManager;
+  @Mock private QueryValidator queryValidator;
+  @Mock private DefaultValueReferenceValidator defaultValueReferenceValidator;
+  @Mock private UserPermissionEvaluator permissionService;
+  private MolgenisRepositoryDecoratorFactory molgenisRepositoryDecoratorFactory;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    molgenisRepositoryDecoratorFactory =
+        new MolgenisRepositoryDecoratorFactory(
+            entityManager,
+            entityAttributesValidator,
+            aggregateAnonymizer,
+            appSettings,
+            dataService,
+            systemRepositoryDecoratorRegistry,
+            dynamicRepositoryDecoratorRegistry,
+            indexActionRegisterService,
+            indexedRepositoryDecoratorFactory,
+            l1Cache,
+            l2Cache,
+            transactionInformation,
+            new EntityListenersService(),
+            l3Cache,
+            transactionManager,
+            queryValidator,
+            defaultValueReferenceValidator,
+            permissionService,
+            rowLevelSecurityRepositoryDecoratorFactory);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testCreateDecoratedRepositoryUpsertBatch() {
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getName()).thenReturn("id");
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    when(repository.getName()).thenReturn("entityTypeId");
+
+    when(systemRepositoryDecoratorRegistry.decorate(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    when(dynamicRepositoryDecoratorRegistry.decorate(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    when(permissionService.hasPermission(any(ObjectIdentity.class), any(Permission.class)))
+        .thenReturn(true);
+
+    Entity entity = mock(Entity.class);
+    List<Entity> entities = singletonList(entity);
+    molgenisRepositoryDecoratorFactory.createDecoratedRepository(repository).upsertBatch(entities);
+
+    verify(repository).upsertBatch(entities);
+  }
+
+  @Configuration
+  @Import({
+    IndexedRepositoryDecoratorFactory.class,
+    RowLevelSecurityRepositoryDecoratorFactory.class
+  })
+  static class Config {
+    @Bean
+    SearchService searchService() {
+      return mock(SearchService.class);
+    }
+
+    @Bean
+    IndexJobScheduler indexJobScheduler() {
+      return mock(IndexJobScheduler.class);
+    }
+
+    @Bean
+    UserPermissionEvaluator userPermissionEvaluator() {
+      return mock(UserPermissionEvaluator.class);
+    }
+
+    @Bean
+    MutableAclService mutableAclService() {
+      return mock(MutableAclService.class);
+    }
+
+    @Bean
+    MutableAclClassService mutableAclClassService() {
+      return mock(MutableAclClassService.class);
+    }
+
+    @Bean
+    RowLevelSecurityQueryService rowLevelSecurityQueryService() {
+      return mock(RowLevelSecurityQueryService.class);
+    }
+
+    @Bean
+    PermissionRegistry permissionRegistry() {
+      return mock(PermissionRegistry.class);
+    }
+  }
+}
@@ -4,7 +4,10 @@ import static java.util.Objects.requireNonNull;
 
 import javax.sql.DataSource;
 import org.molgenis.data.DataService;
+import org.molgenis.data.JoinFetchPolicy;
 import org.molgenis.data.RepositoryCollection;
+import org.molgenis.data.RowLevelSecurityQueryService;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
 import org.molgenis.data.postgresql.identifier.EntityTypeRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,18 +20,27 @@ public class PostgreSqlConfiguration {
   private final DataService dataService;
   private final PostgreSqlExceptionTranslator postgreSqlExceptionTranslator;
   private final EntityTypeRegistry entityTypeRegistry;
+  private final MetadataSnapshotRegistry metadataSnapshotRegistry;
+  private final JoinFetchPolicy joinFetchPolicy;
+  private final PostgreSqlQueryTemplateCache queryTemplateCache;
 
   public PostgreSqlConfiguration(
       PostgreSqlEntityFactory postgreSqlEntityFactory,
       DataSource dataSource,
       DataService dataService,
       PostgreSqlExceptionTranslator postgreSqlExceptionTranslator,
-      EntityTypeRegistry entityTypeRegistry) {
+      EntityTypeRegistry entityTypeRegistry,
+      MetadataSnapshotRegistry metadataSnapshotRegistry,
+      JoinFetchPolicy joinFetchPolicy,
+      PostgreSqlQueryTemplateCache queryTemplateCache) {
     this.postgreSqlEntityFactory = requireNonNull(postgreSqlEntityFactory);
     this.dataSource = requireNonNull(dataSource);
     this.dataService = requireNonNull(dataService);
     this.postgreSqlExceptionTranslator = requireNonNull(postgreSqlExceptionTranslator);
     this.entityTypeRegistry = requireNonNull(entityTypeRegistry);
+    this.metadataSnapshotRegistry = requireNonNull(metadataSnapshotRegistry);
+    this.joinFetchPolicy = requireNonNull(joinFetchPolicy);
+    this.queryTemplateCache = requireNonNull(queryTemplateCache);
   }
 
   @Bean
@@ -42,7 +54,18 @@ public class PostgreSqlConfiguration {
   public RepositoryCollection postgreSqlRepositoryCollection() {
     return new PostgreSqlRepositoryCollectionDecorator(
         new PostgreSqlRepositoryCollection(
-            postgreSqlEntityFactory, dataSource, jdbcTemplate(), dataService),
+            postgreSqlEntityFactory,
+            dataSource,
+            jdbcTemplate(),
+            dataService,
+            metadataSnapshotRegistry,
+            joinFetchPolicy,
+            queryTemplateCache),
         entityTypeRegistry);
   }
+
+  @Bean
+  public RowLevelSecurityQueryService rowLevelSecurityQueryService() {
+    return new PostgreSqlRowLevelSecurityQueryService(postgreSqlEntityFactory, jdbcTemplate());
+  }
 }
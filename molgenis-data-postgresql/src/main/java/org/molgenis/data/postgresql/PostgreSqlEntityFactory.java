@@ -2,19 +2,30 @@ package org.molgenis.data.postgresql;
 
 import static java.time.ZoneOffset.UTC;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 import static java.util.Comparator.comparing;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getColumnName;
+import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isJoinFetchSelected;
+import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isNestedJoinFetch;
 import static org.molgenis.data.util.MolgenisDateFormat.parseInstant;
 import static org.molgenis.data.util.MolgenisDateFormat.parseLocalDate;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import java.math.BigDecimal;
 import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.Fetch;
@@ -40,7 +51,17 @@ class PostgreSqlEntityFactory {
   }
 
   RowMapper<Entity> createRowMapper(EntityType entityType, Fetch fetch) {
-    return new EntityMapper(entityManager, entityType, fetch);
+    return createRowMapper(entityType, fetch, emptySet());
+  }
+
+  /**
+   * Creates a row mapper for rows in which the referenced entities of the given attributes are
+   * selected as JSON (join fetch), see {@link SqlSelectOptions#getJoinFetchAttributeNames()}. Join
+   * fetched entities are created directly instead of as lazy references.
+   */
+  RowMapper<Entity> createRowMapper(
+      EntityType entityType, Fetch fetch, Set<String> joinFetchAttributeNames) {
+    return new EntityMapper(entityManager, entityType, fetch, joinFetchAttributeNames);
   }
 
   Iterable<Entity> getReferences(EntityType refEntityType, Iterable<?> ids) {
@@ -51,11 +72,17 @@ class PostgreSqlEntityFactory {
     private final EntityManager entityManager;
     private final EntityType entityType;
     private final Fetch fetch;
+    private final Set<String> joinFetchAttributeNames;
 
-    private EntityMapper(EntityManager entityManager, EntityType entityType, Fetch fetch) {
+    private EntityMapper(
+        EntityManager entityManager,
+        EntityType entityType,
+        Fetch fetch,
+        Set<String> joinFetchAttributeNames) {
       this.entityManager = requireNonNull(entityManager);
       this.entityType = requireNonNull(entityType);
       this.fetch = fetch; // can be null
+      this.joinFetchAttributeNames = requireNonNull(joinFetchAttributeNames);
     }
 
     @Override
@@ -69,12 +96,136 @@ class PostgreSqlEntityFactory {
             continue;
           }
 
-          e.set(attr.getName(), mapValue(resultSet, attr));
+          Object value;
+          if (joinFetchAttributeNames.contains(attr.getName())) {
+            value = mapJoinFetchValue(resultSet, attr, fetch.getFetch(attr.getName()));
+          } else {
+            value = mapValue(resultSet, attr);
+          }
+          e.set(attr.getName(), value);
+        }
+      }
+      return e;
+    }
+
+    /**
+     * Maps a result set JSON value with join fetched entities to an entity value.
+     *
+     * @param resultSet result set
+     * @param attr reference attribute
+     * @param refFetch fetch of the referenced entities
+     * @return referenced entity or entities
+     * @throws SQLException if an error occurs reading from the result set
+     */
+    private Object mapJoinFetchValue(ResultSet resultSet, Attribute attr, Fetch refFetch)
+        throws SQLException {
+      String json = resultSet.getString(getColumnName(attr, false));
+      return json != null ? mapJsonValue(new JsonParser().parse(json), attr, refFetch, true) : null;
+    }
+
+    private Entity mapJsonEntity(
+        JsonObject jsonObject, EntityType jsonEntityType, @Nullable Fetch jsonFetch) {
+      Entity e = entityManager.createFetch(jsonEntityType, jsonFetch);
+      for (Attribute attr : jsonEntityType.getAtomicAttributes()) {
+        if (isJoinFetchSelected(jsonEntityType, attr, jsonFetch)) {
+          boolean joinFetched = isNestedJoinFetch(attr, jsonFetch);
+          Fetch refFetch = joinFetched ? jsonFetch.getFetch(attr.getName()) : null;
+          JsonElement jsonValue = jsonObject.get(getColumnName(attr, false));
+          e.set(attr.getName(), mapJsonValue(jsonValue, attr, refFetch, joinFetched));
         }
       }
       return e;
     }
 
+    /**
+     * Maps a JSON value to an entity value.
+     *
+     * @param jsonValue JSON value
+     * @param attr attribute
+     * @param refFetch fetch of the referenced entities if these are join fetched
+     * @param joinFetched whether the JSON value contains referenced entities instead of ids
+     * @return value for the given attribute in the type defined by the attribute type
+     */
+    @Nullable
+    private Object mapJsonValue(
+        @Nullable JsonElement jsonValue,
+        Attribute attr,
+        @Nullable Fetch refFetch,
+        boolean joinFetched) {
+      if (jsonValue == null || jsonValue.isJsonNull()) {
+        return null;
+      }
+
+      Object value;
+      switch (attr.getDataType()) {
+        case BOOL:
+          value = jsonValue.getAsBoolean();
+          break;
+        case CATEGORICAL:
+        case FILE:
+        case XREF:
+          EntityType xrefEntityType = attr.getRefEntity();
+          if (joinFetched) {
+            value = mapJsonEntity(jsonValue.getAsJsonObject(), xrefEntityType, refFetch);
+          } else {
+            Object refIdValue =
+                mapJsonValue(jsonValue, xrefEntityType.getIdAttribute(), null, false);
+            value = entityManager.getReference(xrefEntityType, refIdValue);
+          }
+          break;
+        case CATEGORICAL_MREF:
+        case MREF:
+        case ONE_TO_MANY:
+          EntityType mrefEntityType = attr.getRefEntity();
+          JsonArray jsonArray = jsonValue.getAsJsonArray();
+          if (joinFetched) {
+            List<Entity> refEntities = new ArrayList<>(jsonArray.size());
+            for (JsonElement jsonElement : jsonArray) {
+              refEntities.add(
+                  mapJsonEntity(jsonElement.getAsJsonObject(), mrefEntityType, refFetch));
+            }
+            value = refEntities;
+          } else {
+            List<Object> refIdValues = new ArrayList<>(jsonArray.size());
+            for (JsonElement jsonElement : jsonArray) {
+              refIdValues.add(
+                  mapJsonValue(jsonElement, mrefEntityType.getIdAttribute(), null, false));
+            }
+            value = entityManager.getReferences(mrefEntityType, refIdValues);
+          }
+          break;
+        case COMPOUND:
+          throw new IllegalAttributeTypeException(attr.getDataType());
+        case DATE:
+          value = LocalDate.parse(jsonValue.getAsString());
+          break;
+        case DATE_TIME:
+          value = OffsetDateTime.parse(jsonValue.getAsString()).toInstant();
+          break;
+        case DECIMAL:
+          value = jsonValue.getAsDouble();
+          break;
+        case EMAIL:
+        case ENUM:
+        case HTML:
+        case HYPERLINK:
+        case SCRIPT:
+        case STRING:
+        case TEXT:
+          value = jsonValue.getAsString();
+          break;
+        case INT:
+          value = jsonValue.getAsInt();
+          break;
+        case LONG:
+          value = jsonValue.getAsLong();
+          break;
+        default:
+          throw new UnexpectedEnumException(attr.getDataType());
+      }
+      return value;
+    }
+
     /**
      * Maps a single results set value to an entity value. See the JDBC 4.0 specification appendix B
      * titled "Data Type Conversion Tables" for conversion rules.
@@ -32,6 +32,8 @@ import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getUpdateTrig
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode.INCLUDE_DEFAULT_CONSTRAINT;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getPersistedAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getTableAttributes;
+import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isJoinFetchSelected;
+import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isNestedJoinFetch;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isPersistedInPostgreSql;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
@@ -43,18 +45,22 @@ import java.text.MessageFormat;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.QueryRule.Operator;
+import org.molgenis.data.RowLevelSecurityFilter;
 import org.molgenis.data.Sort;
 import org.molgenis.data.UnknownAttributeException;
 import org.molgenis.data.meta.AttributeType;
@@ -438,6 +444,31 @@ class PostgreSqlQueryGenerator {
     return sql.toString();
   }
 
+  /**
+   * Produces SQL to insert an entity or, if an entity with the same id exists, to update all of its
+   * table columns with the inserted values.
+   */
+  static String getSqlUpsert(EntityType entityType) {
+    String idColumnName = getColumnName(entityType.getIdAttribute());
+    StringBuilder sql =
+        new StringBuilder(getSqlInsert(entityType))
+            .append(" ON CONFLICT (")
+            .append(idColumnName)
+            .append(')');
+    String setClause =
+        getTableAttributes(entityType)
+            .map(PostgreSqlNameGenerator::getColumnName)
+            .filter(columnName -> !columnName.equals(idColumnName))
+            .map(columnName -> columnName + " = EXCLUDED." + columnName)
+            .collect(joining(", "));
+    if (setClause.isEmpty()) {
+      sql.append(" DO NOTHING");
+    } else {
+      sql.append(" DO UPDATE SET ").append(setClause);
+    }
+    return sql.toString();
+  }
+
   static String getSqlInsertJunction(EntityType entityType, Attribute attr) {
     String junctionTableName = getJunctionTableName(entityType, attr);
     return "INSERT INTO "
@@ -451,6 +482,34 @@ class PostgreSqlQueryGenerator {
         + ") VALUES (?,?,?)";
   }
 
+  /** Produces SQL to copy rows in text format from standard input into the entity table. */
+  static String getSqlCopyFrom(EntityType entityType) {
+    return "COPY "
+        + getTableName(entityType)
+        + " ("
+        + getTableAttributes(entityType)
+            .map(PostgreSqlNameGenerator::getColumnName)
+            .collect(joining(", "))
+        + ") FROM STDIN";
+  }
+
+  /**
+   * Produces SQL to copy rows in text format from standard input into the junction table of an
+   * attribute. Columns are in the same order as in {@link #getSqlInsertJunction(EntityType,
+   * Attribute)}.
+   */
+  static String getSqlCopyFromJunction(EntityType entityType, Attribute attr) {
+    return "COPY "
+        + getJunctionTableName(entityType, attr)
+        + " ("
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(entityType.getIdAttribute())
+        + ','
+        + getColumnName(attr)
+        + ") FROM STDIN";
+  }
+
   static String getSqlDeleteAll(EntityType entityType) {
     return "DELETE FROM " + getTableName(entityType);
   }
@@ -508,8 +567,7 @@ class PostgreSqlQueryGenerator {
    * @throws UnknownAttributeException if query field refers to an attribute that does not exist in
    *     entity meta
    */
-  private static <E extends Entity> boolean isDistinctSelectRequired(
-      EntityType entityType, Query<E> q) {
+  static <E extends Entity> boolean isDistinctSelectRequired(EntityType entityType, Query<E> q) {
     return isDistinctSelectRequiredRec(entityType, q.getRules());
   }
 
@@ -540,8 +598,31 @@ class PostgreSqlQueryGenerator {
     return false;
   }
 
+  /**
+   * Produces SQL to select the entities that match the given query with the given options.
+   *
+   * @param entityType entity meta data
+   * @param q query
+   * @param parameters prepared statement parameters
+   * @param options select options, e.g. whether to select MREF values
+   * @return SQL string
+   */
   static <E extends Entity> String getSqlSelect(
-      EntityType entityType, Query<E> q, List<Object> parameters, boolean includeMrefs) {
+      EntityType entityType, Query<E> q, List<Object> parameters, SqlSelectOptions options) {
+    return getSqlSelectWithoutLimitOffset(entityType, q, parameters, options)
+        + getSqlLimitOffset(q);
+  }
+
+  /**
+   * Produces SQL like {@link #getSqlSelect(EntityType, Query, List, SqlSelectOptions)} but without
+   * the query page size and offset, see {@link #getSqlLimitOffset(Query)}.
+   */
+  static <E extends Entity> String getSqlSelectWithoutLimitOffset(
+      EntityType entityType, Query<E> q, List<Object> parameters, SqlSelectOptions options) {
+    final boolean includeMrefs = options.isIncludeMrefs();
+    final RowLevelSecurityFilter rowLevelSecurityFilter = options.getRowLevelSecurityFilter();
+    final Entity lastEntity = options.getLastEntity();
+    final Set<String> joinFetchAttributeNames = options.getJoinFetchAttributeNames();
     final StringBuilder select = new StringBuilder("SELECT ");
     if (isDistinctSelectRequired(entityType, q)) {
       select.append("DISTINCT ");
@@ -559,7 +640,14 @@ class PostgreSqlQueryGenerator {
                   select.append(", ");
                 }
 
-                if (isPersistedInOtherTable(attr)) {
+                if (joinFetchAttributeNames.contains(attr.getName())) {
+                  select
+                      .append(
+                          getSqlJoinFetch(
+                              entityType, attr, q.getFetch().getFetch(attr.getName()), "this", 1))
+                      .append(" AS ")
+                      .append(getColumnName(attr));
+                } else if (isPersistedInOtherTable(attr)) {
                   if (includeMrefs || (attr.getDataType() == ONE_TO_MANY && attr.isMappedBy())) {
                     if (attr.getDataType() == ONE_TO_MANY && attr.isMappedBy()) {
                       Attribute refIdAttr = attr.getRefEntity().getIdAttribute();
@@ -617,21 +705,214 @@ class PostgreSqlQueryGenerator {
     StringBuilder result = new StringBuilder().append(select).append(getSqlFrom(entityType, q));
     // where
     String where = getSqlWhere(entityType, q, parameters, new AtomicInteger());
+    if (rowLevelSecurityFilter != null) {
+      String rowLevelSecurityWhere =
+          getSqlRowLevelSecurityWhere(entityType, rowLevelSecurityFilter, parameters);
+      where =
+          where.isEmpty() ? rowLevelSecurityWhere : '(' + where + ") AND " + rowLevelSecurityWhere;
+    }
+    if (lastEntity != null) {
+      String keysetWhere = getSqlKeysetWhere(entityType, q, lastEntity, parameters);
+      where = where.isEmpty() ? keysetWhere : '(' + where + ") AND " + keysetWhere;
+    }
     if (where.length() > 0) {
       result.append(" WHERE ").append(where);
     }
     // order by
     result.append(' ').append(getSqlSort(entityType, q));
 
-    // limit
+    return result.toString().trim();
+  }
+
+  /**
+   * Produces SQL for the query page size and offset to append to a select statement. The select
+   * statements of queries that only differ in page size, offset and query values only differ in
+   * this part and in their parameters.
+   */
+  static <E extends Entity> String getSqlLimitOffset(Query<E> q) {
+    StringBuilder limitOffset = new StringBuilder();
     if (q.getPageSize() > 0) {
-      result.append(" LIMIT ").append(q.getPageSize());
+      limitOffset.append(" LIMIT ").append(q.getPageSize());
     }
     if (q.getOffset() > 0) {
-      result.append(" OFFSET ").append(q.getOffset());
+      limitOffset.append(" OFFSET ").append(q.getOffset());
     }
+    return limitOffset.toString();
+  }
 
-    return result.toString().trim();
+  /**
+   * Produces SQL for the JSON value of the entities referenced by the attribute of the entity with
+   * the given table alias: an object for attributes that reference a single entity and an array of
+   * objects for attributes that reference multiple entities. Referenced entities of the nested
+   * fetch are included in these objects.
+   */
+  private static String getSqlJoinFetch(
+      EntityType entityType, Attribute attr, @Nullable Fetch fetch, String alias, int depth) {
+    EntityType refEntityType = attr.getRefEntity();
+    String refAlias = "ref" + depth;
+    String refIdColumn = refAlias + '.' + getColumnName(refEntityType.getIdAttribute());
+    String idColumn = alias + '.' + getColumnName(entityType.getIdAttribute());
+    String refJsonObject = getSqlJsonObject(refEntityType, fetch, refAlias, depth);
+
+    if (isSingleReferenceType(attr)) {
+      return "(SELECT "
+          + refJsonObject
+          + " FROM "
+          + getTableName(refEntityType)
+          + " AS "
+          + refAlias
+          + " WHERE "
+          + refIdColumn
+          + " = "
+          + alias
+          + '.'
+          + getColumnName(attr)
+          + ')';
+    } else if (attr.getDataType() == ONE_TO_MANY && attr.isMappedBy()) {
+      return "(SELECT json_agg("
+          + refJsonObject
+          + " ORDER BY "
+          + getSqlOneToManyOrderBy(attr, refAlias)
+          + ") FROM "
+          + getTableName(refEntityType)
+          + " AS "
+          + refAlias
+          + " WHERE "
+          + refAlias
+          + '.'
+          + getColumnName(attr.getMappedBy())
+          + " = "
+          + idColumn
+          + ')';
+    } else {
+      String junctionAlias = "junction" + depth;
+      return "(SELECT json_agg("
+          + refJsonObject
+          + " ORDER BY "
+          + junctionAlias
+          + '.'
+          + getJunctionTableOrderColumnName()
+          + ") FROM "
+          + getJunctionTableName(entityType, attr)
+          + " AS "
+          + junctionAlias
+          + " JOIN "
+          + getTableName(refEntityType)
+          + " AS "
+          + refAlias
+          + " ON "
+          + refIdColumn
+          + " = "
+          + junctionAlias
+          + '.'
+          + getColumnName(attr)
+          + " WHERE "
+          + junctionAlias
+          + '.'
+          + getColumnName(entityType.getIdAttribute())
+          + " = "
+          + idColumn
+          + ')';
+    }
+  }
+
+  /**
+   * Produces SQL for a JSON object with the selected column values of the entity with the given
+   * table alias. Column names are used as keys.
+   */
+  private static String getSqlJsonObject(
+      EntityType entityType, @Nullable Fetch fetch, String alias, int depth) {
+    String columns =
+        stream(entityType.getAtomicAttributes())
+            .filter(attr -> isJoinFetchSelected(entityType, attr, fetch))
+            .map(attr -> getSqlJsonObjectColumn(entityType, attr, fetch, alias, depth))
+            .collect(joining(", "));
+    String jsonAlias = "json" + depth;
+    return "(SELECT to_json(" + jsonAlias + ") FROM (SELECT " + columns + ") AS " + jsonAlias + ')';
+  }
+
+  private static String getSqlJsonObjectColumn(
+      EntityType entityType, Attribute attr, @Nullable Fetch fetch, String alias, int depth) {
+    String column;
+    if (isNestedJoinFetch(attr, fetch)) {
+      column = getSqlJoinFetch(entityType, attr, fetch.getFetch(attr.getName()), alias, depth + 1);
+    } else if (isPersistedInOtherTable(attr)) {
+      column = getSqlReferenceIds(entityType, attr, alias, depth + 1);
+    } else {
+      return alias + '.' + getColumnName(attr);
+    }
+    return column + " AS " + getColumnName(attr);
+  }
+
+  /**
+   * Produces SQL for the ids of the entities referenced by the attribute of the entity with the
+   * given table alias, in attribute order.
+   */
+  private static String getSqlReferenceIds(
+      EntityType entityType, Attribute attr, String alias, int depth) {
+    String idColumn = alias + '.' + getColumnName(entityType.getIdAttribute());
+    if (attr.getDataType() == ONE_TO_MANY && attr.isMappedBy()) {
+      EntityType refEntityType = attr.getRefEntity();
+      String refAlias = "ref" + depth;
+      return "(SELECT array_agg("
+          + refAlias
+          + '.'
+          + getColumnName(refEntityType.getIdAttribute())
+          + " ORDER BY "
+          + getSqlOneToManyOrderBy(attr, refAlias)
+          + ") FROM "
+          + getTableName(refEntityType)
+          + " AS "
+          + refAlias
+          + " WHERE "
+          + refAlias
+          + '.'
+          + getColumnName(attr.getMappedBy())
+          + " = "
+          + idColumn
+          + ')';
+    } else {
+      String junctionAlias = "junction" + depth;
+      return "(SELECT array_agg("
+          + junctionAlias
+          + '.'
+          + getColumnName(attr)
+          + " ORDER BY "
+          + junctionAlias
+          + '.'
+          + getJunctionTableOrderColumnName()
+          + ") FROM "
+          + getJunctionTableName(entityType, attr)
+          + " AS "
+          + junctionAlias
+          + " WHERE "
+          + junctionAlias
+          + '.'
+          + getColumnName(entityType.getIdAttribute())
+          + " = "
+          + idColumn
+          + ')';
+    }
+  }
+
+  private static String getSqlOneToManyOrderBy(Attribute attr, String refAlias) {
+    EntityType refEntityType = attr.getRefEntity();
+    Sort orderBy = attr.getOrderBy();
+    if (orderBy == null) {
+      orderBy = new Sort(refEntityType.getIdAttribute().getName());
+    }
+    StringBuilder orderBySql = new StringBuilder();
+    for (Sort.Order order : orderBy) {
+      if (orderBySql.length() > 0) {
+        orderBySql.append(", ");
+      }
+      orderBySql
+          .append(refAlias)
+          .append('.')
+          .append(getColumnName(refEntityType.getAttribute(order.getAttr())))
+          .append(order.getDirection() == Sort.Direction.DESC ? " DESC" : " ASC");
+    }
+    return orderBySql.toString();
   }
 
   static String getSqlUpdate(EntityType entityType) {
@@ -666,12 +947,36 @@ class PostgreSqlQueryGenerator {
    */
   static <E extends Entity> String getSqlCount(
       EntityType entityType, Query<E> q, List<Object> parameters) {
+    return getSqlCount(entityType, q, parameters, null);
+  }
+
+  /**
+   * Produces SQL to count the number of entities that match the given query. If a row-level
+   * security filter is given, only rows permitted by this filter are counted. Ignores query offset
+   * and pagesize.
+   *
+   * @param q query
+   * @param parameters prepared statement parameters
+   * @param rowLevelSecurityFilter optional row-level security filter
+   * @return SQL string
+   */
+  static <E extends Entity> String getSqlCount(
+      EntityType entityType,
+      Query<E> q,
+      List<Object> parameters,
+      @Nullable RowLevelSecurityFilter rowLevelSecurityFilter) {
     StringBuilder sqlBuilder = new StringBuilder("SELECT COUNT");
     String idAttribute = getColumnName(entityType.getIdAttribute());
 
     List<QueryRule> queryRules = q.getRules();
-    if (queryRules == null || queryRules.isEmpty()) {
+    if ((queryRules == null || queryRules.isEmpty()) && rowLevelSecurityFilter == null) {
       sqlBuilder.append("(*) FROM ").append(getTableName(entityType));
+    } else if (queryRules == null || queryRules.isEmpty()) {
+      sqlBuilder
+          .append("(*) FROM ")
+          .append(getTableName(entityType))
+          .append(" AS this WHERE ")
+          .append(getSqlRowLevelSecurityWhere(entityType, rowLevelSecurityFilter, parameters));
     } else {
       boolean distinctSelectRequired = isDistinctSelectRequired(entityType, q);
       if (distinctSelectRequired) {
@@ -683,11 +988,72 @@ class PostgreSqlQueryGenerator {
 
       String from = getSqlFrom(entityType, q);
       String where = getSqlWhere(entityType, q, parameters, new AtomicInteger());
+      if (rowLevelSecurityFilter != null) {
+        where =
+            '('
+                + where
+                + ") AND "
+                + getSqlRowLevelSecurityWhere(entityType, rowLevelSecurityFilter, parameters);
+      }
       sqlBuilder.append(from).append(" WHERE ").append(where);
     }
     return sqlBuilder.toString();
   }
 
+  /**
+   * Produces a SQL predicate that only permits rows for which an access control entry exists that
+   * grants one of the filter permissions to one of the filter security identities. Only granting
+   * entries are taken into account, MOLGENIS does not create denying entries.
+   *
+   * @param entityType entity meta data
+   * @param rowLevelSecurityFilter row-level security filter
+   * @param parameters prepared statement parameters
+   * @return SQL string
+   */
+  private static String getSqlRowLevelSecurityWhere(
+      EntityType entityType,
+      RowLevelSecurityFilter rowLevelSecurityFilter,
+      List<Object> parameters) {
+    StringBuilder sidSql = new StringBuilder();
+    String principal = rowLevelSecurityFilter.getPrincipal();
+    if (principal != null) {
+      sidSql.append("(acl_sid.principal AND acl_sid.sid = ?)");
+    }
+    List<String> authorities = rowLevelSecurityFilter.getAuthorities();
+    if (!authorities.isEmpty()) {
+      if (sidSql.length() > 0) {
+        sidSql.append(" OR ");
+      }
+      sidSql
+          .append("(NOT acl_sid.principal AND acl_sid.sid IN (")
+          .append(authorities.stream().map(authority -> "?").collect(joining(",")))
+          .append("))");
+    }
+    if (sidSql.length() == 0) {
+      // no security identities, so no permitted rows
+      return "FALSE";
+    }
+
+    parameters.add(rowLevelSecurityFilter.getObjectIdentityType());
+    parameters.add(rowLevelSecurityFilter.getPermissionMask());
+    if (principal != null) {
+      parameters.add(principal);
+    }
+    parameters.addAll(authorities);
+
+    return "EXISTS (SELECT 1 FROM acl_object_identity"
+        + " JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id"
+        + " JOIN acl_entry ON acl_entry.acl_object_identity = acl_object_identity.id"
+        + " JOIN acl_sid ON acl_entry.sid = acl_sid.id"
+        + " WHERE acl_class.class = ?"
+        + " AND acl_object_identity.object_id_identity = CAST(this."
+        + getColumnName(entityType.getIdAttribute())
+        + " AS VARCHAR)"
+        + " AND acl_entry.granting AND (acl_entry.mask & ?) <> 0 AND ("
+        + sidSql
+        + "))";
+  }
+
   private static String getSqlColumn(EntityType entityType, Attribute attr, ColumnMode columnMode) {
     StringBuilder sqlBuilder = new StringBuilder(getColumnName(attr)).append(' ');
 
@@ -1101,10 +1467,96 @@ class PostgreSqlQueryGenerator {
     result.append(" IN (").append(in).append(')');
   }
 
+  /**
+   * Returns the prepared statement parameters of the SQL produced by {@link
+   * #getSqlSelect(EntityType, Query, List, SqlSelectOptions)} without producing the SQL itself, so
+   * that previously produced SQL for queries of the same shape can be reused. Parameters are
+   * returned in the order in which they are added while producing the SQL. Parameters of {@link
+   * #getSqlCount(EntityType, Query, List)} are those of a select with default options.
+   *
+   * @param entityType entity meta data
+   * @param q query
+   * @param options select options
+   * @return prepared statement parameters
+   */
+  static <E extends Entity> List<Object> getSqlParameters(
+      EntityType entityType, Query<E> q, SqlSelectOptions options) {
+    if (options.getRowLevelSecurityFilter() != null) {
+      throw new UnsupportedOperationException(
+          "Parameters of row-level secured selects are not supported");
+    }
+    List<Object> parameters = new ArrayList<>();
+    getSqlWhereParameters(entityType, q.getRules(), parameters);
+    Entity lastEntity = options.getLastEntity();
+    if (lastEntity != null) {
+      for (Sort.Order order : getSort(entityType, q)) {
+        Attribute attr = entityType.getAttribute(order.getAttr());
+        parameters.add(PostgreSqlUtils.getPostgreSqlValue(lastEntity, attr));
+      }
+    }
+    return parameters;
+  }
+
+  private static void getSqlWhereParameters(
+      EntityType entityType, List<QueryRule> rules, List<Object> parameters) {
+    for (QueryRule r : rules) {
+      Attribute attr = r.getField() != null ? entityType.getAttribute(r.getField()) : null;
+      switch (r.getOperator()) {
+        case NESTED:
+          getSqlWhereParameters(entityType, r.getNestedRules(), parameters);
+          break;
+        case LIKE:
+          parameters.add("%" + PostgreSqlUtils.getPostgreSqlQueryValue(r.getValue(), attr) + '%');
+          break;
+        case IN:
+          for (Object inValue : (Iterable<?>) r.getValue()) {
+            parameters.add(PostgreSqlUtils.getPostgreSqlQueryValue(inValue, attr));
+          }
+          break;
+        case RANGE:
+          Iterator<?> rangeValues = ((Iterable<?>) r.getValue()).iterator();
+          parameters.add(rangeValues.next()); // from
+          parameters.add(rangeValues.next()); // to
+          break;
+        case EQUALS:
+          if (r.getValue() != null && attr.getDataType() != BOOL) {
+            parameters.add(PostgreSqlUtils.getPostgreSqlQueryValue(r.getValue(), attr));
+          }
+          break;
+        case GREATER:
+        case GREATER_EQUAL:
+        case LESS:
+        case LESS_EQUAL:
+          parameters.add(PostgreSqlUtils.getPostgreSqlQueryValue(r.getValue(), attr));
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
   /** Package-private for testability */
   static <E extends Entity> String getSqlSort(EntityType entityType, Query<E> q) {
     StringBuilder sortSql = new StringBuilder();
+    for (Sort.Order o : getSort(entityType, q)) {
+      Attribute attr = entityType.getAttribute(o.getAttr());
+      sortSql.append(", ").append(getColumnName(attr));
+      if (o.getDirection().equals(Sort.Direction.DESC)) {
+        sortSql.append(" DESC");
+      } else {
+        sortSql.append(" ASC");
+      }
+    }
+
+    if (sortSql.length() > 0) {
+      sortSql = new StringBuilder("ORDER BY ").append(sortSql.substring(2));
+    }
+
+    return sortSql.toString();
+  }
 
+  /** Returns the query sort extended with the id attribute if the sort order is not unique. */
+  private static <E extends Entity> Sort getSort(EntityType entityType, Query<E> q) {
     // https://www.postgresql.org/docs/9.6/static/queries-limit.html
     // When using LIMIT, it is important to use an ORDER BY clause that constrains the result rows
     // into a unique order.
@@ -1123,22 +1575,61 @@ class PostgreSqlQueryGenerator {
     } else {
       sort = q.getSort();
     }
+    return sort;
+  }
 
-    for (Sort.Order o : sort) {
-      Attribute attr = entityType.getAttribute(o.getAttr());
-      sortSql.append(", ").append(getColumnName(attr));
-      if (o.getDirection().equals(Sort.Direction.DESC)) {
-        sortSql.append(" DESC");
-      } else {
-        sortSql.append(" ASC");
+  /**
+   * Returns whether the entities that match the given query can be paged through by seeking past
+   * the last entity of the previous page instead of skipping rows with an offset. This requires the
+   * query to be sorted in one direction on selected, non-nullable attributes that are the id
+   * attribute or unique and therefore indexed.
+   *
+   * @param entityType entity meta data
+   * @param q query
+   * @return whether keyset pagination is supported
+   */
+  static <E extends Entity> boolean isKeysetPaginationSupported(EntityType entityType, Query<E> q) {
+    String idAttributeName = entityType.getIdAttribute().getName();
+    Sort.Direction direction = null;
+    for (Sort.Order order : getSort(entityType, q)) {
+      Attribute attr = entityType.getAttribute(order.getAttr());
+      if (attr == null
+          || isPersistedInOtherTable(attr)
+          || (!attr.getName().equals(idAttributeName) && (!attr.isUnique() || attr.isNillable()))
+          || (direction != null && direction != order.getDirection())) {
+        return false;
       }
+      direction = order.getDirection();
     }
+    // query sort attributes are always selected, an id attribute added to the sort might not be
+    return q.getFetch() == null
+        || q.getFetch().hasField(idAttributeName)
+        || q.getSort() != null && hasUniqueSortAttribute(entityType, q.getSort());
+  }
 
-    if (sortSql.length() > 0) {
-      sortSql = new StringBuilder("ORDER BY ").append(sortSql.substring(2));
+  private static <E extends Entity> String getSqlKeysetWhere(
+      EntityType entityType, Query<E> q, Entity lastEntity, List<Object> parameters) {
+    StringBuilder columns = new StringBuilder();
+    StringBuilder values = new StringBuilder();
+    Sort.Direction direction = Sort.Direction.ASC;
+    for (Sort.Order order : getSort(entityType, q)) {
+      Attribute attr = entityType.getAttribute(order.getAttr());
+      if (columns.length() > 0) {
+        columns.append(", ");
+        values.append(", ");
+      }
+      columns.append("this.").append(getColumnName(attr));
+      values.append('?');
+      parameters.add(PostgreSqlUtils.getPostgreSqlValue(lastEntity, attr));
+      direction = order.getDirection();
     }
-
-    return sortSql.toString();
+    return '('
+        + columns.toString()
+        + ") "
+        + (direction == Sort.Direction.DESC ? '<' : '>')
+        + " ("
+        + values.toString()
+        + ')';
   }
 
   private static boolean hasUniqueSortAttribute(EntityType entityType, Sort sort) {
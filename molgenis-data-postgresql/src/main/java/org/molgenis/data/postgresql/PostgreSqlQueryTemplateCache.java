@@ -0,0 +1,193 @@
+package org.molgenis.data.postgresql;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.meta.AttributeType.BOOL;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlLimitOffset;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlParameters;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSelectWithoutLimitOffset;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the SQL produced by {@link PostgreSqlQueryGenerator} for select and count queries, so
+ * that the SQL is not produced again for each batch of each query. Queries that only differ in
+ * query values, page size and offset have the same shape and share their SQL, which results in
+ * stable statement text that allows the database to reuse prepared statements.
+ *
+ * <p>SQL is cached per entity type of the current {@link org.molgenis.data.meta.MetadataSnapshot}.
+ * Entity types in a snapshot are never modified, which makes their SQL valid for as long as the
+ * entity type is used. Other entity types, e.g. of a transaction that changes metadata, are not
+ * cached.
+ */
+@Component
+class PostgreSqlQueryTemplateCache {
+  private static final int MAX_TEMPLATES_PER_ENTITY_TYPE = 100;
+
+  private final MetadataSnapshotRegistry metadataSnapshotRegistry;
+
+  /** weak keys compare entity types by identity */
+  private final Cache<EntityType, Cache<String, String>> templates =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  PostgreSqlQueryTemplateCache(MetadataSnapshotRegistry metadataSnapshotRegistry) {
+    this.metadataSnapshotRegistry = requireNonNull(metadataSnapshotRegistry);
+  }
+
+  /**
+   * Returns the SQL to select the entities that match the given query, see {@link
+   * PostgreSqlQueryGenerator#getSqlSelect(EntityType, Query, List, SqlSelectOptions)}.
+   */
+  String getSqlSelect(
+      EntityType entityType, Query<Entity> q, List<Object> parameters, SqlSelectOptions options) {
+    Cache<String, String> entityTypeTemplates = getTemplates(entityType);
+    String queryShape = entityTypeTemplates != null ? getSelectShape(entityType, q, options) : null;
+    if (queryShape == null) {
+      return PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, options);
+    }
+
+    String template = entityTypeTemplates.getIfPresent(queryShape);
+    if (template == null) {
+      template = getSqlSelectWithoutLimitOffset(entityType, q, parameters, options);
+      entityTypeTemplates.put(queryShape, template);
+    } else {
+      parameters.addAll(getSqlParameters(entityType, q, options));
+    }
+    return template + getSqlLimitOffset(q);
+  }
+
+  /**
+   * Returns the SQL to count the entities that match the given query, see {@link
+   * PostgreSqlQueryGenerator#getSqlCount(EntityType, Query, List)}.
+   */
+  String getSqlCount(EntityType entityType, Query<Entity> q, List<Object> parameters) {
+    Cache<String, String> entityTypeTemplates = getTemplates(entityType);
+    String queryShape = entityTypeTemplates != null ? getCountShape(entityType, q) : null;
+    if (queryShape == null) {
+      return PostgreSqlQueryGenerator.getSqlCount(entityType, q, parameters);
+    }
+
+    String template = entityTypeTemplates.getIfPresent(queryShape);
+    if (template == null) {
+      template = PostgreSqlQueryGenerator.getSqlCount(entityType, q, parameters);
+      entityTypeTemplates.put(queryShape, template);
+    } else {
+      parameters.addAll(getSqlParameters(entityType, q, SqlSelectOptions.create(false)));
+    }
+    return template;
+  }
+
+  /** Returns the templates of the given entity type or null if its SQL can not be cached */
+  @Nullable
+  private Cache<String, String> getTemplates(EntityType entityType) {
+    EntityType snapshotEntityType =
+        metadataSnapshotRegistry
+            .getSnapshot()
+            .map(snapshot -> snapshot.getEntityType(entityType.getId()))
+            .orElse(null);
+    if (snapshotEntityType != entityType) {
+      return null;
+    }
+
+    try {
+      return templates.get(
+          entityType,
+          () -> CacheBuilder.newBuilder().maximumSize(MAX_TEMPLATES_PER_ENTITY_TYPE).build());
+    } catch (ExecutionException e) {
+      throw new MolgenisDataException(e.getCause());
+    }
+  }
+
+  /**
+   * Returns the shape of a select with the given options or null if the SQL can not be cached, e.g.
+   * for row-level secured selects of which parameters are not reproduced.
+   */
+  @Nullable
+  private static String getSelectShape(
+      EntityType entityType, Query<Entity> q, SqlSelectOptions options) {
+    if (options.getRowLevelSecurityFilter() != null) {
+      return null;
+    }
+    StringBuilder shape = new StringBuilder("SELECT ");
+    if (!appendRulesShape(entityType, q.getRules(), shape)) {
+      return null;
+    }
+    return shape
+        .append(" FETCH ")
+        .append(q.getFetch())
+        .append(" SORT ")
+        .append(q.getSort())
+        .append(" MREFS ")
+        .append(options.isIncludeMrefs())
+        .append(" AFTER ")
+        .append(options.getLastEntity() != null)
+        .append(" JOIN FETCH ")
+        .append(new TreeSet<>(options.getJoinFetchAttributeNames()))
+        .toString();
+  }
+
+  @Nullable
+  private static String getCountShape(EntityType entityType, Query<Entity> q) {
+    StringBuilder shape = new StringBuilder("COUNT ");
+    return appendRulesShape(entityType, q.getRules(), shape) ? shape.toString() : null;
+  }
+
+  /**
+   * Appends the operators and fields of the given rules including the query values that change the
+   * produced SQL. Returns false if the shape of the rules can not be determined without consuming
+   * query values.
+   */
+  private static boolean appendRulesShape(
+      EntityType entityType, List<QueryRule> rules, StringBuilder shape) {
+    for (QueryRule rule : rules) {
+      shape.append(rule.getOperator());
+      if (rule.getField() != null) {
+        shape.append(':').append(rule.getField());
+      }
+
+      Object value = rule.getValue();
+      switch (rule.getOperator()) {
+        case NESTED:
+          shape.append('(');
+          if (!appendRulesShape(entityType, rule.getNestedRules(), shape)) {
+            return false;
+          }
+          shape.append(')');
+          break;
+        case IN:
+        case RANGE:
+          if (!(value instanceof Collection<?>)) {
+            return false;
+          }
+          shape.append('[').append(((Collection<?>) value).size()).append(']');
+          break;
+        case EQUALS:
+          Attribute attr =
+              rule.getField() != null ? entityType.getAttribute(rule.getField()) : null;
+          if (value == null) {
+            shape.append("=NULL");
+          } else if (attr != null && attr.getDataType() == BOOL) {
+            shape.append('=').append(PostgreSqlUtils.getPostgreSqlQueryValue(value, attr));
+          }
+          break;
+        default:
+          break;
+      }
+      shape.append(' ');
+    }
+    return true;
+  }
+}
@@ -3,10 +3,13 @@ package org.molgenis.data.postgresql;
 import static com.google.common.collect.Streams.stream;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
+import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 import static org.molgenis.util.ApplicationContextProvider.getApplicationContext;
 
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.molgenis.data.DataService;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 
@@ -81,4 +84,27 @@ class PostgreSqlQueryUtils {
     }
     return backend.equals(PostgreSqlRepositoryCollection.POSTGRESQL);
   }
+
+  /**
+   * Returns whether the attribute value of join fetched entities is selected, given the fetch of
+   * the join fetched entities. The id attribute value is always selected.
+   */
+  static boolean isJoinFetchSelected(EntityType entityType, Attribute attr, @Nullable Fetch fetch) {
+    return attr.getExpression() == null
+        && (fetch == null
+            || fetch.hasField(attr.getName())
+            || attr.getName().equals(entityType.getIdAttribute().getName()));
+  }
+
+  /**
+   * Returns whether the entities referenced by the attribute are join fetched, given the fetch of
+   * the referencing entities. Like entity reference resolution, this applies to all reference
+   * attributes in the fetch.
+   */
+  static boolean isNestedJoinFetch(Attribute attr, @Nullable Fetch fetch) {
+    return fetch != null
+        && isReferenceType(attr)
+        && attr.getExpression() == null
+        && fetch.hasField(attr.getName());
+  }
 }
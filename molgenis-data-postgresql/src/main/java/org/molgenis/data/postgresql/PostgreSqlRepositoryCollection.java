@@ -73,11 +73,13 @@ import org.molgenis.data.AttributeValueConversionException;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
+import org.molgenis.data.JoinFetchPolicy;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
 import org.molgenis.data.RepositoryCollectionCapability;
 import org.molgenis.data.UnknownAttributeException;
 import org.molgenis.data.UnknownRepositoryException;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.AbstractRepositoryCollection;
@@ -96,16 +98,25 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
   private final DataSource dataSource;
   private final JdbcTemplate jdbcTemplate;
   private final DataService dataService;
+  private final MetadataSnapshotRegistry metadataSnapshotRegistry;
+  private final JoinFetchPolicy joinFetchPolicy;
+  private final PostgreSqlQueryTemplateCache queryTemplateCache;
 
   PostgreSqlRepositoryCollection(
       PostgreSqlEntityFactory postgreSqlEntityFactory,
       DataSource dataSource,
       JdbcTemplate jdbcTemplate,
-      DataService dataService) {
+      DataService dataService,
+      MetadataSnapshotRegistry metadataSnapshotRegistry,
+      JoinFetchPolicy joinFetchPolicy,
+      PostgreSqlQueryTemplateCache queryTemplateCache) {
     this.postgreSqlEntityFactory = requireNonNull(postgreSqlEntityFactory);
     this.dataSource = requireNonNull(dataSource);
     this.jdbcTemplate = requireNonNull(jdbcTemplate);
     this.dataService = requireNonNull(dataService);
+    this.metadataSnapshotRegistry = requireNonNull(metadataSnapshotRegistry);
+    this.joinFetchPolicy = requireNonNull(joinFetchPolicy);
+    this.queryTemplateCache = requireNonNull(queryTemplateCache);
   }
 
   @Override
@@ -150,6 +161,17 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
 
   @Override
   public Repository<Entity> getRepository(String id) {
+    EntityType snapshotEntityType =
+        metadataSnapshotRegistry
+            .getSnapshot()
+            .map(snapshot -> snapshot.getEntityType(id))
+            .orElse(null);
+    if (snapshotEntityType != null
+        && POSTGRESQL.equals(snapshotEntityType.getBackend())
+        && !snapshotEntityType.isAbstract()) {
+      return getRepository(snapshotEntityType);
+    }
+
     EntityType entityType =
         dataService
             .query(ENTITY_TYPE_META_DATA, EntityType.class)
@@ -699,7 +721,13 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
 
   /** Return a new PostgreSQL repository */
   private PostgreSqlRepository createPostgreSqlRepository(EntityType entityType) {
-    return new PostgreSqlRepository(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType);
+    return new PostgreSqlRepository(
+        postgreSqlEntityFactory,
+        jdbcTemplate,
+        dataSource,
+        joinFetchPolicy,
+        queryTemplateCache,
+        entityType);
   }
 
   private boolean isTableExists(EntityType entityType) {
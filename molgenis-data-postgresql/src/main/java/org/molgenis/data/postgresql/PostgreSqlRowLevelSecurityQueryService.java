@@ -0,0 +1,154 @@
+package org.molgenis.data.postgresql;
+
+import static com.google.common.collect.Streams.stream;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.QueryUtils.containsAnyOperator;
+import static org.molgenis.data.QueryUtils.containsComputedAttribute;
+import static org.molgenis.data.QueryUtils.containsNestedQueryRuleField;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCount;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSelect;
+import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isPersistedInPostgreSql;
+import static org.molgenis.data.postgresql.PostgreSqlRepository.BATCH_SIZE;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule.Operator;
+import org.molgenis.data.RowLevelSecurityFilter;
+import org.molgenis.data.RowLevelSecurityQueryService;
+import org.molgenis.data.Sort;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.BatchingQueryResult;
+import org.molgenis.data.support.QueryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Evaluates queries on row-level secured entity types in PostgreSQL by joining the entity table
+ * with the ACL tables.
+ */
+class PostgreSqlRowLevelSecurityQueryService implements RowLevelSecurityQueryService {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(PostgreSqlRowLevelSecurityQueryService.class);
+
+  private final PostgreSqlEntityFactory postgreSqlEntityFactory;
+  private final JdbcTemplate jdbcTemplate;
+
+  PostgreSqlRowLevelSecurityQueryService(
+      PostgreSqlEntityFactory postgreSqlEntityFactory, JdbcTemplate jdbcTemplate) {
+    this.postgreSqlEntityFactory = requireNonNull(postgreSqlEntityFactory);
+    this.jdbcTemplate = requireNonNull(jdbcTemplate);
+  }
+
+  /**
+   * Returns whether the query can be evaluated in PostgreSQL. Queries with operators that are not
+   * supported by {@link PostgreSqlRepository}, queries that use attributes with computed values,
+   * queries with nested query rule fields and queries sorted on nested or unknown attributes are
+   * not supported.
+   */
+  @Override
+  public boolean isSupported(EntityType entityType, Query<Entity> query) {
+    Set<Operator> unsupportedOperators = EnumSet.allOf(Operator.class);
+    unsupportedOperators.removeAll(PostgreSqlRepository.QUERY_OPERATORS);
+    return isPersistedInPostgreSql(entityType)
+        && !containsAnyOperator(query, unsupportedOperators)
+        && !containsUnsupportedSortAttribute(entityType, query)
+        && !containsComputedAttribute(query, entityType)
+        && !containsNestedQueryRuleField(query);
+  }
+
+  /**
+   * Returns whether the query is sorted on attributes that are not attributes of the entity type,
+   * e.g. attributes of referenced entities ('a.b').
+   */
+  private static boolean containsUnsupportedSortAttribute(
+      EntityType entityType, Query<Entity> query) {
+    Sort sort = query.getSort();
+    return sort != null
+        && stream(sort).anyMatch(order -> entityType.getAttribute(order.getAttr()) == null);
+  }
+
+  /**
+   * Returns the ids of the permitted rows in batches, so that the ids of large tables are not read
+   * into memory at once. Batches after the first batch seek past the last row of the previous batch
+   * if the query sort order allows this.
+   */
+  @Override
+  public Stream<Object> findAllIds(
+      EntityType entityType, Query<Entity> query, RowLevelSecurityFilter filter) {
+    Fetch fetch = new Fetch().field(entityType.getIdAttribute().getName());
+    if (query.getSort() != null) {
+      // queries sorted on other attributes are not supported, see isSupported
+      query
+          .getSort()
+          .forEach(
+              order -> {
+                Attribute sortAttribute = entityType.getAttribute(order.getAttr());
+                if (sortAttribute != null) {
+                  fetch.field(sortAttribute.getName());
+                }
+              });
+    }
+    Query<Entity> idQuery = new QueryImpl<>(query);
+    idQuery.fetch(fetch);
+
+    LOG.debug("Fetching [{}] permitted ids for query [{}]", entityType.getId(), query);
+    RowMapper<Entity> entityMapper = postgreSqlEntityFactory.createRowMapper(entityType, fetch);
+    BatchingQueryResult<Entity> idBatches =
+        new BatchingQueryResult<Entity>(BATCH_SIZE, idQuery) {
+          @Override
+          protected List<Entity> getBatch(Query<Entity> batchQuery) {
+            return findIdBatch(entityType, batchQuery, filter, null, entityMapper);
+          }
+
+          @Override
+          protected boolean isKeysetPaginationSupported(Query<Entity> batchQuery) {
+            return PostgreSqlQueryGenerator.isKeysetPaginationSupported(entityType, batchQuery);
+          }
+
+          @Override
+          protected List<Entity> getBatchAfter(Query<Entity> batchQuery, Entity lastEntity) {
+            return findIdBatch(entityType, batchQuery, filter, lastEntity, entityMapper);
+          }
+        };
+    return stream(idBatches).map(Entity::getIdValue);
+  }
+
+  private List<Entity> findIdBatch(
+      EntityType entityType,
+      Query<Entity> batchQuery,
+      RowLevelSecurityFilter filter,
+      @Nullable Entity lastEntity,
+      RowMapper<Entity> entityMapper) {
+    List<Object> parameters = new ArrayList<>();
+    String sql =
+        getSqlSelect(
+            entityType,
+            batchQuery,
+            parameters,
+            SqlSelectOptions.builder()
+                .setRowLevelSecurityFilter(filter)
+                .setLastEntity(lastEntity)
+                .build());
+    LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+    return jdbcTemplate.query(sql, parameters.toArray(), entityMapper);
+  }
+
+  @Override
+  public long count(EntityType entityType, Query<Entity> query, RowLevelSecurityFilter filter) {
+    List<Object> parameters = new ArrayList<>();
+    String sql = getSqlCount(entityType, query, parameters, filter);
+    LOG.debug("Counting [{}] permitted rows for query [{}]", entityType.getId(), query);
+    LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+    return jdbcTemplate.queryForObject(sql, parameters.toArray(), Long.class);
+  }
+}
@@ -8,6 +8,7 @@ import static java.util.stream.Collectors.toList;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.file.model.FileMeta;
@@ -189,6 +190,42 @@ class PostgreSqlUtils {
     }
   }
 
+  /**
+   * Appends a PostgreSQL value in COPY text format: null is written as {@code \N} and backslashes
+   * and column and row delimiters are escaped.
+   *
+   * @param value PostgreSQL value as returned by {@link #getPostgreSqlValue(Entity, Attribute)}
+   * @param stringBuilder builder to append the value to
+   */
+  static void appendCopyTextValue(@Nullable Object value, StringBuilder stringBuilder) {
+    if (value == null) {
+      stringBuilder.append("\\N");
+    } else if (value instanceof Boolean) {
+      stringBuilder.append((Boolean) value ? 't' : 'f');
+    } else {
+      String str = value.toString();
+      for (int i = 0; i < str.length(); i++) {
+        char c = str.charAt(i);
+        switch (c) {
+          case '\\':
+            stringBuilder.append("\\\\");
+            break;
+          case '\n':
+            stringBuilder.append("\\n");
+            break;
+          case '\r':
+            stringBuilder.append("\\r");
+            break;
+          case '\t':
+            stringBuilder.append("\\t");
+            break;
+          default:
+            stringBuilder.append(c);
+        }
+      }
+    }
+  }
+
   private static Object throwExceptionUnexpectedQueryValueType(
       String attrName, Object actualType, String expectedType) {
     throw new MolgenisDataException(
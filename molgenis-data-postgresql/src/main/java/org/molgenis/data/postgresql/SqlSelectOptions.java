@@ -0,0 +1,65 @@
+package org.molgenis.data.postgresql;
+
+import static java.util.Collections.emptySet;
+
+import com.google.auto.value.AutoValue;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.RowLevelSecurityFilter;
+
+/**
+ * Options of the SQL produced by {@link PostgreSqlQueryGenerator#getSqlSelect(
+ * org.molgenis.data.meta.model.EntityType, org.molgenis.data.Query, java.util.List,
+ * SqlSelectOptions)} in addition to the query.
+ */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+abstract class SqlSelectOptions {
+  /** Whether to select MREF values */
+  abstract boolean isIncludeMrefs();
+
+  /** Row-level security filter, only rows permitted by this filter are selected */
+  @Nullable
+  abstract RowLevelSecurityFilter getRowLevelSecurityFilter();
+
+  /**
+   * Entity after which entities in the query sort order are selected, requires {@link
+   * PostgreSqlQueryGenerator#isKeysetPaginationSupported(org.molgenis.data.meta.model.EntityType,
+   * org.molgenis.data.Query)}
+   */
+  @Nullable
+  abstract Entity getLastEntity();
+
+  /**
+   * Names of the attributes of which referenced entities, including those of the nested query
+   * fetch, are selected as JSON (join fetch). Join fetched attributes must be in the query fetch
+   * and may not be used in the query sort or in a query that requires a distinct select.
+   */
+  abstract Set<String> getJoinFetchAttributeNames();
+
+  static SqlSelectOptions create(boolean includeMrefs) {
+    return builder().setIncludeMrefs(includeMrefs).build();
+  }
+
+  static Builder builder() {
+    return new AutoValue_SqlSelectOptions.Builder()
+        .setIncludeMrefs(false)
+        .setJoinFetchAttributeNames(emptySet());
+  }
+
+  @AutoValue.Builder
+  abstract static class Builder {
+    abstract Builder setIncludeMrefs(boolean includeMrefs);
+
+    abstract Builder setRowLevelSecurityFilter(
+        @Nullable RowLevelSecurityFilter rowLevelSecurityFilter);
+
+    abstract Builder setLastEntity(@Nullable Entity lastEntity);
+
+    abstract Builder setJoinFetchAttributeNames(Set<String> joinFetchAttributeNames);
+
+    abstract SqlSelectOptions build();
+  }
+}
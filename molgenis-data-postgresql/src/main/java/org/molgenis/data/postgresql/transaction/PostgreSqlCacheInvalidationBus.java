@@ -0,0 +1,259 @@
+package org.molgenis.data.postgresql.transaction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptySet;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionListener;
+import org.molgenis.data.transaction.TransactionManager;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache invalidation bus that uses PostgreSQL LISTEN/NOTIFY to inform the caches of all MOLGENIS
+ * instances sharing a database about the changes committed by any of them.
+ *
+ * <p>The changes of a transaction are published with NOTIFY as part of the transaction, so that
+ * they are only delivered if and once the transaction commits. Each instance listens on a dedicated
+ * connection and passes the {@link CacheInvalidation}s published by other instances to the {@link
+ * CacheInvalidationListener}s.
+ */
+@Component
+public class PostgreSqlCacheInvalidationBus implements TransactionListener {
+  private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlCacheInvalidationBus.class);
+
+  static final String CHANNEL = "molgenis_cache_invalidation";
+  /** NOTIFY payloads must be shorter than 8000 bytes */
+  static final int MAX_PAYLOAD_SIZE = 7999;
+
+  private static final int POLL_TIMEOUT_MILLIS = 10000;
+  private static final int RECONNECT_DELAY_MILLIS = 5000;
+
+  private static final String INSTANCE = "instance";
+  private static final String ALL = "all";
+  private static final String ENTIRELY_DIRTY_REPOSITORIES = "entirelyDirtyRepositories";
+  private static final String DIRTY_REPOSITORIES = "dirtyRepositories";
+  private static final String DIRTY_ENTITIES = "dirtyEntities";
+
+  private final TransactionInformation transactionInformation;
+  private final JdbcTemplate jdbcTemplate;
+  private final DataSource dataSource;
+  private final List<CacheInvalidationListener> cacheInvalidationListeners;
+  private final String instanceId = UUID.randomUUID().toString();
+  private final ExecutorService executorService =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("molgenis-cache-invalidation-%d")
+              .setDaemon(true)
+              .build());
+
+  public PostgreSqlCacheInvalidationBus(
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation,
+      JdbcTemplate jdbcTemplate,
+      DataSource dataSource,
+      List<CacheInvalidationListener> cacheInvalidationListeners) {
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.jdbcTemplate = requireNonNull(jdbcTemplate);
+    this.dataSource = requireNonNull(dataSource);
+    this.cacheInvalidationListeners = requireNonNull(cacheInvalidationListeners);
+    requireNonNull(transactionManager).addTransactionListener(this);
+  }
+
+  @PostConstruct
+  public void startListening() {
+    executorService.execute(this::listen);
+  }
+
+  @PreDestroy
+  public void stopListening() {
+    executorService.shutdownNow();
+  }
+
+  @Override
+  public void commitTransaction(String transactionId) {
+    CacheInvalidation cacheInvalidation = CacheInvalidation.create(transactionInformation);
+    if (!cacheInvalidation.isEmpty()) {
+      String payload = toPayload(cacheInvalidation, instanceId);
+      LOG.trace("Publishing cache invalidation for transaction [{}]: {}", transactionId, payload);
+      jdbcTemplate.query("SELECT pg_notify(?, ?)", new Object[] {CHANNEL, payload}, rs -> {});
+    }
+  }
+
+  private void listen() {
+    boolean reconnect = false;
+    while (!Thread.currentThread().isInterrupted()) {
+      try (Connection connection = dataSource.getConnection()) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        if (reconnect) {
+          // invalidations published while this instance was not listening were missed
+          invalidate(CacheInvalidation.createAll());
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (!Thread.currentThread().isInterrupted()) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              handleNotification(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        LOG.warn("Error listening for cache invalidations, reconnecting", e);
+        reconnect = true;
+        sleepBeforeReconnect();
+      }
+    }
+  }
+
+  private static void sleepBeforeReconnect() {
+    try {
+      Thread.sleep(RECONNECT_DELAY_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  void handleNotification(String payload) {
+    JsonObject jsonObject = new JsonParser().parse(payload).getAsJsonObject();
+    if (!instanceId.equals(jsonObject.get(INSTANCE).getAsString())) {
+      LOG.trace("Received cache invalidation: {}", payload);
+      invalidate(fromPayload(jsonObject));
+    }
+  }
+
+  private void invalidate(CacheInvalidation cacheInvalidation) {
+    cacheInvalidationListeners.forEach(listener -> listener.invalidate(cacheInvalidation));
+  }
+
+  /**
+   * Serializes a cache invalidation to a NOTIFY payload. If the payload does not fit, individual
+   * entities are replaced by their entity type or, if that does not fit either, all caches are
+   * invalidated.
+   */
+  static String toPayload(CacheInvalidation cacheInvalidation, String instanceId) {
+    String payload = toJson(cacheInvalidation, instanceId).toString();
+    if (payload.getBytes(UTF_8).length > MAX_PAYLOAD_SIZE) {
+      Set<String> entirelyDirtyRepositories =
+          new HashSet<>(cacheInvalidation.getEntirelyDirtyRepositories());
+      cacheInvalidation
+          .getDirtyEntities()
+          .forEach(entityKey -> entirelyDirtyRepositories.add(entityKey.getEntityTypeId()));
+      CacheInvalidation repositoryCacheInvalidation =
+          CacheInvalidation.create(
+              entirelyDirtyRepositories, cacheInvalidation.getDirtyRepositories(), emptySet());
+      payload = toJson(repositoryCacheInvalidation, instanceId).toString();
+      if (payload.getBytes(UTF_8).length > MAX_PAYLOAD_SIZE) {
+        payload = toJson(CacheInvalidation.createAll(), instanceId).toString();
+      }
+    }
+    return payload;
+  }
+
+  private static JsonObject toJson(CacheInvalidation cacheInvalidation, String instanceId) {
+    JsonObject jsonObject = new JsonObject();
+    jsonObject.addProperty(INSTANCE, instanceId);
+    jsonObject.addProperty(ALL, cacheInvalidation.isAll());
+    jsonObject.add(
+        ENTIRELY_DIRTY_REPOSITORIES, toJsonArray(cacheInvalidation.getEntirelyDirtyRepositories()));
+    jsonObject.add(DIRTY_REPOSITORIES, toJsonArray(cacheInvalidation.getDirtyRepositories()));
+    JsonArray dirtyEntities = new JsonArray();
+    cacheInvalidation.getDirtyEntities().forEach(entityKey -> dirtyEntities.add(toJson(entityKey)));
+    jsonObject.add(DIRTY_ENTITIES, dirtyEntities);
+    return jsonObject;
+  }
+
+  private static JsonArray toJsonArray(Set<String> values) {
+    JsonArray jsonArray = new JsonArray();
+    values.forEach(jsonArray::add);
+    return jsonArray;
+  }
+
+  /** Entity ids are serialized with their type, cached entities are looked up by typed id. */
+  private static JsonArray toJson(EntityKey entityKey) {
+    Object id = entityKey.getId();
+    String idType;
+    if (id instanceof String) {
+      idType = "s";
+    } else if (id instanceof Integer) {
+      idType = "i";
+    } else if (id instanceof Long) {
+      idType = "l";
+    } else {
+      throw new IllegalArgumentException(
+          String.format("Unexpected id type '%s'", id.getClass().getSimpleName()));
+    }
+    JsonArray jsonArray = new JsonArray();
+    jsonArray.add(entityKey.getEntityTypeId());
+    jsonArray.add(idType);
+    jsonArray.add(id.toString());
+    return jsonArray;
+  }
+
+  static CacheInvalidation fromPayload(JsonObject jsonObject) {
+    if (jsonObject.get(ALL).getAsBoolean()) {
+      return CacheInvalidation.createAll();
+    }
+    Set<EntityKey> dirtyEntities = new HashSet<>();
+    jsonObject
+        .getAsJsonArray(DIRTY_ENTITIES)
+        .forEach(jsonElement -> dirtyEntities.add(toEntityKey(jsonElement.getAsJsonArray())));
+    return CacheInvalidation.create(
+        toStringSet(jsonObject.getAsJsonArray(ENTIRELY_DIRTY_REPOSITORIES)),
+        toStringSet(jsonObject.getAsJsonArray(DIRTY_REPOSITORIES)),
+        dirtyEntities);
+  }
+
+  private static Set<String> toStringSet(JsonArray jsonArray) {
+    Set<String> values = new HashSet<>();
+    jsonArray.forEach(jsonElement -> values.add(jsonElement.getAsString()));
+    return values;
+  }
+
+  private static EntityKey toEntityKey(JsonArray jsonArray) {
+    String entityTypeId = jsonArray.get(0).getAsString();
+    String idType = jsonArray.get(1).getAsString();
+    String idString = jsonArray.get(2).getAsString();
+    Object id;
+    switch (idType) {
+      case "s":
+        id = idString;
+        break;
+      case "i":
+        id = Integer.valueOf(idString);
+        break;
+      case "l":
+        id = Long.valueOf(idString);
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Unexpected id type '%s'", idType));
+    }
+    return EntityKey.create(entityTypeId, id);
+  }
+}
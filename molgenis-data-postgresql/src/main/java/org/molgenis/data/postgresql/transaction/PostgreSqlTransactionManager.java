@@ -17,6 +17,7 @@ import org.molgenis.data.transaction.TransactionListener;
 import org.molgenis.data.transaction.TransactionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionException;
@@ -27,7 +28,9 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
  * TransactionManager used by Molgenis.
  *
  * <p>TransactionListeners can be registered and will be notified on transaction begin, commit and
- * rollback of transactions that are not readonly.
+ * rollback of transactions that are not readonly. Listeners are notified in {@link
+ * org.springframework.core.annotation.Order order}, listeners with equal order in the order in
+ * which they were registered.
  *
  * <p>Each transaction is given a unique transaction id.
  */
@@ -55,6 +58,7 @@ public class PostgreSqlTransactionManager extends DataSourceTransactionManager
   @Override
   public synchronized void addTransactionListener(TransactionListener transactionListener) {
     transactionListeners.add(transactionListener);
+    AnnotationAwareOrderComparator.sort(transactionListeners);
   }
 
   @Override
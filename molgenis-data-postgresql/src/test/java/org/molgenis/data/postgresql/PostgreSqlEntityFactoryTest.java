@@ -14,6 +14,7 @@ import java.sql.Array;
 import java.sql.ResultSet;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
@@ -124,4 +125,85 @@ public class PostgreSqlEntityFactoryTest {
         postgreSqlEntityFactory.createRowMapper(entityType, null).mapRow(rs, rowNum), entity);
     verify(entity).set(xrefAttr, refEntity);
   }
+
+  @Test
+  public void createRowMapperJoinFetchXref() throws Exception {
+    Attribute refIdAttr = mock(Attribute.class);
+    when(refIdAttr.getName()).thenReturn("refIdAttr");
+    when(refIdAttr.getDataType()).thenReturn(STRING);
+    Attribute refLabelAttr = mock(Attribute.class);
+    when(refLabelAttr.getName()).thenReturn("refLabelAttr");
+    when(refLabelAttr.getDataType()).thenReturn(STRING);
+
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+    when(refEntityType.getAtomicAttributes()).thenReturn(newArrayList(refIdAttr, refLabelAttr));
+
+    String xrefAttrName = "xrefAttr";
+    Attribute xrefAttr = mock(Attribute.class);
+    when(xrefAttr.getName()).thenReturn(xrefAttrName);
+    when(xrefAttr.getDataType()).thenReturn(XREF);
+    when(xrefAttr.getRefEntity()).thenReturn(refEntityType);
+
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(singleton(xrefAttr));
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(xrefAttrName))
+        .thenReturn("{\"refIdAttr\":\"id0\",\"refLabelAttr\":\"label0\"}");
+    int rowNum = 0;
+
+    Fetch refFetch = new Fetch().field("refLabelAttr");
+    Fetch fetch = new Fetch().field(xrefAttrName, refFetch);
+    Entity entity = mock(Entity.class);
+    when(entityManager.createFetch(entityType, fetch)).thenReturn(entity);
+    Entity refEntity = mock(Entity.class);
+    when(entityManager.createFetch(refEntityType, refFetch)).thenReturn(refEntity);
+    assertEquals(
+        postgreSqlEntityFactory
+            .createRowMapper(entityType, fetch, singleton(xrefAttrName))
+            .mapRow(rs, rowNum),
+        entity);
+    verify(entity).set(xrefAttrName, refEntity);
+    verify(refEntity).set("refIdAttr", "id0");
+    verify(refEntity).set("refLabelAttr", "label0");
+  }
+
+  @Test
+  public void createRowMapperJoinFetchOneToMany() throws Exception {
+    Attribute refIdAttr = mock(Attribute.class);
+    when(refIdAttr.getName()).thenReturn("refIdAttr");
+    when(refIdAttr.getDataType()).thenReturn(AttributeType.INT);
+
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+    when(refEntityType.getAtomicAttributes()).thenReturn(singleton(refIdAttr));
+
+    String oneToManyAttrName = "oneToManyAttr";
+    Attribute oneToManyAttr = mock(Attribute.class);
+    when(oneToManyAttr.getName()).thenReturn(oneToManyAttrName);
+    when(oneToManyAttr.getDataType()).thenReturn(ONE_TO_MANY);
+    when(oneToManyAttr.getRefEntity()).thenReturn(refEntityType);
+
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(singleton(oneToManyAttr));
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(oneToManyAttrName)).thenReturn("[{\"refIdAttr\":0},{\"refIdAttr\":1}]");
+    int rowNum = 0;
+
+    Fetch refFetch = new Fetch().field("refIdAttr");
+    Fetch fetch = new Fetch().field(oneToManyAttrName, refFetch);
+    Entity entity = mock(Entity.class);
+    when(entityManager.createFetch(entityType, fetch)).thenReturn(entity);
+    Entity refEntity0 = mock(Entity.class);
+    Entity refEntity1 = mock(Entity.class);
+    when(entityManager.createFetch(refEntityType, refFetch)).thenReturn(refEntity0, refEntity1);
+    assertEquals(
+        postgreSqlEntityFactory
+            .createRowMapper(entityType, fetch, singleton(oneToManyAttrName))
+            .mapRow(rs, rowNum),
+        entity);
+    verify(entity).set(oneToManyAttrName, newArrayList(refEntity0, refEntity1));
+    verify(refEntity0).set("refIdAttr", 0);
+    verify(refEntity1).set("refIdAttr", 1);
+  }
 }
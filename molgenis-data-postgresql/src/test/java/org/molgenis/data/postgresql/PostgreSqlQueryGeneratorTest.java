@@ -3,12 +3,15 @@ package org.molgenis.data.postgresql;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.QueryRule.Operator.AND;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
 import static org.molgenis.data.QueryRule.Operator.NESTED;
 import static org.molgenis.data.QueryRule.Operator.OR;
+import static org.molgenis.data.Sort.Direction.DESC;
 import static org.molgenis.data.meta.AttributeType.BOOL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL_MREF;
@@ -43,6 +46,7 @@ import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
+import org.molgenis.data.RowLevelSecurityFilter;
 import org.molgenis.data.Sort;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
@@ -465,11 +469,189 @@ public class PostgreSqlQueryGeneratorTest {
     Query<Entity> q = mock(Query.class);
     List<Object> parameters = Lists.newArrayList();
     assertEquals(
-        PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, true),
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType, q, parameters, SqlSelectOptions.create(true)),
         "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this ORDER BY \"idAttr\" ASC");
     assertEquals(parameters, emptyList());
   }
 
+  @Test
+  public void getSqlSelectJoinFetch() {
+    Attribute refIdAttr = when(mock(Attribute.class).getName()).thenReturn("refIdAttr").getMock();
+    when(refIdAttr.getIdentifier()).thenReturn("refIdAttrId");
+    when(refIdAttr.getDataType()).thenReturn(STRING);
+    Attribute refLabelAttr =
+        when(mock(Attribute.class).getName()).thenReturn("refLabelAttr").getMock();
+    when(refLabelAttr.getIdentifier()).thenReturn("refLabelAttrId");
+    when(refLabelAttr.getDataType()).thenReturn(STRING);
+    Attribute refOtherAttr =
+        when(mock(Attribute.class).getName()).thenReturn("refOtherAttr").getMock();
+
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getId()).thenReturn("refEntityTypeId");
+    when(refEntityType.getAtomicAttributes())
+        .thenReturn(newArrayList(refIdAttr, refLabelAttr, refOtherAttr));
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(XREF);
+    when(attr.getRefEntity()).thenReturn(refEntityType);
+
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+
+    Fetch fetch = new Fetch().field("idAttr").field("attr", new Fetch().field("refLabelAttr"));
+    Query<Entity> q = new QueryImpl<>().fetch(fetch);
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType,
+            q,
+            parameters,
+            SqlSelectOptions.builder()
+                .setIncludeMrefs(true)
+                .setJoinFetchAttributeNames(singleton("attr"))
+                .build()),
+        "SELECT this.\"idAttr\", (SELECT (SELECT to_json(json1) FROM (SELECT ref1.\"refIdAttr\", ref1.\"refLabelAttr\") AS json1) FROM \"refEntityTypeId#49d91106\" AS ref1 WHERE ref1.\"refIdAttr\" = this.\"attr\") AS \"attr\" FROM \"entityTypeId#c34894ba\" AS this ORDER BY \"idAttr\" ASC");
+    assertEquals(parameters, emptyList());
+  }
+
+  @Test
+  public void getSqlParameters() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+    Attribute strAttr = when(mock(Attribute.class).getName()).thenReturn("strAttr").getMock();
+    when(strAttr.getIdentifier()).thenReturn("strAttrId");
+    when(strAttr.getDataType()).thenReturn(STRING);
+    Attribute intAttr = when(mock(Attribute.class).getName()).thenReturn("intAttr").getMock();
+    when(intAttr.getIdentifier()).thenReturn("intAttrId");
+    when(intAttr.getDataType()).thenReturn(INT);
+    Attribute boolAttr = when(mock(Attribute.class).getName()).thenReturn("boolAttr").getMock();
+    when(boolAttr.getIdentifier()).thenReturn("boolAttrId");
+    when(boolAttr.getDataType()).thenReturn(BOOL);
+
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes())
+        .thenReturn(newArrayList(idAttr, strAttr, intAttr, boolAttr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("strAttr")).thenReturn(strAttr);
+    when(entityType.getAttribute("intAttr")).thenReturn(intAttr);
+    when(entityType.getAttribute("boolAttr")).thenReturn(boolAttr);
+
+    Query<Entity> q =
+        new QueryImpl<>()
+            .nest()
+            .eq("strAttr", "str0")
+            .or()
+            .eq("strAttr", null)
+            .unnest()
+            .and()
+            .like("strAttr", "str1")
+            .and()
+            .in("strAttr", asList("str2", "str3"))
+            .and()
+            .rng("intAttr", 1, 5)
+            .and()
+            .eq("boolAttr", true)
+            .and()
+            .gt("intAttr", 3);
+    Entity lastEntity = when(mock(Entity.class).getString("idAttr")).thenReturn("id0").getMock();
+
+    List<Object> parameters = Lists.newArrayList();
+    PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, lastEntityOptions(lastEntity));
+    assertEquals(parameters, asList("str0", "%str1%", "str2", "str3", 1, 5, 3, "id0"));
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlParameters(entityType, q, lastEntityOptions(lastEntity)),
+        parameters);
+  }
+
+  @Test
+  public void getSqlSelectRowLevelSecurityFilter() {
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(STRING);
+
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+
+    RowLevelSecurityFilter filter =
+        RowLevelSecurityFilter.create(
+            "entity-entityTypeId", "user", asList("ROLE_USER", "ROLE_GROUP"), 12);
+    Query<Entity> q = new QueryImpl<>().eq("attr", "str").pageSize(10).offset(20);
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType,
+            q,
+            parameters,
+            SqlSelectOptions.builder()
+                .setIncludeMrefs(true)
+                .setRowLevelSecurityFilter(filter)
+                .build()),
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE (this.\"attr\" = ?) AND EXISTS (SELECT 1 FROM acl_object_identity JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id JOIN acl_entry ON acl_entry.acl_object_identity = acl_object_identity.id JOIN acl_sid ON acl_entry.sid = acl_sid.id WHERE acl_class.class = ? AND acl_object_identity.object_id_identity = CAST(this.\"idAttr\" AS VARCHAR) AND acl_entry.granting AND (acl_entry.mask & ?) <> 0 AND ((acl_sid.principal AND acl_sid.sid = ?) OR (NOT acl_sid.principal AND acl_sid.sid IN (?,?)))) ORDER BY \"idAttr\" ASC LIMIT 10 OFFSET 20");
+    assertEquals(
+        parameters, asList("str", "entity-entityTypeId", 12, "user", "ROLE_USER", "ROLE_GROUP"));
+  }
+
+  @Test
+  public void getSqlCountRowLevelSecurityFilter() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+
+    RowLevelSecurityFilter filter =
+        RowLevelSecurityFilter.create(
+            "entity-entityTypeId", null, singletonList("ROLE_ANONYMOUS"), 4);
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCount(entityType, new QueryImpl<>(), parameters, filter),
+        "SELECT COUNT(*) FROM \"entityTypeId#c34894ba\" AS this WHERE EXISTS (SELECT 1 FROM acl_object_identity JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id JOIN acl_entry ON acl_entry.acl_object_identity = acl_object_identity.id JOIN acl_sid ON acl_entry.sid = acl_sid.id WHERE acl_class.class = ? AND acl_object_identity.object_id_identity = CAST(this.\"idAttr\" AS VARCHAR) AND acl_entry.granting AND (acl_entry.mask & ?) <> 0 AND ((NOT acl_sid.principal AND acl_sid.sid IN (?))))");
+    assertEquals(parameters, asList("entity-entityTypeId", 4, "ROLE_ANONYMOUS"));
+  }
+
+  @Test
+  public void getSqlCountRowLevelSecurityFilterNoSids() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+
+    RowLevelSecurityFilter filter =
+        RowLevelSecurityFilter.create("entity-entityTypeId", null, emptyList(), 4);
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCount(entityType, new QueryImpl<>(), parameters, filter),
+        "SELECT COUNT(*) FROM \"entityTypeId#c34894ba\" AS this WHERE FALSE");
+    assertEquals(parameters, emptyList());
+  }
+
   @Test
   public void getSqlSelectXrefInversed() {
     Attribute refAttr = when(mock(Attribute.class).getName()).thenReturn("refAttr").getMock();
@@ -498,7 +680,8 @@ public class PostgreSqlQueryGeneratorTest {
     Query<Entity> q = mock(Query.class);
     List<Object> parameters = Lists.newArrayList();
     assertEquals(
-        PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, true),
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType, q, parameters, SqlSelectOptions.create(true)),
         "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this ORDER BY \"idAttr\" ASC");
     assertEquals(parameters, emptyList());
   }
@@ -535,6 +718,7 @@ public class PostgreSqlQueryGeneratorTest {
     Attribute refIdAttr = when(mock(Attribute.class).getName()).thenReturn("refIdAttr").getMock();
     when(refIdAttr.getIdentifier()).thenReturn("refIdAttrId");
     when(refIdAttr.getDataType()).thenReturn(STRING);
+    when(refIdAttr.getDataType()).thenReturn(STRING);
     when(refIdAttr.isUnique()).thenReturn(true);
 
     EntityType refEntityType =
@@ -567,7 +751,9 @@ public class PostgreSqlQueryGeneratorTest {
 
     List<Object> parameters = new ArrayList<>();
     assertEquals(
-        PostgreSqlQueryGenerator.getSqlSelect(entityType, query, parameters, true), expectedSql);
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType, query, parameters, SqlSelectOptions.create(true)),
+        expectedSql);
     assertEquals(parameters, expectedParameters);
   }
 
@@ -613,7 +799,9 @@ public class PostgreSqlQueryGeneratorTest {
 
     List<Object> parameters = Lists.newArrayList();
 
-    String sqlSelect = PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, true);
+    String sqlSelect =
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType, q, parameters, SqlSelectOptions.create(true));
     assertEquals(
         sqlSelect,
         "SELECT this.\"masterId\", (SELECT array_agg(DISTINCT ARRAY[\"mref1\".\"order\"::TEXT,\"mref1\".\"mref1\"::TEXT]) FROM \"entityTypeId#c34894ba_mref1\" AS \"mref1\" WHERE this.\"masterId\" = \"mref1\".\"masterId\") AS \"mref1\", (SELECT array_agg(DISTINCT ARRAY[\"mref2\".\"order\"::TEXT,\"mref2\".\"mref2\"::TEXT]) FROM \"entityTypeId#c34894ba_mref2\" AS \"mref2\" WHERE this.\"masterId\" = \"mref2\".\"masterId\") AS \"mref2\" FROM \"entityTypeId#c34894ba\" AS this ORDER BY \"masterId\" ASC");
@@ -691,6 +879,78 @@ public class PostgreSqlQueryGeneratorTest {
         "ORDER BY \"attr\" ASC, \"idAttr\" ASC");
   }
 
+  @Test
+  public void getSqlSelectKeyset() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(INT);
+    when(attr.isUnique()).thenReturn(true);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+
+    Entity lastEntity = mock(Entity.class);
+    when(lastEntity.getInt("attr")).thenReturn(3);
+
+    Query<Entity> q = new QueryImpl<>().gt("attr", 1).sort(new Sort("attr", DESC)).pageSize(10);
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType, q, parameters, lastEntityOptions(lastEntity)),
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE (this.\"attr\" > ?) AND (this.\"attr\") < (?) ORDER BY \"attr\" DESC LIMIT 10");
+    assertEquals(parameters, asList(1, 3));
+  }
+
+  @DataProvider(name = "isKeysetPaginationSupportedProvider")
+  public static Iterator<Object[]> isKeysetPaginationSupportedProvider() {
+    List<Object[]> dataList = new ArrayList<>();
+    dataList.add(new Object[] {null, null, true});
+    dataList.add(new Object[] {new Sort("idAttr", DESC), null, true});
+    dataList.add(new Object[] {new Sort("uniqueAttr"), null, true});
+    dataList.add(new Object[] {new Sort("uniqueAttr"), new Fetch().field("uniqueAttr"), true});
+    dataList.add(new Object[] {new Sort("attr"), null, false});
+    dataList.add(new Object[] {new Sort("attr"), new Fetch().field("attr"), false});
+    dataList.add(new Object[] {new Sort("nillableUniqueAttr"), null, false});
+    dataList.add(new Object[] {new Sort("uniqueAttr").on("idAttr", DESC), null, false});
+    return dataList.iterator();
+  }
+
+  @Test(dataProvider = "isKeysetPaginationSupportedProvider")
+  public void isKeysetPaginationSupported(Sort sort, Fetch fetch, boolean supported) {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+    Attribute uniqueAttr = when(mock(Attribute.class).getName()).thenReturn("uniqueAttr").getMock();
+    when(uniqueAttr.getDataType()).thenReturn(STRING);
+    when(uniqueAttr.isUnique()).thenReturn(true);
+    Attribute nillableUniqueAttr =
+        when(mock(Attribute.class).getName()).thenReturn("nillableUniqueAttr").getMock();
+    when(nillableUniqueAttr.getDataType()).thenReturn(STRING);
+    when(nillableUniqueAttr.isUnique()).thenReturn(true);
+    when(nillableUniqueAttr.isNillable()).thenReturn(true);
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getDataType()).thenReturn(STRING);
+
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("uniqueAttr")).thenReturn(uniqueAttr);
+    when(entityType.getAttribute("nillableUniqueAttr")).thenReturn(nillableUniqueAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+
+    Query<Entity> q = new QueryImpl<>().sort(sort).fetch(fetch);
+    assertEquals(PostgreSqlQueryGenerator.isKeysetPaginationSupported(entityType, q), supported);
+  }
+
   @Test
   public void getSqlSortOnUnselectedMref() {
     Package package_ = when(mock(Package.class).getId()).thenReturn("org_molgenis").getMock();
@@ -732,7 +992,9 @@ public class PostgreSqlQueryGeneratorTest {
 
     List<Object> parameters = Lists.newArrayList();
 
-    String sqlSelect = PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, true);
+    String sqlSelect =
+        PostgreSqlQueryGenerator.getSqlSelect(
+            entityType, q, parameters, SqlSelectOptions.create(true));
     assertEquals(
         sqlSelect,
         "SELECT this.\"masterId\", (SELECT array_agg(DISTINCT ARRAY[\"mref1\".\"order\"::TEXT,\"mref1\".\"mref1\"::TEXT]) FROM \"entityTypeId#c34894ba_mref1\" AS \"mref1\" WHERE this.\"masterId\" = \"mref1\".\"masterId\") AS \"mref1\" FROM \"entityTypeId#c34894ba\" AS this ORDER BY \"mref1\" ASC, \"masterId\" ASC");
@@ -1289,7 +1551,8 @@ public class PostgreSqlQueryGeneratorTest {
     List<Object> parameters = Lists.newArrayList();
 
     String sqlSelect =
-        PostgreSqlQueryGenerator.getSqlSelect(collectionsEntity, q, parameters, true);
+        PostgreSqlQueryGenerator.getSqlSelect(
+            collectionsEntity, q, parameters, SqlSelectOptions.create(true));
     assertEquals(
         sqlSelect,
         "SELECT this.\"collectionsId\", (SELECT array_agg(DISTINCT ARRAY[\"type\".\"order\"::TEXT,\"type\".\"type\"::TEXT]) FROM \"eu_bbmri_eric_collecti#4dc023e6_type\" AS \"type\" WHERE this.\"collectionsId\" = \"type\".\"collectionsId\") AS \"type\", (SELECT array_agg(DISTINCT ARRAY[\"category\".\"order\"::TEXT,\"category\".\"category\"::TEXT]) FROM \"eu_bbmri_eric_collecti#4dc023e6_category\" AS \"category\" WHERE this.\"collectionsId\" = \"category\".\"collectionsId\") AS \"category\" FROM \"eu_bbmri_eric_collections#4dc023e6\" AS this ORDER BY \"collectionsId\" ASC");
@@ -1370,6 +1633,44 @@ public class PostgreSqlQueryGeneratorTest {
     assertEquals(sqlUpdate, expectedSqlUpdate);
   }
 
+  @Test
+  public void testGetSqlCopyFrom() {
+    Attribute idAttribute = when(mock(Attribute.class).getName()).thenReturn("id").getMock();
+    when(idAttribute.getDataType()).thenReturn(STRING);
+    Attribute mrefAttribute = when(mock(Attribute.class).getName()).thenReturn("mref").getMock();
+    when(mrefAttribute.getDataType()).thenReturn(MREF);
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("MyEntityTypeId").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttribute, mrefAttribute));
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCopyFrom(entityType),
+        "COPY \"MyEntityTypeId#55dde9c3\" (\"id\") FROM STDIN");
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCopyFromJunction(entityType, mrefAttribute),
+        "COPY \"MyEntityTypeId#55dde9c3_mref\" (\"order\",\"id\",\"mref\") FROM STDIN");
+  }
+
+  @Test
+  public void testGetSqlUpsert() {
+    String idAttributeName = "MyIdAttribute";
+    Attribute idAttribute =
+        when(mock(Attribute.class).getName()).thenReturn(idAttributeName).getMock();
+    when(idAttribute.getDataType()).thenReturn(STRING);
+    String entityTypeId = "MyEntityTypeId";
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn(entityTypeId).getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    String labelAttributeName = "MyLabelAttribute";
+    Attribute labelAttribute =
+        when(mock(Attribute.class).getName()).thenReturn(labelAttributeName).getMock();
+    when(labelAttribute.getDataType()).thenReturn(STRING);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttribute, labelAttribute));
+    String sqlUpsert = PostgreSqlQueryGenerator.getSqlUpsert(entityType);
+    String expectedSqlUpsert =
+        "INSERT INTO \"MyEntityTypeId#55dde9c3\" (\"MyIdAttribute\", \"MyLabelAttribute\") VALUES (?, ?) ON CONFLICT (\"MyIdAttribute\") DO UPDATE SET \"MyLabelAttribute\" = EXCLUDED.\"MyLabelAttribute\"";
+    assertEquals(sqlUpsert, expectedSqlUpsert);
+  }
+
   @Test
   public void testGetSqlUpdateAttribute() {
     String idAttributeName = "MyIdAttribute";
@@ -1414,4 +1715,8 @@ public class PostgreSqlQueryGeneratorTest {
   private Package createPackage(String packageName) {
     return when(mock(Package.class).getId()).thenReturn(packageName).getMock();
   }
+
+  private static SqlSelectOptions lastEntityOptions(Entity lastEntity) {
+    return SqlSelectOptions.builder().setIncludeMrefs(true).setLastEntity(lastEntity).build();
+  }
 }
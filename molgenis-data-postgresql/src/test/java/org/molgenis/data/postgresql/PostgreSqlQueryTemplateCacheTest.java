@@ -0,0 +1,174 @@
+package org.molgenis.data.postgresql;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.RowLevelSecurityFilter;
+import org.molgenis.data.meta.MetadataSnapshot;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PostgreSqlQueryTemplateCacheTest extends AbstractMockitoTest {
+  @Mock private MetadataSnapshotRegistry metadataSnapshotRegistry;
+  @Mock private MetadataSnapshot metadataSnapshot;
+  @Mock private EntityType entityType;
+  @Mock private Attribute idAttr;
+  @Mock private Attribute attr;
+  private PostgreSqlQueryTemplateCache postgreSqlQueryTemplateCache;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    postgreSqlQueryTemplateCache = new PostgreSqlQueryTemplateCache(metadataSnapshotRegistry);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testPostgreSqlQueryTemplateCache() {
+    new PostgreSqlQueryTemplateCache(null);
+  }
+
+  @Test
+  public void testGetSqlSelect() {
+    setUpEntityType(true);
+
+    List<Object> parameters = new ArrayList<>();
+    Query<Entity> q = new QueryImpl<>().eq("attr", "str0").pageSize(10);
+    assertEquals(
+        postgreSqlQueryTemplateCache.getSqlSelect(
+            entityType, q, parameters, SqlSelectOptions.create(true)),
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE this.\"attr\" = ? ORDER BY \"idAttr\" ASC LIMIT 10");
+    assertEquals(parameters, singletonList("str0"));
+  }
+
+  @Test
+  public void testGetSqlSelectSameShape() {
+    setUpEntityType(true);
+
+    postgreSqlQueryTemplateCache.getSqlSelect(
+        entityType,
+        new QueryImpl<>().eq("attr", "str0").pageSize(10),
+        new ArrayList<>(),
+        SqlSelectOptions.create(true));
+
+    List<Object> parameters = new ArrayList<>();
+    Query<Entity> q = new QueryImpl<>().eq("attr", "str1").pageSize(10).offset(10);
+    assertEquals(
+        postgreSqlQueryTemplateCache.getSqlSelect(
+            entityType, q, parameters, SqlSelectOptions.create(true)),
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE this.\"attr\" = ? ORDER BY \"idAttr\" ASC LIMIT 10 OFFSET 10");
+    assertEquals(parameters, singletonList("str1"));
+    verify(entityType, times(1)).getAtomicAttributes();
+  }
+
+  @Test
+  public void testGetSqlSelectOtherShape() {
+    setUpEntityType(true);
+
+    postgreSqlQueryTemplateCache.getSqlSelect(
+        entityType,
+        new QueryImpl<>().in("attr", singletonList("str0")),
+        new ArrayList<>(),
+        SqlSelectOptions.create(true));
+
+    List<Object> parameters = new ArrayList<>();
+    Query<Entity> q = new QueryImpl<>().in("attr", asList("str1", "str2"));
+    assertEquals(
+        postgreSqlQueryTemplateCache.getSqlSelect(
+            entityType, q, parameters, SqlSelectOptions.create(true)),
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE this.\"attr\" IN (?,?) ORDER BY \"idAttr\" ASC");
+    assertEquals(parameters, asList("str1", "str2"));
+    verify(entityType, times(2)).getAtomicAttributes();
+  }
+
+  @Test
+  public void testGetSqlSelectEntityTypeNotInSnapshot() {
+    setUpEntityType(false);
+
+    Query<Entity> q = new QueryImpl<>().eq("attr", "str0");
+    String sql =
+        postgreSqlQueryTemplateCache.getSqlSelect(
+            entityType, q, new ArrayList<>(), SqlSelectOptions.create(true));
+    assertEquals(
+        postgreSqlQueryTemplateCache.getSqlSelect(
+            entityType, q, new ArrayList<>(), SqlSelectOptions.create(true)),
+        sql);
+    verify(entityType, times(2)).getAtomicAttributes();
+  }
+
+  @Test
+  public void testGetSqlSelectRowLevelSecurityFilter() {
+    setUpEntityType(true);
+
+    SqlSelectOptions options =
+        SqlSelectOptions.builder()
+            .setRowLevelSecurityFilter(
+                RowLevelSecurityFilter.create(
+                    "entity-entityTypeId", "user", singletonList("ROLE_USER"), 1))
+            .build();
+    Query<Entity> q = new QueryImpl<>().eq("attr", "str0");
+    postgreSqlQueryTemplateCache.getSqlSelect(entityType, q, new ArrayList<>(), options);
+    List<Object> parameters = new ArrayList<>();
+    postgreSqlQueryTemplateCache.getSqlSelect(entityType, q, parameters, options);
+    assertEquals(parameters, asList("str0", "entity-entityTypeId", 1, "user", "ROLE_USER"));
+    verify(entityType, times(2)).getAtomicAttributes();
+  }
+
+  @Test
+  public void testGetSqlCount() {
+    when(idAttr.getName()).thenReturn("idAttr");
+    when(attr.getName()).thenReturn("attr");
+    when(attr.getDataType()).thenReturn(STRING);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+    setUpSnapshot(true);
+
+    postgreSqlQueryTemplateCache.getSqlCount(
+        entityType, new QueryImpl<>().eq("attr", "str0"), new ArrayList<>());
+
+    List<Object> parameters = new ArrayList<>();
+    assertEquals(
+        postgreSqlQueryTemplateCache.getSqlCount(
+            entityType, new QueryImpl<>().eq("attr", "str1"), parameters),
+        "SELECT COUNT(*) FROM \"entityTypeId#c34894ba\" AS this WHERE this.\"attr\" = ?");
+    assertEquals(parameters, singletonList("str1"));
+    verify(entityType, times(2)).getIdAttribute();
+  }
+
+  private void setUpEntityType(boolean inSnapshot) {
+    when(idAttr.getName()).thenReturn("idAttr");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(attr.getName()).thenReturn("attr");
+    when(attr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr));
+    doReturn(idAttr).when(entityType).getAttribute("idAttr");
+    doReturn(attr).when(entityType).getAttribute("attr");
+
+    setUpSnapshot(inSnapshot);
+  }
+
+  private void setUpSnapshot(boolean inSnapshot) {
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(Optional.of(metadataSnapshot));
+    when(metadataSnapshot.getEntityType("entityTypeId")).thenReturn(inSnapshot ? entityType : null);
+  }
+}
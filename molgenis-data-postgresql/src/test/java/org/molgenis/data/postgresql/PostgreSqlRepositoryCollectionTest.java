@@ -25,13 +25,17 @@ import static org.molgenis.data.meta.model.EntityTypeMetadata.EXTENDS;
 import static org.molgenis.data.postgresql.PostgreSqlRepositoryCollection.POSTGRESQL;
 import static org.testng.Assert.assertEquals;
 
+import java.util.Optional;
 import java.util.stream.Stream;
 import javax.sql.DataSource;
 import org.mockito.ArgumentCaptor;
 import org.molgenis.data.DataService;
+import org.molgenis.data.JoinFetchPolicy;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.UnknownAttributeException;
+import org.molgenis.data.meta.MetadataSnapshot;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -42,6 +46,7 @@ public class PostgreSqlRepositoryCollectionTest {
   private PostgreSqlRepositoryCollection postgreSqlRepoCollection;
   private JdbcTemplate jdbcTemplate;
   private DataService dataService;
+  private MetadataSnapshotRegistry metadataSnapshotRegistry;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
@@ -49,9 +54,28 @@ public class PostgreSqlRepositoryCollectionTest {
     DataSource dataSource = mock(DataSource.class);
     jdbcTemplate = mock(JdbcTemplate.class);
     dataService = mock(DataService.class);
+    metadataSnapshotRegistry = mock(MetadataSnapshotRegistry.class);
     postgreSqlRepoCollection =
         new PostgreSqlRepositoryCollection(
-            postgreSqlEntityFactory, dataSource, jdbcTemplate, dataService);
+            postgreSqlEntityFactory,
+            dataSource,
+            jdbcTemplate,
+            dataService,
+            metadataSnapshotRegistry,
+            mock(JoinFetchPolicy.class),
+            mock(PostgreSqlQueryTemplateCache.class));
+  }
+
+  @Test
+  public void getRepositoryFromMetadataSnapshot() {
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getBackend()).thenReturn(POSTGRESQL);
+    MetadataSnapshot metadataSnapshot = mock(MetadataSnapshot.class);
+    when(metadataSnapshot.getEntityType("entity")).thenReturn(entityType);
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(Optional.of(metadataSnapshot));
+
+    assertEquals(postgreSqlRepoCollection.getRepository("entity").getEntityType(), entityType);
+    verifyZeroInteractions(dataService);
   }
 
   @Test
@@ -2,17 +2,22 @@ package org.molgenis.data.postgresql;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockitoSession;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.quality.Strictness.STRICT_STUBS;
+import static org.molgenis.data.BulkLoadContextHolder.runInBulkLoadMode;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
 import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.LONG;
@@ -21,34 +26,48 @@ import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.molgenis.data.postgresql.PostgreSqlExceptionTranslator.VALUE_TOO_LONG_MSG;
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED;
 import static org.testng.Assert.assertEquals;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
+import com.google.common.io.CharStreams;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Stream;
 import javax.sql.DataSource;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoSession;
 import org.molgenis.data.Entity;
+import org.molgenis.data.JoinFetchPolicy;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.validation.MolgenisValidationException;
 import org.molgenis.util.UnexpectedEnumException;
 import org.molgenis.validation.ConstraintViolation;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -59,6 +78,8 @@ public class PostgreSqlRepositoryTest {
   @Mock private JdbcTemplate jdbcTemplate;
   @Mock private PostgreSqlEntityFactory postgreSqlEntityFactory;
   @Mock private DataSource dataSource;
+  @Mock private JoinFetchPolicy joinFetchPolicy;
+  @Mock private MetadataSnapshotRegistry metadataSnapshotRegistry;
   @Mock private EntityType entityType;
   @Mock private Query<Entity> query;
   @Mock private RowMapper<Entity> rowMapper;
@@ -69,7 +90,13 @@ public class PostgreSqlRepositoryTest {
   public void setUpBeforeMethod() throws Exception {
     mockitoSession = mockitoSession().initMocks(this).strictness(STRICT_STUBS).startMocking();
     postgreSqlRepo =
-        new PostgreSqlRepository(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType);
+        new PostgreSqlRepository(
+            postgreSqlEntityFactory,
+            jdbcTemplate,
+            dataSource,
+            joinFetchPolicy,
+            new PostgreSqlQueryTemplateCache(metadataSnapshotRegistry),
+            entityType);
   }
 
   @AfterMethod
@@ -158,7 +185,13 @@ public class PostgreSqlRepositoryTest {
     when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, oneToManyAttr));
     EntityType entityType = this.entityType;
     postgreSqlRepo =
-        new PostgreSqlRepository(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType);
+        new PostgreSqlRepository(
+            postgreSqlEntityFactory,
+            jdbcTemplate,
+            dataSource,
+            joinFetchPolicy,
+            new PostgreSqlQueryTemplateCache(metadataSnapshotRegistry),
+            entityType);
 
     int queryValue = 2;
     QueryRule queryRule = new QueryRule(oneToManyAttrName, EQUALS, queryValue);
@@ -167,13 +200,134 @@ public class PostgreSqlRepositoryTest {
     String sql =
         "SELECT DISTINCT this.\"entityId\", (SELECT array_agg(\"refEntityId\" ORDER BY \"refEntityId\" ASC) FROM \"refEntityId#07f902bf\" WHERE this.\"entityId\" = \"refEntityId#07f902bf\".\"xrefAttr\") AS \"oneToManyAttr\" FROM \"entityId#fc2928f6\" AS this LEFT JOIN \"refEntityId#07f902bf\" AS \"oneToManyAttr_filter1\" ON (this.\"entityId\" = \"oneToManyAttr_filter1\".\"xrefAttr\") WHERE \"oneToManyAttr_filter1\".\"refEntityId\" = ? ORDER BY \"entityId\" ASC LIMIT 1000";
 
-    when(postgreSqlEntityFactory.createRowMapper(entityType, null)).thenReturn(rowMapper);
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null, emptySet()))
+        .thenReturn(rowMapper);
     Entity entity0 = mock(Entity.class);
     when(jdbcTemplate.query(sql, new Object[] {queryValue}, rowMapper))
         .thenReturn(singletonList(entity0));
     assertEquals(postgreSqlRepo.findAll(query).collect(toList()), singletonList(entity0));
   }
 
+  @Test
+  public void findAllQueryInTransactionStreamsRows() throws Exception {
+    String idAttrName = "entityId";
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn(idAttrName);
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getId()).thenReturn("entityId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute(idAttrName)).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(query.getRules()).thenReturn(singletonList(new QueryRule(idAttrName, EQUALS, "id")));
+
+    String sql =
+        "SELECT this.\"entityId\" FROM \"entityId#fc2928f6\" AS this WHERE this.\"entityId\" = ? ORDER BY \"entityId\" ASC";
+    Connection connection = mock(Connection.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null, emptySet()))
+        .thenReturn(rowMapper);
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    doReturn(entity0).when(rowMapper).mapRow(resultSet, 0);
+    doReturn(entity1).when(rowMapper).mapRow(resultSet, 1);
+
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.initSynchronization();
+    try (Stream<Entity> entities = postgreSqlRepo.findAll(query)) {
+      assertEquals(entities.collect(toList()), asList(entity0, entity1));
+      completeTransaction();
+    } finally {
+      TransactionSynchronizationManager.clear();
+    }
+
+    verify(preparedStatement).setFetchSize(1000);
+    verify(preparedStatement).setString(1, "id");
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+    verify(connection).close();
+  }
+
+  @Test
+  public void findAllQueryInTransactionCloseStream() throws Exception {
+    String idAttrName = "entityId";
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn(idAttrName);
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getId()).thenReturn("entityId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute(idAttrName)).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+
+    Connection connection = mock(Connection.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    when(connection.prepareStatement(any(String.class))).thenReturn(preparedStatement);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null, emptySet()))
+        .thenReturn(rowMapper);
+
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      postgreSqlRepo.findAll(query).close();
+      completeTransaction();
+    } finally {
+      TransactionSynchronizationManager.clear();
+    }
+
+    verify(resultSet, never()).next();
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+    verify(connection).close();
+  }
+
+  @Test
+  public void findAllQueryInTransactionFindFirst() throws Exception {
+    String idAttrName = "entityId";
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn(idAttrName);
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getId()).thenReturn("entityId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute(idAttrName)).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+
+    Connection connection = mock(Connection.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    when(connection.prepareStatement(any(String.class))).thenReturn(preparedStatement);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+    when(postgreSqlEntityFactory.createRowMapper(entityType, null, emptySet()))
+        .thenReturn(rowMapper);
+    Entity entity0 = mock(Entity.class);
+    doReturn(entity0).when(rowMapper).mapRow(resultSet, 0);
+
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      assertEquals(postgreSqlRepo.findAll(query).findFirst(), Optional.of(entity0));
+      verify(resultSet, never()).close();
+      completeTransaction();
+    } finally {
+      TransactionSynchronizationManager.clear();
+    }
+
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+    verify(connection).close();
+  }
+
   @Test
   public void testUpdateEntitiesExist() {
     Attribute idAttr = mock(Attribute.class);
@@ -195,6 +349,72 @@ public class PostgreSqlRepositoryTest {
     verifyNoMoreInteractions(jdbcTemplate);
   }
 
+  @Test
+  public void testAddStreamBulkLoadMode() throws Exception {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("attr");
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(entityType.getId()).thenReturn("entity");
+
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getString("attr")).thenReturn("id0");
+    Entity entity1 = mock(Entity.class);
+    when(entity1.getString("attr")).thenReturn("id\t1");
+
+    Connection connection = mock(Connection.class);
+    PGConnection pgConnection = mock(PGConnection.class);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    CopyManager copyManager = mock(CopyManager.class);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    StringBuilder copiedRows = new StringBuilder();
+    when(copyManager.copyIn(
+            eq("COPY \"entity#6844280e\" (\"attr\") FROM STDIN"), any(Reader.class)))
+        .thenAnswer(
+            invocation -> {
+              copiedRows.append(CharStreams.toString(invocation.<Reader>getArgument(1)));
+              return 2L;
+            });
+    when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Object>>any()))
+        .thenAnswer(
+            invocation ->
+                invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    try {
+      assertEquals(
+          runInBulkLoadMode(() -> postgreSqlRepo.add(Stream.of(entity0, entity1))),
+          Integer.valueOf(2));
+    } finally {
+      TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+    assertEquals(copiedRows.toString(), "id0\nid\\t1\n");
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void testUpsertBatch() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("attr");
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(entityType.getId()).thenReturn("entity");
+
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+
+    postgreSqlRepo.upsertBatch(asList(entity0, entity1));
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(
+                "INSERT INTO \"entity#6844280e\" (\"attr\") VALUES (?) ON CONFLICT (\"attr\") DO NOTHING"),
+            any(BatchPreparedStatementSetter.class));
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
   @SuppressWarnings("unchecked")
   @Test(
       expectedExceptions = MolgenisValidationException.class,
@@ -302,4 +522,11 @@ public class PostgreSqlRepositoryTest {
             idType, refType, ArrayListMultimap.create());
     mrefIdRowCallbackHandler.processRow(mock(ResultSet.class));
   }
+
+  private static void completeTransaction() {
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    synchronizations.forEach(TransactionSynchronization::beforeCompletion);
+    synchronizations.forEach(synchronization -> synchronization.afterCompletion(STATUS_COMMITTED));
+  }
 }
@@ -0,0 +1,140 @@
+package org.molgenis.data.postgresql;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.postgresql.PostgreSqlRepository.BATCH_SIZE;
+import static org.molgenis.data.postgresql.PostgreSqlRepositoryCollection.POSTGRESQL;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.RowLevelSecurityFilter;
+import org.molgenis.data.Sort;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PostgreSqlRowLevelSecurityQueryServiceTest extends AbstractMockitoTest {
+  @Mock private PostgreSqlEntityFactory postgreSqlEntityFactory;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private EntityType entityType;
+  @Mock private Attribute idAttr;
+  @Mock private RowMapper<Entity> rowMapper;
+  @Captor private ArgumentCaptor<String> sqlCaptor;
+  private PostgreSqlRowLevelSecurityQueryService postgreSqlRowLevelSecurityQueryService;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    postgreSqlRowLevelSecurityQueryService =
+        new PostgreSqlRowLevelSecurityQueryService(postgreSqlEntityFactory, jdbcTemplate);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testPostgreSqlRowLevelSecurityQueryService() {
+    new PostgreSqlRowLevelSecurityQueryService(null, null);
+  }
+
+  @Test
+  public void testFindAllIdsInBatches() {
+    when(idAttr.getName()).thenReturn("id");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("id")).thenReturn(idAttr);
+    when(postgreSqlEntityFactory.createRowMapper(entityType, new Fetch().field("id")))
+        .thenReturn(rowMapper);
+
+    List<Entity> firstBatch = new ArrayList<>();
+    IntStream.range(0, BATCH_SIZE).forEach(i -> firstBatch.add(createEntity("id" + i)));
+    Entity lastEntity = firstBatch.get(BATCH_SIZE - 1);
+    when(lastEntity.getString("id")).thenReturn("id" + (BATCH_SIZE - 1));
+    Entity entity = createEntity("idLast");
+    when(jdbcTemplate.query(sqlCaptor.capture(), any(Object[].class), eq(rowMapper)))
+        .thenReturn(firstBatch)
+        .thenReturn(singletonList(entity));
+
+    RowLevelSecurityFilter filter =
+        RowLevelSecurityFilter.create("entity-entityTypeId", "user", singletonList("ROLE_X"), 1);
+    List<Object> ids =
+        postgreSqlRowLevelSecurityQueryService
+            .findAllIds(entityType, new QueryImpl<>(), filter)
+            .collect(toList());
+
+    assertEquals(ids.size(), BATCH_SIZE + 1);
+    assertEquals(ids.get(BATCH_SIZE), "idLast");
+    verify(jdbcTemplate, times(2)).query(anyString(), any(Object[].class), eq(rowMapper));
+    String keysetSql = sqlCaptor.getAllValues().get(1);
+    assertTrue(keysetSql.contains("(this.\"id\") > (?)"));
+    assertFalse(keysetSql.contains("OFFSET"));
+  }
+
+  @Test
+  public void testIsSupportedSortNestedAttribute() {
+    when(entityType.getBackend()).thenReturn(POSTGRESQL);
+    Query<Entity> query = new QueryImpl<>().sort(new Sort("ref.attr"));
+    assertFalse(postgreSqlRowLevelSecurityQueryService.isSupported(entityType, query));
+  }
+
+  @Test
+  public void testIsSupportedSortAttribute() {
+    when(entityType.getBackend()).thenReturn(POSTGRESQL);
+    Attribute attr = mock(Attribute.class);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+    Query<Entity> query = new QueryImpl<>().sort(new Sort("attr"));
+    assertTrue(postgreSqlRowLevelSecurityQueryService.isSupported(entityType, query));
+  }
+
+  @Test
+  public void testFindAllIdsSorted() {
+    when(idAttr.getName()).thenReturn("id");
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    doReturn(idAttr).when(entityType).getAttribute("id");
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    doReturn(attr).when(entityType).getAttribute("attr");
+    when(postgreSqlEntityFactory.createRowMapper(entityType, new Fetch().field("id").field("attr")))
+        .thenReturn(rowMapper);
+    Entity entity = createEntity("id0");
+    when(jdbcTemplate.query(sqlCaptor.capture(), any(Object[].class), eq(rowMapper)))
+        .thenReturn(singletonList(entity));
+
+    RowLevelSecurityFilter filter =
+        RowLevelSecurityFilter.create("entity-entityTypeId", "user", singletonList("ROLE_X"), 1);
+    List<Object> ids =
+        postgreSqlRowLevelSecurityQueryService
+            .findAllIds(entityType, new QueryImpl<>().sort(new Sort("attr")), filter)
+            .collect(toList());
+
+    assertEquals(ids, singletonList("id0"));
+    assertTrue(sqlCaptor.getValue().contains("ORDER BY \"attr\" ASC"));
+  }
+
+  private static Entity createEntity(String id) {
+    Entity entity = mock(Entity.class);
+    when(entity.getIdValue()).thenReturn(id);
+    return entity;
+  }
+}
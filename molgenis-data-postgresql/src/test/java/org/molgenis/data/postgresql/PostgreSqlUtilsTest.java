@@ -499,4 +499,24 @@ public class PostgreSqlUtilsTest {
     when(attr.getRefEntity()).thenReturn(refEntityMeta);
     return attr;
   }
+
+  @DataProvider(name = "appendCopyTextValue")
+  public static Iterator<Object[]> appendCopyTextValueProvider() {
+    return asList(
+            new Object[] {null, "\\N"},
+            new Object[] {true, "t"},
+            new Object[] {false, "f"},
+            new Object[] {123, "123"},
+            new Object[] {1.5, "1.5"},
+            new Object[] {LocalDate.of(2018, 1, 2), "2018-01-02"},
+            new Object[] {"a\\b\tc\nd\re", "a\\\\b\\tc\\nd\\re"})
+        .iterator();
+  }
+
+  @Test(dataProvider = "appendCopyTextValue")
+  public void appendCopyTextValue(Object value, String copyTextValue) {
+    StringBuilder stringBuilder = new StringBuilder();
+    PostgreSqlUtils.appendCopyTextValue(value, stringBuilder);
+    assertEquals(stringBuilder.toString(), copyTextValue);
+  }
 }
@@ -0,0 +1,155 @@
+package org.molgenis.data.postgresql.transaction;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.postgresql.transaction.PostgreSqlCacheInvalidationBus.CHANNEL;
+import static org.molgenis.data.postgresql.transaction.PostgreSqlCacheInvalidationBus.MAX_PAYLOAD_SIZE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.HashSet;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PostgreSqlCacheInvalidationBusTest extends AbstractMockitoTest {
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private DataSource dataSource;
+  @Mock private CacheInvalidationListener cacheInvalidationListener;
+  @Captor private ArgumentCaptor<Object[]> parametersCaptor;
+
+  private PostgreSqlCacheInvalidationBus postgreSqlCacheInvalidationBus;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    postgreSqlCacheInvalidationBus =
+        new PostgreSqlCacheInvalidationBus(
+            transactionManager,
+            transactionInformation,
+            jdbcTemplate,
+            dataSource,
+            singletonList(cacheInvalidationListener));
+  }
+
+  @Test
+  public void testConstructorRegistersTransactionListener() {
+    verify(transactionManager).addTransactionListener(postgreSqlCacheInvalidationBus);
+  }
+
+  @Test
+  public void testCommitTransaction() {
+    when(transactionInformation.getEntirelyDirtyRepositories()).thenReturn(emptySet());
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("MyEntityType"));
+    when(transactionInformation.getDirtyEntities())
+        .thenReturn(singleton(EntityKey.create("MyEntityType", 1)));
+
+    postgreSqlCacheInvalidationBus.commitTransaction("transactionId");
+
+    Object[] parameters = getNotifyParameters();
+    assertEquals(parameters[0], CHANNEL);
+    JsonObject jsonObject = new JsonParser().parse((String) parameters[1]).getAsJsonObject();
+    assertEquals(
+        PostgreSqlCacheInvalidationBus.fromPayload(jsonObject),
+        CacheInvalidation.create(
+            emptySet(), singleton("MyEntityType"), singleton(EntityKey.create("MyEntityType", 1))));
+  }
+
+  private Object[] getNotifyParameters() {
+    verify(jdbcTemplate)
+        .query(
+            eq("SELECT pg_notify(?, ?)"),
+            parametersCaptor.capture(),
+            any(RowCallbackHandler.class));
+    return parametersCaptor.getValue();
+  }
+
+  @Test
+  public void testCommitTransactionNoChanges() {
+    postgreSqlCacheInvalidationBus.commitTransaction("transactionId");
+    verifyZeroInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void testHandleNotificationOtherInstance() {
+    CacheInvalidation cacheInvalidation =
+        CacheInvalidation.create(
+            singleton("MyEntityType"),
+            ImmutableSet.of("MyEntityType", "MyOtherEntityType"),
+            ImmutableSet.of(
+                EntityKey.create("MyOtherEntityType", "id"),
+                EntityKey.create("MyOtherEntityType", 2),
+                EntityKey.create("MyOtherEntityType", 3L)));
+    String payload = PostgreSqlCacheInvalidationBus.toPayload(cacheInvalidation, "otherInstance");
+
+    postgreSqlCacheInvalidationBus.handleNotification(payload);
+
+    verify(cacheInvalidationListener).invalidate(cacheInvalidation);
+  }
+
+  @Test
+  public void testHandleNotificationSameInstance() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("MyEntityType"));
+    postgreSqlCacheInvalidationBus.commitTransaction("transactionId");
+
+    postgreSqlCacheInvalidationBus.handleNotification((String) getNotifyParameters()[1]);
+
+    verifyZeroInteractions(cacheInvalidationListener);
+  }
+
+  @Test
+  public void testToPayloadTooManyEntities() {
+    Set<EntityKey> dirtyEntities = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      dirtyEntities.add(EntityKey.create("MyEntityType", "entity" + i));
+    }
+    CacheInvalidation cacheInvalidation =
+        CacheInvalidation.create(emptySet(), singleton("MyEntityType"), dirtyEntities);
+
+    String payload = PostgreSqlCacheInvalidationBus.toPayload(cacheInvalidation, "instance");
+
+    assertTrue(payload.length() <= MAX_PAYLOAD_SIZE);
+    JsonObject jsonObject = new JsonParser().parse(payload).getAsJsonObject();
+    assertEquals(
+        PostgreSqlCacheInvalidationBus.fromPayload(jsonObject),
+        CacheInvalidation.create(singleton("MyEntityType"), singleton("MyEntityType"), emptySet()));
+  }
+
+  @Test
+  public void testToPayloadTooManyRepositories() {
+    Set<String> dirtyRepositories = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      dirtyRepositories.add("MyEntityType" + i);
+    }
+    CacheInvalidation cacheInvalidation =
+        CacheInvalidation.create(dirtyRepositories, dirtyRepositories, emptySet());
+
+    String payload = PostgreSqlCacheInvalidationBus.toPayload(cacheInvalidation, "instance");
+
+    JsonObject jsonObject = new JsonParser().parse(payload).getAsJsonObject();
+    assertEquals(
+        PostgreSqlCacheInvalidationBus.fromPayload(jsonObject), CacheInvalidation.createAll());
+  }
+}
@@ -1,26 +1,37 @@
 package org.molgenis.data.postgresql.transaction;
 
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.transaction.TransactionConstants.TRANSACTION_ID_RESOURCE_NAME;
+import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import javax.sql.DataSource;
+import org.mockito.InOrder;
 import org.molgenis.data.populate.IdGenerator;
 import org.molgenis.data.transaction.MolgenisTransaction;
 import org.molgenis.data.transaction.TransactionExceptionTranslatorRegistry;
+import org.molgenis.data.transaction.TransactionListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 public class PostgreSqlTransactionManagerTest {
   private PostgreSqlTransactionManager molgenisTransactionManager;
   private IdGenerator idGenerator;
+  private DataSource dataSource;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     idGenerator = mock(IdGenerator.class);
-    DataSource dataSource = mock(DataSource.class);
+    dataSource = mock(DataSource.class);
     TransactionExceptionTranslatorRegistry transactionExceptionTranslatorRegistry =
         mock(TransactionExceptionTranslatorRegistry.class);
     molgenisTransactionManager =
@@ -39,4 +50,29 @@ public class PostgreSqlTransactionManagerTest {
     MolgenisTransaction molgenisTransaction = (MolgenisTransaction) trans;
     assertEquals(molgenisTransaction.getId(), id);
   }
+
+  @Test
+  public void testAddTransactionListenerOrder() throws SQLException {
+    when(idGenerator.generateId()).thenReturn("id");
+    when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+    TransactionListener transactionListener = mock(TransactionListener.class);
+    TransactionListener orderedTransactionListener = mock(OrderedTransactionListener.class);
+    molgenisTransactionManager.addTransactionListener(transactionListener);
+    molgenisTransactionManager.addTransactionListener(orderedTransactionListener);
+
+    try {
+      molgenisTransactionManager.doBegin(
+          molgenisTransactionManager.doGetTransaction(), new DefaultTransactionDefinition());
+
+      InOrder inOrder = inOrder(orderedTransactionListener, transactionListener);
+      inOrder.verify(orderedTransactionListener).transactionStarted("id");
+      inOrder.verify(transactionListener).transactionStarted("id");
+    } finally {
+      TransactionSynchronizationManager.unbindResource(dataSource);
+      TransactionSynchronizationManager.unbindResource(TRANSACTION_ID_RESOURCE_NAME);
+    }
+  }
+
+  @Order(HIGHEST_PRECEDENCE)
+  private abstract static class OrderedTransactionListener implements TransactionListener {}
 }
@@ -0,0 +1,25 @@
+package org.molgenis.data.security.meta;
+
+import static java.util.Objects.requireNonNull;
+
+import org.molgenis.data.meta.EntityTypeMetadataPermissionChecker;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.security.EntityTypePermission;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EntityTypeMetadataPermissionCheckerImpl
+    implements EntityTypeMetadataPermissionChecker {
+  private final UserPermissionEvaluator userPermissionEvaluator;
+
+  EntityTypeMetadataPermissionCheckerImpl(UserPermissionEvaluator userPermissionEvaluator) {
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+  }
+
+  @Override
+  public boolean hasReadMetadataPermission(String entityTypeId) {
+    return userPermissionEvaluator.hasPermission(
+        new EntityTypeIdentity(entityTypeId), EntityTypePermission.READ_METADATA);
+  }
+}
@@ -1,38 +1,152 @@
 package org.molgenis.data.security.owned;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
+import static org.molgenis.security.core.utils.SecurityUtils.currentUserIsSuOrSystem;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityAlreadyExistsException;
+import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.RowLevelSecurityFilter;
+import org.molgenis.data.RowLevelSecurityQueryService;
 import org.molgenis.data.security.EntityIdentity;
+import org.molgenis.data.security.EntityIdentityUtils;
 import org.molgenis.data.security.EntityPermission;
 import org.molgenis.data.security.exception.EntityPermissionDeniedException;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.PermissionSet;
 import org.molgenis.security.core.SidUtils;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.util.UnexpectedEnumException;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.domain.SidRetrievalStrategyImpl;
 import org.springframework.security.acls.model.AlreadyExistsException;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.MutableAclService;
 import org.springframework.security.acls.model.Sid;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
  * RepositoryDecorator that works on EntityTypes that are row-level secured. It is reponsible to
  * check that the {@link EntityPermission}s on Entities in this repository are allowed.
+ *
+ * <p>Queries and counts that are supported by the {@link RowLevelSecurityQueryService} are filtered
+ * on permitted rows in the backend instead of per entity.
  */
 public class RowLevelSecurityRepositoryDecorator
     extends AbstractRowLevelSecurityRepositoryDecorator<Entity> {
   private final UserPermissionEvaluator userPermissionEvaluator;
   private final MutableAclService mutableAclService;
+  private final RowLevelSecurityQueryService rowLevelSecurityQueryService;
+  private final PermissionRegistry permissionRegistry;
 
   RowLevelSecurityRepositoryDecorator(
       Repository<Entity> delegateRepository,
       UserPermissionEvaluator userPermissionEvaluator,
-      MutableAclService mutableAclService) {
+      MutableAclService mutableAclService,
+      RowLevelSecurityQueryService rowLevelSecurityQueryService,
+      PermissionRegistry permissionRegistry) {
     super(delegateRepository, mutableAclService);
     this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
     this.mutableAclService = requireNonNull(mutableAclService);
+    this.rowLevelSecurityQueryService = requireNonNull(rowLevelSecurityQueryService);
+    this.permissionRegistry = requireNonNull(permissionRegistry);
+  }
+
+  @Override
+  public long count() {
+    return count(new QueryImpl<>());
+  }
+
+  @Override
+  public long count(Query<Entity> q) {
+    if (currentUserIsSuOrSystem()) {
+      return delegate().count(q);
+    } else if (rowLevelSecurityQueryService.isSupported(getEntityType(), q)) {
+      return rowLevelSecurityQueryService.count(getEntityType(), q, createRowLevelSecurityFilter());
+    } else {
+      return super.count(q);
+    }
+  }
+
+  @Override
+  public Stream<Entity> findAll(Query<Entity> q) {
+    if (currentUserIsSuOrSystem()) {
+      return delegate().findAll(q);
+    } else if (rowLevelSecurityQueryService.isSupported(getEntityType(), q)) {
+      Stream<Object> entityIds =
+          rowLevelSecurityQueryService.findAllIds(
+              getEntityType(), q, createRowLevelSecurityFilter());
+      return delegate().findAll(entityIds, q.getFetch());
+    } else {
+      return super.findAll(q);
+    }
+  }
+
+  @Override
+  public Entity findOne(Query<Entity> q) {
+    if (currentUserIsSuOrSystem()) {
+      return delegate().findOne(q);
+    } else if (rowLevelSecurityQueryService.isSupported(getEntityType(), q)) {
+      return findAll(new QueryImpl<>(q).setPageSize(1)).findFirst().orElse(null);
+    } else {
+      return super.findOne(q);
+    }
+  }
+
+  /**
+   * Checks update permissions of existing entities and creates ACLs for new entities before
+   * upserting the entities in the delegate repository.
+   */
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    Set<Object> existingIds =
+        delegate().getExistingIDs(entities.stream().map(Entity::getIdValue).collect(toSet()));
+    for (Entity entity : entities) {
+      if (existingIds.contains(entity.getIdValue())) {
+        if (!isActionPermitted(entity, Action.UPDATE)) {
+          throwPermissionException(entity, Action.UPDATE);
+        }
+        updateAcl(entity);
+      } else {
+        createAcl(entity);
+      }
+    }
+    delegate().upsertBatch(entities);
+  }
+
+  /**
+   * Creates a filter that permits rows on which the current user has {@link EntityPermission#READ}
+   * permission, using the same security identities as the ACL permission evaluator.
+   */
+  private RowLevelSecurityFilter createRowLevelSecurityFilter() {
+    String principal = null;
+    List<String> authorities = new ArrayList<>();
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null) {
+      for (Sid sid : new SidRetrievalStrategyImpl().getSids(authentication)) {
+        if (sid instanceof PrincipalSid) {
+          principal = ((PrincipalSid) sid).getPrincipal();
+        } else if (sid instanceof GrantedAuthoritySid) {
+          authorities.add(((GrantedAuthoritySid) sid).getGrantedAuthority());
+        }
+      }
+    }
+
+    int permissionMask = 0;
+    for (PermissionSet permissionSet : permissionRegistry.getPermissions(EntityPermission.READ)) {
+      permissionMask |= permissionSet.getMask();
+    }
+    return RowLevelSecurityFilter.create(
+        EntityIdentityUtils.toType(getEntityType()), principal, authorities, permissionMask);
   }
 
   @Override
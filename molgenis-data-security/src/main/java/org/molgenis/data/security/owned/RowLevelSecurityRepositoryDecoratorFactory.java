@@ -4,8 +4,9 @@ import static java.util.Objects.requireNonNull;
 
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
-import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.data.RowLevelSecurityQueryService;
 import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.springframework.security.acls.model.MutableAclService;
 import org.springframework.stereotype.Component;
@@ -16,30 +17,31 @@ public class RowLevelSecurityRepositoryDecoratorFactory {
   private final UserPermissionEvaluator userPermissionEvaluator;
   private final MutableAclService mutableAclService;
   private final MutableAclClassService mutableAclClassService;
+  private final RowLevelSecurityQueryService rowLevelSecurityQueryService;
+  private final PermissionRegistry permissionRegistry;
 
   RowLevelSecurityRepositoryDecoratorFactory(
       UserPermissionEvaluator userPermissionEvaluator,
       MutableAclService mutableAclService,
-      MutableAclClassService mutableAclClassService) {
+      MutableAclClassService mutableAclClassService,
+      RowLevelSecurityQueryService rowLevelSecurityQueryService,
+      PermissionRegistry permissionRegistry) {
     this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
     this.mutableAclService = requireNonNull(mutableAclService);
     this.mutableAclClassService = requireNonNull(mutableAclClassService);
+    this.rowLevelSecurityQueryService = requireNonNull(rowLevelSecurityQueryService);
+    this.permissionRegistry = requireNonNull(permissionRegistry);
   }
 
   public Repository<Entity> createDecoratedRepository(Repository<Entity> repository) {
-    Repository<Entity> decoratedRepository;
-    if (isRowLevelSecured(repository)) {
-      decoratedRepository =
-          new RowLevelSecurityRepositoryDecorator(
-              repository, userPermissionEvaluator, mutableAclService);
-    } else {
-      decoratedRepository = repository;
-    }
-    return decoratedRepository;
-  }
-
-  private boolean isRowLevelSecured(Repository<Entity> repository) {
-    String aclClass = EntityIdentityUtils.toType(repository.getEntityType());
-    return mutableAclClassService.hasAclClass(aclClass);
+    Repository<Entity> rowLevelSecuredRepository =
+        new RowLevelSecurityRepositoryDecorator(
+            repository,
+            userPermissionEvaluator,
+            mutableAclService,
+            rowLevelSecurityQueryService,
+            permissionRegistry);
+    return new RowLevelSecurityToggleRepositoryDecorator(
+        repository, rowLevelSecuredRepository, mutableAclClassService);
   }
 }
@@ -0,0 +1,49 @@
+package org.molgenis.data.security.owned;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import org.molgenis.data.AbstractRepositoryDecorator;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.security.acl.MutableAclClassService;
+
+/**
+ * RepositoryDecorator that delegates to a {@link RowLevelSecurityRepositoryDecorator} while the
+ * entity type is row-level secured and to the undecorated repository otherwise. Row-level security
+ * is determined on each call, so that decorated repositories can be reused after row-level security
+ * was enabled or disabled for an entity type.
+ */
+class RowLevelSecurityToggleRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
+  private final Repository<Entity> rowLevelSecuredRepository;
+  private final MutableAclClassService mutableAclClassService;
+
+  RowLevelSecurityToggleRepositoryDecorator(
+      Repository<Entity> delegateRepository,
+      Repository<Entity> rowLevelSecuredRepository,
+      MutableAclClassService mutableAclClassService) {
+    super(delegateRepository);
+    this.rowLevelSecuredRepository = requireNonNull(rowLevelSecuredRepository);
+    this.mutableAclClassService = requireNonNull(mutableAclClassService);
+  }
+
+  /**
+   * Forwards upserts instead of splitting them in an add and an update, so that repositories that
+   * upsert entities in a single statement are reached.
+   */
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
+  @Override
+  protected Repository<Entity> delegate() {
+    return isRowLevelSecured() ? rowLevelSecuredRepository : super.delegate();
+  }
+
+  private boolean isRowLevelSecured() {
+    String aclClass = EntityIdentityUtils.toType(super.delegate().getEntityType());
+    return mutableAclClassService.hasAclClass(aclClass);
+  }
+}
@@ -1,5 +1,7 @@
 package org.molgenis.data.security;
 
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -420,6 +422,28 @@ public class RepositorySecurityDecoratorTest extends AbstractMockitoTest {
     verify(delegateRepository).update(entityStream);
   }
 
+  @Test
+  public void testUpsertBatchPermissionGranted() {
+    initPermissionServiceMock(ADD_DATA, true);
+    doReturn(true)
+        .when(permissionService)
+        .hasPermission(new EntityTypeIdentity("entityTypeId"), EntityTypePermission.UPDATE_DATA);
+    List<Entity> entities = singletonList(mock(Entity.class));
+    repositorySecurityDecorator.upsertBatch(entities);
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
+  @Test(
+      expectedExceptions = EntityTypePermissionDeniedException.class,
+      expectedExceptionsMessageRegExp = "permission:UPDATE_DATA entityTypeId:entityTypeId")
+  public void testUpsertBatchUpdatePermissionDenied() {
+    initPermissionServiceMock(ADD_DATA, true);
+    doReturn(false)
+        .when(permissionService)
+        .hasPermission(new EntityTypeIdentity("entityTypeId"), EntityTypePermission.UPDATE_DATA);
+    repositorySecurityDecorator.upsertBatch(singletonList(mock(Entity.class)));
+  }
+
   private void initPermissionServiceMock(EntityTypePermission permission, boolean hasPermission) {
     EntityType entityType = mock(EntityType.class);
     String entityTypeId = "entityTypeId";
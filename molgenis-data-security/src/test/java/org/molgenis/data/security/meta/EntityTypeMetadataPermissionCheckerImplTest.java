@@ -0,0 +1,46 @@
+package org.molgenis.data.security.meta;
+
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.mockito.Mock;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.security.EntityTypePermission;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EntityTypeMetadataPermissionCheckerImplTest extends AbstractMockitoTest {
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+
+  private EntityTypeMetadataPermissionCheckerImpl entityTypeMetadataPermissionChecker;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    entityTypeMetadataPermissionChecker =
+        new EntityTypeMetadataPermissionCheckerImpl(userPermissionEvaluator);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testEntityTypeMetadataPermissionCheckerImpl() {
+    new EntityTypeMetadataPermissionCheckerImpl(null);
+  }
+
+  @Test
+  public void testHasReadMetadataPermission() {
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity("entityTypeId"), EntityTypePermission.READ_METADATA))
+        .thenReturn(true);
+    assertTrue(entityTypeMetadataPermissionChecker.hasReadMetadataPermission("entityTypeId"));
+  }
+
+  @Test
+  public void testHasReadMetadataPermissionDenied() {
+    when(userPermissionEvaluator.hasPermission(
+            new EntityTypeIdentity("entityTypeId"), EntityTypePermission.READ_METADATA))
+        .thenReturn(false);
+    assertFalse(entityTypeMetadataPermissionChecker.hasReadMetadataPermission("entityTypeId"));
+  }
+}
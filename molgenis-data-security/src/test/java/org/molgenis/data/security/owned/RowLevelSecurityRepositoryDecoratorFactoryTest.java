@@ -1,15 +1,14 @@
 package org.molgenis.data.security.owned;
 
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
-import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import org.mockito.Mock;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
-import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.RowLevelSecurityQueryService;
 import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTest;
 import org.springframework.security.acls.model.MutableAclService;
@@ -20,43 +19,36 @@ public class RowLevelSecurityRepositoryDecoratorFactoryTest extends AbstractMock
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
   @Mock private MutableAclService mutableAclService;
   @Mock private MutableAclClassService mutableAclClassService;
+  @Mock private RowLevelSecurityQueryService rowLevelSecurityQueryService;
+  @Mock private PermissionRegistry permissionRegistry;
   private RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityRepositoryDecoratorFactory;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     rowLevelSecurityRepositoryDecoratorFactory =
         new RowLevelSecurityRepositoryDecoratorFactory(
-            userPermissionEvaluator, mutableAclService, mutableAclClassService);
+            userPermissionEvaluator,
+            mutableAclService,
+            mutableAclClassService,
+            rowLevelSecurityQueryService,
+            permissionRegistry);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testRowLevelSecurityRepositoryDecoratorFactory() {
-    new RowLevelSecurityRepositoryDecoratorFactory(null, null, null);
+    new RowLevelSecurityRepositoryDecoratorFactory(null, null, null, null, null);
   }
 
   @Test
-  public void testCreateDecoratedRepositoryRowLevelSecurityEnabled() {
+  public void testCreateDecoratedRepository() {
     Repository<Entity> repository = getRepositoryMock();
-    when(mutableAclClassService.hasAclClass("entity-entityTypeId")).thenReturn(true);
     assertTrue(
         rowLevelSecurityRepositoryDecoratorFactory.createDecoratedRepository(repository)
-            instanceof RowLevelSecurityRepositoryDecorator);
-  }
-
-  @Test
-  public void testCreateDecoratedRepositoryRowLevelSecurityDisabled() {
-    Repository<Entity> repository = getRepositoryMock();
-    assertEquals(
-        rowLevelSecurityRepositoryDecoratorFactory.createDecoratedRepository(repository),
-        repository);
+            instanceof RowLevelSecurityToggleRepositoryDecorator);
   }
 
+  @SuppressWarnings("unchecked")
   private Repository<Entity> getRepositoryMock() {
-    EntityType entityType =
-        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
-    @SuppressWarnings("unchecked")
-    Repository<Entity> repository = mock(Repository.class);
-    when(repository.getEntityType()).thenReturn(entityType);
-    return repository;
+    return mock(Repository.class);
   }
 }
@@ -3,12 +3,15 @@ package org.molgenis.data.security.owned;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -16,6 +19,7 @@ import static org.molgenis.data.security.EntityPermission.READ;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -27,6 +31,8 @@ import org.molgenis.data.EntityAlreadyExistsException;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.RowLevelSecurityFilter;
+import org.molgenis.data.RowLevelSecurityQueryService;
 import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.meta.model.EntityType;
@@ -34,6 +40,7 @@ import org.molgenis.data.security.EntityIdentity;
 import org.molgenis.data.security.EntityPermission;
 import org.molgenis.data.security.exception.EntityPermissionDeniedException;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.PermissionSet;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTestNGSpringContextTests;
@@ -57,18 +64,24 @@ public class RowLevelSecurityRepositoryDecoratorTest
   @Mock private Repository<Entity> delegateRepository;
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
   @Mock private MutableAclService mutableAclService;
+  @Mock private RowLevelSecurityQueryService rowLevelSecurityQueryService;
+  @Mock private PermissionRegistry permissionRegistry;
   private RowLevelSecurityRepositoryDecorator rowLevelSecurityRepositoryDecorator;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     rowLevelSecurityRepositoryDecorator =
         new RowLevelSecurityRepositoryDecorator(
-            delegateRepository, userPermissionEvaluator, mutableAclService);
+            delegateRepository,
+            userPermissionEvaluator,
+            mutableAclService,
+            rowLevelSecurityQueryService,
+            permissionRegistry);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testRowLevelSecurityRepositoryDecorator() {
-    new RowLevelSecurityRepositoryDecorator(null, null, null);
+    new RowLevelSecurityRepositoryDecorator(null, null, null, null, null);
   }
 
   @WithMockUser(username = USERNAME)
@@ -112,6 +125,46 @@ public class RowLevelSecurityRepositoryDecoratorTest
     rowLevelSecurityRepositoryDecorator.add(entity);
   }
 
+  @WithMockUser(username = USERNAME)
+  @Test
+  public void testUpsertBatchNewEntity() {
+    Entity entity = getEntityMock();
+    when(delegateRepository.getExistingIDs(singleton("entityId"))).thenReturn(emptySet());
+    MutableAcl acl = mock(MutableAcl.class);
+    when(mutableAclService.createAcl(new EntityIdentity(entity))).thenReturn(acl);
+
+    rowLevelSecurityRepositoryDecorator.upsertBatch(singletonList(entity));
+
+    verify(acl).insertAce(0, PermissionSet.WRITE, new PrincipalSid(USERNAME), true);
+    verify(delegateRepository).upsertBatch(singletonList(entity));
+  }
+
+  @Test
+  public void testUpsertBatchExistingEntity() {
+    Entity entity = getEntityMock();
+    when(delegateRepository.getExistingIDs(singleton("entityId")))
+        .thenReturn(singleton("entityId"));
+    when(userPermissionEvaluator.hasPermission(new EntityIdentity(entity), EntityPermission.UPDATE))
+        .thenReturn(true);
+
+    rowLevelSecurityRepositoryDecorator.upsertBatch(singletonList(entity));
+
+    verify(delegateRepository).upsertBatch(singletonList(entity));
+    verify(mutableAclService, never()).createAcl(any());
+  }
+
+  @Test(
+      expectedExceptions = EntityPermissionDeniedException.class,
+      expectedExceptionsMessageRegExp =
+          "permission:UPDATE entityTypeId:entityTypeId entityId:entityId")
+  public void testUpsertBatchExistingEntityPermissionDenied() {
+    Entity entity = getEntityMock();
+    when(delegateRepository.getExistingIDs(singleton("entityId")))
+        .thenReturn(singleton("entityId"));
+
+    rowLevelSecurityRepositoryDecorator.upsertBatch(singletonList(entity));
+  }
+
   @Test
   public void testUpdate() {
     Entity entity = getEntityMock();
@@ -564,6 +617,71 @@ public class RowLevelSecurityRepositoryDecoratorTest
     rowLevelSecurityRepositoryDecorator.aggregate(aggregateQuery);
   }
 
+  @WithMockUser(
+      username = USERNAME,
+      roles = {"USER"})
+  @Test
+  public void testCountQueryRowLevelSecurityQueryService() {
+    @SuppressWarnings("unchecked")
+    Query<Entity> query = mock(Query.class);
+    EntityType entityType = getEntityTypeMock();
+    when(rowLevelSecurityQueryService.isSupported(entityType, query)).thenReturn(true);
+    when(permissionRegistry.getPermissions(READ))
+        .thenReturn(ImmutableSet.of(PermissionSet.READ, PermissionSet.WRITE));
+    RowLevelSecurityFilter filter =
+        RowLevelSecurityFilter.create(
+            "entity-entityTypeId", USERNAME, singletonList("ROLE_USER"), 12);
+    when(rowLevelSecurityQueryService.count(entityType, query, filter)).thenReturn(3L);
+    assertEquals(rowLevelSecurityRepositoryDecorator.count(query), 3L);
+  }
+
+  @WithMockUser(
+      username = USERNAME,
+      roles = {"USER"})
+  @Test
+  public void testFindAllQueryRowLevelSecurityQueryService() {
+    Fetch fetch = mock(Fetch.class);
+    @SuppressWarnings("unchecked")
+    Query<Entity> query = mock(Query.class);
+    when(query.getFetch()).thenReturn(fetch);
+    EntityType entityType = getEntityTypeMock();
+    when(rowLevelSecurityQueryService.isSupported(entityType, query)).thenReturn(true);
+    when(permissionRegistry.getPermissions(READ))
+        .thenReturn(ImmutableSet.of(PermissionSet.READ, PermissionSet.WRITE));
+    RowLevelSecurityFilter filter =
+        RowLevelSecurityFilter.create(
+            "entity-entityTypeId", USERNAME, singletonList("ROLE_USER"), 12);
+    when(rowLevelSecurityQueryService.findAllIds(entityType, query, filter))
+        .thenReturn(Stream.of("entityId"));
+    Entity entity = mock(Entity.class);
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Stream<Object>> idsCaptor = ArgumentCaptor.forClass(Stream.class);
+    when(delegateRepository.findAll(idsCaptor.capture(), eq(fetch)))
+        .thenAnswer(invocation -> Stream.of(entity));
+    assertEquals(
+        rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()),
+        singletonList(entity));
+    assertEquals(idsCaptor.getValue().collect(toList()), singletonList("entityId"));
+  }
+
+  @WithMockUser(
+      username = USERNAME,
+      roles = {"SU"})
+  @Test
+  public void testCountQuerySuperuser() {
+    @SuppressWarnings("unchecked")
+    Query<Entity> query = mock(Query.class);
+    when(delegateRepository.count(query)).thenReturn(5L);
+    assertEquals(rowLevelSecurityRepositoryDecorator.count(query), 5L);
+  }
+
+  private EntityType getEntityTypeMock() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+    return entityType;
+  }
+
   private Entity getEntityMock() {
     EntityType entityType = mock(EntityType.class);
     when(entityType.getId()).thenReturn("entityTypeId");
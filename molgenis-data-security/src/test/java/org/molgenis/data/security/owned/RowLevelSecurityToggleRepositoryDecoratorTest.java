@@ -0,0 +1,86 @@
+package org.molgenis.data.security.owned;
+
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RowLevelSecurityToggleRepositoryDecoratorTest extends AbstractMockitoTest {
+  @Mock private Repository<Entity> delegateRepository;
+  @Mock private Repository<Entity> rowLevelSecuredRepository;
+  @Mock private MutableAclClassService mutableAclClassService;
+  @Mock private EntityType entityType;
+
+  private RowLevelSecurityToggleRepositoryDecorator rowLevelSecurityToggleRepositoryDecorator;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    rowLevelSecurityToggleRepositoryDecorator =
+        new RowLevelSecurityToggleRepositoryDecorator(
+            delegateRepository, rowLevelSecuredRepository, mutableAclClassService);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testRowLevelSecurityToggleRepositoryDecorator() {
+    new RowLevelSecurityToggleRepositoryDecorator(delegateRepository, null, null);
+  }
+
+  @Test
+  public void testCountRowLevelSecurityEnabled() {
+    setUpEntityType();
+    when(mutableAclClassService.hasAclClass("entity-entityTypeId")).thenReturn(true);
+    when(rowLevelSecuredRepository.count()).thenReturn(1L);
+    assertEquals(rowLevelSecurityToggleRepositoryDecorator.count(), 1L);
+  }
+
+  @Test
+  public void testCountRowLevelSecurityDisabled() {
+    setUpEntityType();
+    when(delegateRepository.count()).thenReturn(2L);
+    assertEquals(rowLevelSecurityToggleRepositoryDecorator.count(), 2L);
+  }
+
+  @Test
+  public void testCountRowLevelSecurityEnabledAfterCreation() {
+    setUpEntityType();
+    when(delegateRepository.count()).thenReturn(2L);
+    when(rowLevelSecuredRepository.count()).thenReturn(1L);
+    assertEquals(rowLevelSecurityToggleRepositoryDecorator.count(), 2L);
+
+    when(mutableAclClassService.hasAclClass("entity-entityTypeId")).thenReturn(true);
+    assertEquals(rowLevelSecurityToggleRepositoryDecorator.count(), 1L);
+  }
+
+  @Test
+  public void testUpsertBatchRowLevelSecurityEnabled() {
+    setUpEntityType();
+    when(mutableAclClassService.hasAclClass("entity-entityTypeId")).thenReturn(true);
+    List<Entity> entities = singletonList(mock(Entity.class));
+    rowLevelSecurityToggleRepositoryDecorator.upsertBatch(entities);
+    verify(rowLevelSecuredRepository).upsertBatch(entities);
+  }
+
+  @Test
+  public void testUpsertBatchRowLevelSecurityDisabled() {
+    setUpEntityType();
+    List<Entity> entities = singletonList(mock(Entity.class));
+    rowLevelSecurityToggleRepositoryDecorator.upsertBatch(entities);
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
+  private void setUpEntityType() {
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+  }
+}
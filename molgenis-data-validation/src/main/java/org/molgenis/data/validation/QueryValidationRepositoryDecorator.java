@@ -2,6 +2,7 @@ package org.molgenis.data.validation;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
@@ -43,4 +44,9 @@ public class QueryValidationRepositoryDecorator<E extends Entity>
     queryValidator.validate(q, getEntityType());
     return super.findOne(q);
   }
+
+  @Override
+  public void upsertBatch(List<E> entities) {
+    delegate().upsertBatch(entities);
+  }
 }
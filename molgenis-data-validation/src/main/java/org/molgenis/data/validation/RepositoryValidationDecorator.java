@@ -6,6 +6,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.Collections.unmodifiableSet;
@@ -19,8 +20,11 @@ import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -42,10 +46,28 @@ import org.molgenis.util.HugeMap;
 import org.molgenis.util.HugeSet;
 import org.molgenis.validation.ConstraintViolation;
 
+/**
+ * Validates entities before they are written to the decorated repository.
+ *
+ * <p>Reference and unique constraints of entity streams are validated against the ids and unique
+ * values of all existing entities if the involved tables are small. For larger tables, and when
+ * writing a single entity, only the values occurring in each batch of {@value #PROBE_BATCH_SIZE}
+ * entities are looked up with one query per unique attribute and queries of at most {@value
+ * #PROBE_QUERY_SIZE} ids per referenced entity type.
+ */
 public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<Entity> {
+  /** number of entities for which referenced ids and unique values are looked up together */
+  static final int PROBE_BATCH_SIZE = 1000;
+  /** maximum number of referenced ids looked up with a single query */
+  static final int PROBE_QUERY_SIZE = 1000;
+  /** maximum number of entities in a table for which all ids or unique values are loaded */
+  static final int MAX_PRELOAD_SIZE = 10000;
+
   private enum ValidationMode {
     ADD,
-    UPDATE
+    UPDATE,
+    /** add or update, depending on whether the entity exists */
+    UPSERT
   }
 
   private final DataService dataService;
@@ -95,6 +117,15 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    try (ValidationResource validationResource = new ValidationResource()) {
+      List<Entity> validatedEntities =
+          validate(entities.stream(), validationResource, ValidationMode.UPSERT).collect(toList());
+      delegate().upsertBatch(validatedEntities);
+    }
+  }
+
   @Override
   public void delete(Entity entity) {
     defaultValueReferenceValidator.validateEntityNotReferenced(entity);
@@ -133,22 +164,37 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       ValidationResource validationResource,
       ValidationMode validationMode) {
     // prepare validation
-    initValidation(validationResource, validationMode);
+    initValidation(validationResource, validationMode, false);
 
     ValidationProfile validationProfile = new ValidationProfile().invoke();
 
     // add validation operation to stream
-    return entities.filter(
-        entity -> {
-          validate(entity, validationResource, validationMode, validationProfile);
+    if (!validationResource.isProbing()) {
+      return entities.filter(
+          entity -> {
+            validate(entity, validationResource, validationMode, validationProfile);
+
+            return true;
+          });
+    }
 
-          return true;
-        });
+    Iterator<List<Entity>> batches = Iterators.partition(entities.iterator(), PROBE_BATCH_SIZE);
+    return stream(batches)
+        .flatMap(
+            batch -> {
+              probe(batch, validationResource);
+              batch.forEach(
+                  entity ->
+                      validate(entity, validationResource, validationMode, validationProfile));
+              return batch.stream();
+            })
+        .onClose(entities::close);
   }
 
   private void validate(
       Entity entity, ValidationResource validationResource, ValidationMode validationMode) {
-    initValidation(validationResource, validationMode);
+    initValidation(validationResource, validationMode, true);
+    probe(singletonList(entity), validationResource);
     validate(entity, validationResource, validationMode, new ValidationProfile().invoke());
   }
 
@@ -176,7 +222,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
     validateEntityValueReferences(entity, validationResource);
 
-    if (validationProfile.isValidateReadonly() && validationMode == ValidationMode.UPDATE) {
+    if (validationProfile.isValidateReadonly() && validationMode != ValidationMode.ADD) {
       validateEntityValueReadOnly(entity, validationResource);
     }
 
@@ -185,12 +231,16 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
+  /**
+   * @param singleEntity whether a single entity is validated, in which case existing values are
+   *     always looked up instead of preloaded
+   */
   private void initValidation(
-      ValidationResource validationResource, ValidationMode validationMode) {
+      ValidationResource validationResource, ValidationMode validationMode, boolean singleEntity) {
     initRequiredValueValidation(validationResource);
-    initReferenceValidation(validationResource);
-    initUniqueValidation(validationResource);
-    if (validationMode == ValidationMode.UPDATE) {
+    initReferenceValidation(validationResource, singleEntity);
+    initUniqueValidation(validationResource, singleEntity);
+    if (validationMode != ValidationMode.ADD) {
       initReadonlyValidation(validationResource);
     }
   }
@@ -206,7 +256,8 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
-  private void initReferenceValidation(ValidationResource validationResource) {
+  private void initReferenceValidation(
+      ValidationResource validationResource, boolean singleEntity) {
     // get reference attrs
     List<Attribute> refAttrs;
     if (!getCapabilities().contains(VALIDATE_REFERENCE_CONSTRAINT)) {
@@ -233,6 +284,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     // get referenced entity ids
     if (!refAttrs.isEmpty()) {
       Map<String, HugeSet<Object>> refEntitiesIds = new HashMap<>();
+      Set<String> probedRefEntityTypeIds = new HashSet<>();
       refAttrs.forEach(
           refAttr -> {
             EntityType refEntityType = refAttr.getRefEntity();
@@ -242,17 +294,23 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
               refEntityIds = new HugeSet<>();
               refEntitiesIds.put(refEntityName, refEntityIds);
 
-              Query<Entity> q =
-                  new QueryImpl<>()
-                      .fetch(new Fetch().field(refEntityType.getIdAttribute().getName()));
-              for (Iterator<Entity> it = dataService.findAll(refEntityName, q).iterator();
-                  it.hasNext(); ) {
-                refEntityIds.add(it.next().getIdValue());
+              if (singleEntity || dataService.count(refEntityName) > MAX_PRELOAD_SIZE) {
+                // referenced ids are looked up per batch, only added self references are collected
+                probedRefEntityTypeIds.add(refEntityName);
+              } else {
+                Query<Entity> q =
+                    new QueryImpl<>()
+                        .fetch(new Fetch().field(refEntityType.getIdAttribute().getName()));
+                for (Iterator<Entity> it = dataService.findAll(refEntityName, q).iterator();
+                    it.hasNext(); ) {
+                  refEntityIds.add(it.next().getIdValue());
+                }
               }
             }
           });
 
       validationResource.setRefEntitiesIds(refEntitiesIds);
+      validationResource.setProbedRefEntityTypeIds(probedRefEntityTypeIds);
     }
 
     validationResource.setSelfReferencing(
@@ -268,7 +326,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     return !backend.equals(refEntityBackend);
   }
 
-  private void initUniqueValidation(ValidationResource validationResource) {
+  private void initUniqueValidation(ValidationResource validationResource, boolean singleEntity) {
     if (!getCapabilities().contains(VALIDATE_UNIQUE_CONSTRAINT)) {
       // get unique attributes
       List<Attribute> uniqueAttrs =
@@ -287,23 +345,25 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
               fetch.field(uniqueAttr.getName());
             });
 
-        Query<Entity> q = new QueryImpl<>().fetch(fetch);
-        delegate()
-            .findAll(q)
-            .forEach(
-                entity ->
-                    uniqueAttrs.forEach(
-                        uniqueAttr -> {
-                          HugeMap<Object, Object> uniqueAttrValues =
-                              uniqueAttrsValues.get(uniqueAttr.getName());
-                          Object attrValue = entity.get(uniqueAttr.getName());
-                          if (attrValue != null) {
-                            if (isSingleReferenceType(uniqueAttr)) {
-                              attrValue = ((Entity) attrValue).getIdValue();
+        if (singleEntity || delegate().count() > MAX_PRELOAD_SIZE) {
+          // existing values are looked up per batch, only added values are collected
+          validationResource.setProbeUniqueAttrsValues(true);
+        } else {
+          Query<Entity> q = new QueryImpl<>().fetch(fetch);
+          delegate()
+              .findAll(q)
+              .forEach(
+                  entity ->
+                      uniqueAttrs.forEach(
+                          uniqueAttr -> {
+                            HugeMap<Object, Object> uniqueAttrValues =
+                                uniqueAttrsValues.get(uniqueAttr.getName());
+                            Object attrValue = getUniqueAttrValue(entity, uniqueAttr);
+                            if (attrValue != null) {
+                              uniqueAttrValues.put(attrValue, entity.getIdValue());
                             }
-                            uniqueAttrValues.put(attrValue, entity.getIdValue());
-                          }
-                        }));
+                          }));
+        }
 
         validationResource.setUniqueAttrsValues(uniqueAttrsValues);
       }
@@ -312,6 +372,113 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
+  private static Object getUniqueAttrValue(Entity entity, Attribute uniqueAttr) {
+    Object attrValue = entity.get(uniqueAttr.getName());
+    if (attrValue != null && isSingleReferenceType(uniqueAttr)) {
+      attrValue = ((Entity) attrValue).getIdValue();
+    }
+    return attrValue;
+  }
+
+  /**
+   * Looks up which of the entities referenced by a batch of entities exist and which of its unique
+   * attribute values already exist for the entity types and unique attributes that were not
+   * preloaded.
+   */
+  private void probe(List<Entity> entities, ValidationResource validationResource) {
+    validationResource.setProbedRefEntitiesIds(probeRefEntitiesIds(entities, validationResource));
+    if (validationResource.isProbeUniqueAttrsValues()) {
+      validationResource.setProbedUniqueAttrsValues(
+          probeUniqueAttrsValues(entities, validationResource));
+    }
+  }
+
+  private Map<String, Set<Object>> probeRefEntitiesIds(
+      List<Entity> entities, ValidationResource validationResource) {
+    Set<String> probedRefEntityTypeIds = validationResource.getProbedRefEntityTypeIds();
+    if (probedRefEntityTypeIds.isEmpty()) {
+      return emptyMap();
+    }
+
+    Map<String, EntityType> refEntityTypes = new HashMap<>();
+    Map<String, Set<Object>> refEntitiesIds = new HashMap<>();
+    validationResource
+        .getRefAttrs()
+        .stream()
+        .filter(refAttr -> probedRefEntityTypeIds.contains(refAttr.getRefEntity().getId()))
+        .forEach(
+            refAttr -> {
+              EntityType refEntityType = refAttr.getRefEntity();
+              refEntityTypes.putIfAbsent(refEntityType.getId(), refEntityType);
+              Set<Object> refEntityIds =
+                  refEntitiesIds.computeIfAbsent(refEntityType.getId(), id -> new HashSet<>());
+              entities.forEach(
+                  entity ->
+                      getRefEntities(entity, refAttr)
+                          .forEach(refEntity -> refEntityIds.add(refEntity.getIdValue())));
+            });
+
+    Map<String, Set<Object>> existingRefEntitiesIds = new HashMap<>();
+    refEntitiesIds.forEach(
+        (refEntityTypeId, refEntityIds) ->
+            existingRefEntitiesIds.put(
+                refEntityTypeId,
+                findExistingIds(refEntityTypes.get(refEntityTypeId), refEntityIds)));
+    return existingRefEntitiesIds;
+  }
+
+  private Set<Object> findExistingIds(EntityType entityType, Set<Object> ids) {
+    if (ids.isEmpty()) {
+      return emptySet();
+    }
+    // each entity can reference many entities, so split the lookup to keep queries small
+    String idAttrName = entityType.getIdAttribute().getName();
+    Set<Object> existingIds = new HashSet<>();
+    for (List<Object> idsPartition : Iterables.partition(ids, PROBE_QUERY_SIZE)) {
+      Query<Entity> q =
+          new QueryImpl<>()
+              .in(idAttrName, new HashSet<>(idsPartition))
+              .fetch(new Fetch().field(idAttrName));
+      dataService.findAll(entityType.getId(), q).map(Entity::getIdValue).forEach(existingIds::add);
+    }
+    return existingIds;
+  }
+
+  private Map<String, Map<Object, Object>> probeUniqueAttrsValues(
+      List<Entity> entities, ValidationResource validationResource) {
+    String idAttrName = getEntityType().getIdAttribute().getName();
+    Map<String, Map<Object, Object>> existingUniqueAttrsValues = new HashMap<>();
+    validationResource
+        .getUniqueAttrs()
+        .forEach(
+            uniqueAttr -> {
+              Set<Object> attrValues = new HashSet<>();
+              entities.forEach(
+                  entity -> {
+                    Object attrValue = getUniqueAttrValue(entity, uniqueAttr);
+                    if (attrValue != null) {
+                      attrValues.add(attrValue);
+                    }
+                  });
+
+              Map<Object, Object> existingUniqueAttrValues = new HashMap<>();
+              if (!attrValues.isEmpty()) {
+                Query<Entity> q =
+                    new QueryImpl<>()
+                        .in(uniqueAttr.getName(), attrValues)
+                        .fetch(new Fetch().field(idAttrName).field(uniqueAttr.getName()));
+                delegate()
+                    .findAll(q)
+                    .forEach(
+                        entity ->
+                            existingUniqueAttrValues.put(
+                                getUniqueAttrValue(entity, uniqueAttr), entity.getIdValue()));
+              }
+              existingUniqueAttrsValues.put(uniqueAttr.getName(), existingUniqueAttrValues);
+            });
+    return existingUniqueAttrsValues;
+  }
+
   private void initReadonlyValidation(ValidationResource validationResource) {
     if (!getCapabilities().contains(VALIDATE_READONLY_CONSTRAINT)) {
       String idAttrName = getEntityType().getIdAttribute().getName();
@@ -364,17 +531,17 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
         .getUniqueAttrs()
         .forEach(
             uniqueAttr -> {
-              Object attrValue = entity.get(uniqueAttr.getName());
+              Object attrValue = getUniqueAttrValue(entity, uniqueAttr);
               if (attrValue != null) {
-                if (isSingleReferenceType(uniqueAttr)) {
-                  attrValue = ((Entity) attrValue).getIdValue();
-                }
-
                 HugeMap<Object, Object> uniqueAttrValues =
                     validationResource.getUniqueAttrsValues().get(uniqueAttr.getName());
                 Object existingEntityId = uniqueAttrValues.get(attrValue);
+                if (existingEntityId == null) {
+                  existingEntityId =
+                      validationResource.getProbedUniqueAttrValue(uniqueAttr.getName(), attrValue);
+                }
                 if ((validationMode == ValidationMode.ADD && existingEntityId != null)
-                    || (validationMode == ValidationMode.UPDATE
+                    || (validationMode != ValidationMode.ADD
                         && existingEntityId != null
                         && !existingEntityId.equals(entity.getIdValue()))) {
                   ConstraintViolation constraintViolation =
@@ -396,23 +563,10 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
         .getRefAttrs()
         .forEach(
             refAttr -> {
-              HugeSet<Object> refEntityIds =
-                  validationResource.getRefEntitiesIds().get(refAttr.getRefEntity().getId());
-
-              Iterable<Entity> refEntities;
-              if (isSingleReferenceType(refAttr)) {
-                Entity refEntity = entity.getEntity(refAttr.getName());
-                if (refEntity != null) {
-                  refEntities = singleton(refEntity);
-                } else {
-                  refEntities = emptyList();
-                }
-              } else {
-                refEntities = entity.getEntities(refAttr.getName());
-              }
-
-              for (Entity refEntity : refEntities) {
-                if (!refEntityIds.contains(refEntity.getIdValue())) {
+              String refEntityTypeId = refAttr.getRefEntity().getId();
+              for (Entity refEntity : getRefEntities(entity, refAttr)) {
+                if (!validationResource.containsRefEntityId(
+                    refEntityTypeId, refEntity.getIdValue())) {
                   boolean selfReference =
                       entity.getEntityType().getId().equals(refAttr.getRefEntity().getId());
                   if (!(selfReference && entity.getIdValue().equals(refEntity.getIdValue()))) {
@@ -437,6 +591,21 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
             });
   }
 
+  private static Iterable<Entity> getRefEntities(Entity entity, Attribute refAttr) {
+    Iterable<Entity> refEntities;
+    if (isSingleReferenceType(refAttr)) {
+      Entity refEntity = entity.getEntity(refAttr.getName());
+      if (refEntity != null) {
+        refEntities = singleton(refEntity);
+      } else {
+        refEntities = emptyList();
+      }
+    } else {
+      refEntities = entity.getEntities(refAttr.getName());
+    }
+    return refEntities;
+  }
+
   @SuppressWarnings("unchecked")
   private void validateEntityValueReadOnly(Entity entity, ValidationResource validationResource) {
     if (validationResource.getReadonlyAttrs().isEmpty()) {
@@ -444,6 +613,10 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
 
     Entity entityToUpdate = findOneById(entity.getIdValue());
+    if (entityToUpdate == null) {
+      // upserted entity that does not exist yet
+      return;
+    }
     validationResource
         .getReadonlyAttrs()
         .forEach(
@@ -488,8 +661,12 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     private List<Attribute> requiredValueAttrs;
     private List<Attribute> refAttrs;
     private Map<String, HugeSet<Object>> refEntitiesIds;
+    private Set<String> probedRefEntityTypeIds;
+    private Map<String, Set<Object>> probedRefEntitiesIds;
     private List<Attribute> uniqueAttrs;
     private Map<String, HugeMap<Object, Object>> uniqueAttrsValues;
+    private boolean probeUniqueAttrsValues;
+    private Map<String, Map<Object, Object>> probedUniqueAttrsValues;
     private List<Attribute> readonlyAttrs;
     private boolean selfReferencing;
     private Set<ConstraintViolation> violations;
@@ -530,6 +707,32 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.refEntitiesIds = refEntitiesIds;
     }
 
+    Set<String> getProbedRefEntityTypeIds() {
+      return probedRefEntityTypeIds != null ? unmodifiableSet(probedRefEntityTypeIds) : emptySet();
+    }
+
+    void setProbedRefEntityTypeIds(Set<String> probedRefEntityTypeIds) {
+      this.probedRefEntityTypeIds = probedRefEntityTypeIds;
+    }
+
+    void setProbedRefEntitiesIds(Map<String, Set<Object>> probedRefEntitiesIds) {
+      this.probedRefEntitiesIds = probedRefEntitiesIds;
+    }
+
+    /**
+     * Returns whether a referenced entity exists in the repository or was added before in the
+     * current validation run.
+     */
+    boolean containsRefEntityId(String refEntityTypeId, Object idValue) {
+      HugeSet<Object> refEntityIds = refEntitiesIds.get(refEntityTypeId);
+      if (refEntityIds.contains(idValue)) {
+        return true;
+      }
+      Set<Object> probedRefEntityIds =
+          probedRefEntitiesIds != null ? probedRefEntitiesIds.get(refEntityTypeId) : null;
+      return probedRefEntityIds != null && probedRefEntityIds.contains(idValue);
+    }
+
     void addRefEntityId(String name, Object idValue) {
       HugeSet<Object> refEntityIds = refEntitiesIds.get(name);
       // only add entity id if this validation run requires entity
@@ -554,6 +757,30 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.uniqueAttrsValues = uniqueAttrsValues;
     }
 
+    boolean isProbeUniqueAttrsValues() {
+      return probeUniqueAttrsValues;
+    }
+
+    void setProbeUniqueAttrsValues(boolean probeUniqueAttrsValues) {
+      this.probeUniqueAttrsValues = probeUniqueAttrsValues;
+    }
+
+    void setProbedUniqueAttrsValues(Map<String, Map<Object, Object>> probedUniqueAttrsValues) {
+      this.probedUniqueAttrsValues = probedUniqueAttrsValues;
+    }
+
+    /** @return id of the existing entity with the unique attribute value or null */
+    Object getProbedUniqueAttrValue(String uniqueAttrName, Object attrValue) {
+      Map<Object, Object> probedUniqueAttrValues =
+          probedUniqueAttrsValues != null ? probedUniqueAttrsValues.get(uniqueAttrName) : null;
+      return probedUniqueAttrValues != null ? probedUniqueAttrValues.get(attrValue) : null;
+    }
+
+    /** @return whether existing values are looked up per batch of entities */
+    boolean isProbing() {
+      return !getProbedRefEntityTypeIds().isEmpty() || probeUniqueAttrsValues;
+    }
+
     List<Attribute> getReadonlyAttrs() {
       return readonlyAttrs != null ? unmodifiableList(readonlyAttrs) : emptyList();
     }
@@ -4,8 +4,11 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -13,18 +16,26 @@ import static org.molgenis.data.meta.AttributeType.MREF;
 import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.stubbing.Answer;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
 import org.molgenis.data.RepositoryCapability;
 import org.molgenis.data.RepositoryCollection;
@@ -193,6 +204,8 @@ public class RepositoryValidationDecoratorTest {
     when(refRepo.getEntityType()).thenReturn(refEntityType);
 
     dataService = mock(DataService.class);
+    when(dataService.findAll(eq(refEntityName), ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(refEntity0, refEntity1));
     when(dataService.getRepository(entityTypeId)).thenReturn(delegateRepository);
     when(dataService.getRepository(refEntityName)).thenReturn(refRepo);
     when(dataService.findAll(
@@ -213,6 +226,31 @@ public class RepositoryValidationDecoratorTest {
             defaultValueReferenceValidator);
   }
 
+  /**
+   * Answers a query with an 'in' rule on one attribute with the entities whose attribute value is
+   * one of the rule values, or a query without rules with all entities.
+   */
+  private static Answer<Stream<Entity>> findAllIn(Entity... entities) {
+    return invocation -> {
+      Object[] arguments = invocation.getArguments();
+      Query<?> query = (Query<?>) arguments[arguments.length - 1];
+      if (query.getRules().isEmpty()) {
+        return Arrays.stream(entities);
+      }
+      QueryRule queryRule = query.getRules().get(0);
+      Collection<?> values = (Collection<?>) queryRule.getValue();
+      return Arrays.stream(entities)
+          .filter(
+              entity -> {
+                Object value = entity.get(queryRule.getField());
+                if (value instanceof Entity) {
+                  value = ((Entity) value).getIdValue();
+                }
+                return values.contains(value);
+              });
+    };
+  }
+
   @Test
   public void query() throws Exception {
     assertEquals(
@@ -491,8 +529,8 @@ public class RepositoryValidationDecoratorTest {
     when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
     // actual tests
-    when(dataService.findAll(entityTypeId, new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entity0));
+    when(dataService.findAll(eq(entityTypeId), ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entity0));
     repositoryValidationDecorator.add(entity0);
 
     verify(delegateRepository, times(1)).add(entity0);
@@ -620,6 +658,59 @@ public class RepositoryValidationDecoratorTest {
     }
   }
 
+  @Test
+  public void addReferenceMrefManyRefEntities() {
+    // more ids than the maximum number of bind parameters of a PostgreSQL statement
+    int nrRefEntities = Short.MAX_VALUE + 1;
+    Map<Object, Entity> refEntities = new HashMap<>();
+    for (int i = 0; i < nrRefEntities; i++) {
+      String refEntityId = "idref" + i;
+      Entity refEntity = mock(Entity.class);
+      when(refEntity.getIdValue()).thenReturn(refEntityId);
+      refEntities.put(refEntityId, refEntity);
+    }
+    List<Integer> querySizes = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              Query<Entity> query = invocation.getArgument(1);
+              Collection<?> ids = (Collection<?>) query.getRules().get(0).getValue();
+              querySizes.add(ids.size());
+              return ids.stream().map(refEntities::get);
+            })
+        .when(dataService)
+        .findAll(eq(refEntityName), ArgumentMatchers.<Query<Entity>>any());
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    List<Entity> mrefEntities = new ArrayList<>(refEntities.values());
+    when(entity0.getEntities(attrMrefName)).thenReturn(mrefEntities);
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(mrefEntities);
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    // actual tests
+    repositoryValidationDecorator.add(entity0);
+    verify(delegateRepository).add(entity0);
+    assertEquals(querySizes.stream().mapToInt(Integer::intValue).sum(), nrRefEntities);
+    assertTrue(
+        querySizes
+            .stream()
+            .allMatch(querySize -> querySize <= RepositoryValidationDecorator.PROBE_QUERY_SIZE));
+  }
+
   @Test
   public void addUniqueStringValueExistsInBackendValidationError() {
     Entity entityInBackend0 = mock(Entity.class);
@@ -641,8 +732,8 @@ public class RepositoryValidationDecoratorTest {
     when(entityInBackend0.get(attrUniqueStringName)).thenReturn("unique0");
     when(entityInBackend0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
-    when(delegateRepository.findAll(new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entityInBackend0));
+    when(delegateRepository.findAll(ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entityInBackend0));
 
     // entities
     Entity entity0 = mock(Entity.class);
@@ -699,8 +790,8 @@ public class RepositoryValidationDecoratorTest {
     when(entityInBackend0.get(attrUniqueStringName)).thenReturn("unique0");
     when(entityInBackend0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
-    when(delegateRepository.findAll(new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entityInBackend0));
+    when(delegateRepository.findAll(ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entityInBackend0));
 
     // entities
     Entity entity0 = mock(Entity.class);
@@ -751,8 +842,8 @@ public class RepositoryValidationDecoratorTest {
     when(entityInBackend0.get(attrUniqueStringName)).thenReturn("unique0");
     when(entityInBackend0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
-    when(delegateRepository.findAll(new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entityInBackend0));
+    when(delegateRepository.findAll(ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entityInBackend0));
 
     // entities
     Entity entity0 = mock(Entity.class);
@@ -1173,6 +1264,154 @@ public class RepositoryValidationDecoratorTest {
     }
   }
 
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void addStreamReferenceXrefDoesNotExistsLargeRefTableValidationError() {
+    String refEntityDoesNotExistId = "id1";
+    Entity refEntityDoesNotExist = mock(Entity.class);
+    when(refEntityDoesNotExist.getEntityType()).thenReturn(refEntityType);
+    when(refEntityDoesNotExist.getIdValue()).thenReturn(refEntityDoesNotExistId);
+    when(refEntityDoesNotExist.get(refAttrIdName)).thenReturn(refEntityDoesNotExistId);
+    when(refEntityDoesNotExist.getString(refAttrIdName)).thenReturn(refEntityDoesNotExistId);
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    Entity entity1 = mock(Entity.class);
+    when(entity1.getEntityType()).thenReturn(entityType);
+
+    when(entity1.getIdValue()).thenReturn("id1");
+    when(entity1.getEntity(attrXrefName)).thenReturn(refEntityDoesNotExist);
+    when(entity1.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity1.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity1.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.getString(attrUniqueStringName)).thenReturn("unique1");
+    when(entity1.getEntity(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    when(entity1.get(attrIdName)).thenReturn("id1");
+    when(entity1.get(attrXrefName)).thenReturn(refEntityDoesNotExist);
+    when(entity1.get(attrNillableXrefName)).thenReturn(null);
+    when(entity1.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity1.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.get(attrUniqueStringName)).thenReturn("unique1");
+    when(entity1.get(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    when(dataService.count(refEntityName))
+        .thenReturn(RepositoryValidationDecorator.MAX_PRELOAD_SIZE + 1L);
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0, entity1);
+    repositoryValidationDecorator.add(entities.stream());
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository, times(1)).add(captor.capture());
+    Stream<Entity> stream = captor.getValue();
+    try {
+      stream.collect(toList()); // process stream to enable validation
+
+      throw new RuntimeException("Expected MolgenisValidationException instead of no exception");
+    } catch (MolgenisValidationException e) {
+      verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+      verify(entityAttributesValidator, times(1)).validate(entity1, entityType);
+      assertEquals(
+          e.getMessage(),
+          "Unknown xref value 'id1' for attribute 'xrefAttr' of entity 'entity'. (entity 2)");
+      verify(dataService, never()).findAll(refEntityName, new QueryImpl<>());
+      verify(dataService)
+          .findAll(
+              refEntityName,
+              new QueryImpl<>()
+                  .in(refAttrIdName, new HashSet<>(Arrays.asList("idref0", "idref1", "id1"))));
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void addStreamUniqueStringValueExistsInLargeBackendValidationError() {
+    Entity entityInBackend0 = mock(Entity.class);
+    when(entityInBackend0.getIdValue()).thenReturn("idbackend0");
+    when(entityInBackend0.get(attrUniqueStringName)).thenReturn("unique1");
+    when(delegateRepository.count())
+        .thenReturn(RepositoryValidationDecorator.MAX_PRELOAD_SIZE + 1L);
+    when(delegateRepository.findAll(ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entityInBackend0));
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    Entity entity1 = mock(Entity.class);
+    when(entity1.getEntityType()).thenReturn(entityType);
+
+    when(entity1.getIdValue()).thenReturn("id1");
+    when(entity1.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity1.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity1.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity1.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.getString(attrUniqueStringName)).thenReturn("unique1");
+    when(entity1.getEntity(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    when(entity1.get(attrIdName)).thenReturn("id1");
+    when(entity1.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity1.get(attrNillableXrefName)).thenReturn(null);
+    when(entity1.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity1.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.get(attrUniqueStringName)).thenReturn("unique1");
+    when(entity1.get(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0, entity1);
+    repositoryValidationDecorator.add(entities.stream());
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository, times(1)).add(captor.capture());
+    Stream<Entity> stream = captor.getValue();
+    try {
+      stream.collect(toList()); // process stream to enable validation
+
+      throw new RuntimeException("Expected MolgenisValidationException instead of no exception");
+    } catch (MolgenisValidationException e) {
+      verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+      verify(entityAttributesValidator, times(1)).validate(entity1, entityType);
+      assertEquals(
+          e.getMessage(),
+          "Duplicate value 'unique1' for unique attribute 'uniqueStringAttr' from entity 'entity' (entity 2)");
+    }
+  }
+
   @SuppressWarnings({"rawtypes", "unchecked"})
   @Test
   public void addStreamReferenceAttrWithExpression() {
@@ -1745,8 +1984,8 @@ public class RepositoryValidationDecoratorTest {
     when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
     // actual tests
-    when(dataService.findAll(entityTypeId, new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entity0));
+    when(dataService.findAll(eq(entityTypeId), ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entity0));
     repositoryValidationDecorator.update(entity0);
     verify(delegateRepository, times(1)).update(entity0);
     verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
@@ -1894,8 +2133,8 @@ public class RepositoryValidationDecoratorTest {
     when(entityInBackend0.get(attrUniqueStringName)).thenReturn("unique0");
     when(entityInBackend0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
-    when(delegateRepository.findAll(new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entityInBackend0));
+    when(delegateRepository.findAll(ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entityInBackend0));
 
     // entities
     Entity entity0 = mock(Entity.class);
@@ -1952,8 +2191,8 @@ public class RepositoryValidationDecoratorTest {
     when(entityInBackend0.get(attrUniqueStringName)).thenReturn("unique0");
     when(entityInBackend0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
-    when(delegateRepository.findAll(new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entityInBackend0));
+    when(delegateRepository.findAll(ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entityInBackend0));
 
     // entities
     Entity entity0 = mock(Entity.class);
@@ -2004,8 +2243,8 @@ public class RepositoryValidationDecoratorTest {
     when(entityInBackend0.get(attrUniqueStringName)).thenReturn("unique0");
     when(entityInBackend0.get(attrUniqueXrefName)).thenReturn(refEntity0);
 
-    when(delegateRepository.findAll(new QueryImpl<>().fetch(new Fetch().field(attrIdName))))
-        .thenReturn(Stream.of(entityInBackend0));
+    when(delegateRepository.findAll(ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(findAllIn(entityInBackend0));
 
     // entities
     Entity entity0 = mock(Entity.class);
@@ -3280,6 +3519,87 @@ public class RepositoryValidationDecoratorTest {
     }
   }
 
+  @Test
+  public void upsertBatch() {
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0);
+    repositoryValidationDecorator.upsertBatch(entities);
+
+    verify(delegateRepository, times(1)).upsertBatch(entities);
+    verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+  }
+
+  @Test
+  public void upsertBatchReadOnlyStringAttrNewEntity() {
+    String attrReadonlyStringName = "readonlyStringAttr";
+
+    Attribute readonlyStringAttr =
+        when(mock(Attribute.class).getName()).thenReturn(attrReadonlyStringName).getMock();
+    when(readonlyStringAttr.getDataType()).thenReturn(STRING);
+    when(readonlyStringAttr.isReadOnly()).thenReturn(true);
+
+    when(entityType.getAttribute(attrReadonlyStringName)).thenReturn(readonlyStringAttr);
+    when(entityType.getAtomicAttributes())
+        .thenReturn(
+            Arrays.asList(
+                idAttr,
+                xrefAttr,
+                nillableXrefAttr,
+                mrefAttr,
+                nillableMrefAttr,
+                uniqueStringAttr,
+                uniqueXrefAttr,
+                readonlyStringAttr));
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+    when(entity0.getString(attrReadonlyStringName)).thenReturn("str0");
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrReadonlyStringName)).thenReturn("str0");
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0);
+    repositoryValidationDecorator.upsertBatch(entities);
+
+    verify(delegateRepository).findOneById("id0");
+    verify(delegateRepository, times(1)).upsertBatch(entities);
+  }
+
   @SuppressWarnings({"rawtypes", "unchecked"})
   @Test
   public void updateStreamReadOnlyStringAttrValidationError() {
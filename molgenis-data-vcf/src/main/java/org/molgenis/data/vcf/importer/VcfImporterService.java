@@ -1,6 +1,7 @@
 package org.molgenis.data.vcf.importer;
 
 import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.BulkLoadContextHolder.runInBulkLoadMode;
 import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
 import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
 
@@ -36,6 +37,7 @@ import org.molgenis.data.security.permission.PermissionSystemService;
 import org.molgenis.data.vcf.VcfFileExtensions;
 import org.molgenis.data.vcf.VcfRepository;
 import org.molgenis.data.vcf.model.VcfAttributes;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -46,15 +48,18 @@ public class VcfImporterService implements ImportService {
   private final DataService dataService;
   private final PermissionSystemService permissionSystemService;
   private final MetaDataService metaDataService;
+  private final boolean bulkLoad;
 
   public VcfImporterService(
       DataService dataService,
       PermissionSystemService permissionSystemService,
-      MetaDataService metaDataService) {
+      MetaDataService metaDataService,
+      @Value("${import.bulk.load:false}") boolean bulkLoad) {
 
     this.dataService = requireNonNull(dataService);
     this.metaDataService = requireNonNull(metaDataService);
     this.permissionSystemService = requireNonNull(permissionSystemService);
+    this.bulkLoad = bulkLoad;
   }
 
   @Transactional
@@ -176,7 +181,7 @@ public class VcfImporterService implements ImportService {
       AtomicInteger vcfEntityCount = new AtomicInteger();
       inRepository.forEachBatched(
           rowBatch -> {
-            outRepository.add(rowBatch.stream());
+            add(outRepository, rowBatch);
             vcfEntityCount.addAndGet(rowBatch.size());
           },
           VcfRepository.BATCH_SIZE);
@@ -204,7 +209,7 @@ public class VcfImporterService implements ImportService {
                 sampleBatch.add(sample);
 
                 if (sampleBatch.size() == BATCH_SIZE) {
-                  sampleRepository.add(sampleBatch.stream());
+                  add(sampleRepository, sampleBatch);
                   sampleEntityCount.addAndGet(sampleBatch.size());
                   sampleBatch.clear();
                 }
@@ -215,12 +220,20 @@ public class VcfImporterService implements ImportService {
         1000);
 
     if (!sampleBatch.isEmpty()) {
-      sampleRepository.add(sampleBatch.stream());
+      add(sampleRepository, sampleBatch);
       sampleEntityCount.addAndGet(sampleBatch.size());
     }
     return sampleEntityCount.get();
   }
 
+  private void add(Repository<Entity> repository, List<Entity> entities) {
+    if (bulkLoad) {
+      runInBulkLoadMode(() -> repository.add(entities.stream()));
+    } else {
+      repository.add(entities.stream());
+    }
+  }
+
   private Repository<Entity> createSampleRepository(
       List<EntityType> addedEntities, EntityType entityType, Package samplePackage) {
     Repository<Entity> sampleRepository;
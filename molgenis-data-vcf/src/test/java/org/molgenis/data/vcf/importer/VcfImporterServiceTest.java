@@ -69,7 +69,7 @@ public class VcfImporterServiceTest extends AbstractMockitoTest {
   @BeforeMethod
   public void setUpBeforeMethod() {
     vcfImporterService =
-        new VcfImporterService(dataService, permissionSystemService, metaDataService);
+        new VcfImporterService(dataService, permissionSystemService, metaDataService, false);
     SecurityContextHolder.setContext(securityContext);
   }
 
@@ -0,0 +1,40 @@
+package org.molgenis.data;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of whether the current thread is bulk loading data. Repositories that support a
+ * faster way of adding large amounts of data, at the cost of less detailed error messages, only use
+ * it in bulk load mode.
+ */
+public class BulkLoadContextHolder {
+  private BulkLoadContextHolder() {}
+
+  private static final ThreadLocal<Boolean> bulkLoadHolder = new ThreadLocal<>();
+
+  public static boolean isBulkLoadMode() {
+    return Boolean.TRUE.equals(bulkLoadHolder.get());
+  }
+
+  public static void runInBulkLoadMode(Runnable runnable) {
+    runInBulkLoadMode(
+        () -> {
+          runnable.run();
+          return null;
+        });
+  }
+
+  public static <T> T runInBulkLoadMode(Supplier<T> supplier) {
+    Boolean previousBulkLoad = bulkLoadHolder.get();
+    bulkLoadHolder.set(Boolean.TRUE);
+    try {
+      return supplier.get();
+    } finally {
+      if (previousBulkLoad != null) {
+        bulkLoadHolder.set(previousBulkLoad);
+      } else {
+        bulkLoadHolder.remove();
+      }
+    }
+  }
+}
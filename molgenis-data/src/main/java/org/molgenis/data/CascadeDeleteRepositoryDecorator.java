@@ -5,6 +5,7 @@ import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
 import com.google.common.collect.Iterators;
+import java.util.List;
 import java.util.stream.Stream;
 import org.molgenis.data.meta.model.Attribute;
 
@@ -87,6 +88,11 @@ public class CascadeDeleteRepositoryDecorator extends AbstractRepositoryDecorato
     }
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   /**
    * Guarantee that referenced entities for attributes with cascade delete are loaded, e.g. in case
    * entity is a lazy or partial entity.
@@ -26,6 +26,7 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.populate.EntityPopulator;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.EntityWithComputedAttributes;
+import org.molgenis.data.support.LazyEntity;
 import org.molgenis.data.support.PartialEntity;
 import org.molgenis.data.util.EntityTypeUtils;
 import org.springframework.stereotype.Component;
@@ -161,7 +162,7 @@ public class EntityManagerImpl implements EntityManager {
       if (isSingleReferenceType(attr)) {
         for (Entity entity : entities) {
           Entity lazyRefEntity = entity.getEntity(attr.getName());
-          if (lazyRefEntity != null) {
+          if (lazyRefEntity != null && isLazy(lazyRefEntity)) {
             lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
           }
         }
@@ -170,7 +171,9 @@ public class EntityManagerImpl implements EntityManager {
         for (Entity entity : entities) {
           Iterable<Entity> lazyRefEntities = entity.getEntities(attr.getName());
           for (Entity lazyRefEntity : lazyRefEntities) {
-            lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
+            if (isLazy(lazyRefEntity)) {
+              lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
+            }
           }
         }
       }
@@ -200,7 +203,7 @@ public class EntityManagerImpl implements EntityManager {
           String attrName = attr.getName();
           for (Entity entity : entities) {
             Entity lazyRefEntity = entity.getEntity(attrName);
-            if (lazyRefEntity != null) {
+            if (lazyRefEntity != null && isLazy(lazyRefEntity)) {
               // replace lazy entity with real entity
               Object refEntityId = lazyRefEntity.getIdValue();
               Entity refEntity = refEntitiesIdMap.get(refEntityId);
@@ -216,6 +219,9 @@ public class EntityManagerImpl implements EntityManager {
                 stream(lazyRefEntities.spliterator(), true)
                     .map(
                         lazyRefEntity -> {
+                          if (!isLazy(lazyRefEntity)) {
+                            return lazyRefEntity;
+                          }
                           // replace lazy entity with real entity
                           Object refEntityId = lazyRefEntity.getIdValue();
                           return refEntitiesIdMap.get(refEntityId);
@@ -230,6 +236,16 @@ public class EntityManagerImpl implements EntityManager {
     return entities;
   }
 
+  /**
+   * Returns whether a referenced entity still needs to be resolved. References to entity types with
+   * a static entity factory wrap lazy entities and are always resolved. Other referenced entities
+   * are already resolved if they are not lazy, e.g. because the backend join fetched them.
+   */
+  private boolean isLazy(Entity refEntity) {
+    return refEntity instanceof LazyEntity
+        || entityFactoryRegistry.getEntityFactory(refEntity.getEntityType()) != null;
+  }
+
   private static Fetch createSubFetch(Fetch fetch, Iterable<Attribute> attrs) {
     Fetch subFetch = null;
     for (Attribute attr : attrs) {
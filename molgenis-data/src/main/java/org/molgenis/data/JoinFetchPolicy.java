@@ -0,0 +1,16 @@
+package org.molgenis.data;
+
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * Decides whether a backend may read referenced entities in the same query that selects the
+ * referencing entities (join fetch). Join fetched entities are not read through the repository of
+ * the referenced entity type, so its repository decorators are not applied.
+ */
+public interface JoinFetchPolicy {
+  /**
+   * Returns whether entities of the given entity type may be join fetched for the current user,
+   * which requires that reading them through their repository would return the same data.
+   */
+  boolean isJoinFetchAllowed(EntityType entityType);
+}
@@ -38,6 +38,9 @@ public interface Repository<E extends Entity> extends Iterable<E>, Closeable {
    * Upserts a batch of entities into this repository. Entities that are already present are
    * updated, new entities are added.
    *
+   * <p>The default implementation splits the batch in an add and an update, repository decorators
+   * that only override these methods therefore keep applying their logic to upserted entities.
+   *
    * @param entities List of Entities to upsert
    */
   default void upsertBatch(List<E> entities) {
@@ -6,17 +6,30 @@ import static java.util.Spliterators.spliteratorUnknownSize;
 
 import java.util.Iterator;
 import java.util.stream.StreamSupport;
+import org.molgenis.data.decorator.DecoratedRepositoryCache;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
 import org.molgenis.data.meta.model.EntityType;
 
-/** Applies {@link Repository} decorators to all {@link RepositoryCollection} repositories. */
+/**
+ * Applies {@link Repository} decorators to all {@link RepositoryCollection} repositories. Decorated
+ * repositories retrieved by entity type id or entity type are reused from the {@link
+ * DecoratedRepositoryCache}, the delegate repository is only retrieved on a cache miss. Entity type
+ * ids are resolved using the {@link MetadataSnapshotRegistry metadata snapshot} if available.
+ */
 public class RepositoryCollectionDecorator extends AbstractRepositoryCollectionDecorator {
   private final RepositoryDecoratorFactory repositoryDecoratorFactory;
+  private final DecoratedRepositoryCache decoratedRepositoryCache;
+  private final MetadataSnapshotRegistry metadataSnapshotRegistry;
 
   public RepositoryCollectionDecorator(
       RepositoryCollection delegateRepositoryCollection,
-      RepositoryDecoratorFactory repositoryDecoratorFactory) {
+      RepositoryDecoratorFactory repositoryDecoratorFactory,
+      DecoratedRepositoryCache decoratedRepositoryCache,
+      MetadataSnapshotRegistry metadataSnapshotRegistry) {
     super(delegateRepositoryCollection);
     this.repositoryDecoratorFactory = requireNonNull(repositoryDecoratorFactory);
+    this.decoratedRepositoryCache = requireNonNull(decoratedRepositoryCache);
+    this.metadataSnapshotRegistry = requireNonNull(metadataSnapshotRegistry);
   }
 
   @Override
@@ -34,17 +47,34 @@ public class RepositoryCollectionDecorator extends AbstractRepositoryCollectionD
 
   @Override
   public Repository<Entity> getRepository(String id) {
+    EntityType snapshotEntityType =
+        metadataSnapshotRegistry
+            .getSnapshot()
+            .map(snapshot -> snapshot.getEntityType(id))
+            .orElse(null);
+    if (snapshotEntityType != null
+        && getName().equals(snapshotEntityType.getBackend())
+        && !snapshotEntityType.isAbstract()) {
+      return getRepository(snapshotEntityType);
+    }
+
     Repository<Entity> repository = delegate().getRepository(id);
     return repository != null
-        ? repositoryDecoratorFactory.createDecoratedRepository(repository)
+        ? decoratedRepositoryCache.getRepository(
+            repository.getEntityType(),
+            () -> repositoryDecoratorFactory.createDecoratedRepository(repository))
         : null;
   }
 
   @Override
   public Repository<Entity> getRepository(EntityType entityType) {
-    Repository<Entity> repository = delegate().getRepository(entityType);
-    return repository != null
-        ? repositoryDecoratorFactory.createDecoratedRepository(repository)
-        : null;
+    return decoratedRepositoryCache.getRepository(
+        entityType,
+        () -> {
+          Repository<Entity> repository = delegate().getRepository(entityType);
+          return repository != null
+              ? repositoryDecoratorFactory.createDecoratedRepository(repository)
+              : null;
+        });
   }
 }
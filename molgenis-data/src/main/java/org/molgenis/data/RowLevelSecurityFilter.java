@@ -0,0 +1,41 @@
+package org.molgenis.data;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Value object describing which rows of a row-level secured entity type are visible: rows for which
+ * the principal or one of the authorities has been granted a permission in the permission mask.
+ *
+ * @see RowLevelSecurityQueryService
+ */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class RowLevelSecurityFilter {
+  /** Returns the object identity type of the rows, e.g. 'entity-myEntityTypeId'. */
+  public abstract String getObjectIdentityType();
+
+  /** Returns the principal security identity or <tt>null</tt> if there is no principal. */
+  @Nullable
+  @CheckForNull
+  public abstract String getPrincipal();
+
+  /** Returns the granted authority security identities. */
+  public abstract List<String> getAuthorities();
+
+  /** Returns the bit mask of permissions of which at least one must be granted. */
+  public abstract int getPermissionMask();
+
+  public static RowLevelSecurityFilter create(
+      String objectIdentityType,
+      @Nullable String principal,
+      List<String> authorities,
+      int permissionMask) {
+    return new AutoValue_RowLevelSecurityFilter(
+        objectIdentityType, principal, ImmutableList.copyOf(authorities), permissionMask);
+  }
+}
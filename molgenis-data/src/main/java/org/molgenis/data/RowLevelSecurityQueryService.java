@@ -0,0 +1,29 @@
+package org.molgenis.data;
+
+import java.util.stream.Stream;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * Evaluates queries on row-level secured entity types in the backend that stores the rows, so that
+ * filtering, sorting, paging and counting of permitted rows does not require reading all rows.
+ */
+public interface RowLevelSecurityQueryService {
+  /**
+   * Returns whether the query on the given entity type can be evaluated with a {@link
+   * RowLevelSecurityFilter} by this service.
+   */
+  boolean isSupported(EntityType entityType, Query<Entity> query);
+
+  /**
+   * Returns the identifiers of the rows that match the query and are permitted by the filter, in
+   * query sort order and with query offset and page size applied.
+   */
+  Stream<Object> findAllIds(
+      EntityType entityType, Query<Entity> query, RowLevelSecurityFilter filter);
+
+  /**
+   * Returns the number of rows that match the query and are permitted by the filter. Ignores query
+   * offset and page size.
+   */
+  long count(EntityType entityType, Query<Entity> query, RowLevelSecurityFilter filter);
+}
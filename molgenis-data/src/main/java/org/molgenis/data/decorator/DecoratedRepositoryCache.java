@@ -0,0 +1,132 @@
+package org.molgenis.data.decorator;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.DECORATOR_CONFIGURATION;
+import static org.molgenis.data.decorator.meta.DecoratorParametersMetadata.DECORATOR_PARAMETERS;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
+import static org.molgenis.data.meta.model.TagMetadata.TAG;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionListener;
+import org.molgenis.data.transaction.TransactionManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of fully decorated repositories by {@link EntityType} instance, so that the decorator chain
+ * of a repository is not rebuilt on each repository lookup. Decorators resolve user and transaction
+ * specific state on each call, which makes it safe to share a decorated repository between threads.
+ *
+ * <p>The cache is cleared when a transaction that changed metadata or dynamic decorator
+ * configuration commits, on this or (through a cache invalidation bus) another MOLGENIS instance.
+ * Transactions that change metadata or dynamic decorator configuration do not use the cache.
+ */
+@Component
+public class DecoratedRepositoryCache implements TransactionListener, CacheInvalidationListener {
+  private static final int MAX_SIZE = 1000;
+
+  private static final ImmutableSet<String> DECORATION_ENTITY_TYPE_IDS =
+      ImmutableSet.of(
+          ENTITY_TYPE_META_DATA,
+          ATTRIBUTE_META_DATA,
+          PACKAGE,
+          TAG,
+          DECORATOR_CONFIGURATION,
+          DECORATOR_PARAMETERS);
+
+  private final TransactionInformation transactionInformation;
+
+  /** weak keys compare entity types by identity */
+  private final Cache<EntityType, Repository<Entity>> repositories =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_SIZE).build();
+
+  /** incremented each time the cache is cleared */
+  private final AtomicLong version = new AtomicLong();
+
+  private volatile boolean bootstrappingDone = false;
+
+  DecoratedRepositoryCache(
+      TransactionManager transactionManager, TransactionInformation transactionInformation) {
+    this.transactionInformation = requireNonNull(transactionInformation);
+    requireNonNull(transactionManager).addTransactionListener(this);
+  }
+
+  /**
+   * Returns the cached decorated repository for the given entity type or creates it using the given
+   * supplier. A repository that is created while the cache is cleared is not cached, because it
+   * might have been decorated based on outdated metadata. A supplier that returns null (no
+   * repository exists for the entity type) results in null without caching.
+   */
+  @Nullable
+  @CheckForNull
+  public Repository<Entity> getRepository(
+      EntityType entityType, Supplier<Repository<Entity>> decoratedRepositorySupplier) {
+    if (!isCacheable()) {
+      return decoratedRepositorySupplier.get();
+    }
+
+    Repository<Entity> repository = repositories.getIfPresent(entityType);
+    if (repository == null) {
+      long repositoryVersion = version.get();
+      repository = decoratedRepositorySupplier.get();
+      synchronized (this) {
+        if (repository != null && repositoryVersion == version.get()) {
+          repositories.put(entityType, repository);
+        }
+      }
+    }
+    return repository;
+  }
+
+  /**
+   * Decorated repositories are only cached once the dynamic decorators are available and only
+   * outside transactions that changed the entity types or the decorators applied to them.
+   */
+  private boolean isCacheable() {
+    return bootstrappingDone
+        && Collections.disjoint(
+            transactionInformation.getDirtyRepositories(), DECORATION_ENTITY_TYPE_IDS);
+  }
+
+  @Override
+  public void afterCommitTransaction(String transactionId) {
+    invalidate(CacheInvalidation.create(transactionInformation));
+  }
+
+  @Override
+  public void invalidate(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isAll()
+        || !Collections.disjoint(
+            cacheInvalidation.getDirtyRepositories(), DECORATION_ENTITY_TYPE_IDS)) {
+      clear();
+    }
+  }
+
+  @EventListener
+  public void onApplicationEvent(BootstrappingEvent bootstrappingEvent) {
+    this.bootstrappingDone = bootstrappingEvent.getStatus() == FINISHED;
+    clear();
+  }
+
+  private synchronized void clear() {
+    version.incrementAndGet();
+    repositories.invalidateAll();
+  }
+}
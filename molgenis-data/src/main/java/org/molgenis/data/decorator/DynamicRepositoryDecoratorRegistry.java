@@ -12,4 +12,7 @@ public interface DynamicRepositoryDecoratorRegistry {
   DynamicRepositoryDecoratorFactory getFactory(String id);
 
   Repository<Entity> decorate(Repository<Entity> repository);
+
+  /** Returns whether {@link #decorate(Repository)} applies decorators to the given entity type */
+  boolean hasDecorators(String entityTypeId);
 }
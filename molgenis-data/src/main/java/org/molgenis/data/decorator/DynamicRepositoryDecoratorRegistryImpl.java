@@ -5,9 +5,11 @@ import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.DECORATOR_CONFIGURATION;
 import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.ENTITY_TYPE_ID;
 import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -15,6 +17,8 @@ import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
@@ -23,21 +27,45 @@ import org.molgenis.data.decorator.meta.DecoratorConfiguration;
 import org.molgenis.data.decorator.meta.DecoratorParameters;
 import org.molgenis.data.decorator.meta.DynamicDecorator;
 import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionListener;
+import org.molgenis.data.transaction.TransactionManager;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+/**
+ * The ids of the entity types that have a {@link DecoratorConfiguration} are cached. The cache is
+ * cleared when a transaction that changed decorator configuration commits, on this or (through a
+ * cache invalidation bus) another MOLGENIS instance.
+ */
 @Component
-public class DynamicRepositoryDecoratorRegistryImpl implements DynamicRepositoryDecoratorRegistry {
+public class DynamicRepositoryDecoratorRegistryImpl
+    implements DynamicRepositoryDecoratorRegistry, TransactionListener, CacheInvalidationListener {
   private final Map<String, DynamicRepositoryDecoratorFactory> factories = new HashMap<>();
   private final DataService dataService;
   private final Gson gson;
-  private boolean bootstrappingDone = false;
+  private final TransactionInformation transactionInformation;
+  private volatile boolean bootstrappingDone = false;
+
+  /** ids of the entity types with decorator configuration, null if not retrieved yet */
+  private volatile Set<String> decoratedEntityTypeIds;
+
+  /** incremented each time the decorated entity type ids are cleared */
+  private final AtomicLong decoratedEntityTypeIdsVersion = new AtomicLong();
 
   private static final Type MAP_TOKEN = new TypeToken<Map<String, Object>>() {}.getType();
 
-  DynamicRepositoryDecoratorRegistryImpl(DataService dataService, Gson gson) {
+  DynamicRepositoryDecoratorRegistryImpl(
+      DataService dataService,
+      Gson gson,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation) {
     this.dataService = requireNonNull(dataService);
     this.gson = requireNonNull(gson);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    requireNonNull(transactionManager).addTransactionListener(this);
   }
 
   @Override
@@ -64,27 +92,90 @@ public class DynamicRepositoryDecoratorRegistryImpl implements DynamicRepository
 
   /**
    * Decorates a {@link Repository} if there is a {@link DecoratorConfiguration} specified for this
-   * repository.
+   * repository. The configuration is read as system, because decorated repositories are shared
+   * between users (see {@link DecoratedRepositoryCache}).
    */
   @Override
   public synchronized Repository<Entity> decorate(Repository<Entity> repository) {
     String entityTypeId = repository.getEntityType().getId();
 
     if (!entityTypeId.equals(DECORATOR_CONFIGURATION) && bootstrappingDone) {
-      DecoratorConfiguration config =
-          dataService
-              .query(DECORATOR_CONFIGURATION, DecoratorConfiguration.class)
-              .eq(ENTITY_TYPE_ID, entityTypeId)
-              .findOne();
-
-      if (config != null) {
-        repository = decorateRepository(repository, config);
-      }
+      return runAsSystem(
+          () -> {
+            DecoratorConfiguration config =
+                dataService
+                    .query(DECORATOR_CONFIGURATION, DecoratorConfiguration.class)
+                    .eq(ENTITY_TYPE_ID, entityTypeId)
+                    .findOne();
+            return config != null ? decorateRepository(repository, config) : repository;
+          });
     }
 
     return repository;
   }
 
+  /**
+   * Returns whether the entity type has a {@link DecoratorConfiguration}, without querying the
+   * decorator configuration unless it was changed in the current transaction.
+   */
+  @Override
+  public boolean hasDecorators(String entityTypeId) {
+    if (entityTypeId.equals(DECORATOR_CONFIGURATION) || !bootstrappingDone) {
+      return false;
+    }
+    if (transactionInformation.getDirtyRepositories().contains(DECORATOR_CONFIGURATION)) {
+      return findDecoratedEntityTypeIds().contains(entityTypeId);
+    }
+    return getDecoratedEntityTypeIds().contains(entityTypeId);
+  }
+
+  /**
+   * Returns the cached decorated entity type ids or retrieves them. Ids that are retrieved while
+   * the cache is cleared are not cached, because they might be outdated.
+   */
+  private Set<String> getDecoratedEntityTypeIds() {
+    Set<String> entityTypeIds = decoratedEntityTypeIds;
+    if (entityTypeIds == null) {
+      long version = decoratedEntityTypeIdsVersion.get();
+      entityTypeIds = findDecoratedEntityTypeIds();
+      synchronized (decoratedEntityTypeIdsVersion) {
+        if (version == decoratedEntityTypeIdsVersion.get()) {
+          decoratedEntityTypeIds = entityTypeIds;
+        }
+      }
+    }
+    return entityTypeIds;
+  }
+
+  private Set<String> findDecoratedEntityTypeIds() {
+    return runAsSystem(
+        () ->
+            dataService
+                .findAll(DECORATOR_CONFIGURATION, DecoratorConfiguration.class)
+                .map(DecoratorConfiguration::getEntityTypeId)
+                .collect(toSet()));
+  }
+
+  private void clearDecoratedEntityTypeIds() {
+    synchronized (decoratedEntityTypeIdsVersion) {
+      decoratedEntityTypeIdsVersion.incrementAndGet();
+      decoratedEntityTypeIds = null;
+    }
+  }
+
+  @Override
+  public void afterCommitTransaction(String transactionId) {
+    invalidate(CacheInvalidation.create(transactionInformation));
+  }
+
+  @Override
+  public void invalidate(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isAll()
+        || cacheInvalidation.getDirtyRepositories().contains(DECORATOR_CONFIGURATION)) {
+      clearDecoratedEntityTypeIds();
+    }
+  }
+
   /**
    * Decorates a {@link Repository} with one or more {@link DynamicDecorator}s., based on the {@link
    * DecoratorConfiguration} entity.
@@ -129,5 +220,6 @@ public class DynamicRepositoryDecoratorRegistryImpl implements DynamicRepository
   @EventListener
   public void onApplicationEvent(BootstrappingEvent bootstrappingEvent) {
     this.bootstrappingDone = bootstrappingEvent.getStatus() == FINISHED;
+    clearDecoratedEntityTypeIds();
   }
 }
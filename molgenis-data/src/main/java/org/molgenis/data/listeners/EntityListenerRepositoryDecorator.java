@@ -1,7 +1,9 @@
 package org.molgenis.data.listeners;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
+import java.util.List;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
@@ -28,4 +30,14 @@ public class EntityListenerRepositoryDecorator extends AbstractRepositoryDecorat
     entities = entityListenersService.updateEntities(delegate().getName(), entities);
     delegate().update(entities);
   }
+
+  /** Listeners are notified of all upserted entities, new entities normally have no listeners. */
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate()
+        .upsertBatch(
+            entityListenersService
+                .updateEntities(delegate().getName(), entities.stream())
+                .collect(toList()));
+  }
 }
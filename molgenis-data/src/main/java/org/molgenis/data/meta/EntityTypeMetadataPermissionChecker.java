@@ -0,0 +1,9 @@
+package org.molgenis.data.meta;
+
+/**
+ * Checks whether the current user is allowed to read the metadata of an entity type without
+ * retrieving the entity type, e.g. for entity types that were retrieved as system.
+ */
+public interface EntityTypeMetadataPermissionChecker {
+  boolean hasReadMetadataPermission(String entityTypeId);
+}
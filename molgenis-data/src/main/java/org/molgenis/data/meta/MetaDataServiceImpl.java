@@ -30,7 +30,9 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
@@ -66,24 +68,42 @@ public class MetaDataServiceImpl implements MetaDataService {
   private final SystemEntityTypeRegistry systemEntityTypeRegistry;
   private final EntityTypeDependencyResolver entityTypeDependencyResolver;
   private final PackagePersister packagePersister;
+  private final MetadataSnapshotRegistry metadataSnapshotRegistry;
+  private final EntityTypeMetadataPermissionChecker entityTypeMetadataPermissionChecker;
 
   MetaDataServiceImpl(
       DataService dataService,
       RepositoryCollectionRegistry repoCollectionRegistry,
       SystemEntityTypeRegistry systemEntityTypeRegistry,
       EntityTypeDependencyResolver entityTypeDependencyResolver,
-      PackagePersister packagePersister) {
+      PackagePersister packagePersister,
+      MetadataSnapshotRegistry metadataSnapshotRegistry,
+      EntityTypeMetadataPermissionChecker entityTypeMetadataPermissionChecker) {
     this.dataService = requireNonNull(dataService);
     this.repoCollectionRegistry = requireNonNull(repoCollectionRegistry);
     this.systemEntityTypeRegistry = requireNonNull(systemEntityTypeRegistry);
     this.entityTypeDependencyResolver = requireNonNull(entityTypeDependencyResolver);
     this.packagePersister = requireNonNull(packagePersister);
+    this.metadataSnapshotRegistry = requireNonNull(metadataSnapshotRegistry);
+    this.entityTypeMetadataPermissionChecker = requireNonNull(entityTypeMetadataPermissionChecker);
   }
 
+  /**
+   * Returns the repository for the given entity type id. The entity type is looked up in the
+   * metadata snapshot, so that data access does not query the metadata tables.
+   */
   @Override
   public Optional<Repository<Entity>> getRepository(String entityTypeId) {
-    EntityType entityType =
-        getEntityType(entityTypeId).orElseThrow(() -> new UnknownEntityTypeException(entityTypeId));
+    EntityType entityType = systemEntityTypeRegistry.getSystemEntityType(entityTypeId);
+    if (entityType == null) {
+      entityType = getEntityTypeFromSnapshot(entityTypeId);
+    }
+    if (entityType == null) {
+      entityType = getEntityTypeBypassingRegistry(entityTypeId);
+    }
+    if (entityType == null) {
+      throw new UnknownEntityTypeException(entityTypeId);
+    }
     return !entityType.isAbstract() ? getRepository(entityType) : Optional.empty();
   }
 
@@ -118,6 +138,10 @@ public class MetaDataServiceImpl implements MetaDataService {
     SystemEntityType systemEntityType = systemEntityTypeRegistry.getSystemEntityType(entityTypeId);
     if (systemEntityType != null) {
       return !systemEntityType.isAbstract();
+    }
+    EntityType entityType = getEntityTypeFromSnapshot(entityTypeId);
+    if (entityType != null) {
+      return !entityType.isAbstract();
     } else {
       return dataService
               .query(ENTITY_TYPE_META_DATA, EntityType.class)
@@ -570,6 +594,26 @@ public class MetaDataServiceImpl implements MetaDataService {
         : null;
   }
 
+  /**
+   * Retrieves the committed EntityType from the metadata snapshot. Returns null if the current
+   * transaction changed metadata or if the entity type did not exist when the snapshot was created,
+   * e.g. because it was just created by another MOLGENIS instance.
+   *
+   * <p>The snapshot contains all entity types, so entity types of which the current user is not
+   * allowed to read the metadata are treated as not existing, like the metadata tables do.
+   */
+  @Nullable
+  @CheckForNull
+  private EntityType getEntityTypeFromSnapshot(String entityTypeId) {
+    return metadataSnapshotRegistry
+        .getSnapshot()
+        .map(snapshot -> snapshot.getEntityType(entityTypeId))
+        .filter(
+            entityType ->
+                entityTypeMetadataPermissionChecker.hasReadMetadataPermission(entityTypeId))
+        .orElse(null);
+  }
+
   @Override
   public Stream<Attribute> getReferringAttributes(String entityTypeId) {
     return dataService
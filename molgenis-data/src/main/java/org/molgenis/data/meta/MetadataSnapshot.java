@@ -0,0 +1,42 @@
+package org.molgenis.data.meta;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.meta.model.EntityType;
+
+/**
+ * Snapshot of the committed entity types, including their attributes and packages, at the time the
+ * snapshot was created. Snapshots are never modified once created, a new snapshot replaces the
+ * current one when metadata changes are committed.
+ *
+ * <p>The entity types in a snapshot are shared between threads and are {@link EntityType#freeze()
+ * frozen}, modifying them or their attributes throws an {@link UnsupportedOperationException}.
+ */
+public class MetadataSnapshot {
+  private final long version;
+  private final ImmutableMap<String, EntityType> entityTypes;
+
+  MetadataSnapshot(long version, Collection<EntityType> entityTypes) {
+    this.version = version;
+    ImmutableMap.Builder<String, EntityType> builder = ImmutableMap.builder();
+    entityTypes.forEach(entityType -> builder.put(entityType.getId(), entityType));
+    this.entityTypes = builder.build();
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  /** Returns the entity type with the given id or null if it did not exist at snapshot time */
+  @Nullable
+  @CheckForNull
+  public EntityType getEntityType(String entityTypeId) {
+    return entityTypes.get(entityTypeId);
+  }
+
+  public int getNumberOfEntityTypes() {
+    return entityTypes.size();
+  }
+}
@@ -0,0 +1,160 @@
+package org.molgenis.data.meta;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.meta.model.PackageMetadata.PACKAGE;
+import static org.molgenis.data.meta.model.TagMetadata.TAG;
+import static org.molgenis.data.util.EntityTypeUtils.getEntityTypeFetch;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.molgenis.data.DataService;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionListener;
+import org.molgenis.data.transaction.TransactionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the current {@link MetadataSnapshot}. Reading the snapshot does not require locking
+ * or querying the metadata tables. The snapshot is discarded when a transaction that changed entity
+ * types, attributes, packages or tags commits, on this or (through a cache invalidation bus)
+ * another MOLGENIS instance, and is recreated on first use.
+ *
+ * <p>Snapshots are created from the entity types read through the L2 and L3 caches. Those caches
+ * have the highest {@link org.springframework.core.annotation.Order order}, so that they evict the
+ * changed metadata before this registry discards the current snapshot. A snapshot created from
+ * outdated cached entity types would otherwise get the version of the committed metadata.
+ */
+@Component
+public class MetadataSnapshotRegistry implements TransactionListener, CacheInvalidationListener {
+  private static final Logger LOG = LoggerFactory.getLogger(MetadataSnapshotRegistry.class);
+
+  private static final ImmutableSet<String> METADATA_ENTITY_TYPE_IDS =
+      ImmutableSet.of(ENTITY_TYPE_META_DATA, ATTRIBUTE_META_DATA, PACKAGE, TAG);
+
+  private final DataService dataService;
+  private final TransactionInformation transactionInformation;
+
+  /** version of the committed metadata, incremented each time metadata changes are committed */
+  private final AtomicLong version = new AtomicLong();
+
+  private final AtomicReference<MetadataSnapshot> snapshot = new AtomicReference<>();
+
+  MetadataSnapshotRegistry(
+      DataService dataService,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation) {
+    this.dataService = requireNonNull(dataService);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    requireNonNull(transactionManager).addTransactionListener(this);
+  }
+
+  /**
+   * Returns the snapshot of the committed metadata or empty if the current transaction changed
+   * metadata, in which case the metadata tables need to be queried to see those changes.
+   */
+  public Optional<MetadataSnapshot> getSnapshot() {
+    if (!Collections.disjoint(
+        transactionInformation.getDirtyRepositories(), METADATA_ENTITY_TYPE_IDS)) {
+      return Optional.empty();
+    }
+
+    MetadataSnapshot currentSnapshot = snapshot.get();
+    if (currentSnapshot == null || currentSnapshot.getVersion() != version.get()) {
+      currentSnapshot = createSnapshot();
+    }
+    return Optional.of(currentSnapshot);
+  }
+
+  /**
+   * Creates a snapshot of the committed metadata. A snapshot that is created while metadata changes
+   * are committed has an outdated version, so that it will not be used by subsequent calls.
+   */
+  private synchronized MetadataSnapshot createSnapshot() {
+    long snapshotVersion = version.get();
+    MetadataSnapshot currentSnapshot = snapshot.get();
+    if (currentSnapshot != null && currentSnapshot.getVersion() == snapshotVersion) {
+      return currentSnapshot;
+    }
+
+    List<EntityType> entityTypes =
+        runAsSystem(
+            () ->
+                dataService
+                    .findAll(
+                        ENTITY_TYPE_META_DATA,
+                        new QueryImpl<EntityType>().fetch(getEntityTypeFetch()),
+                        EntityType.class)
+                    .collect(toList()));
+    resolveReferencedEntityTypes(entityTypes);
+    entityTypes.forEach(EntityType::freeze);
+    MetadataSnapshot newSnapshot = new MetadataSnapshot(snapshotVersion, entityTypes);
+    snapshot.set(newSnapshot);
+    LOG.debug(
+        "Created metadata snapshot version {} with {} entity types",
+        snapshotVersion,
+        newSnapshot.getNumberOfEntityTypes());
+    return newSnapshot;
+  }
+
+  /**
+   * Replaces the referenced entity types, which are retrieved as lazy entities, with the entity
+   * types of the snapshot. Lazy entities are not thread-safe and would query the metadata tables
+   * when the snapshot is used.
+   */
+  private static void resolveReferencedEntityTypes(List<EntityType> entityTypes) {
+    Map<String, EntityType> entityTypeMap =
+        entityTypes.stream().collect(toMap(EntityType::getId, identity()));
+    for (EntityType entityType : entityTypes) {
+      EntityType extendsEntityType = entityType.getExtends();
+      if (extendsEntityType != null) {
+        entityType.setExtends(resolveEntityType(extendsEntityType, entityTypeMap));
+      }
+      for (Attribute attribute : entityType.getOwnAllAttributes()) {
+        if (attribute.hasRefEntity()) {
+          EntityType refEntityType = attribute.getRefEntity();
+          if (refEntityType != null) {
+            attribute.setRefEntity(resolveEntityType(refEntityType, entityTypeMap));
+          }
+        }
+      }
+    }
+  }
+
+  private static EntityType resolveEntityType(
+      EntityType entityType, Map<String, EntityType> entityTypeMap) {
+    return entityTypeMap.getOrDefault(entityType.getId(), entityType);
+  }
+
+  @Override
+  public void afterCommitTransaction(String transactionId) {
+    invalidate(CacheInvalidation.create(transactionInformation));
+  }
+
+  @Override
+  public void invalidate(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isAll()
+        || !Collections.disjoint(
+            cacheInvalidation.getDirtyRepositories(), METADATA_ENTITY_TYPE_IDS)) {
+      version.incrementAndGet();
+      snapshot.set(null);
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.molgenis.data.meta.model;
 
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.removeAll;
+import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
@@ -61,6 +62,7 @@ import org.molgenis.i18n.Labeled;
 /** Attribute defines the properties of an entity. Synonyms: feature, column, data item. */
 public class Attribute extends StaticEntity implements Labeled {
   private AttributeType cachedDataType;
+  private boolean frozen;
 
   public Attribute(Entity entity) {
     super(entity);
@@ -302,6 +304,7 @@ public class Attribute extends StaticEntity implements Labeled {
   }
 
   public Attribute setDataType(AttributeType dataType) {
+    checkNotFrozen();
     invalidateCachedDataType();
 
     set(TYPE, AttributeType.getValueString(dataType));
@@ -731,6 +734,44 @@ public class Attribute extends StaticEntity implements Labeled {
     cachedDataType = null;
   }
 
+  @Override
+  public void set(String attributeName, Object value) {
+    checkNotFrozen();
+    super.set(attributeName, value);
+  }
+
+  @Override
+  public void set(Entity values) {
+    checkNotFrozen();
+    super.set(values);
+    invalidateCachedDataType();
+  }
+
+  @Override
+  public void setIdValue(Object id) {
+    checkNotFrozen();
+    super.setIdValue(id);
+  }
+
+  /**
+   * Makes this attribute unmodifiable, see {@link EntityType#freeze()}. Modifying a frozen
+   * attribute throws an {@link UnsupportedOperationException}.
+   */
+  public void freeze() {
+    getCachedDataType();
+    frozen = true;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException(format("Attribute [%s] is unmodifiable", getName()));
+    }
+  }
+
   @Override
   public String toString() {
     return "Attribute{" + "name=" + getName() + " id=" + getIdValue() + '}';
@@ -47,6 +47,7 @@ import org.molgenis.util.UnexpectedEnumException;
 public class EntityType extends StaticEntity implements Labeled {
   private Map<String, Attribute> cachedOwnAttrs;
   private Boolean cachedHasAttrWithExpression;
+  private boolean frozen;
 
   public EntityType(Entity entity) {
     super(entity);
@@ -445,6 +446,7 @@ public class EntityType extends StaticEntity implements Labeled {
   }
 
   public EntityType setOwnAllAttributes(Iterable<Attribute> attrs) {
+    checkNotFrozen();
     invalidateCachedOwnAttrs();
     set(ATTRIBUTES, attrs);
     return this;
@@ -521,6 +523,7 @@ public class EntityType extends StaticEntity implements Labeled {
   }
 
   public EntityType addAttribute(Attribute attr, AttributeRole... attrTypes) {
+    checkNotFrozen();
     invalidateCachedOwnAttrs();
 
     Iterable<Attribute> attrs = getEntities(ATTRIBUTES, Attribute.class);
@@ -615,6 +618,7 @@ public class EntityType extends StaticEntity implements Labeled {
   }
 
   public void removeAttribute(Attribute attr) {
+    checkNotFrozen();
     Map<String, Attribute> cachedOwnAttributes = getCachedOwnAttrs();
     cachedOwnAttributes.remove(attr.getName());
     set(ATTRIBUTES, cachedOwnAttributes.values());
@@ -713,12 +717,47 @@ public class EntityType extends StaticEntity implements Labeled {
 
   @Override
   public void set(String attributeName, Object value) {
+    checkNotFrozen();
     super.set(attributeName, value);
     if (ATTRIBUTES.equals(attributeName)) {
       invalidateCachedOwnAttrs();
     }
   }
 
+  @Override
+  public void set(Entity values) {
+    checkNotFrozen();
+    super.set(values);
+    invalidateCachedOwnAttrs();
+  }
+
+  @Override
+  public void setIdValue(Object id) {
+    checkNotFrozen();
+    super.setIdValue(id);
+  }
+
+  /**
+   * Makes this entity type and its own attributes unmodifiable, so that it can be shared between
+   * threads. Modifying a frozen entity type throws an {@link UnsupportedOperationException}, use
+   * {@link #newInstance(EntityType)} to create a modifiable copy.
+   */
+  public void freeze() {
+    getCachedOwnAttrs().values().forEach(Attribute::freeze);
+    getCachedHasAttrWithExpession();
+    frozen = true;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException(format("Entity type [%s] is unmodifiable", getId()));
+    }
+  }
+
   protected void setDefaultValues() {
     setAbstract(false);
     setIndexingDepth(1);
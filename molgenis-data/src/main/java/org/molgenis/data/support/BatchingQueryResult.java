@@ -1,6 +1,7 @@
 package org.molgenis.data.support;
 
 import java.util.List;
+import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Query;
 import org.molgenis.data.util.BatchingIterable;
@@ -8,7 +9,9 @@ import org.molgenis.data.util.BatchingIterable;
 /**
  * BatchingIterable that batches a Query.
  *
- * <p>It changes the query's offset and pageSize of each batch.
+ * <p>It changes the query's offset and pageSize of each batch. If supported, batches after the
+ * first batch seek past the last entity of the previous batch instead of skipping rows with an
+ * offset, so that iterating over all entities takes linear instead of quadratic time.
  */
 public abstract class BatchingQueryResult<E extends Entity> extends BatchingIterable<E> {
   private final Query<E> query;
@@ -29,5 +32,30 @@ public abstract class BatchingQueryResult<E extends Entity> extends BatchingIter
     return getBatch(batchQuery);
   }
 
+  @Override
+  protected List<E> getBatch(int offset, int batchSize, @Nullable E lastEntity) {
+    if (lastEntity == null || !isKeysetPaginationSupported(query)) {
+      return getBatch(offset, batchSize);
+    }
+    Query<E> batchQuery = new QueryImpl<>(query).setOffset(0).setPageSize(batchSize);
+    return getBatchAfter(batchQuery, lastEntity);
+  }
+
   protected abstract List<E> getBatch(Query<E> q);
+
+  /**
+   * Returns whether batches can be retrieved using {@link #getBatchAfter(Query, Entity)}.
+   *
+   * @param q query
+   */
+  protected abstract boolean isKeysetPaginationSupported(Query<E> q);
+
+  /**
+   * Returns the batch of entities that match the query and come after the given entity in the query
+   * sort order.
+   *
+   * @param q query without offset
+   * @param lastEntity last entity of the previous batch
+   */
+  protected abstract List<E> getBatchAfter(Query<E> q, E lastEntity);
 }
@@ -1,39 +1,37 @@
 package org.molgenis.data.support;
 
-import static com.google.common.collect.Maps.newHashMap;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
-import static org.molgenis.data.support.ExpressionEvaluatorFactory.createExpressionEvaluator;
+import static org.molgenis.data.support.ExpressionEvaluatorFactory.getExpressionEvaluators;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.Map;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
-import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 
-/** Entity decorator that computes computed attributes. */
+/**
+ * Entity decorator that computes computed attributes. Computed values are memoized until an
+ * attribute value of this entity changes.
+ */
 public class EntityWithComputedAttributes implements Entity {
   private final Entity decoratedEntity;
   private final Map<String, ExpressionEvaluator> expressionEvaluators;
+  private final Map<String, Object> computedValues;
 
   public EntityWithComputedAttributes(Entity decoratedEntity) {
     this.decoratedEntity = requireNonNull(decoratedEntity);
-    expressionEvaluators = newHashMap();
-    EntityType entityType = decoratedEntity.getEntityType();
-    for (Attribute attribute : entityType.getAtomicAttributes())
-      if (attribute.getExpression() != null) {
-        expressionEvaluators.put(
-            attribute.getName(), createExpressionEvaluator(attribute, entityType));
-      }
+    this.expressionEvaluators = getExpressionEvaluators(decoratedEntity.getEntityType());
+    this.computedValues = new HashMap<>();
   }
 
   @Override
   public Object get(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return expressionEvaluator.evaluate(this);
+      return evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.get(attributeName);
   }
@@ -47,7 +45,7 @@ public class EntityWithComputedAttributes implements Entity {
   public Boolean getBoolean(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Boolean) expressionEvaluator.evaluate(this);
+      return (Boolean) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getBoolean(attributeName);
   }
@@ -56,7 +54,7 @@ public class EntityWithComputedAttributes implements Entity {
   public Double getDouble(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Double) expressionEvaluator.evaluate(this);
+      return (Double) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getDouble(attributeName);
   }
@@ -66,7 +64,7 @@ public class EntityWithComputedAttributes implements Entity {
   public Iterable<Entity> getEntities(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Iterable<Entity>) expressionEvaluator.evaluate(this);
+      return (Iterable<Entity>) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getEntities(attributeName);
   }
@@ -76,7 +74,7 @@ public class EntityWithComputedAttributes implements Entity {
   public <E extends Entity> Iterable<E> getEntities(String attributeName, Class<E> clazz) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Iterable<E>) expressionEvaluator.evaluate(this);
+      return (Iterable<E>) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getEntities(attributeName, clazz);
   }
@@ -85,7 +83,7 @@ public class EntityWithComputedAttributes implements Entity {
   public Entity getEntity(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Entity) expressionEvaluator.evaluate(this);
+      return (Entity) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getEntity(attributeName);
   }
@@ -95,7 +93,7 @@ public class EntityWithComputedAttributes implements Entity {
   public <E extends Entity> E getEntity(String attributeName, Class<E> clazz) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (E) expressionEvaluator.evaluate(this);
+      return (E) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getEntity(attributeName, clazz);
   }
@@ -113,7 +111,7 @@ public class EntityWithComputedAttributes implements Entity {
   public Integer getInt(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Integer) expressionEvaluator.evaluate(this);
+      return (Integer) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getInt(attributeName);
   }
@@ -127,7 +125,7 @@ public class EntityWithComputedAttributes implements Entity {
   public Long getLong(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Long) expressionEvaluator.evaluate(this);
+      return (Long) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getLong(attributeName);
   }
@@ -136,7 +134,7 @@ public class EntityWithComputedAttributes implements Entity {
   public String getString(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (String) expressionEvaluator.evaluate(this);
+      return (String) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getString(attributeName);
   }
@@ -145,7 +143,7 @@ public class EntityWithComputedAttributes implements Entity {
   public LocalDate getLocalDate(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (LocalDate) expressionEvaluator.evaluate(this);
+      return (LocalDate) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getLocalDate(attributeName);
   }
@@ -154,7 +152,7 @@ public class EntityWithComputedAttributes implements Entity {
   public Instant getInstant(String attributeName) {
     ExpressionEvaluator expressionEvaluator = expressionEvaluators.get(attributeName);
     if (expressionEvaluator != null) {
-      return (Instant) expressionEvaluator.evaluate(this);
+      return (Instant) evaluate(attributeName, expressionEvaluator);
     }
     return decoratedEntity.getInstant(attributeName);
   }
@@ -165,15 +163,27 @@ public class EntityWithComputedAttributes implements Entity {
       throw new MolgenisDataException(format("Attribute [%s] is computed", attributeName));
     }
     decoratedEntity.set(attributeName, value);
+    computedValues.clear();
   }
 
   @Override
   public void set(Entity values) {
     decoratedEntity.set(values);
+    computedValues.clear();
   }
 
   @Override
   public void setIdValue(Object id) {
     decoratedEntity.setIdValue(id);
+    computedValues.clear();
+  }
+
+  private Object evaluate(String attributeName, ExpressionEvaluator expressionEvaluator) {
+    if (computedValues.containsKey(attributeName)) {
+      return computedValues.get(attributeName);
+    }
+    Object value = expressionEvaluator.evaluate(this);
+    computedValues.put(attributeName, value);
+    return value;
   }
 }
@@ -1,50 +1,192 @@
 package org.molgenis.data.support;
 
+import static java.util.Arrays.asList;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.util.UnexpectedEnumException;
 
 class ExpressionEvaluatorFactory {
+  /** expression evaluators by entity type id */
+  private static final Cache<String, ExpressionEvaluators> EXPRESSION_EVALUATORS =
+      CacheBuilder.newBuilder().softValues().build();
+  /**
+   * versions of the computed attributes by entity type, entity types are compared by identity so
+   * that the version is computed once per entity type instance
+   */
+  private static final Cache<EntityType, List<List<Object>>> VERSIONS =
+      CacheBuilder.newBuilder().weakKeys().build();
+
   private ExpressionEvaluatorFactory() {}
 
+  /**
+   * Returns the expression evaluators for the computed attributes of the given entity type by
+   * attribute name. Evaluators are created once per entity type id and shared between its entities.
+   * They are recreated when an entity type instance is used in which the computed attributes or the
+   * attributes that their expressions refer to differ. Changes to an entity type instance after its
+   * first use are not detected.
+   */
+  static Map<String, ExpressionEvaluator> getExpressionEvaluators(EntityType entityType) {
+    List<List<Object>> version = VERSIONS.getIfPresent(entityType);
+    if (version == null) {
+      version = getVersion(getComputedAttributes(entityType), entityType);
+      VERSIONS.put(entityType, version);
+    }
+
+    String entityTypeId = entityType.getId();
+    ExpressionEvaluators expressionEvaluators =
+        entityTypeId != null ? EXPRESSION_EVALUATORS.getIfPresent(entityTypeId) : null;
+    if (expressionEvaluators == null || !expressionEvaluators.version.equals(version)) {
+      ImmutableMap.Builder<String, ExpressionEvaluator> builder = ImmutableMap.builder();
+      getComputedAttributes(entityType)
+          .forEach(
+              attribute ->
+                  builder.put(
+                      attribute.getName(), createExpressionEvaluator(attribute, entityType)));
+      expressionEvaluators = new ExpressionEvaluators(version, builder.build());
+      if (entityTypeId != null) {
+        EXPRESSION_EVALUATORS.put(entityTypeId, expressionEvaluators);
+      }
+    }
+    return expressionEvaluators.evaluators;
+  }
+
+  private static List<Attribute> getComputedAttributes(EntityType entityType) {
+    ImmutableList.Builder<Attribute> builder = ImmutableList.builder();
+    for (Attribute attribute : entityType.getAtomicAttributes()) {
+      if (attribute.getExpression() != null) {
+        builder.add(attribute);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the properties of the computed attributes and of the attributes that their expression
+   * evaluators resolve: the source attribute of an attribute name expression, the referenced entity
+   * type attributes and source attributes of a map expression and the attributes on the tag paths
+   * of a template expression.
+   */
+  private static List<List<Object>> getVersion(
+      List<Attribute> computedAttributes, EntityType entityType) {
+    ImmutableList.Builder<List<Object>> builder = ImmutableList.builder();
+    for (Attribute attribute : computedAttributes) {
+      List<Object> version = new ArrayList<>();
+      version.add(getAttributeVersion(attribute));
+      version.add(attribute.getExpression());
+
+      Object expressionJson = new Gson().fromJson(attribute.getExpression(), Object.class);
+      if (expressionJson instanceof String) {
+        version.add(getAttributeVersion(entityType.getAttribute((String) expressionJson)));
+      } else if (!isMapOfStringsExpression(attribute)) {
+        TemplateExpressionEvaluator.getTemplateTags(attribute)
+            .forEach(tagParts -> version.add(getTagVersion(tagParts, entityType)));
+      } else if (expressionJson instanceof Map && attribute.hasRefEntity()) {
+        EntityType refEntityType = attribute.getRefEntity();
+        ((Map<?, ?>) expressionJson)
+            .forEach(
+                (refAttributeName, sourceAttributeName) -> {
+                  version.add(
+                      getAttributeVersion(refEntityType.getAttribute(refAttributeName.toString())));
+                  version.add(
+                      sourceAttributeName instanceof String
+                          ? getAttributeVersion(
+                              entityType.getAttribute((String) sourceAttributeName))
+                          : sourceAttributeName);
+                });
+      }
+      builder.add(version);
+    }
+    return builder.build();
+  }
+
+  private static List<Object> getTagVersion(List<String> tagParts, EntityType entityType) {
+    List<Object> tagVersion = new ArrayList<>(tagParts.size());
+    EntityType tagEntityType = entityType;
+    for (String tagPart : tagParts) {
+      Attribute tagAttribute = tagEntityType != null ? tagEntityType.getAttribute(tagPart) : null;
+      tagVersion.add(getAttributeVersion(tagAttribute));
+      tagEntityType =
+          tagAttribute != null && tagAttribute.hasRefEntity() ? tagAttribute.getRefEntity() : null;
+    }
+    return tagVersion;
+  }
+
+  private static List<Object> getAttributeVersion(@Nullable Attribute attribute) {
+    if (attribute == null) {
+      return null;
+    }
+    return asList(
+        attribute.getName(),
+        attribute.getDataType(),
+        attribute.hasRefEntity() ? attribute.getRefEntity().getId() : null);
+  }
+
   static ExpressionEvaluator createExpressionEvaluator(Attribute attribute, EntityType entityType) {
     ExpressionEvaluator expressionEvaluator;
 
     Object expressionJson = new Gson().fromJson(attribute.getExpression(), Object.class);
     if (expressionJson instanceof String) {
       expressionEvaluator = new StringExpressionEvaluator(attribute, entityType);
+    } else if (isMapOfStringsExpression(attribute)) {
+      expressionEvaluator = new MapOfStringsExpressionEvaluator(attribute, entityType);
     } else {
-      switch (attribute.getDataType()) {
-        case BOOL:
-        case CATEGORICAL:
-        case CATEGORICAL_MREF:
-        case COMPOUND:
-        case DATE:
-        case DATE_TIME:
-        case DECIMAL:
-        case FILE:
-        case INT:
-        case LONG:
-        case MREF:
-        case ONE_TO_MANY:
-        case XREF:
-          expressionEvaluator = new MapOfStringsExpressionEvaluator(attribute, entityType);
-          break;
-        case EMAIL:
-        case ENUM:
-        case HTML:
-        case HYPERLINK:
-        case SCRIPT:
-        case STRING:
-        case TEXT:
-          expressionEvaluator = new TemplateExpressionEvaluator(attribute, entityType);
-          break;
-        default:
-          throw new UnexpectedEnumException(attribute.getDataType());
-      }
+      expressionEvaluator = new TemplateExpressionEvaluator(attribute, entityType);
     }
 
     return expressionEvaluator;
   }
+
+  /**
+   * Returns whether a JSON object expression of the given attribute maps referenced entity type
+   * attributes to source attributes or is a template
+   */
+  private static boolean isMapOfStringsExpression(Attribute attribute) {
+    switch (attribute.getDataType()) {
+      case BOOL:
+      case CATEGORICAL:
+      case CATEGORICAL_MREF:
+      case COMPOUND:
+      case DATE:
+      case DATE_TIME:
+      case DECIMAL:
+      case FILE:
+      case INT:
+      case LONG:
+      case MREF:
+      case ONE_TO_MANY:
+      case XREF:
+        return true;
+      case EMAIL:
+      case ENUM:
+      case HTML:
+      case HYPERLINK:
+      case SCRIPT:
+      case STRING:
+      case TEXT:
+        return false;
+      default:
+        throw new UnexpectedEnumException(attribute.getDataType());
+    }
+  }
+
+  private static class ExpressionEvaluators {
+    private final List<List<Object>> version;
+    private final Map<String, ExpressionEvaluator> evaluators;
+
+    private ExpressionEvaluators(
+        List<List<Object>> version, Map<String, ExpressionEvaluator> evaluators) {
+      this.version = version;
+      this.evaluators = evaluators;
+    }
+  }
 }
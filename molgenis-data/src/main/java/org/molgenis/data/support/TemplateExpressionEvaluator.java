@@ -2,6 +2,7 @@ package org.molgenis.data.support;
 
 import static com.google.common.collect.Streams.stream;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
@@ -32,8 +33,8 @@ public class TemplateExpressionEvaluator implements ExpressionEvaluator {
 
   private final Attribute attribute;
   private final EntityType entityType;
-  private Template template;
-  private List<List<String>> templateTags;
+  /** compiled on first evaluation, evaluators are shared between threads so it is not locked */
+  private volatile CompiledTemplate compiledTemplate;
 
   TemplateExpressionEvaluator(Attribute attribute, EntityType entityType) {
     this.attribute = requireNonNull(attribute);
@@ -42,19 +43,19 @@ public class TemplateExpressionEvaluator implements ExpressionEvaluator {
 
   @Override
   public Object evaluate(Entity entity) {
-    initTemplate();
+    CompiledTemplate template = getCompiledTemplate();
 
-    Map<String, Object> tagValues = getTemplateTagValue(entity);
+    Map<String, Object> tagValues = getTemplateTagValue(entity, template.tags);
 
     try {
-      return template.apply(Context.newContext(tagValues));
+      return template.template.apply(Context.newContext(tagValues));
     } catch (IOException e) {
       throw new TemplateExpressionException(attribute, e);
     }
   }
 
   @SuppressWarnings("unchecked")
-  private Map<String, Object> getTemplateTagValue(Entity entity) {
+  private Map<String, Object> getTemplateTagValue(Entity entity, List<List<String>> templateTags) {
     Map<String, Object> tagValues = new HashMap<>();
     templateTags.forEach(
         tagParts -> {
@@ -141,14 +142,32 @@ public class TemplateExpressionEvaluator implements ExpressionEvaluator {
     return value;
   }
 
-  private synchronized void initTemplate() {
+  private CompiledTemplate getCompiledTemplate() {
+    CompiledTemplate template = compiledTemplate;
     if (template == null) {
+      // concurrent first evaluations compile the same template, which is harmless
+      Template handlebarsTemplate = getTemplate(attribute);
+      template = new CompiledTemplate(handlebarsTemplate, getTemplateVariables(handlebarsTemplate));
+      compiledTemplate = template;
+    }
+    return template;
+  }
+
+  /**
+   * Returns the tags of the template expression of the given attribute split into attribute names,
+   * or no tags if the expression is not a valid template, which fails on evaluation instead.
+   */
+  static List<List<String>> getTemplateTags(Attribute attribute) {
+    Template template;
+    try {
       template = getTemplate(attribute);
-      templateTags = getTemplateVariables(template);
+    } catch (TemplateExpressionException | TemplateExpressionSyntaxException e) {
+      return emptyList();
     }
+    return getTemplateTags(template);
   }
 
-  private Template getTemplate(Attribute attribute) {
+  private static Template getTemplate(Attribute attribute) {
     String expression = attribute.getExpression();
     if (expression == null) {
       throw new TemplateExpressionException(attribute);
@@ -169,13 +188,16 @@ public class TemplateExpressionEvaluator implements ExpressionEvaluator {
   }
 
   private List<List<String>> getTemplateVariables(Template template) {
-    List<String> tagNames = template.collect(TagType.VAR);
-    List<List<String>> composedTagNames =
-        tagNames.stream().map(tagName -> asList(tagName.split("\\."))).collect(toList());
+    List<List<String>> composedTagNames = getTemplateTags(template);
     composedTagNames.forEach(this::validateTemplateVariable);
     return composedTagNames;
   }
 
+  private static List<List<String>> getTemplateTags(Template template) {
+    List<String> tagNames = template.collect(TagType.VAR);
+    return tagNames.stream().map(tagName -> asList(tagName.split("\\."))).collect(toList());
+  }
+
   private void validateTemplateVariable(List<String> composedTagName) {
     EntityType variableEntityType = entityType;
     for (Iterator<String> it = composedTagName.iterator(); it.hasNext(); ) {
@@ -202,6 +224,16 @@ public class TemplateExpressionEvaluator implements ExpressionEvaluator {
     }
   }
 
+  private static class CompiledTemplate {
+    private final Template template;
+    private final List<List<String>> tags;
+
+    private CompiledTemplate(Template template, List<List<String>> tags) {
+      this.template = template;
+      this.tags = tags;
+    }
+  }
+
   private static class JsonTemplate {
     private String template;
 
@@ -0,0 +1,56 @@
+package org.molgenis.data.transaction;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import org.molgenis.data.EntityKey;
+
+/**
+ * Describes which cached entities and query results are no longer valid after a transaction was
+ * committed, possibly by another MOLGENIS instance sharing the same database.
+ */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class CacheInvalidation {
+  /** @return whether all caches are invalid, if so the other properties are empty */
+  public abstract boolean isAll();
+
+  /** @return ids of the entity types for which all cached entities are invalid */
+  public abstract ImmutableSet<String> getEntirelyDirtyRepositories();
+
+  /** @return ids of the entity types for which all cached query results are invalid */
+  public abstract ImmutableSet<String> getDirtyRepositories();
+
+  /** @return keys of the cached entities that are invalid */
+  public abstract ImmutableSet<EntityKey> getDirtyEntities();
+
+  public boolean isEmpty() {
+    return !isAll() && getDirtyRepositories().isEmpty();
+  }
+
+  public static CacheInvalidation create(
+      Set<String> entirelyDirtyRepositories,
+      Set<String> dirtyRepositories,
+      Set<EntityKey> dirtyEntities) {
+    return new AutoValue_CacheInvalidation(
+        false,
+        ImmutableSet.copyOf(entirelyDirtyRepositories),
+        ImmutableSet.copyOf(dirtyRepositories),
+        ImmutableSet.copyOf(dirtyEntities));
+  }
+
+  /** Creates a CacheInvalidation for the changes of the current transaction. */
+  public static CacheInvalidation create(TransactionInformation transactionInformation) {
+    return create(
+        transactionInformation.getEntirelyDirtyRepositories(),
+        transactionInformation.getDirtyRepositories(),
+        transactionInformation.getDirtyEntities());
+  }
+
+  /** Creates a CacheInvalidation that invalidates all caches. */
+  public static CacheInvalidation createAll() {
+    return new AutoValue_CacheInvalidation(
+        true, ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of());
+  }
+}
@@ -0,0 +1,12 @@
+package org.molgenis.data.transaction;
+
+/**
+ * Interface that can be implemented by caches that need to be invalidated when transactions are
+ * committed by other MOLGENIS instances sharing the same database.
+ *
+ * <p>Implementations of a cache invalidation bus deliver the {@link CacheInvalidation}s published
+ * by other instances to all CacheInvalidationListener beans.
+ */
+public interface CacheInvalidationListener {
+  void invalidate(CacheInvalidation cacheInvalidation);
+}
@@ -185,6 +185,16 @@ public class TransactionalRepositoryDecorator<E extends Entity>
     return createWriteTransactionTemplate().execute(status -> delegate().add(entities));
   }
 
+  @Override
+  public void upsertBatch(List<E> entities) {
+    createWriteTransactionTemplate()
+        .execute(
+            status -> {
+              delegate().upsertBatch(entities);
+              return null;
+            });
+  }
+
   @Override
   public Iterator<E> iterator() {
     return createReadonlyTransactionTemplate().execute(status -> delegate().iterator());
@@ -0,0 +1,46 @@
+package org.molgenis.data;
+
+import static org.molgenis.data.BulkLoadContextHolder.isBulkLoadMode;
+import static org.molgenis.data.BulkLoadContextHolder.runInBulkLoadMode;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class BulkLoadContextHolderTest {
+  @Test
+  public void testIsBulkLoadMode() {
+    assertFalse(isBulkLoadMode());
+  }
+
+  @Test
+  public void testRunInBulkLoadMode() {
+    assertEquals(runInBulkLoadMode(BulkLoadContextHolder::isBulkLoadMode), Boolean.TRUE);
+    assertFalse(isBulkLoadMode());
+  }
+
+  @Test
+  public void testRunInBulkLoadModeNested() {
+    runInBulkLoadMode(
+        () -> {
+          runInBulkLoadMode(() -> assertTrue(isBulkLoadMode()));
+          assertTrue(isBulkLoadMode());
+        });
+    assertFalse(isBulkLoadMode());
+  }
+
+  @Test
+  public void testRunInBulkLoadModeException() {
+    try {
+      runInBulkLoadMode(
+          () -> {
+            throw new IllegalStateException();
+          });
+    } catch (IllegalStateException e) {
+      assertFalse(isBulkLoadMode());
+      return;
+    }
+    throw new AssertionError("Expected IllegalStateException");
+  }
+}
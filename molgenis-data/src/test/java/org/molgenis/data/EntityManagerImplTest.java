@@ -1,10 +1,15 @@
 package org.molgenis.data;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
 
 import java.util.Arrays;
@@ -84,4 +89,24 @@ public class EntityManagerImplTest {
         entityManagerImpl.resolveReferences(entityType, Stream.of(entity0, entity1), fetch);
     assertEquals(entities.collect(Collectors.toList()), Arrays.asList(entity0, entity1));
   }
+
+  @Test
+  public void resolveReferencesNotLazy() {
+    EntityType refEntityType = mock(EntityType.class);
+    Attribute xrefAttr = when(mock(Attribute.class).getName()).thenReturn("xrefAttr").getMock();
+    when(xrefAttr.getDataType()).thenReturn(XREF);
+    when(xrefAttr.getRefEntity()).thenReturn(refEntityType);
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(xrefAttr));
+
+    Entity refEntity = mock(Entity.class);
+    when(refEntity.getEntityType()).thenReturn(refEntityType);
+    Entity entity = mock(Entity.class);
+    when(entity.getEntity("xrefAttr")).thenReturn(refEntity);
+
+    Fetch fetch = new Fetch().field("xrefAttr");
+    assertEquals(entityManagerImpl.resolveReferences(entityType, entity, fetch), entity);
+    verifyZeroInteractions(dataService);
+    verify(entity, never()).set(eq("xrefAttr"), any());
+  }
 }
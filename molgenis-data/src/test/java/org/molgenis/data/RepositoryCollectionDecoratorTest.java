@@ -0,0 +1,122 @@
+package org.molgenis.data;
+
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.mockito.Mock;
+import org.molgenis.data.decorator.DecoratedRepositoryCache;
+import org.molgenis.data.meta.MetadataSnapshot;
+import org.molgenis.data.meta.MetadataSnapshotRegistry;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RepositoryCollectionDecoratorTest extends AbstractMockitoTest {
+  @Mock private RepositoryCollection delegateRepositoryCollection;
+  @Mock private RepositoryDecoratorFactory repositoryDecoratorFactory;
+  @Mock private DecoratedRepositoryCache decoratedRepositoryCache;
+  @Mock private MetadataSnapshotRegistry metadataSnapshotRegistry;
+  @Mock private MetadataSnapshot metadataSnapshot;
+  @Mock private EntityType entityType;
+  @Mock private Repository<Entity> repository;
+  @Mock private Repository<Entity> decoratedRepository;
+
+  private RepositoryCollectionDecorator repositoryCollectionDecorator;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    repositoryCollectionDecorator =
+        new RepositoryCollectionDecorator(
+            delegateRepositoryCollection,
+            repositoryDecoratorFactory,
+            decoratedRepositoryCache,
+            metadataSnapshotRegistry);
+  }
+
+  @Test
+  public void testGetRepositoryEntityTypeCached() {
+    when(decoratedRepositoryCache.getRepository(eq(entityType), any()))
+        .thenReturn(decoratedRepository);
+    assertEquals(repositoryCollectionDecorator.getRepository(entityType), decoratedRepository);
+    verifyZeroInteractions(delegateRepositoryCollection, repositoryDecoratorFactory);
+  }
+
+  @Test
+  public void testGetRepositoryEntityTypeNotCached() {
+    doAnswer(invocation -> invocation.<Supplier<Repository<Entity>>>getArgument(1).get())
+        .when(decoratedRepositoryCache)
+        .getRepository(eq(entityType), any());
+    when(delegateRepositoryCollection.getRepository(entityType)).thenReturn(repository);
+    when(repositoryDecoratorFactory.createDecoratedRepository(repository))
+        .thenReturn(decoratedRepository);
+    assertEquals(repositoryCollectionDecorator.getRepository(entityType), decoratedRepository);
+  }
+
+  @Test
+  public void testGetRepositoryEntityTypeUnknown() {
+    doAnswer(invocation -> invocation.<Supplier<Repository<Entity>>>getArgument(1).get())
+        .when(decoratedRepositoryCache)
+        .getRepository(eq(entityType), any());
+    assertNull(repositoryCollectionDecorator.getRepository(entityType));
+    verifyZeroInteractions(repositoryDecoratorFactory);
+  }
+
+  @Test
+  public void testGetRepositoryIdCached() {
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(Optional.of(metadataSnapshot));
+    when(metadataSnapshot.getEntityType("entityTypeId")).thenReturn(entityType);
+    when(entityType.getBackend()).thenReturn("backend");
+    when(delegateRepositoryCollection.getName()).thenReturn("backend");
+    when(decoratedRepositoryCache.getRepository(eq(entityType), any()))
+        .thenReturn(decoratedRepository);
+
+    assertEquals(repositoryCollectionDecorator.getRepository("entityTypeId"), decoratedRepository);
+    verify(delegateRepositoryCollection).getName();
+    verifyZeroInteractions(repositoryDecoratorFactory);
+  }
+
+  @Test
+  public void testGetRepositoryIdOtherBackend() {
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(Optional.of(metadataSnapshot));
+    when(metadataSnapshot.getEntityType("entityTypeId")).thenReturn(entityType);
+    when(entityType.getBackend()).thenReturn("otherBackend");
+    when(delegateRepositoryCollection.getName()).thenReturn("backend");
+    when(delegateRepositoryCollection.getRepository("entityTypeId")).thenReturn(null);
+
+    assertNull(repositoryCollectionDecorator.getRepository("entityTypeId"));
+    verifyZeroInteractions(decoratedRepositoryCache);
+  }
+
+  @Test
+  public void testGetRepositoryIdWithoutSnapshot() {
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(Optional.empty());
+    when(delegateRepositoryCollection.getRepository("entityTypeId")).thenReturn(repository);
+    when(repository.getEntityType()).thenReturn(entityType);
+    when(decoratedRepositoryCache.getRepository(eq(entityType), any()))
+        .thenReturn(decoratedRepository);
+
+    assertEquals(repositoryCollectionDecorator.getRepository("entityTypeId"), decoratedRepository);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testIterator() {
+    Repository<Entity> otherRepository = mock(Repository.class);
+    when(delegateRepositoryCollection.iterator())
+        .thenReturn(singletonList(otherRepository).iterator());
+    when(repositoryDecoratorFactory.createDecoratedRepository(otherRepository))
+        .thenReturn(decoratedRepository);
+    assertEquals(repositoryCollectionDecorator.iterator().next(), decoratedRepository);
+  }
+}
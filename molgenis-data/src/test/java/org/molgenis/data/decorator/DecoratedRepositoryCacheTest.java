@@ -0,0 +1,158 @@
+package org.molgenis.data.decorator;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.DECORATOR_CONFIGURATION;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
+import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.STARTED;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.event.BootstrappingEvent;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DecoratedRepositoryCacheTest extends AbstractMockitoTest {
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private EntityType entityType;
+
+  private DecoratedRepositoryCache decoratedRepositoryCache;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    decoratedRepositoryCache =
+        new DecoratedRepositoryCache(transactionManager, transactionInformation);
+  }
+
+  @Test
+  public void testConstructorRegistersTransactionListener() {
+    verify(transactionManager).addTransactionListener(decoratedRepositoryCache);
+  }
+
+  @Test
+  public void testGetRepository() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+
+    Repository<Entity> repository = getRepository();
+    assertSame(
+        decoratedRepositoryCache.getRepository(
+            entityType, DecoratedRepositoryCacheTest::createRepository),
+        repository);
+  }
+
+  @Test
+  public void testGetRepositoryOtherEntityType() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+
+    Repository<Entity> repository = getRepository();
+    assertNotSame(
+        decoratedRepositoryCache.getRepository(
+            mock(EntityType.class), DecoratedRepositoryCacheTest::createRepository),
+        repository);
+  }
+
+  @Test
+  public void testGetRepositoryUnknown() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+
+    assertNull(decoratedRepositoryCache.getRepository(entityType, () -> null));
+    Repository<Entity> repository = getRepository();
+    assertSame(getRepository(), repository);
+  }
+
+  @Test
+  public void testGetRepositoryBootstrapping() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(STARTED));
+
+    Repository<Entity> repository = getRepository();
+    assertNotSame(
+        decoratedRepositoryCache.getRepository(
+            entityType, DecoratedRepositoryCacheTest::createRepository),
+        repository);
+  }
+
+  @Test
+  public void testGetRepositoryMetadataChangedInTransaction() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    Repository<Entity> repository = getRepository();
+
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(DECORATOR_CONFIGURATION));
+    assertNotSame(
+        decoratedRepositoryCache.getRepository(
+            entityType, DecoratedRepositoryCacheTest::createRepository),
+        repository);
+  }
+
+  @Test
+  public void testAfterCommitTransactionMetadataChanged() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    Repository<Entity> repository = getRepository();
+
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(ENTITY_TYPE_META_DATA));
+    decoratedRepositoryCache.afterCommitTransaction("transactionId");
+
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    assertNotSame(
+        decoratedRepositoryCache.getRepository(
+            entityType, DecoratedRepositoryCacheTest::createRepository),
+        repository);
+  }
+
+  @Test
+  public void testInvalidateOtherEntityType() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    Repository<Entity> repository = getRepository();
+
+    decoratedRepositoryCache.invalidate(
+        CacheInvalidation.create(emptySet(), singleton("entity"), emptySet()));
+    assertSame(
+        decoratedRepositoryCache.getRepository(
+            entityType, DecoratedRepositoryCacheTest::createRepository),
+        repository);
+  }
+
+  @Test
+  public void testInvalidateAll() {
+    decoratedRepositoryCache.onApplicationEvent(new BootstrappingEvent(FINISHED));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    Repository<Entity> repository = getRepository();
+
+    decoratedRepositoryCache.invalidate(CacheInvalidation.createAll());
+    assertNotSame(
+        decoratedRepositoryCache.getRepository(
+            entityType, DecoratedRepositoryCacheTest::createRepository),
+        repository);
+  }
+
+  private Repository<Entity> getRepository() {
+    return decoratedRepositoryCache.getRepository(
+        entityType, DecoratedRepositoryCacheTest::createRepository);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Repository<Entity> createRepository() {
+    return mock(Repository.class);
+  }
+}
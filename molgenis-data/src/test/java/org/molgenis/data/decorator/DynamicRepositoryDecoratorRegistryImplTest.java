@@ -3,16 +3,22 @@ package org.molgenis.data.decorator;
 import static com.google.common.collect.ImmutableMap.of;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
 import static java.util.stream.Collectors.toSet;
 import static org.mockito.Answers.RETURNS_SELF;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.DECORATOR_CONFIGURATION;
 import static org.molgenis.data.decorator.meta.DecoratorConfigurationMetadata.ENTITY_TYPE_ID;
 import static org.molgenis.data.event.BootstrappingEvent.BootstrappingStatus.FINISHED;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import com.google.gson.Gson;
 import java.util.Map;
@@ -34,6 +40,9 @@ import org.molgenis.data.decorator.meta.DynamicDecorator;
 import org.molgenis.data.decorator.meta.DynamicDecoratorMetadata;
 import org.molgenis.data.event.BootstrappingEvent;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.annotations.BeforeMethod;
@@ -54,6 +63,8 @@ public class DynamicRepositoryDecoratorRegistryImplTest extends AbstractMolgenis
   @Mock private Repository<Entity> repository;
 
   @Mock private DataService dataService;
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
 
   @Mock private EntityType entityType;
   @Mock private DecoratorConfiguration decoratorConfiguration;
@@ -63,7 +74,9 @@ public class DynamicRepositoryDecoratorRegistryImplTest extends AbstractMolgenis
 
   @BeforeMethod
   public void beforeMethod() {
-    registry = new DynamicRepositoryDecoratorRegistryImpl(dataService, new Gson());
+    registry =
+        new DynamicRepositoryDecoratorRegistryImpl(
+            dataService, new Gson(), transactionManager, transactionInformation);
 
     // fake the bootstrapping event to tell the registry that bootstrapping is finished.
     registry.onApplicationEvent(new BootstrappingEvent(FINISHED));
@@ -157,6 +170,67 @@ public class DynamicRepositoryDecoratorRegistryImplTest extends AbstractMolgenis
     assertEquals(registry.decorate(repository).getName(), "repositoryName");
   }
 
+  @Test
+  public void testConstructorRegistersTransactionListener() {
+    verify(transactionManager).addTransactionListener(registry);
+  }
+
+  @Test
+  public void testHasDecorators() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    when(decoratorConfiguration.getEntityTypeId()).thenReturn("entityTypeId");
+    when(dataService.findAll(DECORATOR_CONFIGURATION, DecoratorConfiguration.class))
+        .thenReturn(Stream.of(decoratorConfiguration));
+
+    assertTrue(registry.hasDecorators("entityTypeId"));
+    assertFalse(registry.hasDecorators("otherEntityTypeId"));
+    verify(dataService, times(1)).findAll(DECORATOR_CONFIGURATION, DecoratorConfiguration.class);
+  }
+
+  @Test
+  public void testHasDecoratorsDecoratorConfiguration() {
+    assertFalse(registry.hasDecorators(DECORATOR_CONFIGURATION));
+  }
+
+  @Test
+  public void testHasDecoratorsChangedInTransaction() {
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(DECORATOR_CONFIGURATION));
+    when(decoratorConfiguration.getEntityTypeId()).thenReturn("entityTypeId");
+    when(dataService.findAll(DECORATOR_CONFIGURATION, DecoratorConfiguration.class))
+        .thenReturn(Stream.of(decoratorConfiguration))
+        .thenReturn(Stream.empty());
+
+    assertTrue(registry.hasDecorators("entityTypeId"));
+    assertFalse(registry.hasDecorators("entityTypeId"));
+  }
+
+  @Test
+  public void testInvalidateDecoratorConfigurationChanged() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    when(decoratorConfiguration.getEntityTypeId()).thenReturn("entityTypeId");
+    when(dataService.findAll(DECORATOR_CONFIGURATION, DecoratorConfiguration.class))
+        .thenReturn(Stream.empty())
+        .thenReturn(Stream.of(decoratorConfiguration));
+
+    assertFalse(registry.hasDecorators("entityTypeId"));
+    registry.invalidate(
+        CacheInvalidation.create(emptySet(), singleton(DECORATOR_CONFIGURATION), emptySet()));
+    assertTrue(registry.hasDecorators("entityTypeId"));
+  }
+
+  @Test
+  public void testInvalidateOtherDataChanged() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    when(dataService.findAll(DECORATOR_CONFIGURATION, DecoratorConfiguration.class))
+        .thenReturn(Stream.empty());
+
+    assertFalse(registry.hasDecorators("entityTypeId"));
+    registry.invalidate(CacheInvalidation.create(emptySet(), singleton("entity"), emptySet()));
+    assertFalse(registry.hasDecorators("entityTypeId"));
+    verify(dataService, times(1)).findAll(DECORATOR_CONFIGURATION, DecoratorConfiguration.class);
+  }
+
   @Test
   public void getParameterMap() {
     DecoratorConfiguration config = mock(DecoratorConfiguration.class);
@@ -66,6 +66,8 @@ public class MetaDataServiceImplTest extends AbstractMockitoTest {
   @Mock private SystemEntityTypeRegistry systemEntityTypeRegistry;
   @Mock private EntityTypeDependencyResolver entityTypeDependencyResolver;
   @Mock private PackagePersister packagePersister;
+  @Mock private MetadataSnapshotRegistry metadataSnapshotRegistry;
+  @Mock private EntityTypeMetadataPermissionChecker entityTypeMetadataPermissionChecker;
 
   private MetaDataServiceImpl metaDataServiceImpl;
 
@@ -81,7 +83,89 @@ public class MetaDataServiceImplTest extends AbstractMockitoTest {
             repoCollectionRegistry,
             systemEntityTypeRegistry,
             entityTypeDependencyResolver,
-            packagePersister);
+            packagePersister,
+            metadataSnapshotRegistry,
+            entityTypeMetadataPermissionChecker);
+  }
+
+  @Test
+  public void getRepositoryFromMetadataSnapshot() {
+    String entityTypeId = "entity";
+    EntityType entityType = when(mock(EntityType.class).isAbstract()).thenReturn(false).getMock();
+    String backendName = "backend";
+    when(entityType.getBackend()).thenReturn(backendName);
+    MetadataSnapshot metadataSnapshot = mock(MetadataSnapshot.class);
+    when(metadataSnapshot.getEntityType(entityTypeId)).thenReturn(entityType);
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(of(metadataSnapshot));
+    when(entityTypeMetadataPermissionChecker.hasReadMetadataPermission(entityTypeId))
+        .thenReturn(true);
+    RepositoryCollection repoCollection = mock(RepositoryCollection.class);
+    @SuppressWarnings("unchecked")
+    Repository<Entity> repo = mock(Repository.class);
+    when(repoCollection.getRepository(entityType)).thenReturn(repo);
+    when(repoCollectionRegistry.getRepositoryCollection(backendName)).thenReturn(repoCollection);
+    assertEquals(metaDataServiceImpl.getRepository(entityTypeId), of(repo));
+    verifyZeroInteractions(dataService);
+  }
+
+  @Test
+  public void getRepositoryNotInMetadataSnapshot() {
+    String entityTypeId = "entity";
+    EntityType entityType = when(mock(EntityType.class).isAbstract()).thenReturn(true).getMock();
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(of(mock(MetadataSnapshot.class)));
+    when(dataService.findOneById(
+            eq(ENTITY_TYPE_META_DATA), eq(entityTypeId), any(Fetch.class), eq(EntityType.class)))
+        .thenReturn(entityType);
+    assertEquals(metaDataServiceImpl.getRepository(entityTypeId), empty());
+  }
+
+  @Test
+  public void hasRepositoryFromMetadataSnapshot() {
+    String entityTypeId = "entity";
+    EntityType entityType = when(mock(EntityType.class).isAbstract()).thenReturn(false).getMock();
+    MetadataSnapshot metadataSnapshot = mock(MetadataSnapshot.class);
+    when(metadataSnapshot.getEntityType(entityTypeId)).thenReturn(entityType);
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(of(metadataSnapshot));
+    when(entityTypeMetadataPermissionChecker.hasReadMetadataPermission(entityTypeId))
+        .thenReturn(true);
+    assertTrue(metaDataServiceImpl.hasRepository(entityTypeId));
+    verifyZeroInteractions(dataService);
+  }
+
+  @Test(expectedExceptions = UnknownEntityTypeException.class)
+  public void getRepositoryFromMetadataSnapshotNoReadMetadataPermission() {
+    String entityTypeId = "entity";
+    MetadataSnapshot metadataSnapshot = mock(MetadataSnapshot.class);
+    when(metadataSnapshot.getEntityType(entityTypeId)).thenReturn(mock(EntityType.class));
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(of(metadataSnapshot));
+    when(entityTypeMetadataPermissionChecker.hasReadMetadataPermission(entityTypeId))
+        .thenReturn(false);
+    when(dataService.findOneById(
+            eq(ENTITY_TYPE_META_DATA), eq(entityTypeId), any(Fetch.class), eq(EntityType.class)))
+        .thenReturn(null);
+    metaDataServiceImpl.getRepository(entityTypeId);
+  }
+
+  @Test
+  public void hasRepositoryFromMetadataSnapshotNoReadMetadataPermission() {
+    String entityTypeId = "entity";
+    MetadataSnapshot metadataSnapshot = mock(MetadataSnapshot.class);
+    when(metadataSnapshot.getEntityType(entityTypeId)).thenReturn(mock(EntityType.class));
+    when(metadataSnapshotRegistry.getSnapshot()).thenReturn(of(metadataSnapshot));
+    when(entityTypeMetadataPermissionChecker.hasReadMetadataPermission(entityTypeId))
+        .thenReturn(false);
+
+    @SuppressWarnings("unchecked")
+    Query<EntityType> entityQ = mock(Query.class);
+    @SuppressWarnings("unchecked")
+    Query<EntityType> entityQ2 = mock(Query.class);
+    when(dataService.query(ENTITY_TYPE_META_DATA, EntityType.class)).thenReturn(entityQ);
+    when(entityQ.eq(ID, entityTypeId)).thenReturn(entityQ);
+    when(entityQ.and()).thenReturn(entityQ2);
+    when(entityQ2.eq(IS_ABSTRACT, false)).thenReturn(entityQ2);
+    when(entityQ2.findOne()).thenReturn(null);
+
+    assertFalse(metaDataServiceImpl.hasRepository(entityTypeId));
   }
 
   @Test
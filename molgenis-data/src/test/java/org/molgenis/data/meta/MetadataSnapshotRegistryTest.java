@@ -0,0 +1,151 @@
+package org.molgenis.data.meta;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.stream.Stream;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Query;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MetadataSnapshotRegistryTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private TransactionManager transactionManager;
+  @Mock private TransactionInformation transactionInformation;
+
+  private MetadataSnapshotRegistry metadataSnapshotRegistry;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    metadataSnapshotRegistry =
+        new MetadataSnapshotRegistry(dataService, transactionManager, transactionInformation);
+  }
+
+  @Test
+  public void testConstructorRegistersTransactionListener() {
+    verify(transactionManager).addTransactionListener(metadataSnapshotRegistry);
+  }
+
+  @Test
+  public void testGetSnapshot() {
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    when(dataService.findAll(
+            eq(ENTITY_TYPE_META_DATA),
+            ArgumentMatchers.<Query<EntityType>>any(),
+            eq(EntityType.class)))
+        .thenReturn(Stream.of(entityType));
+
+    MetadataSnapshot metadataSnapshot = metadataSnapshotRegistry.getSnapshot().get();
+    assertEquals(metadataSnapshot.getEntityType("entity"), entityType);
+    assertNull(metadataSnapshot.getEntityType("unknown"));
+    assertSame(metadataSnapshotRegistry.getSnapshot().get(), metadataSnapshot);
+    verify(entityType).freeze();
+    verify(dataService, times(1))
+        .findAll(
+            eq(ENTITY_TYPE_META_DATA),
+            ArgumentMatchers.<Query<EntityType>>any(),
+            eq(EntityType.class));
+  }
+
+  @Test
+  public void testGetSnapshotResolvesReferencedEntityTypes() {
+    EntityType refEntityType = when(mock(EntityType.class).getId()).thenReturn("ref").getMock();
+    EntityType lazyRefEntityType = when(mock(EntityType.class).getId()).thenReturn("ref").getMock();
+    EntityType lazyExtendsEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("ref").getMock();
+    Attribute attribute = mock(Attribute.class);
+    when(attribute.hasRefEntity()).thenReturn(true);
+    when(attribute.getRefEntity()).thenReturn(lazyRefEntityType);
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getExtends()).thenReturn(lazyExtendsEntityType);
+    when(entityType.getOwnAllAttributes()).thenReturn(singletonList(attribute));
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    when(dataService.findAll(
+            eq(ENTITY_TYPE_META_DATA),
+            ArgumentMatchers.<Query<EntityType>>any(),
+            eq(EntityType.class)))
+        .thenReturn(Stream.of(entityType, refEntityType));
+
+    metadataSnapshotRegistry.getSnapshot();
+    verify(entityType).setExtends(refEntityType);
+    verify(attribute).setRefEntity(refEntityType);
+  }
+
+  @Test
+  public void testGetSnapshotMetadataChangedInTransaction() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ATTRIBUTE_META_DATA));
+    assertFalse(metadataSnapshotRegistry.getSnapshot().isPresent());
+  }
+
+  @Test
+  public void testAfterCommitTransactionMetadataChanged() {
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(emptySet())
+        .thenReturn(singleton(ENTITY_TYPE_META_DATA))
+        .thenReturn(emptySet());
+    when(transactionInformation.getEntirelyDirtyRepositories()).thenReturn(emptySet());
+    when(transactionInformation.getDirtyEntities()).thenReturn(emptySet());
+    when(dataService.findAll(
+            eq(ENTITY_TYPE_META_DATA),
+            ArgumentMatchers.<Query<EntityType>>any(),
+            eq(EntityType.class)))
+        .thenReturn(Stream.empty())
+        .thenReturn(Stream.empty());
+
+    MetadataSnapshot metadataSnapshot = metadataSnapshotRegistry.getSnapshot().get();
+    metadataSnapshotRegistry.afterCommitTransaction("transactionId");
+    assertFalse(metadataSnapshotRegistry.getSnapshot().get() == metadataSnapshot);
+  }
+
+  @Test
+  public void testInvalidateDataChanged() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    when(dataService.findAll(
+            eq(ENTITY_TYPE_META_DATA),
+            ArgumentMatchers.<Query<EntityType>>any(),
+            eq(EntityType.class)))
+        .thenReturn(Stream.empty());
+
+    MetadataSnapshot metadataSnapshot = metadataSnapshotRegistry.getSnapshot().get();
+    metadataSnapshotRegistry.invalidate(
+        CacheInvalidation.create(emptySet(), singleton("entity"), emptySet()));
+    assertSame(metadataSnapshotRegistry.getSnapshot().get(), metadataSnapshot);
+  }
+
+  @Test
+  public void testInvalidateAll() {
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    when(dataService.findAll(
+            eq(ENTITY_TYPE_META_DATA),
+            ArgumentMatchers.<Query<EntityType>>any(),
+            eq(EntityType.class)))
+        .thenReturn(Stream.empty())
+        .thenReturn(Stream.empty());
+
+    MetadataSnapshot metadataSnapshot = metadataSnapshotRegistry.getSnapshot().get();
+    metadataSnapshotRegistry.invalidate(CacheInvalidation.createAll());
+    assertFalse(metadataSnapshotRegistry.getSnapshot().get() == metadataSnapshot);
+  }
+}
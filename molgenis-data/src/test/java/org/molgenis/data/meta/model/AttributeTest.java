@@ -105,6 +105,12 @@ public class AttributeTest extends AbstractSystemEntityTest {
     verifyNoMoreInteractions(parentAttribute);
   }
 
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testFreeze() {
+    attribute.freeze();
+    attribute.setNillable(false);
+  }
+
   @Test
   public void testIsReferenceTypeString() {
     attribute.setDataType(STRING);
@@ -2,6 +2,7 @@ package org.molgenis.data.meta.model;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -46,6 +47,23 @@ public class EntityTypeTest extends AbstractSystemEntityTest {
         metadata, EntityType.class, factory, getOverriddenReturnTypes(), getExcludedAttrs(), true);
   }
 
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testFreeze() {
+    EntityType entityType = factory.create("entityType");
+    entityType.freeze();
+    entityType.setLabel("label");
+  }
+
+  @Test
+  public void testFreezeAttributes() {
+    EntityType entityType = factory.create("entityType");
+    Attribute attribute = mock(Attribute.class);
+    when(attribute.getName()).thenReturn("attr");
+    entityType.setOwnAllAttributes(singletonList(attribute));
+    entityType.freeze();
+    verify(attribute).freeze();
+  }
+
   @Test
   public void addSequenceNumberNull() {
     Attribute attr1 = mock(Attribute.class);
@@ -5,6 +5,7 @@ import static org.testng.Assert.assertEquals;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.molgenis.data.Entity;
@@ -20,6 +21,36 @@ public class BatchingQueryResultTest {
     assertEquals(Iterables.size(bqr), 4);
   }
 
+  @Test
+  public void getBatchAfter() {
+    List<Entity> entities = new ArrayList<>();
+    for (int i = 0; i < 5; ++i) {
+      entities.add(mock(Entity.class));
+    }
+    BatchingQueryResult<Entity> bqr =
+        new BatchingQueryResult<Entity>(2, new QueryImpl<>().offset(1)) {
+          @Override
+          protected List<Entity> getBatch(Query<Entity> q) {
+            assertEquals(q.getOffset(), 1);
+            return entities.subList(1, 3);
+          }
+
+          @Override
+          protected boolean isKeysetPaginationSupported(Query<Entity> q) {
+            return true;
+          }
+
+          @Override
+          protected List<Entity> getBatchAfter(Query<Entity> q, Entity lastEntity) {
+            assertEquals(q.getOffset(), 0);
+            assertEquals(q.getPageSize(), 2);
+            int fromIndex = entities.indexOf(lastEntity) + 1;
+            return entities.subList(fromIndex, Math.min(fromIndex + 2, entities.size()));
+          }
+        };
+    assertEquals(Lists.newArrayList(bqr), entities.subList(1, 5));
+  }
+
   private static class DummyBatchingQueryResult extends BatchingQueryResult<Entity> {
     private final int batchSize;
     int batchCount;
@@ -39,5 +70,15 @@ public class BatchingQueryResultTest {
       return Arrays.asList(
           new DynamicEntity(mock(EntityType.class)), new DynamicEntity(mock(EntityType.class)));
     }
+
+    @Override
+    protected boolean isKeysetPaginationSupported(Query<Entity> q) {
+      return false;
+    }
+
+    @Override
+    protected List<Entity> getBatchAfter(Query<Entity> q, Entity lastEntity) {
+      throw new AssertionError("keyset pagination is not supported");
+    }
   }
 }
@@ -0,0 +1,81 @@
+package org.molgenis.data.support;
+
+import static java.util.Arrays.asList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.testng.Assert.assertEquals;
+
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EntityWithComputedAttributesTest extends AbstractMockitoTest {
+  @Mock private Entity decoratedEntity;
+  @Mock private Attribute attribute;
+  private EntityWithComputedAttributes entityWithComputedAttributes;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    Attribute computedAttribute =
+        when(mock(Attribute.class).getName()).thenReturn("computedAttr").getMock();
+    when(computedAttribute.getDataType()).thenReturn(STRING);
+    when(computedAttribute.getExpression()).thenReturn("attr");
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(attribute, computedAttribute));
+    when(entityType.getAttribute("attr")).thenReturn(attribute);
+    when(decoratedEntity.getEntityType()).thenReturn(entityType);
+
+    entityWithComputedAttributes = new EntityWithComputedAttributes(decoratedEntity);
+  }
+
+  @Test
+  public void testGetComputedValueMemoized() {
+    when(attribute.getName()).thenReturn("attr");
+    when(decoratedEntity.get("attr")).thenReturn("value");
+    assertEquals(entityWithComputedAttributes.get("computedAttr"), "value");
+    assertEquals(entityWithComputedAttributes.getString("computedAttr"), "value");
+    verify(decoratedEntity, times(1)).get("attr");
+  }
+
+  @Test
+  public void testGetComputedValueAfterSet() {
+    when(attribute.getName()).thenReturn("attr");
+    when(decoratedEntity.get("attr")).thenReturn("value", "updatedValue");
+    assertEquals(entityWithComputedAttributes.getString("computedAttr"), "value");
+    entityWithComputedAttributes.set("attr", "updatedValue");
+    verify(decoratedEntity).set("attr", "updatedValue");
+    assertEquals(entityWithComputedAttributes.getString("computedAttr"), "updatedValue");
+  }
+
+  @Test
+  public void testGetComputedValueAfterSetEntity() {
+    when(attribute.getName()).thenReturn("attr");
+    when(decoratedEntity.get("attr")).thenReturn("value", "updatedValue");
+    assertEquals(entityWithComputedAttributes.getString("computedAttr"), "value");
+    Entity values = mock(Entity.class);
+    entityWithComputedAttributes.set(values);
+    verify(decoratedEntity).set(values);
+    assertEquals(entityWithComputedAttributes.getString("computedAttr"), "updatedValue");
+  }
+
+  @Test
+  public void testGet() {
+    when(decoratedEntity.get("attr")).thenReturn("value");
+    assertEquals(entityWithComputedAttributes.get("attr"), "value");
+  }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp = "Attribute \\[computedAttr\\] is computed")
+  public void testSetComputedAttribute() {
+    entityWithComputedAttributes.set("computedAttr", "value");
+  }
+}
@@ -1,10 +1,17 @@
 package org.molgenis.data.support;
 
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Map;
+import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.testng.annotations.Test;
@@ -32,4 +39,102 @@ public class ExpressionEvaluatorFactoryTest {
         ExpressionEvaluatorFactory.createExpressionEvaluator(attribute, entityType)
             instanceof TemplateExpressionEvaluator);
   }
+
+  @Test
+  public void testGetExpressionEvaluatorsShared() {
+    EntityType entityType = createEntityTypeWithComputedAttribute("otherAttr");
+    Map<String, ExpressionEvaluator> expressionEvaluators =
+        ExpressionEvaluatorFactory.getExpressionEvaluators(entityType);
+    assertTrue(expressionEvaluators.get("attr") instanceof StringExpressionEvaluator);
+    assertSame(
+        ExpressionEvaluatorFactory.getExpressionEvaluators(entityType), expressionEvaluators);
+  }
+
+  @Test
+  public void testGetExpressionEvaluatorsSharedRefetchedEntityType() {
+    Map<String, ExpressionEvaluator> expressionEvaluators =
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedAttribute("otherAttr"));
+    assertSame(
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedAttribute("otherAttr")),
+        expressionEvaluators);
+  }
+
+  @Test
+  public void testGetExpressionEvaluatorsExpressionChanged() {
+    Map<String, ExpressionEvaluator> expressionEvaluators =
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedAttribute("otherAttr"));
+
+    Map<String, ExpressionEvaluator> updatedExpressionEvaluators =
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedAttribute("{'template':'{{otherAttr}}'}"));
+    assertNotSame(updatedExpressionEvaluators, expressionEvaluators);
+    assertTrue(updatedExpressionEvaluators.get("attr") instanceof TemplateExpressionEvaluator);
+  }
+
+  @Test
+  public void testGetExpressionEvaluatorsSourceAttributeChanged() {
+    Map<String, ExpressionEvaluator> expressionEvaluators =
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedAttribute("otherAttr"));
+
+    EntityType updatedEntityType = createEntityTypeWithComputedAttribute("otherAttr");
+    when(updatedEntityType.getAttribute("otherAttr").getDataType()).thenReturn(INT);
+    assertNotSame(
+        ExpressionEvaluatorFactory.getExpressionEvaluators(updatedEntityType),
+        expressionEvaluators);
+  }
+
+  @Test
+  public void testGetExpressionEvaluatorsTemplateTagAttributeChanged() {
+    Map<String, ExpressionEvaluator> expressionEvaluators =
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedTemplateAttribute(STRING));
+    assertSame(
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedTemplateAttribute(STRING)),
+        expressionEvaluators);
+
+    assertNotSame(
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createEntityTypeWithComputedTemplateAttribute(INT)),
+        expressionEvaluators);
+  }
+
+  private static EntityType createEntityTypeWithComputedAttribute(String expression) {
+    Attribute attribute = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attribute.getDataType()).thenReturn(STRING);
+    when(attribute.getExpression()).thenReturn(expression);
+    Attribute otherAttribute =
+        when(mock(Attribute.class).getName()).thenReturn("otherAttr").getMock();
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entityType").getMock();
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(attribute));
+    when(entityType.getAttribute("attr")).thenReturn(attribute);
+    when(entityType.getAttribute("otherAttr")).thenReturn(otherAttribute);
+    return entityType;
+  }
+
+  private static EntityType createEntityTypeWithComputedTemplateAttribute(AttributeType refType) {
+    Attribute refAttribute = when(mock(Attribute.class).getName()).thenReturn("refAttr").getMock();
+    when(refAttribute.getDataType()).thenReturn(refType);
+    EntityType refEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("refEntityType").getMock();
+    when(refEntityType.getAttribute("refAttr")).thenReturn(refAttribute);
+
+    Attribute attribute = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attribute.getDataType()).thenReturn(STRING);
+    when(attribute.getExpression()).thenReturn("{'template':'{{xrefAttr.refAttr}}'}");
+    Attribute xrefAttribute =
+        when(mock(Attribute.class).getName()).thenReturn("xrefAttr").getMock();
+    when(xrefAttribute.getDataType()).thenReturn(XREF);
+    when(xrefAttribute.hasRefEntity()).thenReturn(true);
+    when(xrefAttribute.getRefEntity()).thenReturn(refEntityType);
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("templateEntityType").getMock();
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(attribute));
+    when(entityType.getAttribute("xrefAttr")).thenReturn(xrefAttribute);
+    return entityType;
+  }
 }
@@ -5,16 +5,21 @@ import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.LONG;
 import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.TEXT;
 import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.molgenis.data.meta.model.EntityType.AttributeRole.ROLE_ID;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import com.google.gson.JsonSyntaxException;
+import java.util.Map;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.Entity;
+import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
@@ -173,4 +178,39 @@ public class MapOfStringsExpressionEvaluatorTest extends AbstractMolgenisSpringT
     Entity actual = (Entity) evaluator.evaluate(entity);
     assertTrue(EntityUtils.equals(actual, expected));
   }
+
+  @Test
+  public void testGetExpressionEvaluatorsRefEntityAttributeChanged() {
+    Map<String, ExpressionEvaluator> expressionEvaluators =
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createSourceMetaDataWithComputedXref(STRING));
+    assertTrue(expressionEvaluators.get("location") instanceof MapOfStringsExpressionEvaluator);
+    assertSame(
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createSourceMetaDataWithComputedXref(STRING)),
+        expressionEvaluators);
+
+    assertNotSame(
+        ExpressionEvaluatorFactory.getExpressionEvaluators(
+            createSourceMetaDataWithComputedXref(TEXT)),
+        expressionEvaluators);
+  }
+
+  private EntityType createSourceMetaDataWithComputedXref(AttributeType chromosomeType) {
+    EntityType locationMetaData =
+        entityTypeFactory
+            .create("Location")
+            .addAttribute(
+                attributeFactory.create().setName("Identifier").setDataType(STRING), ROLE_ID)
+            .addAttribute(
+                attributeFactory.create().setName("Chromosome").setDataType(chromosomeType));
+    return createDynamicSourceMetaData()
+        .addAttribute(
+            attributeFactory
+                .create()
+                .setName("location")
+                .setDataType(XREF)
+                .setRefEntity(locationMetaData)
+                .setExpression("{'Chromosome':String}"));
+  }
 }
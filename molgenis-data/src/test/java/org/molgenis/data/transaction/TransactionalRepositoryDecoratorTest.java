@@ -196,6 +196,15 @@ public class TransactionalRepositoryDecoratorTest {
     verify(delegateRepository).add(entity);
   }
 
+  @Test
+  public void upsertBatch() {
+    @SuppressWarnings("unchecked")
+    List<Entity> entities = mock(List.class);
+    transactionalRepo.upsertBatch(entities);
+    verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
   @Test
   public void addStream() throws Exception {
     @SuppressWarnings("unchecked")
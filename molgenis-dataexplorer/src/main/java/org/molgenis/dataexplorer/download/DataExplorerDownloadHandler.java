@@ -3,14 +3,17 @@ package org.molgenis.dataexplorer.download;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 
 import com.google.common.collect.Streams;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 import org.molgenis.data.DataService;
-import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.csv.CsvWriter;
 import org.molgenis.data.excel.ExcelSheetWriter;
 import org.molgenis.data.excel.ExcelWriter;
@@ -20,12 +23,11 @@ import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.AbstractWritable.AttributeWriteMode;
 import org.molgenis.data.support.AbstractWritable.EntityWriteMode;
+import org.molgenis.data.support.QueryImpl;
 import org.molgenis.dataexplorer.controller.DataRequest;
 import org.molgenis.util.UnexpectedEnumException;
 
 public class DataExplorerDownloadHandler {
-  // Magic value: https://github.com/molgenis/molgenis/issues/6687
-  private static final long MAX_EXCEL_CELLS = 500000L;
   private final DataService dataService;
   private final AttributeFactory attrMetaFactory;
 
@@ -37,13 +39,12 @@ public class DataExplorerDownloadHandler {
   public void writeToExcel(DataRequest dataRequest, OutputStream outputStream) throws IOException {
     String entityTypeId = dataRequest.getEntityName();
     List<Attribute> attributes = filterAttributes(dataRequest);
-    checkNumberOfCells(dataRequest, entityTypeId, attributes.size());
     AttributeWriteMode attributeWriteMode = getAttributeWriteMode(dataRequest.getColNames());
     try (ExcelWriter excelWriter = new ExcelWriter(outputStream, attrMetaFactory, FileFormat.XLSX);
         ExcelSheetWriter excelSheetWriter =
             excelWriter.createWritable(entityTypeId, attributes, attributeWriteMode)) {
       excelSheetWriter.setEntityWriteMode(getEntityWriteMode(dataRequest.getEntityValues()));
-      excelSheetWriter.add(dataService.findAll(entityTypeId, dataRequest.getQuery()));
+      excelSheetWriter.add(findAll(dataRequest, attributes));
     }
   }
 
@@ -55,16 +56,6 @@ public class DataExplorerDownloadHandler {
         .collect(toList());
   }
 
-  private void checkNumberOfCells(DataRequest dataRequest, String entityTypeId, int cols) {
-    long rows = dataService.count(entityTypeId, dataRequest.getQuery());
-    if (rows * cols >= MAX_EXCEL_CELLS) {
-      throw new MolgenisDataException(
-          String.format(
-              "Total number of cells for this download exceeds the maximum of %s for .xlsx downloads, please use .csv instead",
-              MAX_EXCEL_CELLS));
-    }
-  }
-
   public void writeToCsv(DataRequest request, OutputStream outputStream, char separator)
       throws IOException {
     writeToCsv(request, outputStream, separator, false);
@@ -75,14 +66,48 @@ public class DataExplorerDownloadHandler {
       throws IOException {
     try (CsvWriter csvWriter = new CsvWriter(outputStream, separator, noQuotes)) {
       csvWriter.setEntityWriteMode(getEntityWriteMode(dataRequest.getEntityValues()));
-      String entityTypeId = dataRequest.getEntityName();
-      writeCsvHeaders(dataRequest, csvWriter);
-      csvWriter.add(dataService.findAll(entityTypeId, dataRequest.getQuery()));
+      List<Attribute> attributes = filterAttributes(dataRequest);
+      writeCsvHeaders(dataRequest, attributes, csvWriter);
+      csvWriter.add(findAll(dataRequest, attributes));
     }
   }
 
-  private void writeCsvHeaders(DataRequest dataRequest, CsvWriter csvWriter) throws IOException {
-    List<Attribute> attributes = filterAttributes(dataRequest);
+  /**
+   * Finds the entities to download with a fetch that includes the id and label of referenced
+   * entities, so that the labels are retrieved per batch of entities instead of per reference.
+   */
+  private Stream<Entity> findAll(DataRequest dataRequest, List<Attribute> attributes) {
+    String entityTypeId = dataRequest.getEntityName();
+    Fetch fetch = createFetch(dataService.getEntityType(entityTypeId), attributes);
+    QueryImpl<Entity> query = dataRequest.getQuery();
+    query.setFetch(fetch);
+    return dataService.findAll(entityTypeId, query);
+  }
+
+  private static Fetch createFetch(EntityType entityType, List<Attribute> attributes) {
+    Fetch fetch = new Fetch();
+    Attribute idAttribute = entityType.getIdAttribute();
+    if (idAttribute != null) {
+      fetch.field(idAttribute.getName());
+    }
+    for (Attribute attribute : attributes) {
+      if (isReferenceType(attribute)) {
+        EntityType refEntityType = attribute.getRefEntity();
+        Fetch refFetch = new Fetch().field(refEntityType.getIdAttribute().getName());
+        Attribute refLabelAttribute = refEntityType.getLabelAttribute();
+        if (refLabelAttribute != null) {
+          refFetch.field(refLabelAttribute.getName());
+        }
+        fetch.field(attribute.getName(), refFetch);
+      } else {
+        fetch.field(attribute.getName());
+      }
+    }
+    return fetch;
+  }
+
+  private void writeCsvHeaders(
+      DataRequest dataRequest, List<Attribute> attributes, CsvWriter csvWriter) throws IOException {
     switch (dataRequest.getColNames()) {
       case ATTRIBUTE_LABELS:
         csvWriter.writeAttributes(attributes);
@@ -5,9 +5,11 @@ import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static org.apache.poi.ss.usermodel.Row.MissingCellPolicy.CREATE_NULL_AS_BLANK;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
@@ -18,7 +20,6 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
@@ -33,7 +34,7 @@ import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
-import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
@@ -51,6 +52,10 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
   @Mock private Attribute attribute1;
   @Mock private Attribute attribute2;
   @Mock private Attribute attribute3;
+  @Mock private Attribute idAttribute;
+  @Mock private EntityType refEntityType;
+  @Mock private Attribute refIdAttribute;
+  @Mock private Attribute refLabelAttribute;
   @Mock private QueryImpl<Entity> query;
   @Mock private Entity entity1;
   @Mock private Entity entity2;
@@ -88,6 +93,7 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
     dataRequest.setColNames(colNames);
     dataRequest.setEntityValues(entityValues);
 
+    Fetch expectedFetch = setUpFetch();
     when(dataService.findAll(entityTypeId, query)).thenReturn(Stream.of(entity1, entity2));
     doReturn("entity1attr1").when(entity1).get("attr1");
     doReturn(refEntity1).when(entity1).get("attr2");
@@ -107,29 +113,24 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
     dataExplorerDownloadHandler.writeToCsv(dataRequest, fos, ',');
     assertEquals(readCsv(tmpFile), expected.get(entityTypeId), "entities should get exported");
     assertTrue(tmpFile.delete());
+    verify(query).setFetch(expectedFetch);
     verifyNoMoreInteractions(refEntity1, refEntity2, attribute1, attribute2);
   }
 
-  @Test(
-      expectedExceptions = MolgenisDataException.class,
-      expectedExceptionsMessageRegExp =
-          "Total number of cells for this download exceeds the maximum of 500000 for .xlsx downloads, please use .csv instead")
-  public void testWriteToExcelTooManyCells() throws Exception {
-    when(dataService.count("sys_set_thousandgenomes", query)).thenReturn(2500001L);
-    when(dataService.getEntityType("sys_set_thousandgenomes")).thenReturn(entityType);
-    when(entityType.getAtomicAttributes()).thenReturn(asList(attribute1, attribute2, attribute3));
-    when(attribute1.getName()).thenReturn("attr1");
-    when(attribute2.getName()).thenReturn("attr2");
-    when(attribute3.getName()).thenReturn("attr3");
-
-    DataRequest dataRequest = new DataRequest();
-    dataRequest.setEntityName("sys_set_thousandgenomes");
-    dataRequest.setQuery(query);
-    dataRequest.setAttributeNames(asList("attr1", "attr2"));
-    dataRequest.setColNames(DataRequest.ColNames.ATTRIBUTE_NAMES);
-    dataRequest.setEntityValues(DataRequest.EntityValues.ENTITY_LABELS);
-
-    dataExplorerDownloadHandler.writeToExcel(dataRequest, mock(OutputStream.class));
+  private Fetch setUpFetch() {
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+    when(idAttribute.getName()).thenReturn("id");
+    when(attribute1.getDataType()).thenReturn(STRING);
+    when(attribute2.getDataType()).thenReturn(XREF);
+    when(attribute2.getRefEntity()).thenReturn(refEntityType);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttribute);
+    when(refIdAttribute.getName()).thenReturn("refId");
+    when(refEntityType.getLabelAttribute()).thenReturn(refLabelAttribute);
+    when(refLabelAttribute.getName()).thenReturn("refLabel");
+    return new Fetch()
+        .field("id")
+        .field("attr1")
+        .field("attr2", new Fetch().field("refId").field("refLabel"));
   }
 
   @DataProvider
@@ -185,7 +186,6 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
       Map<String, List<List<String>>> expected)
       throws Exception {
     String entityTypeId = "sys_set_thousandgenomes";
-    when(dataService.count(entityTypeId, query)).thenReturn(2L);
     when(dataService.getEntityType(entityTypeId)).thenReturn(entityType);
     when(entityType.getAtomicAttributes()).thenReturn(asList(attribute1, attribute2, attribute3));
     if (colNames == DataRequest.ColNames.ATTRIBUTE_LABELS) {
@@ -203,6 +203,7 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
     dataRequest.setColNames(colNames);
     dataRequest.setEntityValues(entityValues);
 
+    Fetch expectedFetch = setUpFetch();
     when(dataService.findAll(entityTypeId, query)).thenReturn(Stream.of(entity1, entity2));
     doReturn("entity1attr1").when(entity1).get("attr1");
     doReturn(refEntity1).when(entity1).get("attr2");
@@ -222,6 +223,7 @@ public class DataExplorerDownloadHandlerTest extends AbstractMockitoTest {
     dataExplorerDownloadHandler.writeToExcel(dataRequest, fos);
     assertEquals(readExcel(tmpFile), expected, "entities should get exported");
     assertTrue(tmpFile.delete());
+    verify(query).setFetch(expectedFetch);
     verifyNoMoreInteractions(refEntity1, refEntity2, attribute1, attribute2);
   }
 
@@ -1,8 +1,9 @@
 package org.molgenis.jobs;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import static java.util.Objects.requireNonNull;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -10,9 +11,40 @@ import org.springframework.context.annotation.Import;
 @Import({JobFactoryRegistry.class, JobExecutor.class})
 @Configuration
 public class JobExecutionConfig {
-  @Bean
-  public ExecutorService executorService() {
-    return Executors.newCachedThreadPool(
-        new ThreadFactoryBuilder().setNameFormat("molgenis-job-%d").build());
+  private final JobFactoryRegistry jobFactoryRegistry;
+  private final MeterRegistry meterRegistry;
+  private final int maxWorkers;
+  private final int defaultMaxConcurrentJobs;
+  private final String maxConcurrentJobs;
+
+  /**
+   * @param maxWorkers maximum number of jobs that run at the same time, see {@link
+   *     JobExecutionQueue}
+   * @param defaultMaxConcurrentJobs maximum number of jobs of one job execution type that run at
+   *     the same time
+   * @param maxConcurrentJobs maximum number of jobs that run at the same time per job execution
+   *     type, see {@link JobExecutionQueue#parseMaxConcurrentJobs(String)}
+   */
+  public JobExecutionConfig(
+      JobFactoryRegistry jobFactoryRegistry,
+      MeterRegistry meterRegistry,
+      @Value("${jobs.executor.max.workers:8}") int maxWorkers,
+      @Value("${jobs.executor.default.max.concurrent.jobs:4}") int defaultMaxConcurrentJobs,
+      @Value("${jobs.executor.max.concurrent.jobs:}") String maxConcurrentJobs) {
+    this.jobFactoryRegistry = requireNonNull(jobFactoryRegistry);
+    this.meterRegistry = requireNonNull(meterRegistry);
+    this.maxWorkers = maxWorkers;
+    this.defaultMaxConcurrentJobs = defaultMaxConcurrentJobs;
+    this.maxConcurrentJobs = requireNonNull(maxConcurrentJobs);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public JobExecutionQueue jobExecutionQueue() {
+    return new JobExecutionQueue(
+        jobFactoryRegistry,
+        meterRegistry,
+        maxWorkers,
+        defaultMaxConcurrentJobs,
+        JobExecutionQueue.parseMaxConcurrentJobs(maxConcurrentJobs));
   }
 }
@@ -0,0 +1,324 @@
+package org.molgenis.jobs;
+
+import static java.lang.String.format;
+import static java.util.Comparator.comparing;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.molgenis.jobs.JobPriority.HIGH;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.molgenis.jobs.model.JobExecution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of submitted jobs that runs the jobs on a bounded number of workers. Queued jobs start in
+ * order of {@link JobPriority} and then in order of submission, as long as:
+ *
+ * <ul>
+ *   <li>fewer jobs than the maximum number of workers are running. {@link JobPriority#HIGH} jobs,
+ *       e.g. index jobs that other jobs wait for, start regardless of this limit.
+ *   <li>fewer jobs of the same type than the maximum for that type are running.
+ * </ul>
+ *
+ * The type of a job is its {@link JobExecution} type or, for work that does not run as {@link
+ * JobExecution}, e.g. import runs, the type given on submission. The number of queued and running
+ * jobs and the time that jobs wait in the queue are measured per type.
+ */
+public class JobExecutionQueue {
+  private static final Logger LOG = LoggerFactory.getLogger(JobExecutionQueue.class);
+
+  private final JobFactoryRegistry jobFactoryRegistry;
+  private final MeterRegistry meterRegistry;
+  private final int maxWorkers;
+  private final int defaultMaxConcurrentJobs;
+  private final Map<String, Integer> maxConcurrentJobs;
+  private final ExecutorService workers;
+
+  /** queued jobs in the order in which they are started */
+  private final NavigableSet<QueuedJob> queue =
+      new TreeSet<>(
+          comparing(QueuedJob::getPriority).thenComparingLong(QueuedJob::getSequenceNumber));
+
+  /** maps job execution entity type id to the queue state of that type */
+  private final Map<String, JobType> jobTypes = new HashMap<>();
+
+  private long sequenceNumber = 0;
+  private int runningJobs = 0;
+
+  /**
+   * @param maxWorkers maximum number of jobs that run at the same time, high priority jobs excepted
+   * @param defaultMaxConcurrentJobs maximum number of jobs of one type that run at the same time
+   * @param maxConcurrentJobs maximum number of jobs that run at the same time per job execution
+   *     type, see {@link #parseMaxConcurrentJobs(String)}
+   */
+  public JobExecutionQueue(
+      JobFactoryRegistry jobFactoryRegistry,
+      MeterRegistry meterRegistry,
+      int maxWorkers,
+      int defaultMaxConcurrentJobs,
+      Map<String, Integer> maxConcurrentJobs) {
+    this.jobFactoryRegistry = requireNonNull(jobFactoryRegistry);
+    this.meterRegistry = requireNonNull(meterRegistry);
+    if (maxWorkers < 1) {
+      throw new IllegalArgumentException(format("Invalid maximum workers '%d'", maxWorkers));
+    }
+    this.maxWorkers = maxWorkers;
+    if (defaultMaxConcurrentJobs < 1) {
+      throw new IllegalArgumentException(
+          format("Invalid maximum concurrent jobs '%d'", defaultMaxConcurrentJobs));
+    }
+    this.defaultMaxConcurrentJobs = defaultMaxConcurrentJobs;
+    this.maxConcurrentJobs = ImmutableMap.copyOf(maxConcurrentJobs);
+    this.workers =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("molgenis-job-%d").build());
+  }
+
+  /**
+   * Adds a job to the queue.
+   *
+   * @param jobExecution the {@link JobExecution} of the job
+   * @param job the job to run
+   * @return future that completes when the job has run, cancelling the future before the job starts
+   *     removes the job from the queue
+   */
+  public CompletableFuture<Void> submit(JobExecution jobExecution, Runnable job) {
+    return submit(
+        jobExecution.getEntityType().getId(),
+        jobTypeId -> createJobType(jobTypeId, jobFactoryRegistry.getJobFactory(jobExecution)),
+        job);
+  }
+
+  /**
+   * Adds a job that does not run as {@link JobExecution}, e.g. an import run, to the queue. The job
+   * starts with normal priority and shares the workers with the other jobs.
+   *
+   * @param jobTypeId type of the job in the maximum number of concurrent jobs and in the metrics,
+   *     e.g. the entity type id of the entity that describes the job
+   * @param job the job to run
+   * @return future that completes when the job has run, cancelling the future before the job starts
+   *     removes the job from the queue
+   */
+  public CompletableFuture<Void> submit(String jobTypeId, Runnable job) {
+    return submit(jobTypeId, id -> createJobType(id, null), job);
+  }
+
+  private CompletableFuture<Void> submit(
+      String jobTypeId, Function<String, JobType> jobTypeFactory, Runnable job) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    QueuedJob queuedJob;
+    synchronized (this) {
+      JobType jobType = jobTypes.computeIfAbsent(jobTypeId, jobTypeFactory);
+      queuedJob = new QueuedJob(jobType, job, future, sequenceNumber++, System.nanoTime());
+      queue.add(queuedJob);
+      jobType.queued.incrementAndGet();
+      startJobs();
+    }
+    future.whenComplete(
+        (result, throwable) -> {
+          if (future.isCancelled()) {
+            dequeue(queuedJob);
+          }
+        });
+    return future;
+  }
+
+  /** Removes a cancelled job from the queue if it did not start yet */
+  private synchronized void dequeue(QueuedJob queuedJob) {
+    if (queue.remove(queuedJob)) {
+      queuedJob.getJobType().queued.decrementAndGet();
+    }
+  }
+
+  private JobType createJobType(String jobTypeId, @Nullable JobFactory jobFactory) {
+    JobPriority priority = jobFactory != null ? jobFactory.getPriority() : JobPriority.NORMAL;
+    int maxConcurrentJobsOfType =
+        maxConcurrentJobs.getOrDefault(jobTypeId, defaultMaxConcurrentJobs);
+    if (jobFactory != null) {
+      maxConcurrentJobsOfType =
+          Math.min(maxConcurrentJobsOfType, jobFactory.getMaxConcurrentJobs());
+    }
+
+    Timer waitTimer =
+        Timer.builder("jobs.queue.wait")
+            .description("The time that jobs waited in the queue before starting")
+            .tag("type", jobTypeId)
+            .register(meterRegistry);
+    JobType jobType = new JobType(priority, maxConcurrentJobsOfType, waitTimer);
+    Gauge.builder("jobs.queued", jobType.queued, AtomicInteger::get)
+        .description("The number of jobs waiting in the queue")
+        .tag("type", jobTypeId)
+        .register(meterRegistry);
+    Gauge.builder("jobs.running", jobType.running, AtomicInteger::get)
+        .description("The number of running jobs")
+        .tag("type", jobTypeId)
+        .register(meterRegistry);
+    return jobType;
+  }
+
+  /** Starts the queued jobs that are allowed to run, must be called while holding the lock */
+  private void startJobs() {
+    Iterator<QueuedJob> iterator = queue.iterator();
+    while (iterator.hasNext()) {
+      QueuedJob queuedJob = iterator.next();
+      JobType jobType = queuedJob.getJobType();
+      if (queuedJob.getFuture().isDone()) {
+        // cancelled while queued
+        iterator.remove();
+        jobType.queued.decrementAndGet();
+      } else if (jobType.getPriority() != HIGH && runningJobs >= maxWorkers) {
+        // remaining jobs are normal priority jobs
+        return;
+      } else if (jobType.running.get() < jobType.getMaxConcurrentJobs()) {
+        iterator.remove();
+        jobType.queued.decrementAndGet();
+        startJob(queuedJob);
+      }
+    }
+  }
+
+  private void startJob(QueuedJob queuedJob) {
+    JobType jobType = queuedJob.getJobType();
+    jobType.running.incrementAndGet();
+    runningJobs++;
+    jobType.waitTimer.record(System.nanoTime() - queuedJob.getSubmitTime(), NANOSECONDS);
+    try {
+      workers.execute(() -> runJob(queuedJob));
+    } catch (RejectedExecutionException e) {
+      jobType.running.decrementAndGet();
+      runningJobs--;
+      queuedJob.getFuture().completeExceptionally(e);
+    }
+  }
+
+  @SuppressWarnings("squid:S1181") // job exceptions are passed on through the future
+  private void runJob(QueuedJob queuedJob) {
+    Throwable throwable = null;
+    try {
+      queuedJob.getJob().run();
+    } catch (Throwable t) {
+      throwable = t;
+    } finally {
+      synchronized (this) {
+        queuedJob.getJobType().running.decrementAndGet();
+        runningJobs--;
+        startJobs();
+      }
+    }
+
+    if (throwable == null) {
+      queuedJob.getFuture().complete(null);
+    } else {
+      queuedJob.getFuture().completeExceptionally(throwable);
+    }
+  }
+
+  /** Stops the workers, jobs that did not start remain queued. */
+  public void shutdown() {
+    LOG.debug("Shutting down job workers");
+    workers.shutdown();
+  }
+
+  /**
+   * Parses the maximum number of concurrent jobs per job execution type, e.g.
+   * 'sys_job_FileIngestJobExecution:1,sys_ImportRun:2'
+   */
+  public static Map<String, Integer> parseMaxConcurrentJobs(String value) {
+    ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+    for (String limitValue : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+      List<String> tokens = Splitter.on(':').trimResults().splitToList(limitValue);
+      if (tokens.size() != 2) {
+        throw new IllegalArgumentException(
+            format("Invalid maximum concurrent jobs '%s'", limitValue));
+      }
+      builder.put(requireNonNull(tokens.get(0)), Integer.valueOf(tokens.get(1)));
+    }
+    return builder.build();
+  }
+
+  private static class JobType {
+    private final JobPriority priority;
+    private final int maxConcurrentJobs;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final Timer waitTimer;
+
+    JobType(JobPriority priority, int maxConcurrentJobs, Timer waitTimer) {
+      this.priority = requireNonNull(priority);
+      this.maxConcurrentJobs = maxConcurrentJobs;
+      this.waitTimer = requireNonNull(waitTimer);
+    }
+
+    JobPriority getPriority() {
+      return priority;
+    }
+
+    int getMaxConcurrentJobs() {
+      return maxConcurrentJobs;
+    }
+  }
+
+  private static class QueuedJob {
+    private final JobType jobType;
+    private final Runnable job;
+    private final CompletableFuture<Void> future;
+    private final long sequenceNumber;
+    private final long submitTime;
+
+    QueuedJob(
+        JobType jobType,
+        Runnable job,
+        CompletableFuture<Void> future,
+        long sequenceNumber,
+        long submitTime) {
+      this.jobType = requireNonNull(jobType);
+      this.job = requireNonNull(job);
+      this.future = requireNonNull(future);
+      this.sequenceNumber = sequenceNumber;
+      this.submitTime = submitTime;
+    }
+
+    JobType getJobType() {
+      return jobType;
+    }
+
+    JobPriority getPriority() {
+      return jobType.getPriority();
+    }
+
+    Runnable getJob() {
+      return job;
+    }
+
+    CompletableFuture<Void> getFuture() {
+      return future;
+    }
+
+    long getSequenceNumber() {
+      return sequenceNumber;
+    }
+
+    long getSubmitTime() {
+      return submitTime;
+    }
+  }
+}
@@ -48,8 +48,8 @@ class JobExecutionTemplate {
   }
 
   private <T> T tryCall(Job<T> job, Progress progress) {
-    progress.start();
     try {
+      progress.start();
       T result = job.call(progress);
       progress.success();
       return result;
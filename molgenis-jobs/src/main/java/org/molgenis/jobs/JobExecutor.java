@@ -10,7 +10,6 @@ import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import org.molgenis.data.DataService;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.UnknownEntityException;
@@ -33,7 +32,7 @@ public class JobExecutor {
 
   private final DataService dataService;
   private final EntityManager entityManager;
-  private final ExecutorService executorService;
+  private final JobExecutionQueue jobExecutionQueue;
   private final JobFactoryRegistry jobFactoryRegistry;
   private final JobExecutionContextFactory jobExecutionContextFactory;
   private final JobExecutionRegistry jobExecutionRegistry;
@@ -44,13 +43,13 @@ public class JobExecutor {
   public JobExecutor(
       DataService dataService,
       EntityManager entityManager,
-      ExecutorService executorService,
+      JobExecutionQueue jobExecutionQueue,
       JobFactoryRegistry jobFactoryRegistry,
       JobExecutionContextFactory jobExecutionContextFactory,
       JobExecutionRegistry jobExecutionRegistry) {
     this.dataService = requireNonNull(dataService);
     this.entityManager = requireNonNull(entityManager);
-    this.executorService = requireNonNull(executorService);
+    this.jobExecutionQueue = requireNonNull(jobExecutionQueue);
     this.jobFactoryRegistry = requireNonNull(jobFactoryRegistry);
     this.jobExecutionContextFactory = requireNonNull(jobExecutionContextFactory);
     this.jobExecutionRegistry = requireNonNull(jobExecutionRegistry);
@@ -97,41 +96,45 @@ public class JobExecutor {
   }
 
   /**
-   * Saves execution in the current thread, then creates a Job and submits that for asynchronous
-   * execution.
+   * Saves execution in the current thread, then creates a Job and adds that to the {@link
+   * JobExecutionQueue} for asynchronous execution.
    *
    * @param jobExecution the {@link JobExecution} to save and submit.
+   * @return future that completes when the queued job has run, cancelling the future before the job
+   *     starts removes the job from the queue
    */
   public CompletableFuture<Void> submit(JobExecution jobExecution) {
-    return submit(jobExecution, executorService);
-  }
-
-  /**
-   * Saves execution in the current thread, then creates a Job and submits that for asynchronous
-   * execution to a specific ExecutorService.
-   *
-   * @param jobExecution the {@link JobExecution} to save and submit.
-   * @param executorService the ExecutorService to run the submitted job on
-   */
-  public CompletableFuture<Void> submit(
-      JobExecution jobExecution, ExecutorService executorService) {
     overwriteJobExecutionUser(jobExecution);
     Job molgenisJob = saveExecutionAndCreateJob(jobExecution);
 
     Progress progress = jobExecutionRegistry.registerJobExecution(jobExecution);
-    CompletableFuture<Void> completableFuture =
-        CompletableFuture.runAsync(
-            () -> runJob(jobExecution, molgenisJob, progress), executorService);
+    CompletableFuture<Void> queuedFuture =
+        jobExecutionQueue.submit(jobExecution, () -> runJob(jobExecution, molgenisJob, progress));
+    return handleJobCompletion(jobExecution, queuedFuture);
+  }
 
-    return completableFuture.handle(
+  /**
+   * Returns a future that completes after the job execution is unregistered once the queued job
+   * completes. Cancelling the returned future cancels the queued job.
+   */
+  private CompletableFuture<Void> handleJobCompletion(
+      JobExecution jobExecution, CompletableFuture<Void> queuedFuture) {
+    CompletableFuture<Void> completableFuture = new CompletableFuture<>();
+    queuedFuture.whenComplete(
         (voidResult, throwable) -> {
-          if (throwable != null) {
+          if (throwable != null && !queuedFuture.isCancelled()) {
             handleJobException(jobExecution, throwable);
           }
           jobExecutionRegistry.unregisterJobExecution(jobExecution);
-
-          return voidResult;
+          completableFuture.complete(voidResult);
+        });
+    completableFuture.whenComplete(
+        (voidResult, throwable) -> {
+          if (completableFuture.isCancelled()) {
+            queuedFuture.cancel(false);
+          }
         });
+    return completableFuture;
   }
 
   private void handleJobException(JobExecution jobExecution, Throwable throwable) {
@@ -11,4 +11,17 @@ public abstract class JobFactory<T extends JobExecution> {
    * @return the job
    */
   public abstract Job createJob(T jobExecution);
+
+  /** Returns the priority with which the jobs created by this factory are started. */
+  public JobPriority getPriority() {
+    return JobPriority.NORMAL;
+  }
+
+  /**
+   * Returns the maximum number of jobs created by this factory that run at the same time. The
+   * {@link JobExecutionQueue} can limit this number further.
+   */
+  public int getMaxConcurrentJobs() {
+    return Integer.MAX_VALUE;
+  }
 }
@@ -0,0 +1,12 @@
+package org.molgenis.jobs;
+
+/** Priority with which the {@link JobExecutionQueue} starts queued jobs. */
+public enum JobPriority {
+  /**
+   * Jobs that other jobs or requests wait for, e.g. index jobs. High priority jobs start before
+   * normal priority jobs and are not held back by the worker limit.
+   */
+  HIGH,
+  /** User jobs, e.g. imports, mappings and file ingests. */
+  NORMAL
+}
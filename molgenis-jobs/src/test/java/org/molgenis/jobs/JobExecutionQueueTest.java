@@ -0,0 +1,269 @@
+package org.molgenis.jobs;
+
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.mockito.Mock;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.jobs.model.JobExecution;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JobExecutionQueueTest extends AbstractMockitoTest {
+  @Mock private JobFactoryRegistry jobFactoryRegistry;
+  private MeterRegistry meterRegistry;
+  private CountDownLatch release;
+  private JobExecutionQueue jobExecutionQueue;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
+    release = new CountDownLatch(1);
+  }
+
+  @AfterMethod
+  public void shutdownJobExecutionQueue() {
+    release.countDown();
+    if (jobExecutionQueue != null) {
+      jobExecutionQueue.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testJobExecutionQueue() {
+    new JobExecutionQueue(null, null, 1, 1, emptyMap());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testJobExecutionQueueInvalidMaxWorkers() {
+    new JobExecutionQueue(jobFactoryRegistry, meterRegistry, 0, 1, emptyMap());
+  }
+
+  @Test
+  public void testSubmit() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(1, 1, emptyMap());
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 1);
+
+    AtomicBoolean run = new AtomicBoolean();
+    jobExecutionQueue.submit(jobExecution, () -> run.set(true)).get(5, SECONDS);
+
+    assertTrue(run.get());
+    assertEquals(meterRegistry.get("jobs.queue.wait").tag("type", "type").timer().count(), 1L);
+  }
+
+  @Test(expectedExceptions = ExecutionException.class)
+  public void testSubmitJobThrowsException() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(1, 1, emptyMap());
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 1);
+
+    jobExecutionQueue
+        .submit(
+            jobExecution,
+            () -> {
+              throw new IllegalStateException();
+            })
+        .get(5, SECONDS);
+  }
+
+  @Test
+  public void testSubmitMaxWorkers() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(1, 1, emptyMap());
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 1);
+    JobExecution otherJobExecution = createJobExecution("otherType", JobPriority.NORMAL, 1);
+
+    CompletableFuture<Void> future = jobExecutionQueue.submit(jobExecution, this::awaitRelease);
+    CompletableFuture<Void> otherFuture = jobExecutionQueue.submit(otherJobExecution, () -> {});
+    assertEquals(getQueued("otherType"), 1.0);
+
+    release.countDown();
+    future.get(5, SECONDS);
+    otherFuture.get(5, SECONDS);
+    assertEquals(getQueued("otherType"), 0.0);
+  }
+
+  @Test
+  public void testSubmitMaxConcurrentJobsOfType() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(2, 2, ImmutableMap.of("type", 1));
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 2);
+    JobExecution otherJobExecution = createJobExecution("otherType", JobPriority.NORMAL, 2);
+
+    CompletableFuture<Void> future = jobExecutionQueue.submit(jobExecution, this::awaitRelease);
+    CompletableFuture<Void> sameTypeFuture = jobExecutionQueue.submit(jobExecution, () -> {});
+    jobExecutionQueue.submit(otherJobExecution, () -> {}).get(5, SECONDS);
+    assertEquals(getQueued("type"), 1.0);
+    assertEquals(getRunning("type"), 1.0);
+
+    release.countDown();
+    future.get(5, SECONDS);
+    sameTypeFuture.get(5, SECONDS);
+  }
+
+  @Test
+  public void testSubmitHighPriorityIgnoresMaxWorkers() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(1, 1, emptyMap());
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 1);
+    JobExecution indexJobExecution = createJobExecution("indexType", JobPriority.HIGH, 1);
+
+    jobExecutionQueue.submit(jobExecution, this::awaitRelease);
+    jobExecutionQueue.submit(indexJobExecution, () -> {}).get(5, SECONDS);
+  }
+
+  @Test
+  public void testSubmitHighPriorityStartsFirst() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(1, 2, emptyMap());
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 1);
+    JobExecution indexJobExecution = createJobExecution("indexType", JobPriority.HIGH, 1);
+
+    CompletableFuture<Void> indexFuture =
+        jobExecutionQueue.submit(indexJobExecution, this::awaitRelease);
+    CompletableFuture<Void> future = jobExecutionQueue.submit(jobExecution, this::awaitRelease);
+    CountDownLatch otherRelease = new CountDownLatch(1);
+    CompletableFuture<Void> otherIndexFuture =
+        jobExecutionQueue.submit(indexJobExecution, () -> await(otherRelease));
+    assertEquals(getQueued("type"), 1.0);
+    assertEquals(getQueued("indexType"), 1.0);
+
+    release.countDown();
+    indexFuture.get(5, SECONDS);
+    assertEquals(getRunning("indexType"), 1.0);
+    assertEquals(getQueued("type"), 1.0);
+
+    otherRelease.countDown();
+    otherIndexFuture.get(5, SECONDS);
+    future.get(5, SECONDS);
+  }
+
+  @Test
+  public void testSubmitCancelQueuedJob() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(1, 1, emptyMap());
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 1);
+
+    CompletableFuture<Void> future = jobExecutionQueue.submit(jobExecution, this::awaitRelease);
+    AtomicBoolean run = new AtomicBoolean();
+    jobExecutionQueue.submit(jobExecution, () -> run.set(true)).cancel(false);
+    assertEquals(getQueued("type"), 0.0);
+
+    release.countDown();
+    future.get(5, SECONDS);
+    assertFalse(run.get());
+    assertEquals(getQueued("type"), 0.0);
+  }
+
+  @Test
+  public void testSubmitJobTypeId() throws Exception {
+    jobExecutionQueue = createJobExecutionQueue(1, 1, emptyMap());
+    JobExecution jobExecution = createJobExecution("type", JobPriority.NORMAL, 1);
+
+    CompletableFuture<Void> future = jobExecutionQueue.submit(jobExecution, this::awaitRelease);
+    AtomicBoolean run = new AtomicBoolean();
+    CompletableFuture<Void> importFuture =
+        jobExecutionQueue.submit("importType", () -> run.set(true));
+    assertEquals(getQueued("importType"), 1.0);
+
+    release.countDown();
+    future.get(5, SECONDS);
+    importFuture.get(5, SECONDS);
+    assertTrue(run.get());
+    assertEquals(
+        meterRegistry.get("jobs.queue.wait").tag("type", "importType").timer().count(), 1L);
+  }
+
+  @Test
+  public void testParseMaxConcurrentJobs() {
+    assertEquals(
+        JobExecutionQueue.parseMaxConcurrentJobs("type0:1, type1:2"),
+        ImmutableMap.of("type0", 1, "type1", 2));
+  }
+
+  @Test
+  public void testParseMaxConcurrentJobsEmpty() {
+    assertEquals(JobExecutionQueue.parseMaxConcurrentJobs(""), emptyMap());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testParseMaxConcurrentJobsInvalid() {
+    JobExecutionQueue.parseMaxConcurrentJobs("type0");
+  }
+
+  private JobExecutionQueue createJobExecutionQueue(
+      int maxWorkers, int defaultMaxConcurrentJobs, Map<String, Integer> maxConcurrentJobs) {
+    return new JobExecutionQueue(
+        jobFactoryRegistry, meterRegistry, maxWorkers, defaultMaxConcurrentJobs, maxConcurrentJobs);
+  }
+
+  private JobExecution createJobExecution(
+      String entityTypeId, JobPriority priority, int maxConcurrentJobs) {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn(entityTypeId);
+    JobExecution jobExecution = mock(JobExecution.class);
+    when(jobExecution.getEntityType()).thenReturn(entityType);
+    doReturn(new TestJobFactory(priority, maxConcurrentJobs))
+        .when(jobFactoryRegistry)
+        .getJobFactory(jobExecution);
+    return jobExecution;
+  }
+
+  private double getQueued(String entityTypeId) {
+    return meterRegistry.get("jobs.queued").tag("type", entityTypeId).gauge().value();
+  }
+
+  private double getRunning(String entityTypeId) {
+    return meterRegistry.get("jobs.running").tag("type", entityTypeId).gauge().value();
+  }
+
+  private void awaitRelease() {
+    await(release);
+  }
+
+  private static void await(CountDownLatch countDownLatch) {
+    try {
+      if (!countDownLatch.await(5, SECONDS)) {
+        throw new IllegalStateException(new TimeoutException());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class TestJobFactory extends JobFactory<JobExecution> {
+    private final JobPriority priority;
+    private final int maxConcurrentJobs;
+
+    TestJobFactory(JobPriority priority, int maxConcurrentJobs) {
+      this.priority = priority;
+      this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    @Override
+    public Job createJob(JobExecution jobExecution) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public JobPriority getPriority() {
+      return priority;
+    }
+
+    @Override
+    public int getMaxConcurrentJobs() {
+      return maxConcurrentJobs;
+    }
+  }
+}
@@ -43,6 +43,19 @@ public class JobExecutionTemplateTest extends AbstractMockitoTest {
     }
   }
 
+  @Test(expectedExceptions = JobExecutionException.class)
+  public void testCallCanceledBeforeStart() {
+    JobExecutionContext jobExecutionContext =
+        JobExecutionContext.builder().setAuthentication(authentication).setLocale(locale).build();
+    doThrow(new CancellationException()).when(progress).start();
+
+    try {
+      new JobExecutionTemplate().call(job, progress, jobExecutionContext);
+    } finally {
+      verify(progress).canceled();
+    }
+  }
+
   @SuppressWarnings("deprecation")
   @Test(expectedExceptions = JobExecutionException.class)
   public void testCallException() throws Exception {
@@ -1,6 +1,8 @@
 package org.molgenis.jobs;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -8,9 +10,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.EntityManager.CreationMode.POPULATE;
 import static org.molgenis.jobs.model.ScheduledJobMetadata.SCHEDULED_JOB;
+import static org.testng.Assert.assertTrue;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.molgenis.data.DataService;
@@ -28,7 +31,7 @@ import org.testng.annotations.Test;
 public class JobExecutorTest extends AbstractMockitoTest {
   @Mock private DataService dataService;
   @Mock private EntityManager entityManager;
-  @Mock private ExecutorService executorService;
+  @Mock private JobExecutionQueue jobExecutionQueue;
   @Mock private JobFactoryRegistry jobFactoryRegistry;
   @Mock private JobExecutionContextFactory jobExecutionContextFactory;
   @Mock private JobExecutionTemplate jobExecutionTemplate;
@@ -41,7 +44,7 @@ public class JobExecutorTest extends AbstractMockitoTest {
         new JobExecutor(
             dataService,
             entityManager,
-            executorService,
+            jobExecutionQueue,
             jobFactoryRegistry,
             jobExecutionContextFactory,
             jobExecutionRegistry);
@@ -125,11 +128,11 @@ public class JobExecutorTest extends AbstractMockitoTest {
     when(jobExecutionRegistry.registerJobExecution(jobExecution)).thenReturn(progress);
     doAnswer(
             (InvocationOnMock invocation) -> {
-              ((Runnable) invocation.getArguments()[0]).run();
-              return null;
+              ((Runnable) invocation.getArguments()[1]).run();
+              return completedFuture(null);
             })
-        .when(executorService)
-        .execute(any(Runnable.class));
+        .when(jobExecutionQueue)
+        .submit(eq(jobExecution), any(Runnable.class));
     jobExecutor.submit(jobExecution).get();
 
     verify(dataService).add(jobExecutionEntityTypeId, jobExecution);
@@ -137,6 +140,27 @@ public class JobExecutorTest extends AbstractMockitoTest {
     verify(jobExecutionRegistry).unregisterJobExecution(jobExecution);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSubmitCancel() {
+    EntityType jobExecutionEntityType = mock(EntityType.class);
+    when(jobExecutionEntityType.getId()).thenReturn("MyJobExecutionId");
+
+    JobExecution jobExecution = mock(JobExecution.class);
+    when(jobExecution.getEntityType()).thenReturn(jobExecutionEntityType);
+
+    JobFactory jobFactory = mock(JobFactory.class);
+    when(jobFactoryRegistry.getJobFactory(jobExecution)).thenReturn(jobFactory);
+    when(jobFactory.createJob(jobExecution)).thenReturn(mock(Job.class));
+
+    CompletableFuture<Void> queuedFuture = new CompletableFuture<>();
+    when(jobExecutionQueue.submit(eq(jobExecution), any(Runnable.class))).thenReturn(queuedFuture);
+    jobExecutor.submit(jobExecution).cancel(false);
+
+    assertTrue(queuedFuture.isCancelled());
+    verify(jobExecutionRegistry).unregisterJobExecution(jobExecution);
+  }
+
   @Test(expectedExceptions = RuntimeException.class)
   public void testSubmitJobCreationFails() {
     String jobExecutionEntityTypeId = "MyJobExecutionId";
@@ -157,45 +181,6 @@ public class JobExecutorTest extends AbstractMockitoTest {
     }
   }
 
-  // same as testSubmit but with other ExecutorService
-  @SuppressWarnings("unchecked")
-  @Test
-  public void testSubmitExecutorService() throws ExecutionException, InterruptedException {
-    ExecutorService myExecutorService = mock(ExecutorService.class);
-
-    String jobExecutionEntityTypeId = "MyJobExecutionId";
-    EntityType jobExecutionEntityType = mock(EntityType.class);
-    when(jobExecutionEntityType.getId()).thenReturn(jobExecutionEntityTypeId);
-
-    JobExecution jobExecution = mock(JobExecution.class);
-    when(jobExecution.getEntityType()).thenReturn(jobExecutionEntityType);
-
-    Job job = mock(Job.class);
-
-    JobFactory jobFactory = mock(JobFactory.class);
-    when(jobFactoryRegistry.getJobFactory(jobExecution)).thenReturn(jobFactory);
-    when(jobFactory.createJob(jobExecution)).thenReturn(job);
-
-    JobExecutionContext jobExecutionContext = mock(JobExecutionContext.class);
-    when(jobExecutionContextFactory.createJobExecutionContext(jobExecution))
-        .thenReturn(jobExecutionContext);
-
-    Progress progress = mock(Progress.class);
-    when(jobExecutionRegistry.registerJobExecution(jobExecution)).thenReturn(progress);
-    doAnswer(
-            (InvocationOnMock invocation) -> {
-              ((Runnable) invocation.getArguments()[0]).run();
-              return null;
-            })
-        .when(myExecutorService)
-        .execute(any(Runnable.class));
-    jobExecutor.submit(jobExecution, myExecutorService).get();
-
-    verify(dataService).add(jobExecutionEntityTypeId, jobExecution);
-    verify(jobExecutionTemplate).call(job, progress, jobExecutionContext);
-    verify(jobExecutionRegistry).unregisterJobExecution(jobExecution);
-  }
-
   @Test
   public void testCancel() {
     JobExecution jobExecution = mock(JobExecution.class);
@@ -61,7 +61,7 @@ public class JsMagmaScriptEvaluator {
 
   private void loadScript(String resourceName) throws javax.script.ScriptException, IOException {
     String string = getString(getClass(), resourceName);
-    jsScriptEngine.eval(magmaBindings, string);
+    jsScriptEngine.loadScript(magmaBindings, string);
   }
 
   /**
@@ -6,8 +6,12 @@ import static org.molgenis.js.magma.JsMagmaScriptEvaluator.KEY_ID_VALUE;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.github.benmanes.caffeine.cache.Weigher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
 import javax.script.Bindings;
 import javax.script.Compilable;
 import javax.script.CompiledScript;
@@ -22,8 +26,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+/**
+ * Nashorn script engine that caches the compiled form of expressions that are evaluated repeatedly,
+ * e.g. for each entity in a mapping job. Cache statistics, including the compile time of
+ * expressions, are published as cache metrics.
+ */
 @Component
-public class NashornScriptEngine {
+public class NashornScriptEngine implements MeterBinder {
   private static final Logger LOG = LoggerFactory.getLogger(NashornScriptEngine.class);
   private static final int MAX_COMPILED_EXPRESSIONS_SCRIPTS_LENGTH = 500_000;
   private ScriptEngine scriptEngine;
@@ -37,6 +46,18 @@ public class NashornScriptEngine {
     return convertNashornValue(scriptEngine.eval(script, new SimpleBindings()));
   }
 
+  /**
+   * Evaluates a script that is evaluated once, e.g. a library, using the given bindings. The
+   * compiled script is not cached so that it does not evict the cached expressions.
+   *
+   * @param bindings the Bindings to use as ENGINE_SCOPE
+   * @param script the script to evaluate
+   * @throws ScriptException if the evaluation fails
+   */
+  public void loadScript(Bindings bindings, String script) throws ScriptException {
+    scriptEngine.eval(script, bindings);
+  }
+
   /**
    * Evaluates an expression using the given bindings.
    *
@@ -62,12 +83,26 @@ public class NashornScriptEngine {
         factory.getScriptEngine(s -> false); // create engine with class filter exposing no classes
     expressions =
         Caffeine.newBuilder()
+            .recordStats()
             .maximumWeight(MAX_COMPILED_EXPRESSIONS_SCRIPTS_LENGTH)
             .weigher((Weigher<String, CompiledScript>) (key, value) -> key.length())
             .build(((Compilable) this.scriptEngine)::compile);
     LOG.debug("Initialized Nashorn script engine");
   }
 
+  @Override
+  public void bindTo(@Nonnull MeterRegistry meterRegistry) {
+    bindTo(meterRegistry, "js.expressions");
+  }
+
+  /**
+   * Publishes the cache metrics of the compiled expressions under the given cache name, e.g. to
+   * distinguish the metrics of script engines that are not managed by Spring.
+   */
+  public void bindTo(MeterRegistry meterRegistry, String cacheName) {
+    CaffeineCacheMetrics.monitor(meterRegistry, expressions, cacheName);
+  }
+
   private Object convertNashornValue(Object nashornValue) {
     if (nashornValue == null) {
       return null;
@@ -2,9 +2,13 @@ package org.molgenis.js.nashorn;
 
 import static org.testng.Assert.assertEquals;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import javax.script.Bindings;
 import javax.script.ScriptException;
+import javax.script.SimpleBindings;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -42,4 +46,45 @@ public class NashornScriptEngineTest {
     nashornScriptEngine.eval("piet = 3");
     nashornScriptEngine.eval("piet");
   }
+
+  @Test
+  public void testEvalExpressionCacheMetrics() throws ScriptException {
+    NashornScriptEngine scriptEngine = new NashornScriptEngine();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    scriptEngine.bindTo(meterRegistry);
+
+    assertEquals(scriptEngine.eval(createBindings("x", 1), "x + 1"), 2.0);
+    assertEquals(scriptEngine.eval(createBindings("x", 2), "x + 1"), 3.0);
+
+    assertEquals(getCacheGets(meterRegistry, "miss"), 1.0);
+    assertEquals(getCacheGets(meterRegistry, "hit"), 1.0);
+  }
+
+  @Test
+  public void testLoadScriptNotCached() throws ScriptException {
+    NashornScriptEngine scriptEngine = new NashornScriptEngine();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    scriptEngine.bindTo(meterRegistry);
+
+    Bindings bindings = new SimpleBindings();
+    scriptEngine.loadScript(bindings, "var y = 3");
+
+    assertEquals(scriptEngine.eval(bindings, "y"), 3);
+    assertEquals(getCacheGets(meterRegistry, "miss"), 1.0);
+  }
+
+  private static Bindings createBindings(String name, Object value) {
+    Bindings bindings = new SimpleBindings();
+    bindings.put(name, value);
+    return bindings;
+  }
+
+  private static double getCacheGets(MeterRegistry meterRegistry, String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("cache", "js.expressions")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
 }
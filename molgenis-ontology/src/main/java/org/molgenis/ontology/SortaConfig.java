@@ -3,9 +3,12 @@ package org.molgenis.ontology;
 import static java.util.Objects.requireNonNull;
 
 import org.molgenis.data.DataService;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.ontology.core.ic.OntologyTermFrequencyServiceImpl;
 import org.molgenis.ontology.core.meta.OntologyTermSynonymFactory;
 import org.molgenis.ontology.roc.InformationContentService;
+import org.molgenis.ontology.sorta.index.OntologyTermIndexService;
 import org.molgenis.ontology.sorta.meta.OntologyTermHitMetaData;
 import org.molgenis.ontology.sorta.service.SortaService;
 import org.molgenis.ontology.sorta.service.impl.SortaServiceImpl;
@@ -19,15 +22,21 @@ public class SortaConfig {
   private final DataService dataService;
   private final OntologyTermHitMetaData ontologyTermHitMetaData;
   private final OntologyTermSynonymFactory ontologyTermSynonymFactory;
+  private final TransactionManager transactionManager;
+  private final TransactionInformation transactionInformation;
 
   public SortaConfig(
       DataService dataService,
       OntologyTermHitMetaData ontologyTermHitMetaData,
-      OntologyTermSynonymFactory ontologyTermSynonymFactory) {
+      OntologyTermSynonymFactory ontologyTermSynonymFactory,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation) {
     System.setProperty("jdk.xml.entityExpansionLimit", "1280000");
     this.dataService = requireNonNull(dataService);
     this.ontologyTermHitMetaData = requireNonNull(ontologyTermHitMetaData);
     this.ontologyTermSynonymFactory = requireNonNull(ontologyTermSynonymFactory);
+    this.transactionManager = requireNonNull(transactionManager);
+    this.transactionInformation = requireNonNull(transactionInformation);
   }
 
   @Bean
@@ -39,6 +48,12 @@ public class SortaConfig {
         ontologyTermSynonymFactory);
   }
 
+  @Bean
+  public OntologyTermIndexService ontologyTermIndexService() {
+    return new OntologyTermIndexService(
+        dataService, informationContentService(), transactionManager, transactionInformation);
+  }
+
   @Bean
   public InformationContentService informationContentService() {
     return new InformationContentService(dataService);
@@ -99,7 +99,19 @@ public class InformationContentService {
   }
 
   public Map<String, Double> redistributedNGramScore(String queryString, String ontologyIri) {
-    Map<String, Double> wordIDFMap = createWordIDF(queryString, ontologyIri);
+    return redistributedNGramScore(queryString, createWordIDF(queryString, ontologyIri));
+  }
+
+  /**
+   * Redistributes the n-gram similarity score over the words in the query string based on their
+   * inverse document frequency.
+   *
+   * @param queryString query string
+   * @param wordIDFMap non-zero inverse document frequency of the stemmed words in the query string
+   * @return contributed similarity score by stemmed word
+   */
+  public Map<String, Double> redistributedNGramScore(
+      String queryString, Map<String, Double> wordIDFMap) {
     Map<String, Double> wordWeightedSimilarity = new HashMap<>();
 
     if (wordIDFMap.size() > 0) {
@@ -0,0 +1,358 @@
+package org.molgenis.ontology.sorta.index;
+
+import static java.util.Comparator.comparingDouble;
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.ontology.core.meta.OntologyTermDynamicAnnotationMetadata.NAME;
+import static org.molgenis.ontology.core.meta.OntologyTermDynamicAnnotationMetadata.VALUE;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_DYNAMIC_ANNOTATION;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_IRI;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_SYNONYM;
+import static org.molgenis.ontology.core.meta.OntologyTermSynonymMetadata.ONTOLOGY_TERM_SYNONYM_ATTR;
+import static org.molgenis.ontology.sorta.service.impl.SortaServiceImpl.DEFAULT_MATCHING_IDENTIFIER;
+import static org.molgenis.ontology.sorta.service.impl.SortaServiceImpl.DEFAULT_MATCHING_NAME_FIELD;
+import static org.molgenis.ontology.sorta.service.impl.SortaServiceImpl.DEFAULT_MATCHING_SYNONYM_PREFIX_FIELD;
+
+import com.google.common.primitives.Ints;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.molgenis.data.Entity;
+import org.molgenis.ontology.roc.InformationContentService;
+import org.molgenis.semanticsearch.string.NGramDistanceAlgorithm;
+
+/**
+ * In-memory index of the ontology terms of one ontology that matches input terms without querying
+ * the database or the search index. The index consists of an inverted index from n-gram to the
+ * synonyms that contain it and the number of times they contain it, the inverse document frequency
+ * of the stemmed words in the synonyms and the dynamic annotations of the ontology terms.
+ *
+ * <p>Input terms are scored the same way as {@link
+ * org.molgenis.ontology.sorta.service.impl.SortaServiceImpl} scores the ontology terms found in the
+ * search index. Instances are immutable and can be used by multiple threads concurrently.
+ */
+public class OntologyTermIndex {
+  private static final String ILLEGAL_CHARACTERS_PATTERN = "[^a-zA-Z0-9 ]";
+  private static final String SINGLE_WHITESPACE = " ";
+  private static final int MAX_NUMBER_CANDIDATES = 50;
+
+  private final InformationContentService informationContentService;
+
+  private final List<String> ontologyTermIris;
+  private final List<Synonym> synonyms;
+  private final int[][] ontologyTermSynonymIds;
+  /** maps n-gram to pairs of synonym id and the frequency of the n-gram in the synonym */
+  private final Map<String, int[]> nGramPostings;
+
+  private final Map<String, int[]> annotationOntologyTermIds;
+  private final Map<String, Double> wordInverseDocumentFrequencies;
+  private final double unknownWordInverseDocumentFrequency;
+
+  /**
+   * @param ontologyTerms ontology terms with their synonyms and dynamic annotations
+   * @param informationContentService service used to stem words and redistribute scores
+   */
+  OntologyTermIndex(
+      Iterable<Entity> ontologyTerms, InformationContentService informationContentService) {
+    this.informationContentService = requireNonNull(informationContentService);
+    this.ontologyTermIris = new ArrayList<>();
+    this.synonyms = new ArrayList<>();
+
+    List<int[]> synonymIdsByOntologyTerm = new ArrayList<>();
+    Map<String, List<Integer>> nGramPostingLists = new HashMap<>();
+    Map<String, List<Integer>> annotationOntologyTermIdLists = new HashMap<>();
+    Map<String, Integer> wordDocumentFrequencies = new HashMap<>();
+    for (Entity ontologyTerm : ontologyTerms) {
+      int ontologyTermId = ontologyTermIris.size();
+      ontologyTermIris.add(ontologyTerm.getString(ONTOLOGY_TERM_IRI));
+
+      List<Integer> synonymIds = new ArrayList<>();
+      Set<String> ontologyTermWords = new HashSet<>();
+      for (Entity synonymEntity : ontologyTerm.getEntities(ONTOLOGY_TERM_SYNONYM)) {
+        String synonymValue = synonymEntity.getString(ONTOLOGY_TERM_SYNONYM_ATTR);
+        if (StringUtils.isNotEmpty(synonymValue)) {
+          int synonymId = synonyms.size();
+          String cleanedValue = removeIllegalCharWithSingleWhiteSpace(synonymValue);
+          Map<String, Integer> nGrams = createNGrams(cleanedValue);
+          Synonym synonym =
+              new Synonym(ontologyTermId, synonymValue, cleanedValue, getTotalNumTokens(nGrams));
+          synonyms.add(synonym);
+          synonymIds.add(synonymId);
+          nGrams.forEach(
+              (nGram, frequency) -> {
+                List<Integer> postings =
+                    nGramPostingLists.computeIfAbsent(nGram, k -> new ArrayList<>());
+                postings.add(synonymId);
+                postings.add(frequency);
+              });
+          ontologyTermWords.addAll(
+              informationContentService.createStemmedWordSet(synonym.cleanedValue));
+        }
+      }
+      synonymIdsByOntologyTerm.add(Ints.toArray(synonymIds));
+      ontologyTermWords.forEach(word -> wordDocumentFrequencies.merge(word, 1, Integer::sum));
+
+      for (Entity annotation : ontologyTerm.getEntities(ONTOLOGY_TERM_DYNAMIC_ANNOTATION)) {
+        annotationOntologyTermIdLists
+            .computeIfAbsent(
+                toAnnotationKey(annotation.getString(NAME), annotation.getString(VALUE)),
+                k -> new ArrayList<>())
+            .add(ontologyTermId);
+      }
+    }
+
+    this.ontologyTermSynonymIds = synonymIdsByOntologyTerm.toArray(new int[0][]);
+    this.nGramPostings = toIdArrays(nGramPostingLists);
+    this.annotationOntologyTermIds = toIdArrays(annotationOntologyTermIdLists);
+
+    int nrOntologyTerms = ontologyTermIris.size();
+    this.wordInverseDocumentFrequencies = new HashMap<>();
+    wordDocumentFrequencies.forEach(
+        (word, frequency) ->
+            wordInverseDocumentFrequencies.put(
+                word, getInverseDocumentFrequency(nrOntologyTerms, frequency)));
+    this.unknownWordInverseDocumentFrequency = getInverseDocumentFrequency(nrOntologyTerms, 0);
+  }
+
+  private static Map<String, int[]> toIdArrays(Map<String, List<Integer>> idLists) {
+    Map<String, int[]> idArrays = new HashMap<>();
+    idLists.forEach((key, ids) -> idArrays.put(key, Ints.toArray(ids)));
+    return idArrays;
+  }
+
+  private static double getInverseDocumentFrequency(int nrOntologyTerms, int documentFrequency) {
+    return 1 + Math.log((double) nrOntologyTerms / (documentFrequency + 1));
+  }
+
+  public int getNumberOfOntologyTerms() {
+    return ontologyTermIris.size();
+  }
+
+  /**
+   * Finds the ontology term that matches the input term best. Ontology terms with the same dynamic
+   * annotation as the input term get the maximum score. Other ontology terms are scored based on
+   * the n-gram similarity between their synonyms and the name and synonyms of the input term,
+   * adjusted by the inverse document frequency of the matching words.
+   *
+   * @param inputEntity input term with a name, synonyms and dynamic annotations as attributes
+   * @return best matching ontology term or <code>null</code> if no ontology term matches
+   */
+  @Nullable
+  public OntologyTermMatch findBestMatch(Entity inputEntity) {
+    Map<Integer, OntologyTermMatch> matches = new LinkedHashMap<>();
+
+    List<String> queryStrings = new ArrayList<>();
+    for (String attributeName : inputEntity.getAttributeNames()) {
+      String value = inputEntity.getString(attributeName);
+      if (StringUtils.isNotEmpty(value)
+          && !attributeName.equalsIgnoreCase(DEFAULT_MATCHING_IDENTIFIER)) {
+        if (isAttrNameValidForLexicalMatch(attributeName)) {
+          queryStrings.add(removeIllegalCharWithSingleWhiteSpace(value));
+        } else {
+          int[] ontologyTermIds =
+              annotationOntologyTermIds.get(toAnnotationKey(attributeName, value));
+          if (ontologyTermIds != null) {
+            for (int ontologyTermId : ontologyTermIds) {
+              matches.put(
+                  ontologyTermId,
+                  new OntologyTermMatch(ontologyTermIris.get(ontologyTermId), 100d, 100d));
+            }
+          }
+        }
+      }
+    }
+
+    if (!queryStrings.isEmpty()) {
+      lexicalMatch(queryStrings, matches);
+    }
+
+    return matches
+        .values()
+        .stream()
+        .reduce(
+            (match, otherMatch) ->
+                otherMatch.getCombinedScore() > match.getCombinedScore() ? otherMatch : match)
+        .orElse(null);
+  }
+
+  private void lexicalMatch(List<String> queryStrings, Map<Integer, OntologyTermMatch> matches) {
+    Map<Integer, Double> candidateScores = new HashMap<>();
+    for (String queryString : queryStrings) {
+      findCandidates(queryString, candidateScores);
+    }
+    matches.keySet().forEach(candidateScores::remove);
+
+    List<Entry<Integer, Double>> candidates = new ArrayList<>(candidateScores.entrySet());
+    candidates.sort(comparingDouble((Entry<Integer, Double> entry) -> entry.getValue()).reversed());
+    if (candidates.size() > MAX_NUMBER_CANDIDATES) {
+      candidates = candidates.subList(0, MAX_NUMBER_CANDIDATES);
+    }
+
+    List<QueryWords> queryWords = new ArrayList<>(queryStrings.size());
+    for (String queryString : queryStrings) {
+      queryWords.add(new QueryWords(queryString));
+    }
+    for (Entry<Integer, Double> candidate : candidates) {
+      int ontologyTermId = candidate.getKey();
+      double maxNgramScore = 0;
+      double maxNgramIDFScore = 0;
+      for (QueryWords query : queryWords) {
+        double[] scores = scoreOntologyTerm(ontologyTermId, query);
+        if (scores != null) {
+          maxNgramScore = Math.max(maxNgramScore, scores[0]);
+          maxNgramIDFScore = Math.max(maxNgramIDFScore, scores[1]);
+        }
+      }
+      matches.put(
+          ontologyTermId,
+          new OntologyTermMatch(
+              ontologyTermIris.get(ontologyTermId), maxNgramScore, maxNgramIDFScore));
+    }
+  }
+
+  /**
+   * Updates the scores of the ontology terms with the n-gram similarity of their best matching
+   * synonym with the query string. Only synonyms that share at least one n-gram with the query
+   * string are visited.
+   */
+  private void findCandidates(String queryString, Map<Integer, Double> candidateScores) {
+    Map<String, Integer> queryNGrams = createNGrams(queryString);
+    int nrQueryNGrams = getTotalNumTokens(queryNGrams);
+    if (nrQueryNGrams == 0) {
+      return;
+    }
+
+    Map<Integer, Integer> synonymNrMatchedNGrams = new HashMap<>();
+    queryNGrams.forEach(
+        (nGram, queryFrequency) -> {
+          int[] postings = nGramPostings.get(nGram);
+          if (postings != null) {
+            for (int i = 0; i < postings.length; i += 2) {
+              int nrMatchedNGrams = Math.min(queryFrequency, postings[i + 1]);
+              synonymNrMatchedNGrams.merge(postings[i], nrMatchedNGrams, Integer::sum);
+            }
+          }
+        });
+
+    synonymNrMatchedNGrams.forEach(
+        (synonymId, nrMatchedNGrams) -> {
+          Synonym synonym = synonyms.get(synonymId);
+          double score = 2.0 * nrMatchedNGrams / (nrQueryNGrams + synonym.nrNGrams) * 100;
+          candidateScores.merge(synonym.ontologyTermId, score, Math::max);
+        });
+  }
+
+  /**
+   * Scores an ontology term like {@link org.molgenis.ontology.sorta.service.impl.SortaServiceImpl}:
+   * synonyms are combined as long as that improves the n-gram score, after which the score is
+   * adjusted based on the inverse document frequency of the words that the best (combined) synonym
+   * and the query string have in common.
+   *
+   * @return n-gram score and combined score or <code>null</code> if the term has no synonyms
+   */
+  @Nullable
+  private double[] scoreOntologyTerm(int ontologyTermId, QueryWords query) {
+    int[] synonymIds = ontologyTermSynonymIds[ontologyTermId];
+    if (synonymIds.length == 0) {
+      return null;
+    }
+
+    List<Synonym> sortedSynonyms = new ArrayList<>(synonymIds.length);
+    Map<Synonym, Double> scores = new HashMap<>();
+    for (int synonymId : synonymIds) {
+      Synonym synonym = synonyms.get(synonymId);
+      scores.put(
+          synonym, NGramDistanceAlgorithm.stringMatching(query.queryString, synonym.cleanedValue));
+      sortedSynonyms.add(synonym);
+    }
+    sortedSynonyms.sort(comparingDouble(scores::get).reversed());
+
+    double topNgramScore = scores.get(sortedSynonyms.get(0));
+    String topMatchedSynonym = sortedSynonyms.get(0).value;
+    for (Synonym nextMatchedSynonym : sortedSynonyms.subList(1, sortedSynonyms.size())) {
+      String combinedSynonym = topMatchedSynonym + SINGLE_WHITESPACE + nextMatchedSynonym.value;
+      double newScore =
+          NGramDistanceAlgorithm.stringMatching(
+              query.queryString, removeIllegalCharWithSingleWhiteSpace(combinedSynonym));
+      if (newScore > topNgramScore) {
+        topNgramScore = newScore;
+        topMatchedSynonym = combinedSynonym;
+      }
+    }
+
+    double combinedScore = topNgramScore;
+    Set<String> synonymStemmedWords =
+        informationContentService.createStemmedWordSet(topMatchedSynonym);
+    for (String word : query.stemmedWords) {
+      Double weightedWordSimilarity = query.weightedWordSimilarity.get(word);
+      if (weightedWordSimilarity != null && synonymStemmedWords.contains(word)) {
+        combinedScore += weightedWordSimilarity;
+      }
+    }
+    return new double[] {topNgramScore, combinedScore};
+  }
+
+  private static Map<String, Integer> createNGrams(String string) {
+    return NGramDistanceAlgorithm.createNGrams(string.toLowerCase().trim(), true);
+  }
+
+  private static int getTotalNumTokens(Map<String, Integer> nGrams) {
+    return nGrams.values().stream().mapToInt(Integer::intValue).sum();
+  }
+
+  private static String toAnnotationKey(String name, String value) {
+    return StringUtils.lowerCase(name) + '\t' + StringUtils.lowerCase(value);
+  }
+
+  private static String removeIllegalCharWithSingleWhiteSpace(String string) {
+    return string.replaceAll(ILLEGAL_CHARACTERS_PATTERN, SINGLE_WHITESPACE);
+  }
+
+  private static boolean isAttrNameValidForLexicalMatch(String attr) {
+    return StringUtils.equalsIgnoreCase(attr, DEFAULT_MATCHING_NAME_FIELD)
+        || StringUtils.containsIgnoreCase(attr, DEFAULT_MATCHING_SYNONYM_PREFIX_FIELD);
+  }
+
+  /** Query string with the contributed similarity score of its words */
+  private class QueryWords {
+    private final String queryString;
+    private final Set<String> stemmedWords;
+    private final Map<String, Double> weightedWordSimilarity;
+
+    private QueryWords(String queryString) {
+      this.queryString = queryString;
+      this.stemmedWords = informationContentService.createStemmedWordSet(queryString);
+
+      Map<String, Double> wordIDFMap = new HashMap<>();
+      for (String word : stemmedWords) {
+        double inverseDocumentFrequency =
+            wordInverseDocumentFrequencies.getOrDefault(word, unknownWordInverseDocumentFrequency);
+        if (inverseDocumentFrequency != 0) {
+          wordIDFMap.put(word, inverseDocumentFrequency);
+        }
+      }
+      this.weightedWordSimilarity =
+          informationContentService.redistributedNGramScore(queryString, wordIDFMap);
+    }
+  }
+
+  private static class Synonym {
+    private final int ontologyTermId;
+    private final String value;
+    private final String cleanedValue;
+    private final int nrNGrams;
+
+    private Synonym(int ontologyTermId, String value, String cleanedValue, int nrNGrams) {
+      this.ontologyTermId = ontologyTermId;
+      this.value = value;
+      this.cleanedValue = cleanedValue;
+      this.nrNGrams = nrNGrams;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package org.molgenis.ontology.sorta.index;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.ontology.core.meta.OntologyMetadata.ONTOLOGY;
+import static org.molgenis.ontology.core.meta.OntologyMetadata.ONTOLOGY_IRI;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_DYNAMIC_ANNOTATION;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_IRI;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_SYNONYM;
+import static org.molgenis.ontology.core.meta.OntologyTermSynonymMetadata.ONTOLOGY_TERM_SYNONYM_ATTR;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.CacheInvalidationListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionListener;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.ontology.core.meta.OntologyTermDynamicAnnotationMetadata;
+import org.molgenis.ontology.core.meta.OntologyTermMetadata;
+import org.molgenis.ontology.core.meta.OntologyTermSynonymMetadata;
+import org.molgenis.ontology.roc.InformationContentService;
+
+/**
+ * Builds and caches an {@link OntologyTermIndex} per ontology. Building an index requires reading
+ * all ontology terms of an ontology, so only a few indices are kept and they are evicted when they
+ * have not been used for a while.
+ *
+ * <p>The cache is cleared when a transaction that changed ontologies, ontology terms or their
+ * synonyms or annotations commits, on this or (through a cache invalidation bus) another MOLGENIS
+ * instance. Transactions that change them do not use the cache.
+ */
+public class OntologyTermIndexService implements TransactionListener, CacheInvalidationListener {
+  private static final int MAX_NUMBER_INDICES = 3;
+  private static final int EXPIRE_AFTER_ACCESS_MINUTES = 10;
+
+  private static final ImmutableSet<String> ONTOLOGY_ENTITY_TYPE_IDS =
+      ImmutableSet.of(
+          ONTOLOGY,
+          ONTOLOGY_TERM,
+          OntologyTermSynonymMetadata.ONTOLOGY_TERM_SYNONYM,
+          OntologyTermDynamicAnnotationMetadata.ONTOLOGY_TERM_DYNAMIC_ANNOTATION);
+
+  private final DataService dataService;
+  private final InformationContentService informationContentService;
+  private final TransactionInformation transactionInformation;
+
+  /** replaced on invalidation so that indices that are being built are not cached afterwards */
+  private volatile LoadingCache<String, OntologyTermIndex> ontologyTermIndices;
+
+  public OntologyTermIndexService(
+      DataService dataService,
+      InformationContentService informationContentService,
+      TransactionManager transactionManager,
+      TransactionInformation transactionInformation) {
+    this.dataService = requireNonNull(dataService);
+    this.informationContentService = requireNonNull(informationContentService);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.ontologyTermIndices = createCache();
+    requireNonNull(transactionManager).addTransactionListener(this);
+  }
+
+  private LoadingCache<String, OntologyTermIndex> createCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(MAX_NUMBER_INDICES)
+        .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+        .build(
+            new CacheLoader<String, OntologyTermIndex>() {
+              @Override
+              public OntologyTermIndex load(String ontologyIri) {
+                return createOntologyTermIndex(ontologyIri);
+              }
+            });
+  }
+
+  /**
+   * Returns the index of the ontology terms of the given ontology, building the index if it is not
+   * cached.
+   *
+   * @throws IllegalArgumentException if the ontology does not exist
+   */
+  public OntologyTermIndex getOntologyTermIndex(String ontologyIri) {
+    if (!Collections.disjoint(
+        transactionInformation.getDirtyRepositories(), ONTOLOGY_ENTITY_TYPE_IDS)) {
+      return createOntologyTermIndex(ontologyIri);
+    }
+
+    try {
+      return ontologyTermIndices.getUnchecked(ontologyIri);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void afterCommitTransaction(String transactionId) {
+    invalidate(CacheInvalidation.create(transactionInformation));
+  }
+
+  @Override
+  public void invalidate(CacheInvalidation cacheInvalidation) {
+    if (cacheInvalidation.isAll()
+        || !Collections.disjoint(
+            cacheInvalidation.getDirtyRepositories(), ONTOLOGY_ENTITY_TYPE_IDS)) {
+      ontologyTermIndices = createCache();
+    }
+  }
+
+  private OntologyTermIndex createOntologyTermIndex(String ontologyIri) {
+    Entity ontologyEntity =
+        dataService.findOne(ONTOLOGY, new QueryImpl<>().eq(ONTOLOGY_IRI, ontologyIri));
+    if (ontologyEntity == null) {
+      throw new IllegalArgumentException(
+          "Ontology IRI " + ontologyIri + " does not exist in the database!");
+    }
+
+    Fetch fetch =
+        new Fetch()
+            .field(ONTOLOGY_TERM_IRI)
+            .field(ONTOLOGY_TERM_SYNONYM, new Fetch().field(ONTOLOGY_TERM_SYNONYM_ATTR))
+            .field(
+                ONTOLOGY_TERM_DYNAMIC_ANNOTATION,
+                new Fetch()
+                    .field(OntologyTermDynamicAnnotationMetadata.NAME)
+                    .field(OntologyTermDynamicAnnotationMetadata.VALUE));
+    try (Stream<Entity> ontologyTerms =
+        dataService.findAll(
+            ONTOLOGY_TERM,
+            new QueryImpl<>().eq(OntologyTermMetadata.ONTOLOGY, ontologyEntity).fetch(fetch))) {
+      return new OntologyTermIndex(ontologyTerms::iterator, informationContentService);
+    }
+  }
+}
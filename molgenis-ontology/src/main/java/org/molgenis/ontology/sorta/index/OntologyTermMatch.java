@@ -0,0 +1,64 @@
+package org.molgenis.ontology.sorta.index;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Objects;
+
+/** Ontology term matched by a {@link OntologyTermIndex} with its similarity scores */
+public class OntologyTermMatch {
+  private final String ontologyTermIri;
+  private final double score;
+  private final double combinedScore;
+
+  OntologyTermMatch(String ontologyTermIri, double score, double combinedScore) {
+    this.ontologyTermIri = requireNonNull(ontologyTermIri);
+    this.score = score;
+    this.combinedScore = combinedScore;
+  }
+
+  public String getOntologyTermIri() {
+    return ontologyTermIri;
+  }
+
+  /** Returns the n-gram similarity score */
+  public double getScore() {
+    return score;
+  }
+
+  /** Returns the n-gram similarity score adjusted by the inverse document frequency of words */
+  public double getCombinedScore() {
+    return combinedScore;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    OntologyTermMatch that = (OntologyTermMatch) o;
+    return Double.compare(that.score, score) == 0
+        && Double.compare(that.combinedScore, combinedScore) == 0
+        && ontologyTermIri.equals(that.ontologyTermIri);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(ontologyTermIri, score, combinedScore);
+  }
+
+  @Override
+  public String toString() {
+    return "OntologyTermMatch{"
+        + "ontologyTermIri='"
+        + ontologyTermIri
+        + '\''
+        + ", score="
+        + score
+        + ", combinedScore="
+        + combinedScore
+        + '}';
+  }
+}
@@ -1,48 +1,65 @@
 package org.molgenis.ontology.sorta.job;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Objects.requireNonNull;
-import static org.molgenis.ontology.sorta.meta.OntologyTermHitMetaData.SCORE;
 import static org.molgenis.util.ApplicationContextProvider.getApplicationContext;
 
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.populate.IdGenerator;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.jobs.Progress;
-import org.molgenis.ontology.core.meta.OntologyTermMetadata;
 import org.molgenis.ontology.sorta.controller.SortaController;
+import org.molgenis.ontology.sorta.index.OntologyTermIndex;
+import org.molgenis.ontology.sorta.index.OntologyTermIndexService;
+import org.molgenis.ontology.sorta.index.OntologyTermMatch;
 import org.molgenis.ontology.sorta.meta.MatchingTaskContentMetaData;
-import org.molgenis.ontology.sorta.service.SortaService;
 import org.molgenis.security.core.runas.RunAsSystemAspect;
 import org.molgenis.web.menu.MenuReaderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.stereotype.Component;
 
+/**
+ * Matches the input terms of a SORTA job with the ontology terms of an ontology. Input terms are
+ * matched in parallel against an in-memory {@link OntologyTermIndex} of the ontology, the results
+ * are written in batches in input order.
+ */
 @Component
 public class SortaJobProcessor {
   private static final int ADD_BATCH_SIZE = 1000;
-  private static final int PROGRESS_UPDATE_BATCH_SIZE = 50;
 
   private final DataService dataService;
-  private final SortaService sortaService;
+  private final OntologyTermIndexService ontologyTermIndexService;
   private final IdGenerator idGenerator;
-  private final AtomicInteger counter;
   private final MenuReaderService menuReaderService;
+  private final int sortaThreads;
 
   SortaJobProcessor(
       DataService dataService,
-      SortaService sortaService,
+      OntologyTermIndexService ontologyTermIndexService,
       IdGenerator idGenerator,
-      MenuReaderService menuReaderService) {
+      MenuReaderService menuReaderService,
+      @Value("${sorta.threads:4}") int sortaThreads) {
     this.dataService = requireNonNull(dataService);
-    this.sortaService = requireNonNull(sortaService);
+    this.ontologyTermIndexService = requireNonNull(ontologyTermIndexService);
     this.idGenerator = requireNonNull(idGenerator);
-    this.counter = new AtomicInteger(0);
     this.menuReaderService = requireNonNull(menuReaderService);
+    if (sortaThreads < 1) {
+      throw new IllegalArgumentException("SORTA threads must be at least 1");
+    }
+    this.sortaThreads = sortaThreads;
   }
 
   public Void process(
@@ -67,59 +84,28 @@ public class SortaJobProcessor {
           MatchingTaskContentMetaData matchingTaskContentMetaData =
               getApplicationContext().getBean(MatchingTaskContentMetaData.class);
 
-          // Match input terms with code
-          List<Entity> entitiesToAdd = newArrayList();
-          dataService
-              .findAll(inputRepositoryName)
-              .forEach(
-                  inputRow -> {
-                    Entity resultEntity =
-                        new DynamicEntity(matchingTaskContentMetaData) {
-                          @Override
-                          protected void validateValueType(String attrName, Object value) {
-                            // FIXME enable validation by not overriding this method
-                          }
-                        };
-                    resultEntity.set(MatchingTaskContentMetaData.INPUT_TERM, inputRow);
-                    resultEntity.set(
-                        MatchingTaskContentMetaData.IDENTIFIER, idGenerator.generateId());
-                    resultEntity.set(MatchingTaskContentMetaData.VALIDATED, false);
-                    entitiesToAdd.add(resultEntity);
-
-                    Iterable<Entity> ontologyTermEntities =
-                        sortaService.findOntologyTermEntities(ontologyIri, inputRow);
-                    if (Iterables.size(ontologyTermEntities) > 0) {
-                      Entity firstMatchedOntologyTerm =
-                          Iterables.getFirst(
-                              ontologyTermEntities, new DynamicEntity(matchingTaskContentMetaData));
-                      resultEntity.set(
-                          MatchingTaskContentMetaData.MATCHED_TERM,
-                          firstMatchedOntologyTerm.get(OntologyTermMetadata.ONTOLOGY_TERM_IRI));
-                      resultEntity.set(
-                          MatchingTaskContentMetaData.SCORE, firstMatchedOntologyTerm.get(SCORE));
-                    } else {
-                      resultEntity.set(MatchingTaskContentMetaData.SCORE, 0.0);
-                    }
-
-                    // Add entity in batch
-                    if (entitiesToAdd.size() >= ADD_BATCH_SIZE) {
-                      dataService.add(resultRepositoryName, entitiesToAdd.stream());
-                      entitiesToAdd.clear();
-                    }
-
-                    // Increase the number of the progress
-                    counter.incrementAndGet();
-
-                    // Update the progress only when the progress proceeds the threshold
-                    if (counter.get() % PROGRESS_UPDATE_BATCH_SIZE == 0) {
-                      progress.progress(counter.get(), "Processed " + counter + " input terms.");
-                    }
-                  });
-          // Add the rest
-          if (!entitiesToAdd.isEmpty()) {
-            dataService.add(resultRepositoryName, entitiesToAdd.stream());
+          OntologyTermIndex ontologyTermIndex =
+              ontologyTermIndexService.getOntologyTermIndex(ontologyIri);
+
+          ExecutorService executorService = createExecutorService();
+          try (Stream<Entity> inputRows = dataService.findAll(inputRepositoryName)) {
+            int counter = 0;
+            Iterator<List<Entity>> batches =
+                Iterators.partition(inputRows.iterator(), ADD_BATCH_SIZE);
+            while (batches.hasNext()) {
+              List<Entity> batch = batches.next();
+              List<Entity> entitiesToAdd =
+                  matchBatch(
+                      batch, ontologyTermIndex, matchingTaskContentMetaData, executorService);
+              dataService.add(resultRepositoryName, entitiesToAdd.stream());
+
+              counter += batch.size();
+              progress.progress(counter, "Processed " + counter + " input terms.");
+            }
+          } finally {
+            executorService.shutdownNow();
           }
-          progress.progress(counter.get(), "Processed " + counter + " input terms.");
+
           progress.setResultUrl(
               menuReaderService.findMenuItemPath(SortaController.ID)
                   + "/result/"
@@ -127,4 +113,63 @@ public class SortaJobProcessor {
         });
     return null;
   }
+
+  private ExecutorService createExecutorService() {
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            sortaThreads,
+            new ThreadFactoryBuilder().setNameFormat("molgenis-sorta-%d").setDaemon(true).build());
+    return new DelegatingSecurityContextExecutorService(executorService);
+  }
+
+  /** Matches a batch of input terms in parallel and returns the results in input order */
+  private List<Entity> matchBatch(
+      List<Entity> inputRows,
+      OntologyTermIndex ontologyTermIndex,
+      MatchingTaskContentMetaData matchingTaskContentMetaData,
+      ExecutorService executorService) {
+    List<Future<OntologyTermMatch>> matches = new ArrayList<>(inputRows.size());
+    for (Entity inputRow : inputRows) {
+      matches.add(executorService.submit(() -> ontologyTermIndex.findBestMatch(inputRow)));
+    }
+
+    List<Entity> entitiesToAdd = new ArrayList<>(inputRows.size());
+    for (int i = 0; i < inputRows.size(); i++) {
+      Entity resultEntity =
+          new DynamicEntity(matchingTaskContentMetaData) {
+            @Override
+            protected void validateValueType(String attrName, Object value) {
+              // FIXME enable validation by not overriding this method
+            }
+          };
+      resultEntity.set(MatchingTaskContentMetaData.INPUT_TERM, inputRows.get(i));
+      resultEntity.set(MatchingTaskContentMetaData.IDENTIFIER, idGenerator.generateId());
+      resultEntity.set(MatchingTaskContentMetaData.VALIDATED, false);
+
+      OntologyTermMatch match = getMatch(matches.get(i));
+      if (match != null) {
+        resultEntity.set(MatchingTaskContentMetaData.MATCHED_TERM, match.getOntologyTermIri());
+        resultEntity.set(MatchingTaskContentMetaData.SCORE, match.getScore());
+      } else {
+        resultEntity.set(MatchingTaskContentMetaData.SCORE, 0.0);
+      }
+      entitiesToAdd.add(resultEntity);
+    }
+    return entitiesToAdd;
+  }
+
+  private static OntologyTermMatch getMatch(Future<OntologyTermMatch> match) {
+    try {
+      return match.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new MolgenisDataException(cause);
+    }
+  }
 }
@@ -0,0 +1,127 @@
+package org.molgenis.ontology.sorta.index;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.ontology.core.meta.OntologyMetadata.ONTOLOGY;
+import static org.molgenis.ontology.core.meta.OntologyMetadata.ONTOLOGY_IRI;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.mockito.ArgumentMatchers;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.CacheInvalidation;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.ontology.roc.InformationContentService;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class OntologyTermIndexServiceTest {
+  private DataService dataService;
+  private TransactionManager transactionManager;
+  private TransactionInformation transactionInformation;
+  private OntologyTermIndexService ontologyTermIndexService;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    dataService = mock(DataService.class);
+    transactionManager = mock(TransactionManager.class);
+    transactionInformation = mock(TransactionInformation.class);
+    ontologyTermIndexService =
+        new OntologyTermIndexService(
+            dataService,
+            new InformationContentService(dataService),
+            transactionManager,
+            transactionInformation);
+  }
+
+  @Test
+  public void testOntologyTermIndexServiceRegistersTransactionListener() {
+    verify(transactionManager).addTransactionListener(ontologyTermIndexService);
+  }
+
+  @Test
+  public void testGetOntologyTermIndexCached() {
+    mockOntology();
+
+    OntologyTermIndex ontologyTermIndex =
+        ontologyTermIndexService.getOntologyTermIndex("iri:ontology");
+    assertEquals(ontologyTermIndex.getNumberOfOntologyTerms(), 0);
+    assertSame(ontologyTermIndexService.getOntologyTermIndex("iri:ontology"), ontologyTermIndex);
+  }
+
+  @Test
+  public void testGetOntologyTermIndexClosesOntologyTerms() {
+    Entity ontology = mock(Entity.class);
+    when(dataService.findOne(ONTOLOGY, new QueryImpl<>().eq(ONTOLOGY_IRI, "iri:ontology")))
+        .thenReturn(ontology);
+    AtomicBoolean closed = new AtomicBoolean();
+    when(dataService.findAll(
+            ArgumentMatchers.eq(ONTOLOGY_TERM), ArgumentMatchers.<Query<Entity>>any()))
+        .thenReturn(Stream.<Entity>empty().onClose(() -> closed.set(true)));
+
+    ontologyTermIndexService.getOntologyTermIndex("iri:ontology");
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void testGetOntologyTermIndexOntologyTermsChangedInTransaction() {
+    mockOntology();
+    OntologyTermIndex ontologyTermIndex =
+        ontologyTermIndexService.getOntologyTermIndex("iri:ontology");
+
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ONTOLOGY_TERM));
+    assertNotSame(ontologyTermIndexService.getOntologyTermIndex("iri:ontology"), ontologyTermIndex);
+  }
+
+  @Test
+  public void testAfterCommitTransactionOntologyTermsChanged() {
+    mockOntology();
+    OntologyTermIndex ontologyTermIndex =
+        ontologyTermIndexService.getOntologyTermIndex("iri:ontology");
+
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ONTOLOGY_TERM));
+    ontologyTermIndexService.afterCommitTransaction("transactionId");
+
+    when(transactionInformation.getDirtyRepositories()).thenReturn(emptySet());
+    assertNotSame(ontologyTermIndexService.getOntologyTermIndex("iri:ontology"), ontologyTermIndex);
+  }
+
+  @Test
+  public void testInvalidateOtherEntityType() {
+    mockOntology();
+    OntologyTermIndex ontologyTermIndex =
+        ontologyTermIndexService.getOntologyTermIndex("iri:ontology");
+
+    ontologyTermIndexService.invalidate(
+        CacheInvalidation.create(emptySet(), singleton("entity"), emptySet()));
+    assertSame(ontologyTermIndexService.getOntologyTermIndex("iri:ontology"), ontologyTermIndex);
+  }
+
+  private void mockOntology() {
+    Entity ontology = mock(Entity.class);
+    when(dataService.findOne(ONTOLOGY, new QueryImpl<>().eq(ONTOLOGY_IRI, "iri:ontology")))
+        .thenReturn(ontology);
+    when(dataService.findAll(
+            ArgumentMatchers.eq(ONTOLOGY_TERM), ArgumentMatchers.<Query<Entity>>any()))
+        .thenAnswer(invocation -> Stream.empty());
+  }
+
+  @Test(
+      expectedExceptions = IllegalArgumentException.class,
+      expectedExceptionsMessageRegExp = "Ontology IRI iri:unknown does not exist in the database!")
+  public void testGetOntologyTermIndexUnknownOntology() {
+    ontologyTermIndexService.getOntologyTermIndex("iri:unknown");
+  }
+}
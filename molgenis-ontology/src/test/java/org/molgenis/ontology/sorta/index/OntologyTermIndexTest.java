@@ -0,0 +1,126 @@
+package org.molgenis.ontology.sorta.index;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_DYNAMIC_ANNOTATION;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_IRI;
+import static org.molgenis.ontology.core.meta.OntologyTermMetadata.ONTOLOGY_TERM_SYNONYM;
+import static org.molgenis.ontology.core.meta.OntologyTermSynonymMetadata.ONTOLOGY_TERM_SYNONYM_ATTR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.ontology.core.meta.OntologyTermDynamicAnnotationMetadata;
+import org.molgenis.ontology.roc.InformationContentService;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class OntologyTermIndexTest {
+  private OntologyTermIndex ontologyTermIndex;
+
+  @BeforeClass
+  public void setUpBeforeClass() {
+    Entity hearingImpairment =
+        createOntologyTerm("iri:hearing", asList("hearing impairment", "deafness"), emptyList());
+    Entity eyeBall =
+        createOntologyTerm(
+            "iri:eye", singletonList("eye ball"), singletonList(createAnnotation("OMIM", "123")));
+    Entity eyeDisease =
+        createOntologyTerm("iri:eyedisease", singletonList("eye disease"), emptyList());
+    ontologyTermIndex =
+        new OntologyTermIndex(
+            asList(hearingImpairment, eyeBall, eyeDisease),
+            new InformationContentService(mock(DataService.class)));
+  }
+
+  @Test
+  public void testGetNumberOfOntologyTerms() {
+    assertEquals(ontologyTermIndex.getNumberOfOntologyTerms(), 3);
+  }
+
+  @Test
+  public void testFindBestMatchLexical() {
+    OntologyTermMatch match =
+        ontologyTermIndex.findBestMatch(createInputTerm("Name", "Hearing impairment"));
+    assertEquals(match.getOntologyTermIri(), "iri:hearing");
+    assertEquals(match.getScore(), 100d);
+    assertTrue(match.getCombinedScore() >= 100d);
+  }
+
+  @Test
+  public void testFindBestMatchSynonym() {
+    OntologyTermMatch match =
+        ontologyTermIndex.findBestMatch(createInputTerm("Synonym_1", "eye-disease"));
+    assertEquals(match.getOntologyTermIri(), "iri:eyedisease");
+    assertEquals(match.getScore(), 100d);
+  }
+
+  @Test
+  public void testFindBestMatchAnnotation() {
+    Map<String, String> values = new LinkedHashMap<>();
+    values.put("Name", "hearing impairment");
+    values.put("omim", "123");
+    OntologyTermMatch match = ontologyTermIndex.findBestMatch(createInputTerm(values));
+    assertEquals(match, new OntologyTermMatch("iri:eye", 100d, 100d));
+  }
+
+  @Test
+  public void testFindBestMatchIdentifierIgnored() {
+    Map<String, String> values = new LinkedHashMap<>();
+    values.put("Identifier", "eye ball");
+    values.put("Name", "qqq");
+    assertNull(ontologyTermIndex.findBestMatch(createInputTerm(values)));
+  }
+
+  @Test
+  public void testFindBestMatchNoMatch() {
+    assertNull(ontologyTermIndex.findBestMatch(createInputTerm("Name", "qqq")));
+  }
+
+  private static Entity createOntologyTerm(
+      String iri, List<String> synonyms, List<Entity> annotations) {
+    Entity ontologyTerm = mock(Entity.class);
+    when(ontologyTerm.getString(ONTOLOGY_TERM_IRI)).thenReturn(iri);
+    List<Entity> synonymEntities =
+        synonyms
+            .stream()
+            .map(
+                synonym -> {
+                  Entity synonymEntity = mock(Entity.class);
+                  when(synonymEntity.getString(ONTOLOGY_TERM_SYNONYM_ATTR)).thenReturn(synonym);
+                  return synonymEntity;
+                })
+            .collect(toList());
+    when(ontologyTerm.getEntities(ONTOLOGY_TERM_SYNONYM)).thenReturn(synonymEntities);
+    when(ontologyTerm.getEntities(ONTOLOGY_TERM_DYNAMIC_ANNOTATION)).thenReturn(annotations);
+    return ontologyTerm;
+  }
+
+  private static Entity createAnnotation(String name, String value) {
+    Entity annotation = mock(Entity.class);
+    when(annotation.getString(OntologyTermDynamicAnnotationMetadata.NAME)).thenReturn(name);
+    when(annotation.getString(OntologyTermDynamicAnnotationMetadata.VALUE)).thenReturn(value);
+    return annotation;
+  }
+
+  private static Entity createInputTerm(String attributeName, String value) {
+    return createInputTerm(singletonMap(attributeName, value));
+  }
+
+  private static Entity createInputTerm(Map<String, String> values) {
+    Entity inputTerm = mock(Entity.class);
+    when(inputTerm.getAttributeNames()).thenReturn(values.keySet());
+    values.forEach((name, value) -> when(inputTerm.getString(name)).thenReturn(value));
+    return inputTerm;
+  }
+}
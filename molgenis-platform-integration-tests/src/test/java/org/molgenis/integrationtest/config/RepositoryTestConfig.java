@@ -3,6 +3,7 @@ package org.molgenis.integrationtest.config;
 import org.molgenis.data.RepositoryCollectionBootstrapper;
 import org.molgenis.data.RepositoryCollectionRegistry;
 import org.molgenis.data.SystemRepositoryDecoratorFactoryRegistrar;
+import org.molgenis.data.decorator.DecoratedRepositoryCache;
 import org.molgenis.data.file.FileRepositoryCollectionFactory;
 import org.molgenis.data.index.IndexedRepositoryDecoratorFactory;
 import org.molgenis.data.platform.RepositoryCollectionDecoratorFactoryImpl;
@@ -14,6 +15,7 @@ import org.springframework.context.annotation.Import;
 @Import({
   RepositoryCollectionRegistry.class,
   RepositoryCollectionDecoratorFactoryImpl.class,
+  DecoratedRepositoryCache.class,
   RepositoryCollectionBootstrapper.class,
   IndexedRepositoryDecoratorFactory.class,
   MolgenisRepositoryDecoratorFactory.class,
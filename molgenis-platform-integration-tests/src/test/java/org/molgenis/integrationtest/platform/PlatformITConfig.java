@@ -12,12 +12,14 @@ import org.molgenis.data.file.FileRepositoryCollectionFactory;
 import org.molgenis.data.importer.DataPersisterImpl;
 import org.molgenis.data.platform.RepositoryCollectionDecoratorFactoryImpl;
 import org.molgenis.data.platform.config.PlatformConfig;
+import org.molgenis.data.platform.decorators.JoinFetchPolicyImpl;
 import org.molgenis.data.populate.IdGeneratorImpl;
 import org.molgenis.data.postgresql.DatabaseConfig;
 import org.molgenis.data.postgresql.PostgreSqlConfiguration;
 import org.molgenis.data.postgresql.identifier.EntityTypeRegistryPopulator;
 import org.molgenis.data.security.DataserviceRoleHierarchy;
 import org.molgenis.data.security.SystemEntityTypeRegistryImpl;
+import org.molgenis.data.security.meta.EntityTypeMetadataPermissionCheckerImpl;
 import org.molgenis.data.security.permission.DataPermissionConfig;
 import org.molgenis.data.validation.ExpressionValidator;
 import org.molgenis.integrationtest.config.JsonTestConfig;
@@ -116,6 +118,7 @@ in org.molgenis.data and subpackages from included modules
   JobConfig.class,
   org.molgenis.data.RepositoryCollectionRegistry.class,
   RepositoryCollectionDecoratorFactoryImpl.class,
+  JoinFetchPolicyImpl.class,
   DataSourceAclTablesPopulator.class,
   org.molgenis.data.RepositoryCollectionBootstrapper.class,
   org.molgenis.data.EntityFactoryRegistrar.class,
@@ -138,6 +141,7 @@ in org.molgenis.data and subpackages from included modules
   JobExecutionConfig.class,
   JobFactoryRegistrar.class,
   SystemEntityTypeRegistryImpl.class,
+  EntityTypeMetadataPermissionCheckerImpl.class,
   ScriptTestConfig.class,
   AclConfig.class,
   MutableAclClassServiceImpl.class,
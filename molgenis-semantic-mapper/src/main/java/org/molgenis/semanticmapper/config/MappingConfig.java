@@ -2,6 +2,7 @@ package org.molgenis.semanticmapper.config;
 
 import static java.util.Objects.requireNonNull;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.molgenis.data.DataService;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.meta.model.AttributeFactory;
@@ -27,6 +28,7 @@ import org.molgenis.semanticmapper.service.impl.AlgorithmTemplateServiceImpl;
 import org.molgenis.semanticmapper.service.impl.MappingServiceImpl;
 import org.molgenis.semanticmapper.service.impl.UnitResolverImpl;
 import org.molgenis.semanticsearch.service.SemanticSearchService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -44,6 +46,8 @@ public class MappingConfig {
   private final MappingProjectMetadata mappingProjectMeta;
   private final EntityManager entityManager;
   private final JsMagmaScriptEvaluator jsMagmaScriptEvaluator;
+  private final MeterRegistry meterRegistry;
+  private final int mappingThreads;
 
   public MappingConfig(
       PermissionSystemService permissionSystemService,
@@ -55,7 +59,9 @@ public class MappingConfig {
       AttributeFactory attrMetaFactory,
       MappingProjectMetadata mappingProjectMeta,
       EntityManager entityManager,
-      JsMagmaScriptEvaluator jsMagmaScriptEvaluator) {
+      JsMagmaScriptEvaluator jsMagmaScriptEvaluator,
+      MeterRegistry meterRegistry,
+      @Value("${mapping.threads:4}") int mappingThreads) {
     this.permissionSystemService = requireNonNull(permissionSystemService);
     this.dataService = requireNonNull(dataService);
     this.semanticSearchService = requireNonNull(semanticSearchService);
@@ -66,9 +72,11 @@ public class MappingConfig {
     this.mappingProjectMeta = requireNonNull(mappingProjectMeta);
     this.entityManager = requireNonNull(entityManager);
     this.jsMagmaScriptEvaluator = requireNonNull(jsMagmaScriptEvaluator);
+    this.meterRegistry = requireNonNull(meterRegistry);
+    this.mappingThreads = mappingThreads;
   }
 
-  @Bean
+  @Bean(destroyMethod = "shutdown")
   public MappingService mappingService() {
     return new MappingServiceImpl(
         dataService,
@@ -76,7 +84,8 @@ public class MappingConfig {
         mappingProjectRepository(),
         permissionSystemService,
         attrMetaFactory,
-        entityManager);
+        entityManager,
+        mappingThreads);
   }
 
   @Bean
@@ -88,7 +97,11 @@ public class MappingConfig {
   @Bean
   public AlgorithmService algorithmServiceImpl() {
     return new AlgorithmServiceImpl(
-        semanticSearchService, algorithmGeneratorService(), entityManager, jsMagmaScriptEvaluator);
+        semanticSearchService,
+        algorithmGeneratorService(),
+        entityManager,
+        jsMagmaScriptEvaluator,
+        meterRegistry);
   }
 
   @Bean
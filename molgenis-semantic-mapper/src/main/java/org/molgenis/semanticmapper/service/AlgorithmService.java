@@ -31,6 +31,17 @@ public interface AlgorithmService {
       EntityType sourceEntityType,
       int depth);
 
+  /**
+   * Creates an algorithm service that evaluates algorithms using a script engine of its own. Script
+   * engines are not thread-safe, threads that apply mappings concurrently should each use their own
+   * algorithm service. The compiled algorithms of the script engine are cached for the lifetime of
+   * the algorithm service, so algorithm services should be reused.
+   *
+   * @param name name that distinguishes the script engine metrics of the algorithm service
+   * @return new algorithm service
+   */
+  AlgorithmService withNewScriptEngine(String name);
+
   /**
    * Retrieves the names of the source attributes in an algorithm
    *
@@ -17,6 +17,9 @@ import static org.molgenis.data.meta.AttributeType.DECIMAL;
 import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.LONG;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -33,6 +36,7 @@ import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.js.magma.JsMagmaScriptEvaluator;
+import org.molgenis.js.nashorn.NashornScriptEngine;
 import org.molgenis.script.core.ScriptException;
 import org.molgenis.security.core.runas.RunAsSystem;
 import org.molgenis.semanticmapper.algorithmgenerator.bean.GeneratedAlgorithm;
@@ -55,16 +59,19 @@ public class AlgorithmServiceImpl implements AlgorithmService {
   private final AlgorithmGeneratorService algorithmGeneratorService;
   private final JsMagmaScriptEvaluator jsMagmaScriptEvaluator;
   private final EntityManager entityManager;
+  private final MeterRegistry meterRegistry;
 
   public AlgorithmServiceImpl(
       SemanticSearchService semanticSearchService,
       AlgorithmGeneratorService algorithmGeneratorService,
       EntityManager entityManager,
-      JsMagmaScriptEvaluator jsMagmaScriptEvaluator) {
+      JsMagmaScriptEvaluator jsMagmaScriptEvaluator,
+      MeterRegistry meterRegistry) {
     this.semanticSearchService = requireNonNull(semanticSearchService);
     this.algorithmGeneratorService = requireNonNull(algorithmGeneratorService);
     this.entityManager = requireNonNull(entityManager);
     this.jsMagmaScriptEvaluator = requireNonNull(jsMagmaScriptEvaluator);
+    this.meterRegistry = requireNonNull(meterRegistry);
   }
 
   @Override
@@ -165,6 +172,26 @@ public class AlgorithmServiceImpl implements AlgorithmService {
     return convert(result, attributeMapping.getTargetAttribute());
   }
 
+  @Override
+  public AlgorithmService withNewScriptEngine(String name) {
+    JsMagmaScriptEvaluator scriptEvaluator;
+    try {
+      NashornScriptEngine scriptEngine = new NashornScriptEngine();
+      scriptEngine.bindTo(meterRegistry, "js.expressions." + name);
+      scriptEvaluator = new JsMagmaScriptEvaluator(scriptEngine);
+    } catch (javax.script.ScriptException e) {
+      throw new ScriptException(e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new AlgorithmServiceImpl(
+        semanticSearchService,
+        algorithmGeneratorService,
+        entityManager,
+        scriptEvaluator,
+        meterRegistry);
+  }
+
   @Override
   public Collection<String> getSourceAttributeNames(String algorithmScript) {
     Collection<String> result = emptyList();
@@ -13,14 +13,22 @@ import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.MAPPING_PROJECT;
 import static org.molgenis.semanticmapper.meta.MappingProjectMetadata.NAME;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
 import org.molgenis.data.UnknownEntityException;
@@ -41,6 +49,7 @@ import org.molgenis.semanticmapper.repository.MappingProjectRepository;
 import org.molgenis.semanticmapper.service.AlgorithmService;
 import org.molgenis.semanticmapper.service.MappingService;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.transaction.annotation.Transactional;
 
 @PreAuthorize("hasAnyRole('ROLE_SU')")
@@ -55,20 +64,42 @@ public class MappingServiceImpl implements MappingService {
   private final PermissionSystemService permissionSystemService;
   private final AttributeFactory attrMetaFactory;
   private final EntityManager entityManager;
+  private final int mappingThreads;
+  /** worker threads shared by all mapping jobs, see {@link #shutdown()} */
+  private final ExecutorService executorService;
+  /** algorithm service with the script engine of the worker thread */
+  private final ThreadLocal<AlgorithmService> workerAlgorithmService =
+      ThreadLocal.withInitial(this::createWorkerAlgorithmService);
 
+  /**
+   * @param mappingThreads number of worker threads that map batches of source entities
+   *     concurrently, each worker thread evaluates algorithms with a script engine of its own that
+   *     is reused by subsequent mapping jobs
+   */
   public MappingServiceImpl(
       DataService dataService,
       AlgorithmService algorithmService,
       MappingProjectRepository mappingProjectRepository,
       PermissionSystemService permissionSystemService,
       AttributeFactory attrMetaFactory,
-      EntityManager entityManager) {
+      EntityManager entityManager,
+      int mappingThreads) {
     this.dataService = requireNonNull(dataService);
     this.algorithmService = requireNonNull(algorithmService);
     this.mappingProjectRepository = requireNonNull(mappingProjectRepository);
     this.permissionSystemService = requireNonNull(permissionSystemService);
     this.attrMetaFactory = requireNonNull(attrMetaFactory);
     this.entityManager = requireNonNull(entityManager);
+    if (mappingThreads < 1) {
+      throw new IllegalArgumentException("Number of mapping threads must be at least 1");
+    }
+    this.mappingThreads = mappingThreads;
+    this.executorService = createExecutorService(mappingThreads);
+  }
+
+  /** Stops the worker threads, called when the application context is closed. */
+  public void shutdown() {
+    executorService.shutdownNow();
   }
 
   @Override
@@ -332,56 +363,167 @@ public class MappingServiceImpl implements MappingService {
         .sum();
   }
 
-  /** Package-private for testability */
+  /**
+   * Maps the source entities to the target repository. Batches of source entities are mapped
+   * concurrently on a pool of worker threads while the calling thread reads the source and writes
+   * the mapped batches to the target repository in source order. Progress is reported, and job
+   * cancellation is detected, on the calling thread each time a batch is written.
+   *
+   * <p>The calling thread reads the source entities including the referenced entities up to the
+   * mapping depth, so that the worker threads do not read data outside the transaction of the
+   * calling thread.
+   *
+   * <p>Package-private for testability
+   */
   long applyMappingToRepo(
       EntityMapping sourceMapping, Repository<Entity> targetRepo, Progress progress, int depth) {
     progress.status(format("Mapping source [%s]...", sourceMapping.getLabel()));
     AtomicLong counter = new AtomicLong();
 
     boolean canAdd = targetRepo.count() == 0;
-    dataService
-        .getRepository(sourceMapping.getName())
-        .forEachBatched(
-            entities ->
-                processBatch(sourceMapping, targetRepo, progress, counter, canAdd, entities, depth),
-            MAPPING_BATCH_SIZE);
+    EntityType targetEntityType = targetRepo.getEntityType();
+
+    Fetch sourceFetch = createSourceFetch(sourceMapping.getSourceEntityType(), depth);
+    Deque<Future<List<Entity>>> mappedBatches = new ArrayDeque<>(mappingThreads + 1);
+    try {
+      dataService
+          .getRepository(sourceMapping.getName())
+          .forEachBatched(
+              sourceFetch,
+              entities -> {
+                mappedBatches.add(
+                    executorService.submit(
+                        () ->
+                            mapEntities(
+                                sourceMapping,
+                                targetEntityType,
+                                entities,
+                                depth,
+                                workerAlgorithmService.get())));
+                // limit the number of mapped batches that are kept in memory
+                if (mappedBatches.size() > mappingThreads) {
+                  writeBatch(targetRepo, progress, counter, canAdd, mappedBatches.remove());
+                }
+              },
+              MAPPING_BATCH_SIZE);
+      while (!mappedBatches.isEmpty()) {
+        writeBatch(targetRepo, progress, counter, canAdd, mappedBatches.remove());
+      }
+    } finally {
+      // stop mapping the remaining batches once the job is canceled or a batch failed
+      mappedBatches.forEach(mappedBatch -> mappedBatch.cancel(true));
+    }
 
     progress.status(format("Mapped %s [%s] entities.", counter, sourceMapping.getLabel()));
     return counter.get();
   }
 
-  private void processBatch(
-      EntityMapping sourceMapping,
+  /**
+   * Creates a fetch of the attributes that the algorithms can read: all attributes of the source
+   * entity and of the referenced entities up to the given depth, and the identifiers of the
+   * entities referenced at that depth.
+   */
+  private static Fetch createSourceFetch(EntityType entityType, int depth) {
+    Fetch fetch = new Fetch();
+    if (depth == 0) {
+      fetch.field(entityType.getIdAttribute().getName());
+    } else {
+      for (Attribute attr : entityType.getAtomicAttributes()) {
+        if (attr.hasRefEntity()) {
+          fetch.field(attr.getName(), createSourceFetch(attr.getRefEntity(), depth - 1));
+        } else {
+          fetch.field(attr.getName());
+        }
+      }
+    }
+    return fetch;
+  }
+
+  /**
+   * Creates an algorithm service for the current worker thread. Script engines are not thread-safe,
+   * so each worker thread uses a script engine of its own.
+   */
+  private AlgorithmService createWorkerAlgorithmService() {
+    return algorithmService.withNewScriptEngine(Thread.currentThread().getName());
+  }
+
+  /**
+   * Creates an executor service for the worker threads that runs tasks with the security context of
+   * the thread that submits them.
+   */
+  private static ExecutorService createExecutorService(int mappingThreads) {
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            mappingThreads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-mapping-%d")
+                .setDaemon(true)
+                .build());
+    return new DelegatingSecurityContextExecutorService(executorService);
+  }
+
+  private void writeBatch(
       Repository<Entity> targetRepo,
       Progress progress,
       AtomicLong counter,
       boolean canAdd,
-      List<Entity> entities,
-      int depth) {
-    List<Entity> mappedEntities =
-        mapEntities(sourceMapping, targetRepo.getEntityType(), entities, depth);
+      Future<List<Entity>> mappedBatch) {
+    List<Entity> mappedEntities = getMappedEntities(mappedBatch);
     if (canAdd) {
       targetRepo.add(mappedEntities.stream());
     } else {
       targetRepo.upsertBatch(mappedEntities);
     }
     progress.increment(1);
-    counter.addAndGet(entities.size());
+    counter.addAndGet(mappedEntities.size());
+  }
+
+  private static List<Entity> getMappedEntities(Future<List<Entity>> mappedBatch) {
+    try {
+      return mappedBatch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new MolgenisDataException(cause);
+      }
+    }
   }
 
   private List<Entity> mapEntities(
-      EntityMapping sourceMapping, EntityType targetMetaData, List<Entity> entities, int depth) {
+      EntityMapping sourceMapping,
+      EntityType targetMetaData,
+      List<Entity> entities,
+      int depth,
+      AlgorithmService algorithmService) {
     return entities
         .stream()
         .map(
             sourceEntity ->
-                applyMappingToEntity(sourceMapping, sourceEntity, targetMetaData, depth))
+                applyMappingToEntity(
+                    sourceMapping, sourceEntity, targetMetaData, depth, algorithmService))
         .collect(toList());
   }
 
   /** Package-private for testablility */
   Entity applyMappingToEntity(
       EntityMapping sourceMapping, Entity sourceEntity, EntityType targetMetaData, int depth) {
+    return applyMappingToEntity(
+        sourceMapping, sourceEntity, targetMetaData, depth, algorithmService);
+  }
+
+  private Entity applyMappingToEntity(
+      EntityMapping sourceMapping,
+      Entity sourceEntity,
+      EntityType targetMetaData,
+      int depth,
+      AlgorithmService algorithmService) {
     Entity target = entityManager.create(targetMetaData, POPULATE);
 
     if (targetMetaData.getAttribute(SOURCE) != null) {
@@ -397,7 +539,8 @@ public class MappingServiceImpl implements MappingService {
                     sourceEntity,
                     target,
                     sourceMapping.getSourceEntityType(),
-                    depth));
+                    depth,
+                    algorithmService));
     return target;
   }
 
@@ -406,7 +549,8 @@ public class MappingServiceImpl implements MappingService {
       Entity sourceEntity,
       Entity target,
       EntityType entityType,
-      int depth) {
+      int depth,
+      AlgorithmService algorithmService) {
     String targetAttributeName = attributeMapping.getTargetAttribute().getName();
     Object typedValue = algorithmService.apply(attributeMapping, sourceEntity, entityType, depth);
     target.set(targetAttributeName, typedValue);
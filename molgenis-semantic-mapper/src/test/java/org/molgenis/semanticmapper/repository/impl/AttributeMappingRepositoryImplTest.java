@@ -16,6 +16,8 @@ import static org.molgenis.semanticmapper.meta.AttributeMappingMetadata.SOURCE_A
 import static org.molgenis.semanticmapper.meta.AttributeMappingMetadata.TARGET_ATTRIBUTE;
 import static org.testng.Assert.assertEquals;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collection;
 import java.util.List;
 import org.molgenis.data.AbstractMolgenisSpringTest;
@@ -277,6 +279,11 @@ public class AttributeMappingRepositoryImplTest extends AbstractMolgenisSpringTe
       return mock(JsMagmaScriptEvaluator.class);
     }
 
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+
     @Bean
     public OntologyTagService ontologyTagService() {
       return mock(OntologyTagService.class);
@@ -6,6 +6,8 @@ import static org.molgenis.semanticmapper.mapping.model.AttributeMapping.Algorit
 import static org.testng.Assert.assertEquals;
 
 import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collection;
 import java.util.List;
 import org.mockito.Mockito;
@@ -197,6 +199,11 @@ public class EntityMappingRepositoryImplTest extends AbstractMolgenisSpringTest
       return Mockito.mock(JsMagmaScriptEvaluator.class);
     }
 
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+
     @Bean
     public OntologyTagService ontologyTagService() {
       return Mockito.mock(OntologyTagService.class);
@@ -25,6 +25,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 
 import com.google.common.collect.LinkedHashMultimap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.text.ParseException;
 import java.time.Instant;
@@ -581,7 +582,8 @@ public class AlgorithmServiceImplIT extends AbstractMolgenisSpringTest {
           semanticSearchService(),
           algorithmGeneratorService(),
           entityManager(),
-          jsScriptEvaluator());
+          jsScriptEvaluator(),
+          new SimpleMeterRegistry());
     }
 
     @Bean
@@ -8,8 +8,13 @@ import static org.molgenis.data.meta.AttributeType.DECIMAL;
 import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.LONG;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
 
 import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.Mock;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
@@ -19,6 +24,7 @@ import org.molgenis.js.magma.JsMagmaScriptEvaluator;
 import org.molgenis.script.core.ScriptException;
 import org.molgenis.semanticmapper.algorithmgenerator.service.AlgorithmGeneratorService;
 import org.molgenis.semanticmapper.mapping.model.AttributeMapping;
+import org.molgenis.semanticmapper.service.AlgorithmService;
 import org.molgenis.semanticsearch.service.OntologyTagService;
 import org.molgenis.semanticsearch.service.SemanticSearchService;
 import org.molgenis.test.AbstractMockitoTest;
@@ -32,18 +38,32 @@ public class AlgorithmServiceImplTest extends AbstractMockitoTest {
   @Mock private EntityManager entityManager;
   @Mock private JsMagmaScriptEvaluator jsMagmaScriptEvaluator;
 
+  private MeterRegistry meterRegistry;
   private AlgorithmServiceImpl algorithmServiceImpl;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
     algorithmServiceImpl =
         new AlgorithmServiceImpl(
-            semanticSearhService, algorithmGeneratorService, entityManager, jsMagmaScriptEvaluator);
+            semanticSearhService,
+            algorithmGeneratorService,
+            entityManager,
+            jsMagmaScriptEvaluator,
+            meterRegistry);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testAlgorithmServiceImpl() {
-    new AlgorithmServiceImpl(null, null, null, null);
+    new AlgorithmServiceImpl(null, null, null, null, null);
+  }
+
+  @Test
+  public void testWithNewScriptEngine() {
+    AlgorithmService algorithmService = algorithmServiceImpl.withNewScriptEngine("worker");
+    assertTrue(algorithmService instanceof AlgorithmServiceImpl);
+    assertNotSame(algorithmService, algorithmServiceImpl);
+    assertNotNull(meterRegistry.find("cache.gets").tag("cache", "js.expressions.worker").meter());
   }
 
   @Test(
@@ -2,9 +2,13 @@ package org.molgenis.semanticmapper.service.impl;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -23,6 +27,7 @@ import static org.molgenis.semanticmapper.service.impl.MappingServiceImpl.MAPPIN
 import static org.molgenis.semanticmapper.service.impl.MappingServiceImpl.SOURCE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
 
 import com.google.common.collect.Lists;
 import java.util.Collection;
@@ -30,6 +35,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
@@ -42,6 +48,7 @@ import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
@@ -75,12 +82,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-@ContextConfiguration(
-    classes = {
-      MappingServiceImplTest.Config.class,
-      MappingServiceImpl.class,
-      EntityBaseTestConfig.class
-    })
+@ContextConfiguration(classes = {MappingServiceImplTest.Config.class, EntityBaseTestConfig.class})
 public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
   private static final String TARGET_HOP_ENTITY = "HopEntity";
   private static final String SOURCE_GENE_ENTITY = "Gene";
@@ -134,6 +136,8 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.reset(geneRepo);
     Mockito.reset(exonRepo);
     Mockito.reset(progress);
+    Mockito.reset(algorithmService);
+    when(algorithmService.withNewScriptEngine(anyString())).thenReturn(algorithmService);
 
     package_ = packageFactory.create("package");
 
@@ -361,13 +365,14 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
             invocationOnMock -> {
               @SuppressWarnings("unchecked")
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
 
               consumer.accept(sourceGeneEntities);
               return null;
             })
         .when(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            any(Fetch.class), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
 
     // make project and apply mappings once
     MappingProject project = createMappingProjectWithMappings();
@@ -385,7 +390,10 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
         4);
 
     Mockito.verify(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), ArgumentMatchers.any(Integer.class));
+        .forEachBatched(
+            any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            ArgumentMatchers.any(Integer.class));
 
     ArgumentCaptor<EntityType> entityTypeCaptor = ArgumentCaptor.forClass(EntityType.class);
     Mockito.verify(permissionSystemService)
@@ -436,12 +444,13 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
             invocationOnMock -> {
               @SuppressWarnings("unchecked")
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
               consumer.accept(sourceGeneEntities);
               return null;
             })
         .when(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            any(Fetch.class), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
 
     // make project and apply mappings once
     MappingProject project = createMappingProjectWithMappings();
@@ -456,7 +465,10 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
         4);
 
     Mockito.verify(geneRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), ArgumentMatchers.any(Integer.class));
+        .forEachBatched(
+            any(Fetch.class),
+            ArgumentMatchers.any(Consumer.class),
+            ArgumentMatchers.any(Integer.class));
 
     Mockito.verify(updateEntityRepo).upsertBatch(batchCaptor.capture());
     Assert.assertTrue(EntityUtils.equalsEntities(batchCaptor.getValue(), expectedEntities));
@@ -480,6 +492,8 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
 
     EntityType sourceEntityType = mock(EntityType.class);
     when(sourceEntityType.getLabel()).thenReturn("test");
+    when(sourceEntityType.getAtomicAttributes()).thenReturn(emptyList());
+    when(sourceMapping.getSourceEntityType()).thenReturn(sourceEntityType);
     when(sourceRepo.getEntityType()).thenReturn(sourceEntityType);
     when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
     when(targetRepo.count()).thenReturn(0L);
@@ -496,7 +510,7 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.doAnswer(
             invocationOnMock -> {
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
 
               consumer.accept(batch);
               consumer.accept(batch);
@@ -504,7 +518,8 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
               return null;
             })
         .when(sourceRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            any(Fetch.class), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
 
     mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress, 3);
 
@@ -523,6 +538,8 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     EntityMapping sourceMapping = mock(EntityMapping.class);
     when(sourceMapping.getLabel()).thenReturn("sourceMappingLabel");
     when(sourceMapping.getName()).thenReturn("sourceMappingID");
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceMapping.getSourceEntityType()).thenReturn(sourceEntityType);
 
     when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
     when(targetRepo.count()).thenReturn(3L);
@@ -540,13 +557,14 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.doAnswer(
             invocationOnMock -> {
               Consumer<List<Entity>> consumer =
-                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(0);
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
               consumer.accept(batch);
               consumer.accept(batch);
               return null;
             })
         .when(sourceRepo)
-        .forEachBatched(ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+        .forEachBatched(
+            any(Fetch.class), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
 
     mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress, 3);
 
@@ -557,6 +575,150 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     Mockito.verifyNoMoreInteractions(progress);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testApplyMappingsToRepoWritesBatchesInOrder() {
+    Repository<Entity> targetRepo = mock(Repository.class);
+    Repository<Entity> sourceRepo = mock(Repository.class);
+    EntityMapping sourceMapping = mock(EntityMapping.class);
+    when(sourceMapping.getLabel()).thenReturn("sourceMappingLabel");
+    when(sourceMapping.getName()).thenReturn("sourceMappingID");
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceMapping.getSourceEntityType()).thenReturn(sourceEntityType);
+
+    when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    when(targetRepo.count()).thenReturn(3L);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetRepo.getEntityType()).thenReturn(targetEntityType);
+
+    Mockito.doAnswer(
+            invocationOnMock -> {
+              Consumer<List<Entity>> consumer =
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
+              for (int i = 1; i <= 5; i++) {
+                List<Entity> batch = newArrayList();
+                for (int j = 0; j < i; j++) {
+                  batch.add(mock(Entity.class));
+                }
+                consumer.accept(batch);
+              }
+              return null;
+            })
+        .when(sourceRepo)
+        .forEachBatched(
+            any(Fetch.class), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+
+    assertEquals(mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress, 3), 15L);
+
+    Mockito.verify(targetRepo, Mockito.times(5)).upsertBatch(batchCaptor.capture());
+    assertEquals(
+        batchCaptor.getAllValues().stream().map(List::size).collect(toList()),
+        asList(1, 2, 3, 4, 5));
+    Mockito.verify(progress, Mockito.times(5)).increment(1);
+  }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp = "mapping failed")
+  @SuppressWarnings("unchecked")
+  public void testApplyMappingsToRepoMappingFails() {
+    Repository<Entity> targetRepo = mock(Repository.class);
+    Repository<Entity> sourceRepo = mock(Repository.class);
+    EntityMapping sourceMapping = mock(EntityMapping.class);
+    when(sourceMapping.getName()).thenReturn("sourceMappingID");
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceMapping.getSourceEntityType()).thenReturn(sourceEntityType);
+
+    when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetRepo.getEntityType()).thenReturn(targetEntityType);
+    when(entityManager.create(targetEntityType, EntityManager.CreationMode.POPULATE))
+        .thenThrow(new MolgenisDataException("mapping failed"));
+
+    Mockito.doAnswer(
+            invocationOnMock -> {
+              Consumer<List<Entity>> consumer =
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
+              consumer.accept(newArrayList(mock(Entity.class)));
+              return null;
+            })
+        .when(sourceRepo)
+        .forEachBatched(
+            any(Fetch.class), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+
+    mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress, 3);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testApplyMappingsToRepoCanceled() {
+    Repository<Entity> targetRepo = mock(Repository.class);
+    Repository<Entity> sourceRepo = mock(Repository.class);
+    EntityMapping sourceMapping = mock(EntityMapping.class);
+    when(sourceMapping.getName()).thenReturn("sourceMappingID");
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceMapping.getSourceEntityType()).thenReturn(sourceEntityType);
+
+    when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    when(targetRepo.count()).thenReturn(0L);
+    EntityType targetEntityType = mock(EntityType.class);
+    when(targetRepo.getEntityType()).thenReturn(targetEntityType);
+    Mockito.doThrow(new CancellationException()).when(progress).increment(1);
+
+    Mockito.doAnswer(
+            invocationOnMock -> {
+              Consumer<List<Entity>> consumer =
+                  (Consumer<List<Entity>>) invocationOnMock.<Consumer>getArgument(1);
+              for (int i = 0; i < 5; i++) {
+                consumer.accept(newArrayList(mock(Entity.class)));
+              }
+              return null;
+            })
+        .when(sourceRepo)
+        .forEachBatched(
+            any(Fetch.class), ArgumentMatchers.any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+
+    try {
+      mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress, 3);
+      fail("expected CancellationException");
+    } catch (CancellationException e) {
+      Mockito.verify(targetRepo).add(ArgumentMatchers.any(Stream.class));
+      Mockito.verify(progress).increment(1);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testApplyMappingsToRepoFetchesReferencedEntities() {
+    Repository<Entity> targetRepo = mock(Repository.class);
+    Repository<Entity> sourceRepo = mock(Repository.class);
+    EntityMapping sourceMapping = mock(EntityMapping.class);
+    when(sourceMapping.getName()).thenReturn("sourceMappingID");
+
+    Attribute refIdAttr = mock(Attribute.class);
+    when(refIdAttr.getName()).thenReturn("refId");
+    EntityType refEntityType = mock(EntityType.class);
+    when(refEntityType.getIdAttribute()).thenReturn(refIdAttr);
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("id");
+    Attribute xrefAttr = mock(Attribute.class);
+    when(xrefAttr.getName()).thenReturn("xref");
+    when(xrefAttr.hasRefEntity()).thenReturn(true);
+    when(xrefAttr.getRefEntity()).thenReturn(refEntityType);
+    EntityType sourceEntityType = mock(EntityType.class);
+    when(sourceEntityType.getAtomicAttributes()).thenReturn(asList(idAttr, xrefAttr));
+    when(sourceMapping.getSourceEntityType()).thenReturn(sourceEntityType);
+
+    when(dataService.getRepository("sourceMappingID")).thenReturn(sourceRepo);
+    when(targetRepo.getEntityType()).thenReturn(mock(EntityType.class));
+
+    mappingService.applyMappingToRepo(sourceMapping, targetRepo, progress, 1);
+
+    Fetch expectedFetch = new Fetch().field("id").field("xref", new Fetch().field("refId"));
+    Mockito.verify(sourceRepo)
+        .forEachBatched(eq(expectedFetch), any(Consumer.class), eq(MAPPING_BATCH_SIZE));
+  }
+
   @Test(
       expectedExceptions = MolgenisDataException.class,
       expectedExceptionsMessageRegExp =
@@ -845,5 +1007,18 @@ public class MappingServiceImplTest extends AbstractMolgenisSpringTest {
     public PermissionSystemService permissionSystemService() {
       return mock(PermissionSystemService.class);
     }
+
+    @Bean
+    public MappingServiceImpl mappingService(
+        DataService dataService, AttributeFactory attributeFactory) {
+      return new MappingServiceImpl(
+          dataService,
+          algorithmService(),
+          mappingProjectRepository(),
+          permissionSystemService(),
+          attributeFactory,
+          entityManager(),
+          2);
+    }
   }
 }